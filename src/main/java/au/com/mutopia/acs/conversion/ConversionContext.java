@@ -0,0 +1,90 @@
+package au.com.mutopia.acs.conversion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Getter;
+import lombok.Setter;
+import au.com.mutopia.acs.conversion.output.AssetStore;
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.util.ImageDataUriEncoder;
+
+/**
+ * The options and state of a single conversion request, which are passed through each
+ * {@link Converter} involved in the conversion.
+ */
+@Getter
+@Setter
+public class ConversionContext {
+
+  /** The ID of the conversion job, which scopes any assets stored for it. */
+  private final String jobId = UUID.randomUUID().toString();
+
+  /** Whether to merge all of the entities into a single one (or equivalent) or not. */
+  private boolean merge = false;
+
+  /**
+   * Whether mesh data should be stored as binary glTF assets referenced by URL, rather than being
+   * embedded into the C3ML.
+   */
+  private boolean binary = false;
+
+  /** Whether to batch the meshes which share a material into a single mesh entity. */
+  private boolean batch = false;
+
+  /** The ratio of their triangles to simplify meshes to, or null to not simplify to a ratio. */
+  private Double simplifyRatio;
+
+  /** The largest error of simplified meshes in metres, or null for no limit. */
+  private Double simplifyError;
+
+  /** The ratios of the triangles of the levels of detail to add to meshes. */
+  private List<Double> lodRatios = new ArrayList<>();
+
+  /** Whether to reorder the triangles and vertices of meshes for the GPU's vertex cache. */
+  private boolean optimize = false;
+
+  /** The store for binary assets of the job. Required if {@link #binary} is set. */
+  private AssetStore assetStore;
+
+  /** Encodes the images of glTF models, sharing the encodings between models. */
+  private final ImageDataUriEncoder imageEncoder = new ImageDataUriEncoder();
+
+  /** Generates the IDs of the entities created by the conversion. */
+  private IdStrategy idStrategy = RandomIdStrategy.INSTANCE;
+
+  public ConversionContext() {}
+
+  /**
+   * @param merge Whether to merge all of the entities into a single one (or equivalent) or not.
+   */
+  public ConversionContext(boolean merge) {
+    this.merge = merge;
+  }
+
+  /**
+   * @return A new ID for an entity created by the conversion.
+   */
+  public String nextId() {
+    return idStrategy.nextId();
+  }
+
+  /**
+   * Stores a binary asset for the job.
+   *
+   * @param name The file name of the asset, unique within the job.
+   * @param data The content of the asset.
+   * @param mediaType The media type to serve the asset with.
+   * @return The URL from which the asset can be retrieved.
+   * @throws ConversionException if the asset could not be stored.
+   */
+  public String storeAsset(String name, byte[] data, String mediaType)
+      throws ConversionException {
+    if (assetStore == null) {
+      throw new ConversionException("No asset store is available for binary assets");
+    }
+    return assetStore.store(jobId, name, data, mediaType);
+  }
+
+}
@@ -16,6 +16,18 @@ public interface Converter {
    */
   public final Color DEFAULT_COLOR = Color.WHITE;
 
+  /**
+   * Converts the given asset into a collection of {@link C3mlEntity} objects.
+   *
+   * @param asset The {@link Asset} to convert.
+   * @param context The options and state of the conversion request.
+   * @return A collection of {@link C3mlEntity} objects corresponding to the entities in the
+   *         {@link Asset}.
+   * @throws ConversionException If the conversion failed.
+   */
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException;
+
   /**
    * Converts the given asset into a collection of {@link C3mlEntity} objects.
    * 
@@ -0,0 +1,13 @@
+package au.com.mutopia.acs.conversion;
+
+/**
+ * Generates the IDs of the entities created by a conversion.
+ */
+public interface IdStrategy {
+
+  /**
+   * @return A new ID, unique within the conversion.
+   */
+  String nextId();
+
+}
@@ -35,19 +35,21 @@ public abstract class OgrConverter extends AbstractConverter {
   }
 
   @Override
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
-    return convertFile(getAssetFile(asset));
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
+    return convertFile(getAssetFile(asset), context);
   }
 
   /**
    * Converts the file to KML using {@link Ogr2Ogr}, then converts the output with a
    * {@link KmlConverter}.
    */
-  protected List<C3mlEntity> convertFile(File file) throws ConversionException {
+  protected List<C3mlEntity> convertFile(File file, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting file " + file + " via ogr2ogr...");
     try {
       File kml = Ogr2Ogr.convertToKml(file);
-      List<C3mlEntity> entities = kmlConverter.convert(new Asset(kml));
+      List<C3mlEntity> entities = kmlConverter.convert(new Asset(kml), context);
       // Remove duplicated 'Name' and 'Description' parameters created when Ogr2Ogr converts to KML.
       for (C3mlEntity entity : entities) {
         entity.getProperties().remove("Name");
@@ -0,0 +1,25 @@
+package au.com.mutopia.acs.conversion;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random (version 4) UUIDs from a {@link ThreadLocalRandom}. Unlike
+ * {@link UUID#randomUUID()}, concurrent conversions don't contend on a shared
+ * {@link java.security.SecureRandom}. The IDs are unique but not suitable as secrets.
+ */
+public class RandomIdStrategy implements IdStrategy {
+
+  /** The shared instance, which is stateless. */
+  public static final RandomIdStrategy INSTANCE = new RandomIdStrategy();
+
+  @Override
+  public String nextId() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    // Set the version (4) and IETF variant bits, as UUID.randomUUID() does.
+    long mostSigBits = (random.nextLong() & ~0xf000L) | 0x4000L;
+    long leastSigBits = (random.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+    return new UUID(mostSigBits, leastSigBits).toString();
+  }
+
+}
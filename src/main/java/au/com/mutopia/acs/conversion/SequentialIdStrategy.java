@@ -0,0 +1,46 @@
+package au.com.mutopia.acs.conversion;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Generates IDs from a prefix and a counter, e.g. <code>3f2a9c0d81e4b7a6-42</code>.
+ *
+ * If the prefix is derived from the content of the converted file (see {@link #forContent}), and
+ * the converter creates its entities in a deterministic order, converting the same file again gives
+ * the same IDs, which lets clients cache the entities.
+ */
+public class SequentialIdStrategy implements IdStrategy {
+
+  /** The number of hex digits of the content hash used as the prefix. */
+  private static final int CONTENT_PREFIX_LENGTH = 16;
+
+  private final String prefix;
+
+  private final AtomicLong counter = new AtomicLong();
+
+  /**
+   * @param prefix The prefix of each ID, which should be unique to the conversion.
+   */
+  public SequentialIdStrategy(String prefix) {
+    this.prefix = prefix + "-";
+  }
+
+  /**
+   * Creates a strategy with a prefix derived from the content of the converted file.
+   *
+   * @param data The content of the converted file.
+   * @return The strategy for the conversion of the file.
+   */
+  public static SequentialIdStrategy forContent(byte[] data) {
+    String hash = Hashing.sha1().hashBytes(data).toString();
+    return new SequentialIdStrategy(hash.substring(0, CONTENT_PREFIX_LENGTH));
+  }
+
+  @Override
+  public String nextId() {
+    return prefix + counter.incrementAndGet();
+  }
+
+}
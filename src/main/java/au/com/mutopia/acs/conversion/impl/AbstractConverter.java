@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.conversion.Converter;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
@@ -14,6 +15,14 @@ import au.com.mutopia.acs.models.c3ml.C3mlEntity;
  */
 public abstract class AbstractConverter implements Converter {
 
+  /**
+   * Default implementation for converting an asset with no options other than merging.
+   */
+  @Override
+  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+    return convert(asset, new ConversionContext(merge));
+  }
+
   /**
    * Default implementation for converting an asset without merging entities.
    */
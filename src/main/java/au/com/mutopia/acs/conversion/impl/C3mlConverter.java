@@ -1,27 +1,60 @@
 package au.com.mutopia.acs.conversion.impl;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import lombok.extern.log4j.Log4j;
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.c3ml.C3mlData;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import au.com.mutopia.acs.transform.C3mlCborReader;
+import au.com.mutopia.acs.transform.CodecRegistry;
+import au.com.mutopia.acs.util.CborDecoder;
 
 /**
- * Converts a C3ML file into a collection of {@link C3mlEntity} objects.
+ * Converts a C3ML file into a collection of {@link C3mlEntity} objects. The file may be JSON or
+ * CBOR, which is recognised by the CBOR self-describe tag at its start.
  */
 @Log4j
 public class C3mlConverter extends AbstractConverter {
 
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  /** The shared JSON readers. */
+  private final CodecRegistry codecs;
+
+  /** Reads C3ML files encoded as CBOR. */
+  private final C3mlCborReader cborReader = new C3mlCborReader();
+
+  public C3mlConverter() {
+    this(new CodecRegistry());
+  }
+
+  /**
+   * @param codecs The shared JSON readers.
+   */
+  public C3mlConverter(CodecRegistry codecs) {
+    this.codecs = codecs;
+  }
+
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting C3ML asset " + asset + "...");
     try {
-      return new ObjectMapper().readValue(new String(asset.getData()), C3mlData.class).getC3mls();
+      byte[] bytes = asset.getData();
+      C3mlData data;
+      if (CborDecoder.isCbor(bytes)) {
+        data = cborReader.read(bytes);
+      } else {
+        data = codecs.getJsonReader(C3mlData.class).readValue(bytes);
+      }
+      for (C3mlEntity entity : data.getC3mls()) {
+        if (entity.getCompressedMesh() != null) {
+          throw new ConversionException("Compressed meshes can't be converted: " + entity);
+        }
+        entity.dequantizeMesh();
+      }
+      return data.getC3mls();
     } catch (IOException e) {
       throw new ConversionException("Failed to convert C3ML asset " + asset, e);
     }
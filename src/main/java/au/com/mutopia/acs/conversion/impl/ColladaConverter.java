@@ -21,14 +21,18 @@ import lombok.extern.log4j.Log4j;
 import org.apache.commons.io.IOUtils;
 import org.xml.sax.SAXException;
 
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.exceptions.InvalidColladaException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
 import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.transform.CodecRegistry;
 import au.com.mutopia.acs.util.ColladaExtraReader;
 import au.com.mutopia.acs.util.CollectionUtils;
 import au.com.mutopia.acs.util.GltfBuilder;
+import au.com.mutopia.acs.util.GltfWriter;
+import au.com.mutopia.acs.util.GltfWriter.GltfMesh;
 import au.com.mutopia.acs.util.mesh.VecMathUtil;
 
 import com.dddviewr.collada.Collada;
@@ -43,6 +47,7 @@ import com.dddviewr.collada.geometry.Mesh;
 import com.dddviewr.collada.geometry.PolyList;
 import com.dddviewr.collada.geometry.Primitives;
 import com.dddviewr.collada.geometry.Triangles;
+import com.dddviewr.collada.images.LibraryImages;
 import com.dddviewr.collada.materials.LibraryMaterials;
 import com.dddviewr.collada.materials.Material;
 import com.dddviewr.collada.nodes.LibraryNodes;
@@ -59,6 +64,7 @@ import com.dddviewr.collada.visualscene.VisualScene;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.primitives.Floats;
+import com.google.common.primitives.Ints;
 
 /**
  * Converts COLLADA files into collections of {@link C3mlEntity} objects.
@@ -67,6 +73,9 @@ import com.google.common.primitives.Floats;
 public class ColladaConverter extends AbstractConverter {
   private final MeshUtil meshUtil = new MeshUtil();
 
+  /** The shared JSON and XML readers and writers. */
+  private final CodecRegistry codecs;
+
   /** Default Geographic location for COLLADA model. */
   private static final List<Double> defaultGeolocation = Lists.newArrayList(0.0, 0.0, 0.0);
 
@@ -141,19 +150,31 @@ public class ColladaConverter extends AbstractConverter {
    */
   private List<Double> geoLocation = null;
 
+  public ColladaConverter() {
+    this(new CodecRegistry());
+  }
+
+  /**
+   * @param codecs The shared JSON and XML readers and writers.
+   */
+  public ColladaConverter(CodecRegistry codecs) {
+    this.codecs = codecs;
+  }
+
   /**
    * Converts the COLLADA {@link Asset} into a list of {@link C3mlEntity}s.
    *
    * @param asset An {@link Asset} representing a COLLADA file.
-   * @param merge Whether to merge the whole file into a single entity (if possible).
+   * @param context The options and state of the conversion request.
    * @return A {@link C3mlEntity} containing the same information as the COLLADA file.
    * @throws ConversionException if the conversion failed.
    */
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting COLLADA asset " + asset + "...");
     try {
       File assetFile = asset.getTemporaryFile();
-      return convert(assetFile, merge);
+      return convert(assetFile, context);
     } catch (IOException e) {
       throw new ConversionException("Error reading content from COLLADA file.");
     }
@@ -164,40 +185,40 @@ public class ColladaConverter extends AbstractConverter {
    * transformations on each converted geometries.
    *
    * @param colladaFile The COLLADA file containing geometries to be converted.
-   * @param merge Whether to merge the whole file into a single entity (if possible).
+   * @param context The options and state of the conversion request.
    * @param rotation The global rotation to be applied on the geometries, in X, Y and Z axis.
    * @param scale The global scale to be applied on the geometries, in X, Y and Z axis.
    * @param geoLocation The global geographic location to be applied (lon, lat, alt).
    * @return A {@link C3mlEntity} with global transformations applied to the COLLADA file.
    * @throws ConversionException if the conversion failed.
    */
-  public List<C3mlEntity> convert(File colladaFile, boolean merge, List<Double> rotation,
-      List<Double> scale, List<Double> geoLocation) throws ConversionException {
+  public List<C3mlEntity> convert(File colladaFile, ConversionContext context,
+      List<Double> rotation, List<Double> scale, List<Double> geoLocation)
+      throws ConversionException {
     this.rotation = rotation;
     this.scale = scale;
     this.geoLocation = geoLocation;
-    return convert(colladaFile, merge);
+    return convert(colladaFile, context);
   }
 
   /**
    * Converts the COLLADA file into a list of {@link C3mlEntity}s.
    *
    * @param colladaFile The COLLADA file containing geometries to be converted.
-   * @param merge Whether to merge the whole file into a single entity (if possible).
+   * @param context The options and state of the conversion request.
    * @return A {@link C3mlEntity} containing the same information as the COLLADA file.
    * @throws ConversionException if the conversion failed.
    */
-  public List<C3mlEntity> convert(File colladaFile, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(File colladaFile, ConversionContext context)
+      throws ConversionException {
     try {
-      if (merge) {
-        C3mlEntity entity =
-            new GltfBuilder().convertMerged(colladaFile, rotation, scale, geoLocation);
-        return ImmutableList.of(entity);
+      Collada collada = populateLibraryMaps(colladaFile.getPath());
+      if (context.isMerge()) {
+        return ImmutableList.of(buildMergedEntity(colladaFile, collada, context));
       }
 
-      populateLibraryMaps(colladaFile.getPath());
       populateCustomParameterMap(colladaFile);
-      return buildEntities();
+      return buildEntities(context);
     } catch (IOException | SAXException | InvalidColladaException e) {
       throw new ConversionException("Error reading content from COLLADA file.");
     }
@@ -207,10 +228,11 @@ public class ColladaConverter extends AbstractConverter {
    * Populate all mappings of COLLADA element IDs with their respective element.
    *
    * @param filePath The path to COLLADA file.
+   * @return The parsed COLLADA document.
    * @throws IOException if the COLLADA file cannot be read.
    * @throws SAXException if the XML in the COLLADA file cannot be parsed.
    */
-  private void populateLibraryMaps(String filePath) throws IOException, SAXException {
+  private Collada populateLibraryMaps(String filePath) throws IOException, SAXException {
     Collada collada = Collada.readFile(filePath);
     visualScene =
         collada.getLibraryVisualScenes().getScene(
@@ -256,6 +278,7 @@ public class ColladaConverter extends AbstractConverter {
         }
       }
     }
+    return collada;
   }
 
   /**
@@ -270,7 +293,7 @@ public class ColladaConverter extends AbstractConverter {
   private void populateCustomParameterMap(File daeFile) {
     try {
       String colladaXml = IOUtils.toString(new FileInputStream(daeFile));
-      customParamMap = new ColladaExtraReader().getExtraProperties(colladaXml);
+      customParamMap = new ColladaExtraReader(codecs).getExtraProperties(colladaXml);
     } catch (IOException e) {
       log.error("Failed to populate custom parameters from DAE file " + daeFile.getAbsolutePath(),
           e);
@@ -398,30 +421,149 @@ public class ColladaConverter extends AbstractConverter {
    * Builds a list of {@link C3mlEntity} from the COLLADA file. Each entity represents the top-level
    * entity in their respective hierarchy of the 3D object model.
    *
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return A list of {@link C3mlEntity} representing the model in COLLADA file.
    * @throws InvalidColladaException if the given ID doesn't exist in the COLLADA.
    */
-  private List<C3mlEntity> buildEntities() throws InvalidColladaException {
+  private List<C3mlEntity> buildEntities(ConversionContext context) throws InvalidColladaException {
     List<C3mlEntity> c3mlEntities = Lists.newArrayList();
     for (Node node : visualScene.getNodes()) {
       Matrix matrix = new Matrix("identity");
       matrix.setData(IDENTITY);
-      c3mlEntities.add(buildEntityFromNode(node, matrix));
+      c3mlEntities.add(buildEntityFromNode(node, matrix, context));
     }
     return c3mlEntities;
   }
 
+  /**
+   * Builds a single {@link C3mlEntity} with all of the COLLADA geometry merged into a glTF mesh.
+   * The glTF is written directly from the parsed meshes, unless the model uses features that only
+   * <code>collada2gltf</code> supports.
+   *
+   * @param colladaFile The COLLADA file the library maps were populated from.
+   * @param collada The parsed COLLADA document.
+   * @param context The options and state of the conversion request.
+   * @return An entity with all of the COLLADA geometry merged into a glTF mesh.
+   * @throws ConversionException if the glTF could not be created.
+   * @throws InvalidColladaException if required COLLADA data is missing.
+   */
+  private C3mlEntity buildMergedEntity(File colladaFile, Collada collada,
+      ConversionContext context) throws ConversionException, InvalidColladaException {
+    GltfBuilder gltfBuilder = new GltfBuilder(codecs);
+    if (requiresCollada2Gltf(collada)) {
+      return gltfBuilder.convertMerged(colladaFile, context, rotation, scale, geoLocation);
+    }
+
+    // glTF is Y-up, and is rotated to Z-up when rendered. Undo that rotation so that the model has
+    // the same orientation as unmerged meshes.
+    Matrix4d rootMatrix = VecMathUtil.createXAxisRotationMatrix(-90);
+    rootMatrix.mul(convertUpAxisMatrix());
+    rootMatrix.mul(VecMathUtil.createScaleMatrix(unitMeter));
+    GltfWriter gltfWriter = new GltfWriter(rootMatrix);
+    Map<String, GltfMesh> gltfMeshes = new HashMap<>();
+    for (Node node : visualScene.getNodes()) {
+      Matrix matrix = new Matrix("identity");
+      matrix.setData(IDENTITY);
+      addNodeToGltf(gltfWriter, gltfMeshes, node, matrix);
+    }
+    return gltfBuilder.convertMerged(colladaFile, gltfWriter, context, rotation, scale,
+        geoLocation);
+  }
+
+  /**
+   * Checks whether the COLLADA model can only be converted to glTF by <code>collada2gltf</code>.
+   * {@link GltfWriter} does not support textures, and only triangle primitives are parsed.
+   *
+   * @param collada The parsed COLLADA document.
+   * @return True if the model has images or non-triangle geometry.
+   */
+  private boolean requiresCollada2Gltf(Collada collada) {
+    LibraryImages libraryImages = collada.getLibraryImages();
+    if (libraryImages != null && !CollectionUtils.isNullOrEmpty(libraryImages.getImages())) {
+      return true;
+    }
+    for (Geometry geometry : geometryMap.values()) {
+      Mesh mesh = geometry.getMesh();
+      if (mesh == null) return true;
+      for (Primitives primitive : mesh.getPrimitives()) {
+        if (!primitive.getClass().equals(Triangles.class)) return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds the geometry of a node and its descendants to a glTF document.
+   *
+   * @param gltfWriter The writer of the glTF document.
+   * @param gltfMeshes Map of geometry and material bindings to the glTF meshes already written for
+   *        them, so that instanced geometry is only written once.
+   * @param node A node from COLLADA file, represents a point on the COLLADA scene.
+   * @param parentMatrix The matrix transformation from parent node.
+   * @throws InvalidColladaException if required COLLADA data is missing.
+   */
+  private void addNodeToGltf(GltfWriter gltfWriter, Map<String, GltfMesh> gltfMeshes, Node node,
+      Matrix parentMatrix) throws InvalidColladaException {
+    Matrix currentMatrix = getCurrentMatrix(node, parentMatrix);
+    for (InstanceGeometry instanceGeom : node.getInstanceGeometry()) {
+      Geometry geom = getGeomFromLibraryGeometries(instanceGeom.getUrl());
+      Map<String, String> materialSymbolToTargetMap = getMaterialSymbolToTargetMap(instanceGeom);
+      String meshKey = geom.getId() + materialSymbolToTargetMap;
+      GltfMesh gltfMesh = gltfMeshes.get(meshKey);
+      if (gltfMesh == null) {
+        gltfMesh = addMeshToGltf(gltfWriter, geom, materialSymbolToTargetMap);
+        gltfMeshes.put(meshKey, gltfMesh);
+      }
+      gltfWriter.addNode(node.getName(), VecMathUtil.matrix4dFromFloats(currentMatrix.getData()),
+          gltfMesh);
+    }
+
+    InstanceNode instanceNode = node.getInstanceNode();
+    if (instanceNode != null) {
+      Node childNode = getNodeFromLibraryNodes(instanceNode.getUrl());
+      addNodeToGltf(gltfWriter, gltfMeshes, childNode, currentMatrix);
+    }
+    for (Node childNode : node.getChildNodes()) {
+      addNodeToGltf(gltfWriter, gltfMeshes, childNode, currentMatrix);
+    }
+  }
+
+  /**
+   * Adds the triangles of a COLLADA geometry to a glTF document, with one primitive per material.
+   *
+   * @param gltfWriter The writer of the glTF document.
+   * @param geom The COLLADA geometry to add.
+   * @param materialSymbolToTargetMap Map of material symbols to the IDs of the bound materials.
+   * @return The glTF mesh that was added.
+   */
+  private GltfMesh addMeshToGltf(GltfWriter gltfWriter, Geometry geom,
+      Map<String, String> materialSymbolToTargetMap) {
+    Mesh mesh = geom.getMesh();
+    String name = geom.getName();
+    GltfMesh gltfMesh =
+        gltfWriter.addMesh((name != null) ? name : geom.getId(), mesh.getPositionData(),
+            mesh.getNormalData());
+    for (Primitives primitive : mesh.getPrimitives()) {
+      String materialTarget = materialSymbolToTargetMap.get(primitive.getMaterial());
+      Color color =
+          (materialTarget != null) ? getColorFromLibraryMaterials(materialTarget) : DEFAULT_COLOR;
+      gltfMesh.addPrimitive(Ints.toArray(getVerticesFromTriangles(primitive)), color);
+    }
+    return gltfMesh;
+  }
+
   /**
    * Builds a list of {@link C3mlEntity} from a node.
    *
    * @param node A node from COLLADA file, represents a point on the COLLADA scene.
    * @param parentMatrix The matrix transformation from parent node.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return A list of {@link C3mlEntity} representing the COLLADA node.
    * @throws InvalidColladaException if required COLLADA data is missing.
    */
-  private C3mlEntity buildEntityFromNode(Node node, Matrix parentMatrix)
-      throws InvalidColladaException {
-    C3mlEntity c3mlEntity = new C3mlEntity();
+  private C3mlEntity buildEntityFromNode(Node node, Matrix parentMatrix,
+      ConversionContext context) throws InvalidColladaException {
+    C3mlEntity c3mlEntity = new C3mlEntity(context.nextId());
     c3mlEntity.setName(node.getName());
     Matrix currentMatrix = getCurrentMatrix(node, parentMatrix);
 
@@ -430,14 +572,16 @@ public class ColladaConverter extends AbstractConverter {
     // Collapse parent node if only one geometry is attached to this node.
     if (instanceGeoms.size() == 1) {
       try {
-        c3mlEntity = buildEntityFromInstanceGeometry(instanceGeoms.get(0), currentMatrix);
+        c3mlEntity = buildEntityFromInstanceGeometry(instanceGeoms.get(0), currentMatrix,
+            context);
       } catch (UnsupportedOperationException e) {
         log.warn(e.getMessage());
       }
     } else {
       for (InstanceGeometry instanceGeom : instanceGeoms) {
         try {
-          c3mlEntity.addChild(buildEntityFromInstanceGeometry(instanceGeom, currentMatrix));
+          c3mlEntity.addChild(
+              buildEntityFromInstanceGeometry(instanceGeom, currentMatrix, context));
         } catch (UnsupportedOperationException e) {
           log.warn(e.getMessage());
         }
@@ -447,7 +591,7 @@ public class ColladaConverter extends AbstractConverter {
     InstanceNode instanceNode = node.getInstanceNode();
     if (instanceNode != null) {
       Node childNode = getNodeFromLibraryNodes(instanceNode.getUrl());
-      c3mlEntity.addChild(buildEntityFromNode(childNode, currentMatrix));
+      c3mlEntity.addChild(buildEntityFromNode(childNode, currentMatrix, context));
     }
 
     // Add any custom parameters that were extracted.
@@ -460,7 +604,7 @@ public class ColladaConverter extends AbstractConverter {
     // Propagate to children nodes.
     List<Node> childNodes = node.getChildNodes();
     for (Node childNode : childNodes) {
-      c3mlEntity.addChild(buildEntityFromNode(childNode, currentMatrix));
+      c3mlEntity.addChild(buildEntityFromNode(childNode, currentMatrix, context));
     }
     return c3mlEntity;
   }
@@ -470,18 +614,29 @@ public class ColladaConverter extends AbstractConverter {
    *
    * @param instanceGeometry The {@link InstanceGeometry} with {@link Geometry} and {@link Color}.
    * @param matrix The matrix transformation to be applied on the model.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The created {@link C3mlEntity}.
    * @throws InvalidColladaException
    */
   private C3mlEntity buildEntityFromInstanceGeometry(InstanceGeometry instanceGeometry,
-      Matrix matrix) throws InvalidColladaException {
+      Matrix matrix, ConversionContext context) throws InvalidColladaException {
     Geometry geom = getGeomFromLibraryGeometries(instanceGeometry.getUrl());
-    List<InstanceMaterial> instanceMaterials = instanceGeometry.getInstanceMaterials();
+    return buildEntityFromGeometry(geom, matrix, getMaterialSymbolToTargetMap(instanceGeometry),
+        context);
+  }
+
+  /**
+   * Gets the materials bound to the primitives of an {@link InstanceGeometry}.
+   *
+   * @param instanceGeometry The {@link InstanceGeometry} binding materials to its geometry.
+   * @return Map of material symbols used by the primitives to the IDs of the bound materials.
+   */
+  private Map<String, String> getMaterialSymbolToTargetMap(InstanceGeometry instanceGeometry) {
     Map<String, String> materialSymbolToTargetMap = new HashMap<>();
-    for (InstanceMaterial instanceMaterial : instanceMaterials) {
+    for (InstanceMaterial instanceMaterial : instanceGeometry.getInstanceMaterials()) {
       materialSymbolToTargetMap.put(instanceMaterial.getSymbol(), instanceMaterial.getTarget());
     }
-    return buildEntityFromGeometry(geom, matrix, materialSymbolToTargetMap);
+    return materialSymbolToTargetMap;
   }
 
   /**
@@ -490,10 +645,11 @@ public class ColladaConverter extends AbstractConverter {
    * @param geom The COLLADA geometry representing the shape of the model.
    * @param matrix The matrix transformation to be applied on the model.
    * @param materialSymbolToTargetMap
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The created {@link C3mlEntity}.
    */
   private C3mlEntity buildEntityFromGeometry(Geometry geom, Matrix matrix,
-      Map<String, String> materialSymbolToTargetMap) {
+      Map<String, String> materialSymbolToTargetMap, ConversionContext context) {
     Mesh mesh = geom.getMesh();
     // Splines are not supported by dae4j, requires xml parser.
     if (mesh == null) {
@@ -538,7 +694,7 @@ public class ColladaConverter extends AbstractConverter {
       throw new UnsupportedOperationException("Unable to parse non-mesh COLLADA node");
     }
 
-    C3mlEntity c3mlEntity = new C3mlEntity();
+    C3mlEntity c3mlEntity = new C3mlEntity(context.nextId());
     String name = geom.getName();
     c3mlEntity.setName((name != null) ? name : geom.getId());
     if (type.equals(C3mlEntityType.MESH)) {
@@ -559,37 +715,26 @@ public class ColladaConverter extends AbstractConverter {
    */
   private void buildEntityFromMesh(C3mlEntity entity, float[] positions, float[] normals,
       List<Integer> inputIndices, Matrix matrix) {
-    List<Double> positionsAsDoubles = CollectionUtils.doublesFromFloats(Floats.asList(positions));
-    List<Double> normalAsDoubles = CollectionUtils.doublesFromFloats(Floats.asList(normals));
-
-    // Apply local matrix transformation to the mesh.
-    Matrix4d matrix4d = VecMathUtil.matrix4dFromFloats(matrix.getData());
-    List<Double> transformedPositions =
-        VecMathUtil.transformMeshPositions(positionsAsDoubles, matrix4d);
-    List<Double> transformedNormal = VecMathUtil.transformMeshNormals(normalAsDoubles, matrix4d);
-
-    // Rotate mesh to ensure that positive Z axis is facing up. Mesh may have X or Y axis facing
-    // upwards in COLLADA exporting tools.
-    Matrix4d upAxisMatrix = convertUpAxisMatrix();
-    List<Double> upAxisPositions =
-        VecMathUtil.transformMeshPositions(transformedPositions, upAxisMatrix);
-    List<Double> upAxisNormals = VecMathUtil.transformMeshNormals(transformedNormal, upAxisMatrix);
-
-    Matrix4d scaleMatrix = VecMathUtil.createScaleMatrix(unitMeter);
-    List<Double> scaledPositions = VecMathUtil.transformMeshPositions(upAxisPositions, scaleMatrix);
-    List<Double> scaledNormals = VecMathUtil.transformMeshNormals(upAxisNormals, scaleMatrix);
-
     // Apply global transformations to the model if exists.
     Matrix4d globalRotationMatrix =
         VecMathUtil.createRotationMatrix(rotation.get(0), rotation.get(1), rotation.get(2));
     Matrix4d globalScaleMatrix =
         VecMathUtil.createScaleMatrix(scale.get(0), scale.get(1), scale.get(2));
-    Matrix4d translateMatrix = VecMathUtil.createTranslationMatrix(0, 0, 0);
-    translateMatrix.mul(globalRotationMatrix);
-    translateMatrix.mul(globalScaleMatrix);
-    List<Double> globalPositions =
-        VecMathUtil.transformMeshPositions(scaledPositions, translateMatrix);
-    List<Double> globalNormals = VecMathUtil.transformMeshNormals(scaledNormals, translateMatrix);
+    Matrix4d transformMatrix = VecMathUtil.createTranslationMatrix(0, 0, 0);
+    transformMatrix.mul(globalRotationMatrix);
+    transformMatrix.mul(globalScaleMatrix);
+    transformMatrix.mul(VecMathUtil.createScaleMatrix(unitMeter));
+    // Rotate mesh to ensure that positive Z axis is facing up. Mesh may have X or Y axis facing
+    // upwards in COLLADA exporting tools.
+    transformMatrix.mul(convertUpAxisMatrix());
+    // Apply local matrix transformation to the mesh.
+    transformMatrix.mul(VecMathUtil.matrix4dFromFloats(matrix.getData()));
+
+    // Transform the mesh once with the combined matrix, rather than once per transformation.
+    double[] globalPositions = VecMathUtil.transformMeshPositions(
+        CollectionUtils.doublesFromFloats(positions), transformMatrix);
+    float[] globalNormals = VecMathUtil.transformMeshNormals(normals, transformMatrix);
+    int[] triangles = Ints.toArray(inputIndices);
 
     double altitude = meshUtil.getMinHeight(globalPositions);
     double height = meshUtil.getMaxHeight(globalPositions) - altitude;
@@ -597,7 +742,7 @@ public class ColladaConverter extends AbstractConverter {
     // Create a Polygon if mesh is a regular prism and height is close to zero.
     if (height < MIN_MESH_HEIGH) {
       Polygon polygon =
-          meshUtil.getPolygon(meshUtil.getFlattenMeshPositions(globalPositions), inputIndices,
+          meshUtil.getPolygon(meshUtil.getFlattenMeshPositions(globalPositions), triangles,
               height, geoLocation.get(1), geoLocation.get(0), altitude);
       if (polygon != null) {
         Polygon simplePolygon =
@@ -622,7 +767,7 @@ public class ColladaConverter extends AbstractConverter {
     entity.setType(C3mlEntityType.MESH);
     entity.setPositions(globalPositions);
     entity.setNormals(globalNormals);
-    entity.setTriangles(inputIndices);
+    entity.setTriangles(triangles);
     entity.setGeoLocation(defaultGeolocation);
     if (geoLocation != null) entity.setGeoLocation(geoLocation);
   }
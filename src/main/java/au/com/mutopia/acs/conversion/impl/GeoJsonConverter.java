@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.List;
 
 import lombok.extern.log4j.Log4j;
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.conversion.OgrConverter;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
@@ -32,9 +33,10 @@ public class GeoJsonConverter extends OgrConverter {
     super(kmlConverter);
   }
 
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting GeoJSON asset " + asset + "...");
-    return super.convert(asset, merge);
+    return super.convert(asset, context);
   }
 
 }
@@ -3,250 +3,391 @@ package au.com.mutopia.acs.conversion.impl;
 import au.com.mutopia.acs.util.mesh.MeshUtil;
 import au.com.mutopia.acs.util.mesh.VecMathUtil;
 import com.google.common.base.Strings;
-import com.google.common.primitives.Doubles;
 import com.vividsolutions.jts.geom.Polygon;
 import gov.nasa.worldwind.geom.Angle;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.vecmath.Matrix4d;
 import lombok.extern.log4j.Log4j;
 
-import org.apache.commons.collections.CollectionUtils;
-
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
 import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
-import au.com.mutopia.acs.util.BimServerAuthenticator;
+import au.com.mutopia.acs.models.ifc.IfcGeometry;
+import au.com.mutopia.acs.models.ifc.IfcObject;
+import au.com.mutopia.acs.transform.CodecRegistry;
+import au.com.mutopia.acs.transform.IfcGeometryReader;
+import au.com.mutopia.acs.util.BimServerClientPool;
 import au.com.mutopia.acs.util.IfcExtractor;
+import au.com.mutopia.acs.util.IfcGeometryStore;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
-import com.google.gson.Gson;
 
 /**
  * Converts IFC files into a collection of {@link C3mlEntity} objects.
  */
 @Log4j
 public class IfcConverter extends AbstractConverter {
-  private final MeshUtil meshUtil = new MeshUtil();
-  private BimServerAuthenticator auth;
+  /** A {@link MeshUtil} confined to each thread, so that it never needs to be thread-safe. */
+  private final ThreadLocal<MeshUtil> meshUtils = new ThreadLocal<MeshUtil>() {
+    @Override
+    protected MeshUtil initialValue() {
+      return new MeshUtil();
+    }
+  };
 
-  private static final String IFC_SITE = "IfcSite";
+  private BimServerClientPool clientPool;
 
-  /**
-   * The scale to be applied on all entities contained within the site.
-   */
-  private double siteScale = 1;
+  /** The geometry previously extracted from IFC files. */
+  private final IfcGeometryStore geometryStore;
 
-  /**
-   * The longitude of the geographic location for all entities within the site.
-   */
-  private double siteLongitude;
+  /** The shared JSON readers. */
+  private final CodecRegistry codecs;
 
-  /**
-   * The latitude of the geographic location for all entities within the site.
-   */
-  private double siteLatitude;
+  /** The pool transforming the geometry of the IFC objects in parallel. */
+  private final ForkJoinPool geometryPool;
+
+  private static final String IFC_SITE = "IfcSite";
+
+  /** The site of objects which are not within a site with a scale or location. */
+  private static final Site DEFAULT_SITE = new Site(1, 0, 0);
 
   private static final String HEIGHT_PROPERTY = "height";
   private static final String AREA_PROPERTY = "area";
   private static final String VOLUME_PROPERTY = "volume";
 
-  @SuppressWarnings("serial")
-  private static final class IfcJson extends HashMap<String, List<Map<String, Object>>> {}
+  /** The type of the degree, minute and second values of the site location. */
+  private static final TypeReference<List<Number>> DMS_TYPE = new TypeReference<List<Number>>() {};
 
-  public IfcConverter(BimServerAuthenticator auth) {
-    this.auth = auth;
+  /**
+   * Creates a converter which extracts the geometry of every IFC file, without storing it.
+   *
+   * @param clientPool The pool of logged in BIMserver sessions.
+   * @param geometryPool The pool transforming the geometry of the IFC objects in parallel.
+   */
+  public IfcConverter(BimServerClientPool clientPool, ForkJoinPool geometryPool) {
+    this(clientPool, new IfcGeometryStore(null, 0), new CodecRegistry(), geometryPool);
+  }
+
+  /**
+   * @param clientPool The pool of logged in BIMserver sessions.
+   * @param geometryStore The geometry previously extracted from IFC files.
+   * @param codecs The shared JSON readers.
+   * @param geometryPool The pool transforming the geometry of the IFC objects in parallel.
+   */
+  public IfcConverter(BimServerClientPool clientPool, IfcGeometryStore geometryStore,
+      CodecRegistry codecs, ForkJoinPool geometryPool) {
+    this.clientPool = clientPool;
+    this.geometryStore = geometryStore;
+    this.codecs = codecs;
+    this.geometryPool = geometryPool;
   }
 
   /**
    * Converts the given IFC asset to a list of {@link C3mlEntity} objects.
    */
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting IFC asset " + asset + "...");
+    File ifcFile = asset.getTemporaryFile();
+    File jsonFile = null;
     try {
-      byte[] json = new IfcExtractor(auth).extractJson(asset.getTemporaryFile());
-      IfcJson ifc = new ObjectMapper().readValue(json, IfcJson.class);
-      List<Map<String, Object>> data = ifc.get("data");
-      return getEntities(data);
+      // Hashing a large IFC file is only worth it if its geometry may be stored.
+      String hash = geometryStore.isEnabled() ? geometryStore.hash(ifcFile) : null;
+      InputStream storedGeometry = hash == null ? null : geometryStore.get(hash);
+      if (storedGeometry == null) {
+        jsonFile = File.createTempFile("ifc-geometry", ".json");
+        new IfcExtractor(clientPool, codecs).extractJson(ifcFile, jsonFile);
+        if (hash != null) {
+          geometryStore.store(hash, jsonFile);
+        }
+      } else {
+        log.debug("Reusing the geometry extracted from IFC file " + hash);
+      }
+      try (InputStream geometry =
+          storedGeometry == null ? new FileInputStream(jsonFile) : storedGeometry) {
+        return getEntities(geometry);
+      }
     } catch (IOException e) {
       throw new ConversionException("Failed to convert IFC asset " + asset + " as file", e);
+    } finally {
+      if (jsonFile != null) {
+        jsonFile.delete();
+      }
     }
   }
 
   /**
-   * Extracts a list of top level {@link C3mlEntity} for each map representing the IFC objects
-   * hierarchy.
+   * Extracts a top level {@link C3mlEntity} for each top level IFC object of the geometry tree,
+   * building each entity as soon as its object has been read. The geometry of each IFC object is
+   * transformed as a separate task of the pool, while the hierarchy is built in order. The values
+   * computed by each task are only set on its entity once all objects have been read.
    *
-   * @param ifcData The list of map representing each IFC objects hierarchy.
+   * @param geometry The geometry tree extracted by BIMserver as JSON.
    * @return A list of the extracted {@link C3mlEntity} objects.
+   * @throws IOException if the stream is not a valid geometry tree, or the geometry of an IFC
+   *         object could not be transformed.
    */
-  private List<C3mlEntity> getEntities(List<Map<String, Object>> ifcData) {
-    List<C3mlEntity> entities = new ArrayList<>();
-    for (Map<String, Object> ifcObject : ifcData) {
-      entities.add(buildEntity(ifcObject));
+  private List<C3mlEntity> getEntities(InputStream geometry) throws IOException {
+    EntityBuilder builder = new EntityBuilder();
+    List<C3mlEntity> meshes = builder.meshes;
+    List<Future<MeshValues>> futures = builder.futures;
+    try {
+      try (IfcGeometryReader reader =
+          new IfcGeometryReader(codecs.getJsonFactory().createParser(geometry))) {
+        reader.read(builder);
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          MeshValues values = futures.get(i).get();
+          if (values != null) {
+            setMeshValues(meshes.get(i), values);
+          }
+        } catch (ExecutionException e) {
+          throw new ConversionException("Failed to transform the geometry of IFC object "
+              + meshes.get(i).getId(), e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ConversionException("Interrupted while transforming IFC geometry", e);
+        }
+      }
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
     }
-    return entities;
+    return builder.entities;
   }
 
   /**
-   * Builds {@link C3mlEntity}s from the map representing the IFC objects hierarchy.
-   *
-   * @param ifcObjectMap The map representing the top level IFC object hierarchy.
+   * Builds the {@link C3mlEntity} hierarchy from the IFC objects as they are read, submitting a
+   * task to the pool to compute the mesh values of each entity with geometry. Each object is
+   * released once its entity is built, so the geometry tree is never held in memory.
    */
-  private C3mlEntity buildEntity(Map<String, Object> ifcObjectMap) {
-    C3mlEntity entity = new C3mlEntity();
+  private class EntityBuilder implements IfcGeometryReader.Handler {
 
-    entity.setId((String) ifcObjectMap.get("id"));
-    entity.setName((String) ifcObjectMap.get("name"));
+    /** The entities of the top level IFC objects. */
+    private final List<C3mlEntity> entities = new ArrayList<>();
 
-    addBasicProperties(ifcObjectMap, entity);
+    /** The entities whose mesh values are being computed. */
+    private final List<C3mlEntity> meshes = new ArrayList<>();
 
-    if (ifcObjectMap.containsKey("geometry")) {
-      addGeometryValues(ifcObjectMap, entity);
-    }
-    if (ifcObjectMap.containsKey("parameters")) {
-      Map<String, Object> parameters = (Map<String, Object>) ifcObjectMap.get("parameters");
-      for (Map.Entry<String, Object> paramEntry : parameters.entrySet()) {
-        entity.addProperty(paramEntry.getKey(), paramEntry.getValue().toString());
-      }
+    /** The task computing the mesh values of each of the meshes. */
+    private final List<Future<MeshValues>> futures = new ArrayList<>();
+
+    /** The entities of the IFC objects being read, with the innermost first. */
+    private final Deque<C3mlEntity> openEntities = new ArrayDeque<>();
+
+    /** The site of each of the IFC objects being read, with the innermost first. */
+    private final Deque<Site> openSites = new ArrayDeque<>();
+
+    @Override
+    public void startObject(IfcObject ifcObject) {
+      C3mlEntity entity = new C3mlEntity(ifcObject.getId());
+      entity.setName(ifcObject.getName());
+      entity.addProperty("type", ifcObject.getType());
+      openEntities.push(entity);
+      openSites.push(getSite(ifcObject, openSites.isEmpty() ? DEFAULT_SITE : openSites.peek()));
     }
 
-    if (ifcObjectMap.containsKey("decomposedBy")) {
-      for (Map<String, Object> childData : (List<Map<String, Object>>) ifcObjectMap
-          .get("decomposedBy")) {
-        entity.addChild(buildEntity(childData));
+    @Override
+    public void endObject(IfcObject ifcObject) {
+      C3mlEntity entity = openEntities.pop();
+      final Site site = openSites.pop();
+      for (Map.Entry<String, String> paramEntry : ifcObject.getParameters().entrySet()) {
+        entity.addProperty(paramEntry.getKey(), paramEntry.getValue());
       }
-    }
-    if (ifcObjectMap.containsKey("contains")) {
-      for (Map<String, Object> childData : (List<Map<String, Object>>) ifcObjectMap.get("contains")) {
-        entity.addChild(buildEntity(childData));
+      final IfcGeometry geometry = ifcObject.getGeometry();
+      if (geometry != null) {
+        meshes.add(entity);
+        futures.add(geometryPool.submit(new Callable<MeshValues>() {
+          @Override
+          public MeshValues call() {
+            return getMeshValues(geometry, site);
+          }
+        }));
+      }
+
+      if (openEntities.isEmpty()) {
+        entities.add(entity);
+      } else {
+        openEntities.peek().addChild(entity);
       }
     }
 
-    return entity;
   }
 
   /**
-   * Sets basic property values on the given {@link C3mlEntity}.
-   * 
-   * @param ifcObjectMap The map of basic property data.
-   * @param entity The entity to set the data on.
+   * Gets the site whose scale and location apply to an IFC object and the objects within it. A
+   * site (or an object without a type) has its own scale and location, while any other object is
+   * within the site of its parent.
+   *
+   * @param ifcObject The IFC object.
+   * @param parentSite The site of the parent of the object.
+   * @return The site of the object.
    */
-  private void addBasicProperties(Map<String, Object> ifcObjectMap, C3mlEntity entity) {
-    String ifcType = (String) ifcObjectMap.get("type");
-    entity.addProperty("type", ifcType);
-
-    if (!Strings.isNullOrEmpty(ifcType) && !ifcType.equals(IFC_SITE)) return;
+  private Site getSite(IfcObject ifcObject, Site parentSite) {
+    String ifcType = ifcObject.getType();
+    if (!Strings.isNullOrEmpty(ifcType) && !ifcType.equals(IFC_SITE)) return parentSite;
 
     // Set the site specific uniform scale, if present.
-    Object lengthUnitConversion = ifcObjectMap.get("lengthUnitConversion");
-    if (lengthUnitConversion == null) {
-      siteScale = 1;
-    } else {
-      siteScale = (double) lengthUnitConversion;
-    }
+    Double lengthUnitConversion = ifcObject.getLengthUnitConversion();
+    double scale = lengthUnitConversion == null ? 1 : lengthUnitConversion;
 
     // Set site specific geolocation if present.
-    Object latitudeObject = ifcObjectMap.get("latitude");
-    Object longitudeObject = ifcObjectMap.get("longitude");
+    String latitudeString = ifcObject.getLatitude();
+    String longitudeString = ifcObject.getLongitude();
 
-    if (latitudeObject == null || longitudeObject == null) {
-      siteLatitude = 0;
-      siteLongitude = 0;
-      return;
+    if (latitudeString == null || longitudeString == null) {
+      return new Site(scale, 0, 0);
     }
 
-    String latitudeString = (String) latitudeObject;
-    String longitudeString = (String) longitudeObject;
-
-    Gson gson = new Gson();
-    ArrayList<Double> latitudeList = gson.fromJson(latitudeString, ArrayList.class);
-    ArrayList<Double> longitudeList = gson.fromJson(longitudeString, ArrayList.class);
+    List<Number> latitudeList;
+    List<Number> longitudeList;
+    try {
+      latitudeList = codecs.getJsonReader(DMS_TYPE).readValue(latitudeString);
+      longitudeList = codecs.getJsonReader(DMS_TYPE).readValue(longitudeString);
+    } catch (IOException e) {
+      log.warn("Invalid site location " + latitudeString + ", " + longitudeString, e);
+      return new Site(scale, 0, 0);
+    }
 
-    siteLatitude =
+    double latitude =
         Angle.fromDMS(latitudeList.get(0).intValue(), Math.abs(latitudeList.get(1).intValue()),
             Math.abs(latitudeList.get(2).intValue())).getDegrees();
 
-    siteLongitude =
+    double longitude =
         Angle.fromDMS(longitudeList.get(0).intValue(), Math.abs(longitudeList.get(1).intValue()),
             Math.abs(longitudeList.get(2).intValue())).getDegrees();
+    return new Site(scale, longitude, latitude);
   }
 
   /**
-   * Sets the geometry values on the given {@link C3mlEntity}.
+   * Computes the mesh values of the entity of an IFC object from its geometry. Nothing is
+   * modified, since the geometry of other objects is transformed at the same time.
    * 
-   * @param ifcObjectMap The map of geometry data.
-   * @param entity The entity to set the data on.
+   * @param geometry The geometry of the IFC object.
+   * @param site The site of the IFC object.
+   * @return The mesh values, or null if the geometry has no triangles.
    */
-  private void addGeometryValues(Map<String, Object> ifcObjectMap, C3mlEntity entity) {
-    Map<String, Object> geometry = (Map<String, Object>) ifcObjectMap.get("geometry");
-    if (geometry.isEmpty()) return;
-
-    String primitive = (String) geometry.get("primitive");
-    String material = (String) geometry.get("material");
-    List<Double> positions = (List<Double>) geometry.get("positions");
-    List<Double> normals = (List<Double>) geometry.get("normals");
-    List<Integer> triangles = (List<Integer>) geometry.get("triangles");
-    List<Double> colorData = (List<Double>) geometry.get("color");
-
-    if (CollectionUtils.isEmpty(positions) || CollectionUtils.isEmpty(normals)
-        || triangles.size() < 3) {
-      return;
-    }
-
-    List<Integer> indices = Lists.newArrayList();
-    for (Integer triangle : triangles) {
-      indices.add(triangle.intValue());
+  private MeshValues getMeshValues(IfcGeometry geometry, Site site) {
+    double[] positions = geometry.getPositions();
+    float[] normals = geometry.getNormals();
+    int[] triangles = geometry.getTriangles();
+    double[] colorData = geometry.getColor();
+
+    if (positions == null || positions.length == 0 || normals == null || normals.length == 0
+        || triangles == null || triangles.length < 3) {
+      return null;
     }
 
     // Apply local matrix transformation if present.
-    if (geometry.containsKey("matrix")) {
-      List<Double> matrix = (List<Double>) geometry.get("matrix");
+    if (geometry.getMatrix() != null) {
       // Apply local matrix transformation to the mesh.
-      Matrix4d matrix4d = VecMathUtil.matrix4dFromDoubles(Doubles.toArray(matrix));
+      Matrix4d matrix4d = VecMathUtil.matrix4dFromDoubles(geometry.getMatrix());
       positions = VecMathUtil.transformMeshPositions(positions, matrix4d);
       normals = VecMathUtil.transformMeshNormals(normals, matrix4d);
     }
 
     // Order of matrix transformation: translate, rotate, scale.
     Matrix4d rotationMatrix = VecMathUtil.createXYZAxisRotationMatrix(0, 0, 0, 0);
-    Matrix4d scaleMatrix = VecMathUtil.createScaleMatrix(siteScale);
+    Matrix4d scaleMatrix = VecMathUtil.createScaleMatrix(site.scale);
     Matrix4d translateMatrix = VecMathUtil.createTranslationMatrix(0, 0, 0);
     translateMatrix.mul(rotationMatrix);
     translateMatrix.mul(scaleMatrix);
-    positions = VecMathUtil.transformMeshPositions(positions, translateMatrix);
-    normals = VecMathUtil.transformMeshNormals(normals, translateMatrix);
 
+    MeshValues values = new MeshValues();
+    values.positions = VecMathUtil.transformMeshPositions(positions, translateMatrix);
+    values.normals = VecMathUtil.transformMeshNormals(normals, translateMatrix);
+    values.triangles = triangles;
+
+    MeshUtil meshUtil = meshUtils.get();
+    double altitude = meshUtil.getMinHeight(values.positions);
+    values.height = meshUtil.getMaxHeight(values.positions) - altitude;
+    Polygon polygon = meshUtil.getPolygon(values.positions, triangles, values.height,
+        site.longitude, site.latitude, altitude);
+    values.area = polygon.getArea();
+
+    values.color = new ArrayList<>();
+    for (int i : new int[] {0, 1, 2, 3}) {
+      long value = Math.round(255.0 * colorData[i]);
+      values.color.add(Integer.valueOf(Long.toString(value)));
+    }
+    values.geoLocation = ImmutableList.of(site.longitude, site.latitude, 0.0);
+    return values;
+  }
+
+  /**
+   * Sets the mesh values computed from the geometry of an IFC object on its entity.
+   *
+   * @param entity The entity to set the data on.
+   * @param values The mesh values of the entity.
+   */
+  private void setMeshValues(C3mlEntity entity, MeshValues values) {
     entity.setType(C3mlEntityType.MESH);
-    entity.setPositions(positions);
-    entity.setNormals(normals);
-    entity.setTriangles(indices);
+    entity.setPositions(values.positions);
+    entity.setNormals(values.normals);
+    entity.setTriangles(values.triangles);
+    entity.addProperty(HEIGHT_PROPERTY, Double.toString(values.height));
+    entity.addProperty(AREA_PROPERTY, Double.toString(values.area));
+    entity.addProperty(VOLUME_PROPERTY, Double.toString(values.height * values.area));
+    entity.setColor(values.color);
+    entity.setGeoLocation(values.geoLocation);
+  }
 
-    double altitude = meshUtil.getMinHeight(positions);
-    double height = meshUtil.getMaxHeight(positions) - altitude;
-    Polygon polygon =
-        meshUtil.getPolygon(positions, triangles, height, siteLongitude, siteLatitude, altitude);
+  /**
+   * The scale and geographic location of a site, which apply to all objects within the site.
+   */
+  private static class Site {
 
-    double area = polygon.getArea();
-    entity.addProperty(HEIGHT_PROPERTY, Double.toString(height));
-    entity.addProperty(AREA_PROPERTY, Double.toString(area));
-    entity.addProperty(VOLUME_PROPERTY, Double.toString(height * area));
+    private final double scale;
 
-    List<Integer> color = new ArrayList<>();
-    for (int i : new int[] {0, 1, 2, 3}) {
-      long value = Math.round(255.0 * colorData.get(i));
-      color.add(Integer.valueOf(Long.toString(value)));
+    private final double longitude;
+
+    private final double latitude;
+
+    private Site(double scale, double longitude, double latitude) {
+      this.scale = scale;
+      this.longitude = longitude;
+      this.latitude = latitude;
     }
-    entity.setColor(color);
 
-    entity.setGeoLocation(ImmutableList.of(siteLongitude, siteLatitude, 0.0));
+  }
+
+  /**
+   * The values of the entity of an IFC object computed from its geometry.
+   */
+  private static class MeshValues {
+
+    private double[] positions;
+
+    private float[] normals;
+
+    private int[] triangles;
+
+    private double height;
+
+    private double area;
+
+    private List<Integer> color;
+
+    private List<Double> geoLocation;
+
   }
 }
@@ -1,11 +1,14 @@
 package au.com.mutopia.acs.conversion.impl;
 
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.Format;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
 import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
 import au.com.mutopia.acs.models.c3ml.Vertex3D;
+import au.com.mutopia.acs.transform.CodecRegistry;
 import au.com.mutopia.acs.util.ZipUtils;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
@@ -87,21 +90,32 @@ public class KmlConverter extends AbstractConverter {
    */
   private Map<String, Map<StyleState, String>> mapForStyleMap = new HashMap<>();
 
-  /** Whether to merge the whole file into a single entity (if possible). */
-  // TODO(orlade): Change to local variable, or create a new instance of KmlConverter each time.
-  private boolean merge = false;
+  /** The shared JSON and XML readers and writers, used when converting COLLADA models. */
+  private final CodecRegistry codecs;
+
+  public KmlConverter() {
+    this(new CodecRegistry());
+  }
+
+  /**
+   * @param codecs The shared JSON and XML readers and writers.
+   */
+  public KmlConverter(CodecRegistry codecs) {
+    this.codecs = codecs;
+  }
 
   /**
    * Converts the KML {@link Asset} into a list of {@link C3mlEntity}s.
    *
    * @param asset An {@link Asset} representing a KML file.
-   * @param merge Whether to merge all of the content into a single entity.
+   * @param context The options and state of the conversion request.
    * @return A {@link C3mlEntity} containing the same information as the KML.
    */
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     try {
       File kmlFile = asset.getTemporaryFile();
-      return convert(kmlFile, merge);
+      return convert(kmlFile, context);
     } catch (IOException e) {
       throw new ConversionException("Error reading content from KML file.");
     }
@@ -111,25 +125,26 @@ public class KmlConverter extends AbstractConverter {
    * Converts the KML file into a list of {@link C3mlEntity}s.
    *
    * @param kmlFile The KML to be converted.
-   * @param merge Whether to merge all of the content into a single entity.
+   * @param context The options and state of the conversion request.
    * @return A {@link C3mlEntity} containing the same information as the KML.
    * @throws ConversionException if the conversion failed.
    */
-  public List<C3mlEntity> convert(File kmlFile, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(File kmlFile, ConversionContext context)
+      throws ConversionException {
     fixXmlSchema(kmlFile);
-    this.merge = merge;
-    return getEntities(kmlFile);
+    return getEntities(kmlFile, context);
   }
 
   /**
    * Converts the KMZ file into a list of {@link C3mlEntity} objects.
    *
    * @param asset An {@link Asset} representing a KMZ file.
-   * @param merge Whether to merge all of the content into a single entity.
+   * @param context The options and state of the conversion request.
    * @return A {@link C3mlEntity} containing the same information as the KMZ file.
    * @throws ConversionException if the conversion failed.
    */
-  public List<C3mlEntity> convertKmz(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convertKmz(Asset asset, ConversionContext context)
+      throws ConversionException {
     try {
       // Extract all KML files to be converted. A KMZ file may have multiple KML.
       List<File> kmlFiles = new ArrayList<>();
@@ -148,7 +163,7 @@ public class KmlConverter extends AbstractConverter {
       }
       List<C3mlEntity> c3mlEntities = new ArrayList<>();
       for (File kml : kmlFiles) {
-        c3mlEntities.addAll(convert(kml, merge));
+        c3mlEntities.addAll(convert(kml, context));
       }
       return c3mlEntities;
     } catch (IOException e) {
@@ -162,9 +177,11 @@ public class KmlConverter extends AbstractConverter {
    * entities are extracted as the top level hierarchy instead.
    *
    * @param kmlFile The KML to extract from.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return A list of the extracted {@link C3mlEntity} objects.
    */
-  private List<C3mlEntity> getEntities(File kmlFile) throws ConversionException {
+  private List<C3mlEntity> getEntities(File kmlFile, ConversionContext context)
+      throws ConversionException {
     kmlFolderPath = kmlFile.getParentFile().getPath();
     Kml kml = Kml.unmarshal(kmlFile);
     generateStyleMaps(kml);
@@ -188,15 +205,15 @@ public class KmlConverter extends AbstractConverter {
     if (kmlFeature instanceof Folder) {
       Folder folder = (Folder) kmlFeature;
       for (Feature feature : folder.getFeature()) {
-        c3mlEntities.add(buildEntity(feature));
+        c3mlEntities.add(buildEntity(feature, context));
       }
     } else if (kmlFeature instanceof Document) {
       Document document = (Document) kmlFeature;
       for (Feature feature : document.getFeature()) {
-        c3mlEntities.add(buildEntity(feature));
+        c3mlEntities.add(buildEntity(feature, context));
       }
     } else {
-      c3mlEntities.add(buildEntity(kmlFeature));
+      c3mlEntities.add(buildEntity(kmlFeature, context));
     }
     return c3mlEntities;
   }
@@ -205,16 +222,18 @@ public class KmlConverter extends AbstractConverter {
    * Creates a {@link C3mlEntity} from a KML feature.
    *
    * @param feature The KML feature element.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The constructed {@link C3mlEntity}.
    */
-  private C3mlEntity buildEntity(Feature feature) throws ConversionException {
+  private C3mlEntity buildEntity(Feature feature, ConversionContext context)
+      throws ConversionException {
     if (feature instanceof Folder) {
-      return buildEntity((Folder) feature);
+      return buildEntity((Folder) feature, context);
     } else if (feature instanceof Document) {
-      return buildEntity((Document) feature);
+      return buildEntity((Document) feature, context);
     } else if (feature instanceof Placemark) {
       Placemark placemark = (Placemark) feature;
-      if (placemark.getGeometry() != null) return buildEntity(placemark);
+      if (placemark.getGeometry() != null) return buildEntity(placemark, context);
     } else if (feature instanceof GroundOverlay) {
       log.debug("Image from ground overlay is not supported yet.");
     }
@@ -225,13 +244,15 @@ public class KmlConverter extends AbstractConverter {
    * Creates a {@link C3mlEntity} from a KML document.
    *
    * @param document The KML document element.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The constructed {@link C3mlEntity}.
    */
-  private C3mlEntity buildEntity(Document document) throws ConversionException {
-    C3mlEntity entity = createEntity(document);
+  private C3mlEntity buildEntity(Document document, ConversionContext context)
+      throws ConversionException {
+    C3mlEntity entity = createEntity(document, context);
     List<Feature> features = document.getFeature();
     for (Feature feature : features) {
-      C3mlEntity child = buildEntity(feature);
+      C3mlEntity child = buildEntity(feature, context);
       entity.addChild(child);
     }
     return entity;
@@ -241,13 +262,15 @@ public class KmlConverter extends AbstractConverter {
    * Creates a {@link C3mlEntity} from a KML folder.
    *
    * @param folder The KML folder element.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The constructed {@link C3mlEntity}.
    */
-  private C3mlEntity buildEntity(Folder folder) throws ConversionException {
-    C3mlEntity entity = createEntity(folder);
+  private C3mlEntity buildEntity(Folder folder, ConversionContext context)
+      throws ConversionException {
+    C3mlEntity entity = createEntity(folder, context);
     List<Feature> features = folder.getFeature();
     for (Feature feature : features) {
-      C3mlEntity child = buildEntity(feature);
+      C3mlEntity child = buildEntity(feature, context);
       entity.addChild(child);
     }
     return entity;
@@ -257,11 +280,13 @@ public class KmlConverter extends AbstractConverter {
    * Creates a {@link C3mlEntity} from a KML placemark.
    *
    * @param placemark The KML placemark element.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The constructed {@link C3mlEntity}.
    */
-  private C3mlEntity buildEntity(Placemark placemark) throws ConversionException {
-    C3mlEntity entity = createEntity(placemark);
-    writeGeometry(entity, placemark, placemark.getGeometry());
+  private C3mlEntity buildEntity(Placemark placemark, ConversionContext context)
+      throws ConversionException {
+    C3mlEntity entity = createEntity(placemark, context);
+    writeGeometry(entity, placemark, placemark.getGeometry(), context);
     return entity;
   }
 
@@ -270,10 +295,11 @@ public class KmlConverter extends AbstractConverter {
    * parameters.
    *
    * @param feature The KML feature element.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @return The created {@link C3mlEntity}.
    */
-  private C3mlEntity createEntity(Feature feature) {
-    C3mlEntity entity = new C3mlEntity();
+  private C3mlEntity createEntity(Feature feature, ConversionContext context) {
+    C3mlEntity entity = new C3mlEntity(context.nextId());
     entity.setName(feature.getName());
     String description = feature.getDescription();
     if (!Strings.isNullOrEmpty(description)) {
@@ -309,9 +335,10 @@ public class KmlConverter extends AbstractConverter {
    *
    * @param entity The {@link C3mlEntity} object.
    * @param geometry The geometry embedded in the KML element.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    */
-  private void writeGeometry(C3mlEntity entity, Placemark placemark, Geometry geometry) throws
-      ConversionException {
+  private void writeGeometry(C3mlEntity entity, Placemark placemark, Geometry geometry,
+      ConversionContext context) throws ConversionException {
     Color placemarkColor = getColor(placemark);
     Color placemarkBorderColor = getBorderColor(placemark);
     // Set colorData to geometries only.
@@ -319,9 +346,9 @@ public class KmlConverter extends AbstractConverter {
       // Each polygon within a MultiGeometry should be an entity.
       entity.setColorData(placemarkColor);
       entity.setBorderColorData(placemarkBorderColor);
-      writeMultiGeometry(entity, placemark, (MultiGeometry) geometry);
+      writeMultiGeometry(entity, placemark, (MultiGeometry) geometry, context);
     } else if (geometry instanceof Model) {
-      writeModel(entity, (Model) geometry);
+      writeModel(entity, (Model) geometry, context);
     } else {
       entity.setColorData(placemarkColor);
       entity.setBorderColorData(placemarkBorderColor);
@@ -373,16 +400,17 @@ public class KmlConverter extends AbstractConverter {
    *
    * @param entity The {@link C3mlEntity} object.
    * @param multiGeometry The multi geometry containing hierarchy of geometries.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    */
   private void writeMultiGeometry(C3mlEntity entity, Placemark placemark,
-      MultiGeometry multiGeometry) throws ConversionException {
+      MultiGeometry multiGeometry, ConversionContext context) throws ConversionException {
     for (int j = 0; j < multiGeometry.getGeometry().size(); j++) {
-      C3mlEntity child = new C3mlEntity();
+      C3mlEntity child = new C3mlEntity(context.nextId());
       child.setName(entity.getName() + "_child_" + j);
       child.setColor(entity.getColor());
       child.setBorderColor(entity.getBorderColor());
       Geometry geometryFromMulti = multiGeometry.getGeometry().get(j);
-      writeGeometry(entity, placemark, geometryFromMulti);
+      writeGeometry(entity, placemark, geometryFromMulti, context);
     }
   }
 
@@ -392,14 +420,16 @@ public class KmlConverter extends AbstractConverter {
    *
    * @param entity The {@link C3mlEntity} object.
    * @param model The model containing complex geometry shapes.
+   * @param context The context of the conversion, which provides the IDs of the entities.
    * @throws ConversionException if the conversion failed.
    */
-  private void writeModel(C3mlEntity entity, Model model) throws ConversionException {
+  private void writeModel(C3mlEntity entity, Model model, ConversionContext context)
+      throws ConversionException {
     try {
       String daeFilePath = kmlFolderPath + File.separator + model.getLink().getHref();
       File daeFile = au.com.mutopia.acs.util.FileUtils.getFileCaseInsensitive(daeFilePath);
 
-      ColladaConverter colladaConverter = new ColladaConverter();
+      ColladaConverter colladaConverter = new ColladaConverter(codecs);
       Location modelOrigin = model.getLocation();
       Scale modelScale = model.getScale();
       // KML's positive rotation is in the clockwise direction.
@@ -416,7 +446,7 @@ public class KmlConverter extends AbstractConverter {
       entity.setGeoLocation(geoLocation);
 
       List<C3mlEntity> modelEntities =
-          colladaConverter.convert(daeFile, merge, rotation, scale, geoLocation);
+          colladaConverter.convert(daeFile, context, rotation, scale, geoLocation);
       for (C3mlEntity modelEntity : modelEntities) {
         entity.addChild(modelEntity);
       }
@@ -426,12 +456,12 @@ public class KmlConverter extends AbstractConverter {
   }
 
   /**
-   * @return The list of {@link Vertex3D} points from a list of coordinates.
+   * @return The packed {@link Vertex3D} points from a list of coordinates.
    */
-  private List<Vertex3D> getVertex3DPointsFromCoordinates(List<Coordinate> coordinates) {
-    List<Vertex3D> points = Lists.newArrayList();
+  private CoordinateBuffer getVertex3DPointsFromCoordinates(List<Coordinate> coordinates) {
+    CoordinateBuffer points = new CoordinateBuffer(coordinates.size());
     for (Coordinate coord : coordinates) {
-      points.add(new Vertex3D(coord.getLatitude(), coord.getLongitude(), coord.getAltitude()));
+      points.addVertex(coord.getLatitude(), coord.getLongitude(), coord.getAltitude());
     }
     return points;
   }
@@ -1,5 +1,6 @@
 package au.com.mutopia.acs.conversion.impl;
 
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.conversion.Converter;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
@@ -31,9 +32,10 @@ public class KmzConverter extends AbstractConverter {
     this.kmlConverter = kmlConverter;
   }
 
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting KML asset " + asset + "...");
-    return kmlConverter.convertKmz(asset, merge);
+    return kmlConverter.convertKmz(asset, context);
   }
 
 }
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lombok.extern.log4j.Log4j;
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
@@ -37,23 +38,25 @@ public class ShapefileConverter extends AbstractConverter {
     this.kmlConverter = kmlConverter;
   }
 
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting Shapefile asset " + asset + "...");
     // Convert a single uploaded SHP file.
-    return convertFiles(ImmutableList.of(getAssetFile(asset)));
+    return convertFiles(ImmutableList.of(getAssetFile(asset)), context);
   }
 
   /**
    * Converts a set of unzipped Shapefile files. First converts the Shapefile to KML using
    * {@link Ogr2Ogr}, then converts that with a {@link KmlConverter}.
    */
-  public List<C3mlEntity> convertFiles(List<File> shapefiles) throws ConversionException {
+  public List<C3mlEntity> convertFiles(List<File> shapefiles, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting Shapefile from files " + Joiner.on(", ").join(shapefiles) + "...");
     try {
       List<C3mlEntity> entities = new ArrayList<>();
       for (File shapefile : shapefiles) {
         File kml = Ogr2Ogr.convertToKml(shapefile);
-        entities.addAll(kmlConverter.convert(new Asset(kml)));
+        entities.addAll(kmlConverter.convert(new Asset(kml), context));
       }
       for (C3mlEntity entity : entities) {
         entity.getProperties().remove("Name");
@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.List;
 
 import lombok.extern.log4j.Log4j;
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.Format;
@@ -39,14 +40,15 @@ public class ZipConverter extends AbstractConverter {
    * Unzips the ZIP archive and passes the files to a {@link ShapefileConverter}. Assumes that all
    * ZIP archives are Shapefiles.
    */
-  public List<C3mlEntity> convert(Asset asset, boolean merge) throws ConversionException {
+  public List<C3mlEntity> convert(Asset asset, ConversionContext context)
+      throws ConversionException {
     log.debug("Converting ZIP asset " + asset + "...");
 
     List<File> shps = ZipUtils.extractByExtension(getAssetFile(asset), Format.SHP.toString());
     if (shps.isEmpty()) {
       throw new ConversionException("Failed to find .shp file.");
     }
-    return shpConverter.convertFiles(shps);
+    return shpConverter.convertFiles(shps, context);
   }
 
 }
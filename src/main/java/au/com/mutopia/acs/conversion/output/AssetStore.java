@@ -0,0 +1,191 @@
+package au.com.mutopia.acs.conversion.output;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.io.FileUtils;
+
+import au.com.mutopia.acs.exceptions.ConversionException;
+
+/**
+ * Stores the binary assets of conversion jobs (such as binary glTF meshes) in temporary files, so
+ * that they can be downloaded separately from the C3ML that references them. The assets of a job
+ * are deleted once the job is older than the retention period, either when the store is next
+ * accessed or by the periodic task started with
+ * {@link #scheduleExpiry(ScheduledExecutorService, long, TimeUnit)}.
+ */
+@Log4j
+public class AssetStore {
+
+  /** The format of the URL of an asset, given the job ID and asset name. */
+  public static final String URL_FORMAT = "/convert/jobs/%s/assets/%s";
+
+  /** The valid characters of job IDs and asset names, which prevents escaping the root directory. */
+  private static final Pattern VALID_NAME = Pattern.compile("[\\w-][\\w.-]*");
+
+  /** The directory containing a subdirectory of assets for each job. */
+  private final File rootDir;
+
+  /** How long to keep the assets of a job, in milliseconds. */
+  private final long retentionMillis;
+
+  /** Map of job IDs to the jobs which have stored assets. */
+  private final ConcurrentMap<String, StoredJob> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * @param rootDir The directory in which to store the assets.
+   * @param retentionMillis How long to keep the assets of a job, in milliseconds.
+   */
+  public AssetStore(File rootDir, long retentionMillis) {
+    this.rootDir = rootDir;
+    this.retentionMillis = retentionMillis;
+  }
+
+  /**
+   * Periodically deletes the assets of expired jobs, so that assets which are never downloaded do
+   * not stay on disk until the store is next used.
+   *
+   * @param executor The executor to run the deletion on.
+   * @param period The time between deletions.
+   * @param unit The unit of the period.
+   * @return The scheduled deletion task, which can be cancelled.
+   */
+  public ScheduledFuture<?> scheduleExpiry(ScheduledExecutorService executor, long period,
+      TimeUnit unit) {
+    return executor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        removeExpiredJobs();
+      }
+    }, period, period, unit);
+  }
+
+  /**
+   * Stores an asset of a job.
+   *
+   * @param jobId The ID of the job the asset belongs to.
+   * @param name The file name of the asset, unique within the job.
+   * @param data The content of the asset.
+   * @param mediaType The media type to serve the asset with, e.g. <code>model/gltf.binary</code>.
+   * @return The URL from which the asset can be retrieved.
+   * @throws ConversionException if the asset could not be stored.
+   */
+  public String store(String jobId, String name, byte[] data, String mediaType)
+      throws ConversionException {
+    removeExpiredJobs();
+    File assetFile = getAssetFile(jobId, name);
+    if (assetFile == null) {
+      throw new ConversionException("Invalid asset name " + name + " for job " + jobId);
+    }
+    StoredJob job = new StoredJob(System.currentTimeMillis());
+    StoredJob existingJob = jobs.putIfAbsent(jobId, job);
+    if (existingJob != null) {
+      job = existingJob;
+    }
+    try {
+      FileUtils.writeByteArrayToFile(assetFile, data);
+    } catch (IOException e) {
+      throw new ConversionException("Failed to store asset " + name + " for job " + jobId, e);
+    }
+    job.mediaTypes.put(name, mediaType);
+    return String.format(URL_FORMAT, jobId, name);
+  }
+
+  /**
+   * Opens a stored asset of a job. The asset stays readable from the returned stream even if it
+   * expires before the stream is closed.
+   *
+   * @param jobId The ID of the job the asset belongs to.
+   * @param name The file name of the asset.
+   * @return The open asset, which must be closed by the caller, or null if it does not exist or
+   *         has expired.
+   */
+  public StoredAsset get(String jobId, String name) {
+    removeExpiredJobs();
+    StoredJob job = jobs.get(jobId);
+    String mediaType = job == null ? null : job.mediaTypes.get(name);
+    File assetFile = getAssetFile(jobId, name);
+    if (mediaType == null || assetFile == null) {
+      return null;
+    }
+    try {
+      return new StoredAsset(new FileInputStream(assetFile), mediaType);
+    } catch (FileNotFoundException e) {
+      // The asset expired after it was looked up.
+      return null;
+    }
+  }
+
+  /**
+   * @return The file of the asset, or null if the job ID or name are not valid file names.
+   */
+  private File getAssetFile(String jobId, String name) {
+    if (!VALID_NAME.matcher(jobId).matches() || !VALID_NAME.matcher(name).matches()) {
+      return null;
+    }
+    return new File(new File(rootDir, jobId), name);
+  }
+
+  /**
+   * Deletes the assets of all jobs older than the retention period.
+   */
+  private void removeExpiredJobs() {
+    long expiryTime = System.currentTimeMillis() - retentionMillis;
+    Iterator<Map.Entry<String, StoredJob>> iterator = jobs.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, StoredJob> job = iterator.next();
+      if (job.getValue().time < expiryTime) {
+        iterator.remove();
+        log.debug("Removing expired assets of job " + job.getKey());
+        FileUtils.deleteQuietly(new File(rootDir, job.getKey()));
+      }
+    }
+  }
+
+  /**
+   * A job which has stored assets.
+   */
+  private static class StoredJob {
+    /** The time at which the first asset of the job was stored. */
+    private final long time;
+
+    /** Map of the names of the stored assets of the job to their media types. */
+    private final Map<String, String> mediaTypes = new ConcurrentHashMap<>();
+
+    private StoredJob(long time) {
+      this.time = time;
+    }
+  }
+
+  /**
+   * An open asset and the media type to serve it with.
+   */
+  @Getter
+  public static class StoredAsset {
+    /** The content of the asset. */
+    private final InputStream inputStream;
+
+    /** The media type of the asset. */
+    private final String mediaType;
+
+    private StoredAsset(InputStream inputStream, String mediaType) {
+      this.inputStream = inputStream;
+      this.mediaType = mediaType;
+    }
+  }
+
+}
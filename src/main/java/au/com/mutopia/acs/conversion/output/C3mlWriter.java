@@ -0,0 +1,736 @@
+package au.com.mutopia.acs.conversion.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import au.com.mutopia.acs.models.c3ml.C3mlData;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.CompressedMesh;
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.models.c3ml.PropertyTable;
+import au.com.mutopia.acs.models.c3ml.QuantizedMesh;
+import au.com.mutopia.acs.transform.RawJsonSerializer;
+import au.com.mutopia.acs.util.CborEncoder;
+import au.com.mutopia.acs.util.DecimalFormatter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Preconditions;
+
+/**
+ * Writes C3ML documents as JSON or CBOR, streaming each entity field by field rather than
+ * introspecting its getters.
+ *
+ * Fields left at their defaults (e.g. empty lists, a scale of 1 or a rotation of 0) are omitted,
+ * and numbers are rounded to a fixed number of decimal places for their units:
+ * <ul>
+ * <li>Longitudes and latitudes, in degrees.</li>
+ * <li>Mesh positions, altitudes and heights, in metres.</li>
+ * <li>Normal vectors, which are unit length.</li>
+ * </ul>
+ * The JSON output can be read back with the same Jackson bindings as the full {@link C3mlData}.
+ *
+ * The CBOR output has the same structure, but starts with the CBOR self-describe tag, and writes
+ * the positions, normals and triangles of meshes as little-endian typed arrays (float64, float32
+ * and uint16 or uint32 respectively) which a client can use as vertex and index buffers directly.
+ * Embedded glTF documents are written as tagged byte strings of JSON. The positions and normals of
+ * a {@link QuantizedMesh} are written as int16 and int8 typed arrays. The data of a
+ * {@link CompressedMesh} is written as a byte string in CBOR, and as a base64 string in JSON.
+ */
+@Getter
+public class C3mlWriter {
+
+  /** The MIME type of C3ML documents encoded as CBOR. */
+  public static final String CBOR_MIME_TYPE = "application/x-c3ml+cbor";
+
+  /** The default decimal places of degrees, about a millimetre at the equator. */
+  public static final int DEFAULT_COORDINATE_DECIMALS = 8;
+
+  /** The default decimal places of metres, i.e. millimetres. */
+  public static final int DEFAULT_POSITION_DECIMALS = 3;
+
+  /** The default decimal places of the components of normal vectors. */
+  public static final int DEFAULT_NORMAL_DECIMALS = 4;
+
+  private final JsonFactory jsonFactory;
+
+  /** The number of decimal places of longitudes and latitudes. */
+  private final int coordinateDecimals;
+
+  /** The number of decimal places of mesh positions, altitudes and heights. */
+  private final int positionDecimals;
+
+  /** The number of decimal places of the components of normal vectors. */
+  private final int normalDecimals;
+
+  /**
+   * Creates a writer with the default precision.
+   *
+   * @param jsonFactory The factory of the JSON generators.
+   */
+  public C3mlWriter(JsonFactory jsonFactory) {
+    this(jsonFactory, DEFAULT_COORDINATE_DECIMALS, DEFAULT_POSITION_DECIMALS,
+        DEFAULT_NORMAL_DECIMALS);
+  }
+
+  /**
+   * @param jsonFactory The factory of the JSON generators.
+   * @param coordinateDecimals The number of decimal places of longitudes and latitudes.
+   * @param positionDecimals The number of decimal places of mesh positions, altitudes and heights.
+   * @param normalDecimals The number of decimal places of the components of normal vectors.
+   */
+  public C3mlWriter(JsonFactory jsonFactory, int coordinateDecimals, int positionDecimals,
+      int normalDecimals) {
+    checkDecimals(coordinateDecimals);
+    checkDecimals(positionDecimals);
+    checkDecimals(normalDecimals);
+    this.jsonFactory = jsonFactory;
+    this.coordinateDecimals = coordinateDecimals;
+    this.positionDecimals = positionDecimals;
+    this.normalDecimals = normalDecimals;
+  }
+
+  private static void checkDecimals(int decimals) {
+    Preconditions.checkArgument(decimals >= 0 && decimals <= DecimalFormatter.MAX_DECIMALS,
+        "Decimal places must be between 0 and %s: %s", DecimalFormatter.MAX_DECIMALS, decimals);
+  }
+
+  /**
+   * Writes a C3ML document as UTF-8 encoded JSON. The stream is not closed.
+   *
+   * @param data The C3ML document to write.
+   * @param outputStream The stream to write to.
+   * @throws IOException if the document could not be written.
+   */
+  public void write(C3mlData data, OutputStream outputStream) throws IOException {
+    JsonGenerator jgen = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
+    jgen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    new JsonDocumentWriter(jgen).writeDocument(data);
+    jgen.close();
+  }
+
+  /**
+   * Writes a C3ML document as CBOR. The stream is not closed.
+   *
+   * @param data The C3ML document to write.
+   * @param outputStream The stream to write to.
+   * @throws IOException if the document could not be written.
+   */
+  public void writeCbor(C3mlData data, OutputStream outputStream) throws IOException {
+    CborEncoder encoder = new CborEncoder(outputStream);
+    encoder.writeSelfDescribeTag();
+    new CborDocumentWriter(encoder).writeDocument(data);
+    encoder.flush();
+  }
+
+  /**
+   * Walks the fields of a single document, which are written by a subclass for each encoding.
+   */
+  private abstract class DocumentWriter {
+
+    protected abstract void writeStartObject() throws IOException;
+
+    protected abstract void writeEndObject() throws IOException;
+
+    protected abstract void writeStartArray(int size) throws IOException;
+
+    protected abstract void writeEndArray() throws IOException;
+
+    protected abstract void writeFieldName(String name) throws IOException;
+
+    protected abstract void writeString(String value) throws IOException;
+
+    protected abstract void writeBoolean(boolean value) throws IOException;
+
+    protected abstract void writeNull() throws IOException;
+
+    protected abstract void writeNumber(long value) throws IOException;
+
+    /**
+     * Writes a number in full precision.
+     */
+    protected abstract void writeNumber(double value) throws IOException;
+
+    /**
+     * Writes a number rounded to the given decimal places.
+     */
+    protected abstract void writeNumber(double value, int decimals) throws IOException;
+
+    protected abstract void writeDoubles(double[] values, int decimals) throws IOException;
+
+    protected abstract void writeFloats(float[] values, int decimals) throws IOException;
+
+    protected abstract void writeIndices(int[] values) throws IOException;
+
+    protected abstract void writeShorts(short[] values) throws IOException;
+
+    protected abstract void writeBytes(byte[] values) throws IOException;
+
+    /**
+     * Writes opaque binary data.
+     */
+    protected abstract void writeBinary(byte[] data) throws IOException;
+
+    /**
+     * Writes a UTF-8 encoded JSON document.
+     */
+    protected abstract void writeJson(byte[] json) throws IOException;
+
+    void writeDocument(C3mlData data) throws IOException {
+      writeStartObject();
+      writeFieldName("c3mls");
+      writeStartArray(data.getC3mls().size());
+      for (C3mlEntity entity : data.getC3mls()) {
+        writeEntity(entity);
+      }
+      writeEndArray();
+      writeFieldName("properties");
+      writeProperties(data.getProperties());
+      writeEndObject();
+    }
+
+    private void writeEntity(C3mlEntity entity) throws IOException {
+      writeStartObject();
+      writeStringField("id", entity.getId());
+      writeStringField("name", entity.getName());
+      if (entity.getType() != null) {
+        writeStringField("type", entity.getType().name());
+      }
+      writeStringField("parentId", entity.getParentId());
+      if (!entity.isShow()) {
+        writeFieldName("show");
+        writeBoolean(false);
+      }
+      writeStringField("displayMode", entity.getDisplayMode());
+      writeStringMap("forms", entity.getForms());
+      List<String> childrenIds = entity.getChildrenIds();
+      if (!isEmpty(childrenIds)) {
+        writeFieldName("children");
+        writeStartArray(childrenIds.size());
+        for (String childId : childrenIds) {
+          writeString(childId);
+        }
+        writeEndArray();
+      }
+      writeStringMap("properties", entity.getProperties());
+      CoordinateBuffer coordinates = entity.getCoordinateBuffer();
+      if (coordinates != null && !coordinates.isEmpty()) {
+        writeFieldName("coordinates");
+        writeCoordinates(coordinates, 0, coordinates.size());
+      }
+      CoordinateBuffer holes = entity.getHoleBuffer();
+      if (holes != null && holes.getRingCount() > 0) {
+        writeFieldName("holes");
+        writeStartArray(holes.getRingCount());
+        for (int ring = 0; ring < holes.getRingCount(); ring++) {
+          writeCoordinates(holes, holes.getRingStart(ring), holes.getRingEnd(ring));
+        }
+        writeEndArray();
+      }
+      writeIntegerList("color", entity.getColor());
+      writeIntegerList("borderColor", entity.getBorderColor());
+      if (!isDefault(entity.getScale(), C3mlEntity.DEFAULT_SCALE)) {
+        writeDoubleList("scale", entity.getScale());
+      }
+      if (!isDefault(entity.getRotation(), C3mlEntity.DEFAULT_ROTATION)) {
+        writeDoubleList("rotation", entity.getRotation());
+      }
+      if (entity.getHeight() != null) {
+        writeFieldName("height");
+        writeNumber(entity.getHeight(), positionDecimals);
+      }
+      if (entity.getAltitude() != null) {
+        writeFieldName("altitude");
+        writeNumber(entity.getAltitude(), positionDecimals);
+      }
+      if (entity.getPositions() != null) {
+        writeFieldName("positions");
+        writeDoubles(entity.getPositions(), positionDecimals);
+      }
+      if (entity.getNormals() != null) {
+        writeFieldName("normals");
+        writeFloats(entity.getNormals(), normalDecimals);
+      }
+      if (entity.getTriangles() != null) {
+        writeFieldName("triangles");
+        writeIndices(entity.getTriangles());
+      }
+      if (entity.getQuantizedMesh() != null) {
+        writeFieldName("quantized");
+        writeQuantizedMesh(entity.getQuantizedMesh());
+      }
+      if (entity.getCompressedMesh() != null) {
+        writeFieldName("compressed");
+        writeCompressedMesh(entity.getCompressedMesh());
+      }
+      List<MeshLod> lods = entity.getLods();
+      if (!isEmpty(lods)) {
+        writeFieldName("lods");
+        writeStartArray(lods.size());
+        for (MeshLod lod : lods) {
+          writeLod(lod);
+        }
+        writeEndArray();
+      }
+      if (entity.getBatch() != null) {
+        writeFieldName("batch");
+        writeBatch(entity.getBatch());
+      }
+      List<Double> geoLocation = entity.getGeoLocation();
+      if (!isDefault(geoLocation, C3mlEntity.DEFAULT_GEO_LOCATION)) {
+        writeFieldName("geoLocation");
+        writeStartArray(geoLocation.size());
+        for (int i = 0; i < geoLocation.size(); i++) {
+          // The location is (longitude, latitude, altitude).
+          writeNumber(geoLocation.get(i), i < 2 ? coordinateDecimals : positionDecimals);
+        }
+        writeEndArray();
+      }
+      writeStringField("gltfUrl", entity.getGltfUrl());
+      if (entity.getGltfData() != null) {
+        writeFieldName("gltf");
+        writeJson(entity.getGltfData());
+      }
+      writeEndObject();
+    }
+
+    /**
+     * Writes an array of a range of points, with the same fields as a serialized
+     * {@link au.com.mutopia.acs.models.c3ml.Vertex3D}.
+     */
+    private void writeCoordinates(CoordinateBuffer buffer, int start, int end) throws IOException {
+      writeStartArray(end - start);
+      for (int i = start; i < end; i++) {
+        double latitude = buffer.getLatitude(i);
+        double longitude = buffer.getLongitude(i);
+        double altitude = buffer.getAltitude(i);
+        writeStartObject();
+        writeFieldName("latitude");
+        writeNumber(latitude, coordinateDecimals);
+        writeFieldName("longitude");
+        writeNumber(longitude, coordinateDecimals);
+        writeFieldName("altitude");
+        writeNumber(altitude, positionDecimals);
+        writeFieldName("x");
+        writeNumber(longitude, coordinateDecimals);
+        writeFieldName("y");
+        writeNumber(latitude, coordinateDecimals);
+        writeFieldName("z");
+        writeNumber(altitude, positionDecimals);
+        writeEndObject();
+      }
+      writeEndArray();
+    }
+
+    private void writeQuantizedMesh(QuantizedMesh mesh) throws IOException {
+      writeStartObject();
+      writeFieldName("positions");
+      writeShorts(mesh.getPositions());
+      writeFieldName("scale");
+      writeDoubleArray(mesh.getScale());
+      writeFieldName("offset");
+      writeDoubleArray(mesh.getOffset());
+      if (mesh.getNormals() != null) {
+        writeFieldName("normals");
+        writeBytes(mesh.getNormals());
+      }
+      writeEndObject();
+    }
+
+    private void writeCompressedMesh(CompressedMesh mesh) throws IOException {
+      writeStartObject();
+      writeFieldName("vertexCount");
+      writeNumber(mesh.getVertexCount());
+      writeFieldName("triangleCount");
+      writeNumber(mesh.getTriangleCount());
+      writeFieldName("positionBits");
+      writeNumber(mesh.getPositionBits());
+      writeFieldName("scale");
+      writeDoubleArray(mesh.getScale());
+      writeFieldName("offset");
+      writeDoubleArray(mesh.getOffset());
+      writeFieldName("data");
+      writeBinary(mesh.getData());
+      writeEndObject();
+    }
+
+    private void writeLod(MeshLod lod) throws IOException {
+      writeStartObject();
+      if (lod.getTriangles() != null) {
+        writeFieldName("triangles");
+        writeIndices(lod.getTriangles());
+      }
+      writeFieldName("error");
+      writeNumber(lod.getError(), positionDecimals);
+      if (lod.getTriangleOffsets() != null) {
+        writeFieldName("triangleOffsets");
+        writeIndices(lod.getTriangleOffsets());
+      }
+      writeEndObject();
+    }
+
+    private void writeBatch(MeshBatch batch) throws IOException {
+      writeStartObject();
+      writeFieldName("ids");
+      writeStartArray(batch.getIds().size());
+      for (String id : batch.getIds()) {
+        writeString(id);
+      }
+      writeEndArray();
+      writeFieldName("names");
+      writeStartArray(batch.getNames().size());
+      for (String name : batch.getNames()) {
+        if (name == null) {
+          writeNull();
+        } else {
+          writeString(name);
+        }
+      }
+      writeEndArray();
+      writeFieldName("triangleOffsets");
+      writeIndices(batch.getTriangleOffsets());
+      writeEndObject();
+    }
+
+    /**
+     * Writes the properties of the entities, by property name and then entity ID.
+     */
+    private void writeProperties(PropertyTable table) throws IOException {
+      writeStartObject();
+      for (int column = 0; column < table.getColumnCount(); column++) {
+        if (table.isColumnEmpty(column)) {
+          continue;
+        }
+        writeFieldName(table.getColumnName(column));
+        writeStartObject();
+        for (int row = 0; row < table.getRowCount(); row++) {
+          String cell = table.getValue(column, row);
+          if (cell != null) {
+            writeStringField(table.getRowId(row), cell);
+          }
+        }
+        writeEndObject();
+      }
+      writeEndObject();
+    }
+
+    private void writeStringField(String name, String value) throws IOException {
+      if (value != null) {
+        writeFieldName(name);
+        writeString(value);
+      }
+    }
+
+    private void writeStringMap(String name, Map<String, String> map) throws IOException {
+      if (map == null || map.isEmpty()) {
+        return;
+      }
+      writeFieldName(name);
+      writeStartObject();
+      for (Map.Entry<String, String> entry : map.entrySet()) {
+        writeFieldName(entry.getKey());
+        if (entry.getValue() == null) {
+          writeNull();
+        } else {
+          writeString(entry.getValue());
+        }
+      }
+      writeEndObject();
+    }
+
+    private void writeIntegerList(String name, List<Integer> values) throws IOException {
+      if (isEmpty(values)) {
+        return;
+      }
+      writeFieldName(name);
+      writeStartArray(values.size());
+      for (Integer value : values) {
+        writeNumber(value.longValue());
+      }
+      writeEndArray();
+    }
+
+    private void writeDoubleList(String name, List<Double> values) throws IOException {
+      writeFieldName(name);
+      writeStartArray(values.size());
+      for (Double value : values) {
+        writeNumber(value.doubleValue());
+      }
+      writeEndArray();
+    }
+
+    /**
+     * Writes a small array of numbers in full precision.
+     */
+    private void writeDoubleArray(double[] values) throws IOException {
+      writeStartArray(values.length);
+      for (double value : values) {
+        writeNumber(value);
+      }
+      writeEndArray();
+    }
+
+    private boolean isEmpty(List<?> list) {
+      return list == null || list.isEmpty();
+    }
+
+    /**
+     * @return Whether a list is null, or equal to the default value of its field.
+     */
+    private boolean isDefault(List<Double> values, List<Double> defaultValues) {
+      return values == null || values == defaultValues || values.equals(defaultValues);
+    }
+
+  }
+
+  /**
+   * Writes a document as JSON, with a number formatter reused for every number in it.
+   */
+  private class JsonDocumentWriter extends DocumentWriter {
+
+    private final JsonGenerator jgen;
+
+    private final DecimalFormatter formatter = new DecimalFormatter();
+
+    private JsonDocumentWriter(JsonGenerator jgen) {
+      this.jgen = jgen;
+    }
+
+    @Override
+    protected void writeStartObject() throws IOException {
+      jgen.writeStartObject();
+    }
+
+    @Override
+    protected void writeEndObject() throws IOException {
+      jgen.writeEndObject();
+    }
+
+    @Override
+    protected void writeStartArray(int size) throws IOException {
+      jgen.writeStartArray();
+    }
+
+    @Override
+    protected void writeEndArray() throws IOException {
+      jgen.writeEndArray();
+    }
+
+    @Override
+    protected void writeFieldName(String name) throws IOException {
+      jgen.writeFieldName(name);
+    }
+
+    @Override
+    protected void writeString(String value) throws IOException {
+      jgen.writeString(value);
+    }
+
+    @Override
+    protected void writeBoolean(boolean value) throws IOException {
+      jgen.writeBoolean(value);
+    }
+
+    @Override
+    protected void writeNull() throws IOException {
+      jgen.writeNull();
+    }
+
+    @Override
+    protected void writeNumber(long value) throws IOException {
+      jgen.writeNumber(value);
+    }
+
+    @Override
+    protected void writeNumber(double value) throws IOException {
+      jgen.writeNumber(value);
+    }
+
+    /**
+     * Writes a number rounded to the given decimal places, or in full if it can't be rounded.
+     */
+    @Override
+    protected void writeNumber(double value, int decimals) throws IOException {
+      int length = formatter.format(value, decimals);
+      if (length < 0) {
+        jgen.writeNumber(value);
+      } else {
+        jgen.writeRawValue(formatter.getBuffer(), 0, length);
+      }
+    }
+
+    @Override
+    protected void writeDoubles(double[] values, int decimals) throws IOException {
+      jgen.writeStartArray();
+      for (double value : values) {
+        writeNumber(value, decimals);
+      }
+      jgen.writeEndArray();
+    }
+
+    @Override
+    protected void writeFloats(float[] values, int decimals) throws IOException {
+      jgen.writeStartArray();
+      for (float value : values) {
+        writeNumber(value, decimals);
+      }
+      jgen.writeEndArray();
+    }
+
+    @Override
+    protected void writeIndices(int[] values) throws IOException {
+      jgen.writeStartArray();
+      for (int value : values) {
+        jgen.writeNumber(value);
+      }
+      jgen.writeEndArray();
+    }
+
+    @Override
+    protected void writeShorts(short[] values) throws IOException {
+      jgen.writeStartArray();
+      for (short value : values) {
+        jgen.writeNumber(value);
+      }
+      jgen.writeEndArray();
+    }
+
+    @Override
+    protected void writeBytes(byte[] values) throws IOException {
+      jgen.writeStartArray();
+      for (byte value : values) {
+        jgen.writeNumber(value);
+      }
+      jgen.writeEndArray();
+    }
+
+    @Override
+    protected void writeBinary(byte[] data) throws IOException {
+      jgen.writeBinary(data);
+    }
+
+    @Override
+    protected void writeJson(byte[] json) throws IOException {
+      RawJsonSerializer.write(json, jgen);
+    }
+
+  }
+
+  /**
+   * Writes a document as CBOR. Objects are written as maps of indefinite length, since the number
+   * of fields which aren't left at their defaults isn't known in advance.
+   */
+  private class CborDocumentWriter extends DocumentWriter {
+
+    private final CborEncoder encoder;
+
+    private CborDocumentWriter(CborEncoder encoder) {
+      this.encoder = encoder;
+    }
+
+    @Override
+    protected void writeStartObject() throws IOException {
+      encoder.writeMapStart();
+    }
+
+    @Override
+    protected void writeEndObject() throws IOException {
+      encoder.writeBreak();
+    }
+
+    @Override
+    protected void writeStartArray(int size) throws IOException {
+      encoder.writeArrayStart(size);
+    }
+
+    @Override
+    protected void writeEndArray() {}
+
+    @Override
+    protected void writeFieldName(String name) throws IOException {
+      encoder.writeString(name);
+    }
+
+    @Override
+    protected void writeString(String value) throws IOException {
+      encoder.writeString(value);
+    }
+
+    @Override
+    protected void writeBoolean(boolean value) throws IOException {
+      encoder.writeBoolean(value);
+    }
+
+    @Override
+    protected void writeNull() throws IOException {
+      encoder.writeNull();
+    }
+
+    @Override
+    protected void writeNumber(long value) throws IOException {
+      encoder.writeLong(value);
+    }
+
+    @Override
+    protected void writeNumber(double value) throws IOException {
+      encoder.writeDouble(value);
+    }
+
+    /**
+     * Writes a number rounded to the given decimal places as in JSON, so that it is written as an
+     * integer or a single precision float where possible, or in full if it can't be rounded.
+     */
+    @Override
+    protected void writeNumber(double value, int decimals) throws IOException {
+      encoder.writeDouble(DecimalFormatter.round(value, decimals));
+    }
+
+    /**
+     * Writes the values as a float64 typed array, since positions may be absolute coordinates
+     * which need more than single precision.
+     */
+    @Override
+    protected void writeDoubles(double[] values, int decimals) throws IOException {
+      encoder.writeFloat64Array(values);
+    }
+
+    @Override
+    protected void writeFloats(float[] values, int decimals) throws IOException {
+      encoder.writeFloat32Array(values);
+    }
+
+    @Override
+    protected void writeIndices(int[] values) throws IOException {
+      encoder.writeUintArray(values);
+    }
+
+    @Override
+    protected void writeShorts(short[] values) throws IOException {
+      encoder.writeInt16Array(values);
+    }
+
+    @Override
+    protected void writeBytes(byte[] values) throws IOException {
+      encoder.writeInt8Array(values);
+    }
+
+    @Override
+    protected void writeBinary(byte[] data) throws IOException {
+      encoder.writeByteString(data);
+    }
+
+    @Override
+    protected void writeJson(byte[] json) throws IOException {
+      encoder.writeTag(CborEncoder.EMBEDDED_JSON_TAG);
+      encoder.writeByteString(json);
+    }
+
+  }
+
+}
@@ -131,7 +131,7 @@ public class ColladaWriter {
         entity.setColor(DEFAULT_COLOR);
       }
 
-      int posLength = entity.getPositions().size();
+      int posLength = entity.getPositions().length;
 
       geomWriter.write("    <geometry id=\"geom-" + id + "\" name=\"" + name + "\">\n");
       geomWriter.write("      <mesh>\n");
@@ -141,9 +141,9 @@ public class ColladaWriter {
           + posLength + "\">");
       for (int i = 0; i < posLength; i++) {
         if (i < posLength - 1) {
-          geomWriter.write(entity.getPositions().get(i) + " ");
+          geomWriter.write(entity.getPositions()[i] + " ");
         } else {
-          geomWriter.write(entity.getPositions().get(i) + "");
+          geomWriter.write(entity.getPositions()[i] + "");
         }
       }
       geomWriter.write("</float_array>\n");
@@ -161,7 +161,7 @@ public class ColladaWriter {
       geomWriter.write("          <float_array id=\"normals-array-" + id + "\" count=\""
           + posLength + "\">");
       for (int i = 0; i < posLength; i++) {
-        double normal = entity.getNormals().get(i);
+        float normal = entity.getNormals()[i];
         if (i < posLength - 1) {
           geomWriter.write(normal + " ");
         } else {
@@ -185,14 +185,14 @@ public class ColladaWriter {
       geomWriter.write("          <input semantic=\"NORMAL\" source=\"#normals-" + id + "\"/>\n");
       geomWriter.write("        </vertices>\n");
 
-      geomWriter.write("        <triangles count=\"" + entity.getTriangles().size() / 3
+      geomWriter.write("        <triangles count=\"" + entity.getTriangles().length / 3
           + "\" material=\"material-" + getColorString(entity.getColor()) + "\">\n");
       geomWriter.write("          <input offset=\"0\" semantic=\"VERTEX\" source=\"#vertices-" + id
           + "\"/>\n");
       geomWriter.write("            <p>");
-      for (int i = 0; i < entity.getTriangles().size(); i++) {
-        int triangle = entity.getTriangles().get(i);
-        if (i < entity.getTriangles().size() - 1) {
+      for (int i = 0; i < entity.getTriangles().length; i++) {
+        int triangle = entity.getTriangles()[i];
+        if (i < entity.getTriangles().length - 1) {
           geomWriter.write(triangle + " ");
         } else {
           geomWriter.write(triangle + "");
@@ -0,0 +1,98 @@
+package au.com.mutopia.acs.conversion.output;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.List;
+
+import javax.vecmath.Matrix4d;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.conversion.Converter;
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.models.c3ml.C3mlData;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.util.GlbPacker;
+import au.com.mutopia.acs.util.GltfBuilder;
+import au.com.mutopia.acs.util.GltfWriter;
+import au.com.mutopia.acs.util.GltfWriter.GltfMesh;
+import au.com.mutopia.acs.util.mesh.VecMathUtil;
+
+
+/**
+ * Moves the mesh data of C3ML entities into binary glTF assets, which are stored for the conversion
+ * job and referenced from each entity by URL.
+ */
+public class GlbAssetWriter {
+
+  /**
+   * Converts the positions, normals and triangles of each mesh entity into a binary glTF asset.
+   * The mesh data is removed from the entities, and replaced with the URL of the asset. The
+   * triangles of each level of detail are moved into the asset too, as a mesh sharing the vertices
+   * of the full mesh, while the error and triangle offsets of the level are kept on the entity.
+   *
+   * @param data The converted C3ML, whose entities are updated in place.
+   * @param context The options and state of the conversion request.
+   * @throws ConversionException if the assets could not be written or stored.
+   */
+  public void write(C3mlData data, ConversionContext context) throws ConversionException {
+    for (C3mlEntity entity : data.getC3mls()) {
+      if (entity.getPositions() == null || entity.getTriangles() == null) {
+        continue;
+      }
+      byte[] glb;
+      try {
+        glb = buildGltfWriter(entity).toBinaryByteArray();
+      } catch (IOException e) {
+        throw new ConversionException("Failed to write binary glTF for " + entity, e);
+      }
+      entity.setGltfUrl(context.storeAsset(entity.getId() + GltfBuilder.GLB_EXTENSION, glb,
+          GlbPacker.MIME_TYPE));
+      entity.setPositions(null);
+      entity.setNormals(null);
+      entity.setTriangles(null);
+      if (entity.getLods() != null) {
+        for (MeshLod lod : entity.getLods()) {
+          lod.setTriangles(null);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a glTF document containing only the mesh of the given entity. Only the full mesh is
+   * instanced in the scene; each level of detail follows it as a mesh which is not rendered.
+   */
+  private GltfWriter buildGltfWriter(C3mlEntity entity) {
+    // Meshes are Z-up, but glTF is Y-up and is rotated to Z-up when rendered.
+    GltfWriter gltfWriter = new GltfWriter(VecMathUtil.createXAxisRotationMatrix(-90));
+    double[] positions = entity.getPositions();
+    float[] floatPositions = new float[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      floatPositions[i] = (float) positions[i];
+    }
+    GltfMesh mesh = gltfWriter.addMesh(entity.getName(), floatPositions, entity.getNormals());
+    Color color = getColor(entity.getColor());
+    mesh.addPrimitive(entity.getTriangles(), color);
+    if (entity.getLods() != null) {
+      for (MeshLod lod : entity.getLods()) {
+        gltfWriter.addMesh(entity.getName(), mesh).addPrimitive(lod.getTriangles(), color);
+      }
+    }
+    Matrix4d identity = VecMathUtil.createIdentityMatrix();
+    gltfWriter.addNode(entity.getName(), identity, mesh);
+    return gltfWriter;
+  }
+
+  /**
+   * @return The color of an RGBA list, or the default color if the list is empty.
+   */
+  private Color getColor(List<Integer> rgba) {
+    if (rgba == null || rgba.size() < 3) {
+      return Converter.DEFAULT_COLOR;
+    }
+    int alpha = rgba.size() > 3 ? rgba.get(3) : 255;
+    return new Color(rgba.get(0), rgba.get(1), rgba.get(2), alpha);
+  }
+
+}
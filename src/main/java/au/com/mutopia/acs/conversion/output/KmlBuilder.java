@@ -11,6 +11,7 @@ import lombok.Getter;
 import lombok.extern.log4j.Log4j;
 
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
 import au.com.mutopia.acs.models.c3ml.Vertex3D;
 import de.micromata.opengis.kml.v_2_2_0.AltitudeMode;
 import de.micromata.opengis.kml.v_2_2_0.Boundary;
@@ -87,8 +88,8 @@ public class KmlBuilder {
 
     Point point = placemark.createAndSetPoint();
     point.setAltitudeMode(AltitudeMode.RELATIVE_TO_GROUND);
-    Vertex3D coord = entity.getCoordinates().get(0);
-    point.addToCoordinates(coord.getLongitude(), coord.getLatitude(), coord.getAltitude());
+    CoordinateBuffer coords = entity.getCoordinateBuffer();
+    point.addToCoordinates(coords.getLongitude(0), coords.getLatitude(0), coords.getAltitude(0));
 
     String kmlColorString = getKmlColorString(entity.getColor());
     String pointStyleId = kmlColorString + "Point";
@@ -118,8 +119,10 @@ public class KmlBuilder {
     lineString.setExtrude(false);
     lineString.setAltitudeMode(AltitudeMode.RELATIVE_TO_GROUND);
 
-    for (Vertex3D point : entity.getCoordinates()) {
-      lineString.addToCoordinates(point.getLongitude(), point.getLatitude(), point.getAltitude());
+    CoordinateBuffer points = entity.getCoordinateBuffer();
+    for (int i = 0; i < points.size(); i++) {
+      lineString.addToCoordinates(points.getLongitude(i), points.getLatitude(i),
+          points.getAltitude(i));
     }
 
     String kmlColorString = getKmlColorString(entity.getColor());
@@ -151,17 +154,19 @@ public class KmlBuilder {
     // Draw the polygon.
     Boundary outerBoundary = polygon.createAndSetOuterBoundaryIs();
     LinearRing linearRing = outerBoundary.createAndSetLinearRing();
-    List<Vertex3D> points = entity.getCoordinates();
-    for (Vertex3D point : points) {
-      linearRing.addToCoordinates(point.getLongitude(), point.getLatitude(), extrudedHeight);
+    CoordinateBuffer points = entity.getCoordinateBuffer();
+    for (int i = 0; i < points.size(); i++) {
+      linearRing.addToCoordinates(points.getLongitude(i), points.getLatitude(i), extrudedHeight);
     }
 
     // Draw the holes.
-    for (List<Vertex3D> hole : entity.getHoles()) {
+    CoordinateBuffer holes = entity.getHoleBuffer();
+    for (int hole = 0; hole < holes.getRingCount(); hole++) {
       Boundary innerBoundary = polygon.createAndAddInnerBoundaryIs();
       LinearRing innerLinearRing = innerBoundary.createAndSetLinearRing();
-      for (Vertex3D point : hole) {
-        innerLinearRing.addToCoordinates(point.getLongitude(), point.getLatitude(), extrudedHeight);
+      for (int i = holes.getRingStart(hole); i < holes.getRingEnd(hole); i++) {
+        innerLinearRing.addToCoordinates(holes.getLongitude(i), holes.getLatitude(i),
+            extrudedHeight);
       }
     }
 
@@ -0,0 +1,171 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+
+/**
+ * Batches the mesh entities which share a material into a single mesh entity per material, if the
+ * {@link ConversionContext#isBatch() batch} option is set. Models made of many small meshes (e.g.
+ * from SketchUp) are then rendered with a few large meshes rather than one per entity.
+ *
+ * The material of a mesh is its color, and meshes are only batched with others in the same frame,
+ * i.e. with the same geoLocation, scale and rotation, so their positions are concatenated without
+ * being transformed. Each batch entity has a {@link MeshBatch} mapping its triangles back to the
+ * IDs, names and properties of the batched entities. The levels of detail of the batched meshes
+ * are batched in the same way, level by level. Collections left empty are kept, so that the
+ * hierarchy and properties of e.g. the storeys of an IFC model are not lost.
+ */
+public class MeshBatchingProcessor implements MeshProcessor {
+
+  @Override
+  public List<C3mlEntity> process(List<C3mlEntity> entities, ConversionContext context) {
+    if (!context.isBatch()) {
+      return entities;
+    }
+    Map<List<Object>, List<C3mlEntity>> groups = new LinkedHashMap<>();
+    List<C3mlEntity> roots = new ArrayList<>();
+    for (C3mlEntity entity : entities) {
+      if (collect(entity, groups)) {
+        roots.add(entity);
+      }
+    }
+    for (List<C3mlEntity> group : groups.values()) {
+      roots.add(createBatch(group, context));
+    }
+    return roots;
+  }
+
+  /**
+   * Adds the batchable meshes of an entity and its descendants to their groups, and removes them
+   * from their parents.
+   *
+   * @return Whether the entity should be kept, i.e. it is not batched.
+   */
+  private boolean collect(C3mlEntity entity, Map<List<Object>, List<C3mlEntity>> groups) {
+    if (isBatchable(entity)) {
+      int lodCount = entity.getLods() == null ? 0 : entity.getLods().size();
+      List<Object> material = Arrays.<Object>asList(entity.getColor(), entity.getGeoLocation(),
+          entity.getScale(), entity.getRotation(), entity.getNormals() != null, lodCount);
+      List<C3mlEntity> group = groups.get(material);
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.put(material, group);
+      }
+      group.add(entity);
+      return false;
+    }
+    Iterator<C3mlEntity> children = entity.getChildren().iterator();
+    while (children.hasNext()) {
+      C3mlEntity child = children.next();
+      if (!collect(child, groups)) {
+        children.remove();
+        entity.getChildrenIds().remove(child.getId());
+      }
+    }
+    return true;
+  }
+
+  private boolean isBatchable(C3mlEntity entity) {
+    float[] normals = entity.getNormals();
+    return entity.getType() == C3mlEntityType.MESH && entity.getPositions() != null
+        && entity.getTriangles() != null && entity.getChildren().isEmpty()
+        && (normals == null || normals.length == entity.getPositions().length);
+  }
+
+  /**
+   * @param group The mesh entities sharing a material and frame.
+   * @param context The options and state of the conversion request.
+   * @return A mesh entity with the meshes of the group.
+   */
+  private C3mlEntity createBatch(List<C3mlEntity> group, ConversionContext context) {
+    int positionCount = 0;
+    int indexCount = 0;
+    for (C3mlEntity entity : group) {
+      positionCount += entity.getPositions().length;
+      indexCount += entity.getTriangles().length;
+    }
+    C3mlEntity first = group.get(0);
+    double[] positions = new double[positionCount];
+    float[] normals = first.getNormals() == null ? null : new float[positionCount];
+    int[] triangles = new int[indexCount];
+    MeshBatch batch = new MeshBatch();
+    batch.setTriangleOffsets(new int[group.size()]);
+
+    int positionOffset = 0;
+    int indexOffset = 0;
+    for (int i = 0; i < group.size(); i++) {
+      C3mlEntity entity = group.get(i);
+      double[] entityPositions = entity.getPositions();
+      int[] entityTriangles = entity.getTriangles();
+      System.arraycopy(entityPositions, 0, positions, positionOffset, entityPositions.length);
+      if (normals != null) {
+        System.arraycopy(entity.getNormals(), 0, normals, positionOffset, entityPositions.length);
+      }
+      int vertexOffset = positionOffset / 3;
+      for (int index : entityTriangles) {
+        triangles[indexOffset++] = index + vertexOffset;
+      }
+      positionOffset += entityPositions.length;
+      batch.getTriangleOffsets()[i] = (indexOffset - entityTriangles.length) / 3;
+      batch.getIds().add(entity.getId());
+      batch.getNames().add(entity.getName());
+      batch.getProperties().add(entity.getProperties());
+    }
+
+    C3mlEntity entity = new C3mlEntity(context.nextId());
+    entity.setType(C3mlEntityType.MESH);
+    entity.setColor(first.getColor());
+    entity.setGeoLocation(first.getGeoLocation());
+    entity.setScale(first.getScale());
+    entity.setRotation(first.getRotation());
+    entity.setPositions(positions);
+    entity.setNormals(normals);
+    entity.setTriangles(triangles);
+    entity.setBatch(batch);
+    if (first.getLods() != null) {
+      entity.setLods(createBatchLods(group));
+    }
+    return entity;
+  }
+
+  /**
+   * @param group The mesh entities sharing a material, frame and number of levels of detail.
+   * @return The levels of detail of the batch entity of the group.
+   */
+  private List<MeshLod> createBatchLods(List<C3mlEntity> group) {
+    List<MeshLod> lods = new ArrayList<>();
+    for (int level = 0; level < group.get(0).getLods().size(); level++) {
+      int indexCount = 0;
+      for (C3mlEntity entity : group) {
+        indexCount += entity.getLods().get(level).getTriangles().length;
+      }
+      MeshLod lod = new MeshLod();
+      lod.setTriangles(new int[indexCount]);
+      lod.setTriangleOffsets(new int[group.size()]);
+      int vertexOffset = 0;
+      int indexOffset = 0;
+      for (int i = 0; i < group.size(); i++) {
+        MeshLod entityLod = group.get(i).getLods().get(level);
+        lod.getTriangleOffsets()[i] = indexOffset / 3;
+        for (int index : entityLod.getTriangles()) {
+          lod.getTriangles()[indexOffset++] = index + vertexOffset;
+        }
+        lod.setError(Math.max(lod.getError(), entityLod.getError()));
+        vertexOffset += group.get(i).getPositions().length / 3;
+      }
+      lods.add(lod);
+    }
+    return lods;
+  }
+
+}
@@ -0,0 +1,41 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.List;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Applies a sequence of {@link MeshProcessor} stages to converted entities, in order.
+ */
+public class MeshPipeline implements MeshProcessor {
+
+  private final List<MeshProcessor> stages;
+
+  /**
+   * @param stages The stages to apply, in order.
+   */
+  public MeshPipeline(List<MeshProcessor> stages) {
+    this.stages = ImmutableList.copyOf(stages);
+  }
+
+  @Override
+  public List<C3mlEntity> process(List<C3mlEntity> entities, ConversionContext context)
+      throws ConversionException {
+    for (MeshProcessor stage : stages) {
+      entities = stage.process(entities, context);
+    }
+    return entities;
+  }
+
+  /**
+   * @return The stages of the pipeline, in order.
+   */
+  public List<MeshProcessor> getStages() {
+    return stages;
+  }
+
+}
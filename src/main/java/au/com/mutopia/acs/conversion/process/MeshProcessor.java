@@ -0,0 +1,26 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.List;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+
+/**
+ * A stage of post-processing applied to the entities produced by a
+ * {@link au.com.mutopia.acs.conversion.Converter}, e.g. to optimise their meshes for rendering.
+ */
+public interface MeshProcessor {
+
+  /**
+   * Processes the converted entities.
+   *
+   * @param entities The root entities of the conversion, which may be modified.
+   * @param context The options and state of the conversion request.
+   * @return The processed root entities, which may be the given list.
+   * @throws ConversionException If the processing failed.
+   */
+  public List<C3mlEntity> process(List<C3mlEntity> entities, ConversionContext context)
+      throws ConversionException;
+
+}
@@ -0,0 +1,82 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.util.mesh.IndexedMesh;
+import au.com.mutopia.acs.util.mesh.MeshSimplifier;
+import au.com.mutopia.acs.util.mesh.VertexWelder;
+
+/**
+ * Simplifies the meshes of entities with a {@link MeshSimplifier}, if the conversion asks for a
+ * {@link ConversionContext#getSimplifyRatio() ratio} of triangles, a maximum
+ * {@link ConversionContext#getSimplifyError() error} or {@link ConversionContext#getLodRatios()
+ * levels of detail}. Each mesh is simplified as a separate task of the executor.
+ *
+ * A ratio or error replaces the mesh with its simplification, without the vertices it no longer
+ * uses. Levels of detail are added to the (possibly simplified) mesh as {@link MeshLod} objects.
+ */
+public class MeshSimplificationProcessor extends ParallelMeshProcessor {
+
+  /** Removes the vertices which a simplified mesh no longer uses. */
+  private static final VertexWelder COMPACTOR = new VertexWelder(0, 0);
+
+  /**
+   * @param executor The executor of the task simplifying each mesh.
+   */
+  public MeshSimplificationProcessor(ExecutorService executor) {
+    super(executor);
+  }
+
+  @Override
+  protected boolean isEnabled(ConversionContext context) {
+    return context.getSimplifyRatio() != null || context.getSimplifyError() != null
+        || !context.getLodRatios().isEmpty();
+  }
+
+  /**
+   * Simplifies the mesh of an entity, and adds its levels of detail.
+   */
+  @Override
+  protected void processMesh(C3mlEntity entity, ConversionContext context) {
+    IndexedMesh mesh =
+        new IndexedMesh(entity.getPositions(), entity.getNormals(), entity.getTriangles());
+    Double ratio = context.getSimplifyRatio();
+    double maxError =
+        context.getSimplifyError() == null ? Double.POSITIVE_INFINITY : context.getSimplifyError();
+    if (ratio != null || context.getSimplifyError() != null) {
+      MeshSimplifier simplifier = new MeshSimplifier(mesh);
+      int[] triangles = simplifier.simplify(getTargetCount(mesh, ratio == null ? 0 : ratio),
+          maxError);
+      mesh = COMPACTOR.weld(new IndexedMesh(mesh.getPositions(), mesh.getNormals(), triangles));
+      entity.setPositions(mesh.getPositions());
+      entity.setNormals(mesh.getNormals());
+      entity.setTriangles(mesh.getTriangles());
+    }
+    if (context.getLodRatios().isEmpty()) {
+      return;
+    }
+    // Each level continues from the last, so the levels go from the most to the least detailed.
+    List<Double> lodRatios = new ArrayList<>(context.getLodRatios());
+    Collections.sort(lodRatios, Collections.reverseOrder());
+    MeshSimplifier simplifier = new MeshSimplifier(mesh);
+    List<MeshLod> lods = new ArrayList<>();
+    for (double lodRatio : lodRatios) {
+      MeshLod lod = new MeshLod();
+      lod.setTriangles(simplifier.simplify(getTargetCount(mesh, lodRatio), maxError));
+      lod.setError(simplifier.getError());
+      lods.add(lod);
+    }
+    entity.setLods(lods);
+  }
+
+  private int getTargetCount(IndexedMesh mesh, double ratio) {
+    return (int) Math.ceil(mesh.getTriangleCount() * ratio);
+  }
+
+}
@@ -0,0 +1,189 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.util.mesh.MeshSplitter;
+import au.com.mutopia.acs.util.mesh.MeshSplitter.Chunk;
+
+/**
+ * Splits the meshes with more vertices than can be indexed with 16 bit indices into spatially
+ * coherent chunks with a {@link MeshSplitter}.
+ *
+ * The entity of a split mesh becomes a collection, with a child mesh entity for each chunk. The
+ * properties stay with the collection, while the chunks keep the color and frame of the entity, and
+ * their own parts of its levels of detail and {@link MeshBatch}. The properties of the entities of
+ * a batch are only given with the first chunk containing each entity, so they are added to the
+ * properties of the document once.
+ */
+public class MeshSplittingProcessor implements MeshProcessor {
+
+  private final MeshSplitter splitter;
+
+  private final int maxVertices;
+
+  public MeshSplittingProcessor() {
+    this(MeshSplitter.MAX_UINT16_VERTICES);
+  }
+
+  /**
+   * @param maxVertices The most vertices of a mesh, above which it is split.
+   */
+  public MeshSplittingProcessor(int maxVertices) {
+    this.splitter = new MeshSplitter(maxVertices);
+    this.maxVertices = maxVertices;
+  }
+
+  @Override
+  public List<C3mlEntity> process(List<C3mlEntity> entities, ConversionContext context) {
+    for (C3mlEntity entity : entities) {
+      split(entity, context);
+    }
+    return entities;
+  }
+
+  /**
+   * Splits the mesh of the given entity and its descendants, if they are too large.
+   */
+  private void split(C3mlEntity entity, ConversionContext context) {
+    for (C3mlEntity child : entity.getChildren()) {
+      split(child, context);
+    }
+    double[] positions = entity.getPositions();
+    float[] normals = entity.getNormals();
+    if (positions == null || entity.getTriangles() == null || positions.length / 3 <= maxVertices
+        || (normals != null && normals.length != positions.length)) {
+      return;
+    }
+
+    List<int[]> levels = new ArrayList<>();
+    List<int[]> levelOffsets = new ArrayList<>();
+    MeshBatch batch = entity.getBatch();
+    levels.add(entity.getTriangles());
+    levelOffsets.add(batch == null ? null : batch.getTriangleOffsets());
+    List<MeshLod> lods = entity.getLods() == null ? Collections.<MeshLod>emptyList()
+        : entity.getLods();
+    for (MeshLod lod : lods) {
+      levels.add(lod.getTriangles());
+      levelOffsets.add(lod.getTriangleOffsets());
+    }
+
+    Set<String> batchedIds = new HashSet<>();
+    for (Chunk chunk : splitter.split(positions, levels)) {
+      C3mlEntity chunkEntity = new C3mlEntity(context.nextId());
+      chunkEntity.setType(C3mlEntityType.MESH);
+      chunkEntity.setName(entity.getName());
+      chunkEntity.setColor(entity.getColor());
+      chunkEntity.setGeoLocation(entity.getGeoLocation());
+      chunkEntity.setScale(entity.getScale());
+      chunkEntity.setRotation(entity.getRotation());
+      int[] vertices = chunk.getVertices();
+      double[] chunkPositions = new double[vertices.length * 3];
+      float[] chunkNormals = normals == null ? null : new float[vertices.length * 3];
+      for (int i = 0; i < vertices.length; i++) {
+        System.arraycopy(positions, vertices[i] * 3, chunkPositions, i * 3, 3);
+        if (normals != null) {
+          System.arraycopy(normals, vertices[i] * 3, chunkNormals, i * 3, 3);
+        }
+      }
+      chunkEntity.setPositions(chunkPositions);
+      chunkEntity.setNormals(chunkNormals);
+      chunkEntity.setTriangles(chunk.getTriangles().get(0));
+
+      // The batched entities of the chunk, in their order in the batch, and their new offsets.
+      List<Integer> members = new ArrayList<>();
+      Map<Integer, Integer> memberIndices = new HashMap<>();
+      List<int[]> chunkOffsets = new ArrayList<>();
+      if (batch != null) {
+        for (int level = 0; level < levels.size(); level++) {
+          for (int triangle : chunk.getSourceTriangles().get(level)) {
+            int member = MeshBatch.indexOfTriangle(levelOffsets.get(level), triangle);
+            if (!memberIndices.containsKey(member)) {
+              memberIndices.put(member, -1);
+              members.add(member);
+            }
+          }
+        }
+        Collections.sort(members);
+        for (int i = 0; i < members.size(); i++) {
+          memberIndices.put(members.get(i), i);
+        }
+        for (int level = 0; level < levels.size(); level++) {
+          chunkOffsets.add(computeOffsets(chunk.getSourceTriangles().get(level),
+              levelOffsets.get(level), memberIndices, members.size()));
+        }
+        chunkEntity.setBatch(createBatch(batch, members, chunkOffsets.get(0), batchedIds));
+      }
+
+      if (!lods.isEmpty()) {
+        List<MeshLod> chunkLods = new ArrayList<>();
+        for (int level = 1; level < levels.size(); level++) {
+          MeshLod lod = new MeshLod();
+          lod.setTriangles(chunk.getTriangles().get(level));
+          lod.setError(lods.get(level - 1).getError());
+          if (batch != null) {
+            lod.setTriangleOffsets(chunkOffsets.get(level));
+          }
+          chunkLods.add(lod);
+        }
+        chunkEntity.setLods(chunkLods);
+      }
+      entity.addChild(chunkEntity);
+    }
+
+    entity.setType(C3mlEntityType.COLLECTION);
+    entity.setPositions(null);
+    entity.setNormals(null);
+    entity.setTriangles(null);
+    entity.setLods(null);
+    entity.setBatch(null);
+  }
+
+  /**
+   * @param sourceTriangles The triangles of a chunk in a level of the original mesh, ascending.
+   * @param offsets The first triangle of each batched entity in the level of the original mesh.
+   * @param memberIndices The index in the chunk's batch of each batched entity in the chunk.
+   * @param memberCount The number of batched entities in the chunk.
+   * @return The first triangle of each batched entity in the level of the chunk.
+   */
+  private int[] computeOffsets(int[] sourceTriangles, int[] offsets,
+      Map<Integer, Integer> memberIndices, int memberCount) {
+    int[] counts = new int[memberCount];
+    for (int triangle : sourceTriangles) {
+      counts[memberIndices.get(MeshBatch.indexOfTriangle(offsets, triangle))]++;
+    }
+    int[] chunkOffsets = new int[memberCount];
+    for (int i = 1; i < memberCount; i++) {
+      chunkOffsets[i] = chunkOffsets[i - 1] + counts[i - 1];
+    }
+    return chunkOffsets;
+  }
+
+  /**
+   * @return The batch of a chunk with the given entities of the original batch.
+   */
+  private MeshBatch createBatch(MeshBatch batch, List<Integer> members, int[] triangleOffsets,
+      Set<String> batchedIds) {
+    MeshBatch chunkBatch = new MeshBatch();
+    chunkBatch.setTriangleOffsets(triangleOffsets);
+    for (int member : members) {
+      String id = batch.getIds().get(member);
+      chunkBatch.getIds().add(id);
+      chunkBatch.getNames().add(batch.getNames().get(member));
+      chunkBatch.getProperties().add(batchedIds.add(id) ? batch.getProperties().get(member)
+          : Collections.<String, String>emptyMap());
+    }
+    return chunkBatch;
+  }
+
+}
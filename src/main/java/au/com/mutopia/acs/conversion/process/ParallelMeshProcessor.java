@@ -0,0 +1,93 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+
+/**
+ * A {@link MeshProcessor} which processes the mesh of each entity independently, as a separate
+ * task of an executor.
+ */
+public abstract class ParallelMeshProcessor implements MeshProcessor {
+
+  private final ExecutorService executor;
+
+  /**
+   * @param executor The executor of the task processing each mesh.
+   */
+  protected ParallelMeshProcessor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * @param context The options and state of the conversion request.
+   * @return Whether the conversion asks for the meshes to be processed.
+   */
+  protected abstract boolean isEnabled(ConversionContext context);
+
+  /**
+   * Processes the mesh of an entity. Only the entity may be modified, since other meshes are
+   * processed at the same time.
+   *
+   * @param entity An entity with positions, triangles and (optionally) a normal for each position.
+   * @param context The options and state of the conversion request.
+   */
+  protected abstract void processMesh(C3mlEntity entity, ConversionContext context);
+
+  @Override
+  public List<C3mlEntity> process(List<C3mlEntity> entities, final ConversionContext context)
+      throws ConversionException {
+    if (!isEnabled(context)) {
+      return entities;
+    }
+    List<C3mlEntity> meshes = new ArrayList<>();
+    for (C3mlEntity entity : entities) {
+      collectMeshes(entity, meshes);
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (final C3mlEntity mesh : meshes) {
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          processMesh(mesh, context);
+        }
+      }));
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          throw new ConversionException("Failed to process the mesh of " + meshes.get(i),
+              e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ConversionException("Interrupted while processing meshes", e);
+        }
+      }
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return entities;
+  }
+
+  private void collectMeshes(C3mlEntity entity, List<C3mlEntity> meshes) {
+    float[] normals = entity.getNormals();
+    if (entity.getPositions() != null && entity.getTriangles() != null
+        && (normals == null || normals.length == entity.getPositions().length)) {
+      meshes.add(entity);
+    }
+    for (C3mlEntity child : entity.getChildren()) {
+      collectMeshes(child, meshes);
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.concurrent.ExecutorService;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.util.mesh.VertexCacheOptimizer;
+
+/**
+ * Reorders the triangles of meshes for the vertex cache of the GPU, and their vertices for fetch
+ * locality, with a {@link VertexCacheOptimizer}, if the conversion asks for it.
+ *
+ * The triangles of each entity of a batch, and of each level of detail, are reordered within their
+ * own ranges, so the triangle offsets of the batch still apply.
+ */
+public class VertexCacheProcessor extends ParallelMeshProcessor {
+
+  /**
+   * @param executor The executor of the task optimising each mesh.
+   */
+  public VertexCacheProcessor(ExecutorService executor) {
+    super(executor);
+  }
+
+  @Override
+  protected boolean isEnabled(ConversionContext context) {
+    return context.isOptimize();
+  }
+
+  @Override
+  protected void processMesh(C3mlEntity entity, ConversionContext context) {
+    int vertexCount = entity.getPositions().length / 3;
+    VertexCacheOptimizer optimizer = new VertexCacheOptimizer(vertexCount);
+    int[] offsets = entity.getBatch() == null ? null : entity.getBatch().getTriangleOffsets();
+    optimize(optimizer, entity.getTriangles(), offsets);
+    if (entity.getLods() != null) {
+      for (MeshLod lod : entity.getLods()) {
+        optimize(optimizer, lod.getTriangles(), lod.getTriangleOffsets());
+      }
+    }
+
+    int[] remap = VertexCacheOptimizer.computeFetchOrder(entity.getTriangles(), vertexCount);
+    entity.setPositions(remapVertices(entity.getPositions(), remap));
+    if (entity.getNormals() != null) {
+      entity.setNormals(remapVertices(entity.getNormals(), remap));
+    }
+    remapIndices(entity.getTriangles(), remap);
+    if (entity.getLods() != null) {
+      for (MeshLod lod : entity.getLods()) {
+        remapIndices(lod.getTriangles(), remap);
+      }
+    }
+  }
+
+  /**
+   * Optimises each range of triangles, starting at the given triangle offsets.
+   */
+  private void optimize(VertexCacheOptimizer optimizer, int[] triangles, int[] triangleOffsets) {
+    if (triangleOffsets == null) {
+      optimizer.optimize(triangles, 0, triangles.length);
+      return;
+    }
+    for (int i = 0; i < triangleOffsets.length; i++) {
+      int end = i + 1 < triangleOffsets.length ? triangleOffsets[i + 1] * 3 : triangles.length;
+      optimizer.optimize(triangles, triangleOffsets[i] * 3, end);
+    }
+  }
+
+  private double[] remapVertices(double[] values, int[] remap) {
+    double[] remapped = new double[values.length];
+    for (int vertex = 0; vertex < remap.length; vertex++) {
+      System.arraycopy(values, vertex * 3, remapped, remap[vertex] * 3, 3);
+    }
+    return remapped;
+  }
+
+  private float[] remapVertices(float[] values, int[] remap) {
+    float[] remapped = new float[values.length];
+    for (int vertex = 0; vertex < remap.length; vertex++) {
+      System.arraycopy(values, vertex * 3, remapped, remap[vertex] * 3, 3);
+    }
+    return remapped;
+  }
+
+  private void remapIndices(int[] triangles, int[] remap) {
+    for (int i = 0; i < triangles.length; i++) {
+      triangles[i] = remap[triangles[i]];
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package au.com.mutopia.acs.conversion.process;
+
+import java.util.List;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.util.mesh.IndexedMesh;
+import au.com.mutopia.acs.util.mesh.VertexWelder;
+
+/**
+ * Welds the duplicate vertices of each mesh entity and removes unreferenced vertices, so that
+ * converters which emit a vertex per triangle corner produce compact indexed meshes.
+ */
+public class VertexWeldingProcessor implements MeshProcessor {
+
+  /** The default distance within which positions are welded, in metres. */
+  public static final double DEFAULT_POSITION_TOLERANCE = 1e-4;
+
+  /** The default difference within which the components of normals are welded. */
+  public static final double DEFAULT_NORMAL_TOLERANCE = 1e-3;
+
+  private final VertexWelder welder;
+
+  public VertexWeldingProcessor() {
+    this(DEFAULT_POSITION_TOLERANCE, DEFAULT_NORMAL_TOLERANCE);
+  }
+
+  /**
+   * @param positionTolerance The distance within which positions are welded, in metres.
+   * @param normalTolerance The difference within which the components of normals are welded.
+   */
+  public VertexWeldingProcessor(double positionTolerance, double normalTolerance) {
+    this.welder = new VertexWelder(positionTolerance, normalTolerance);
+  }
+
+  @Override
+  public List<C3mlEntity> process(List<C3mlEntity> entities, ConversionContext context) {
+    for (C3mlEntity entity : entities) {
+      weld(entity);
+    }
+    return entities;
+  }
+
+  /**
+   * Welds the mesh of the given entity and its descendants.
+   */
+  private void weld(C3mlEntity entity) {
+    float[] normals = entity.getNormals();
+    if (entity.getPositions() != null && entity.getTriangles() != null
+        && (normals == null || normals.length == entity.getPositions().length)) {
+      IndexedMesh mesh = welder.weld(new IndexedMesh(entity.getPositions(), normals,
+          entity.getTriangles()));
+      entity.setPositions(mesh.getPositions());
+      entity.setNormals(mesh.getNormals());
+      entity.setTriangles(mesh.getTriangles());
+    }
+    for (C3mlEntity child : entity.getChildren()) {
+      weld(child);
+    }
+  }
+
+}
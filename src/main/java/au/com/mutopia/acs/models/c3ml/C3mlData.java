@@ -1,15 +1,16 @@
 package au.com.mutopia.acs.models.c3ml;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import lombok.Getter;
 import lombok.Setter;
+import au.com.mutopia.acs.transform.PropertyTableSerializer;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * A POJO containing a list of {@link C3mlEntity} meshes (each with an ID), as well as a map of
@@ -22,7 +23,8 @@ public class C3mlData {
 
   private List<C3mlEntity> c3mls = new ArrayList<>();
 
-  private Map<String, Map<String, String>> properties = new HashMap<>();
+  /** The properties of the entities, by property name and then entity ID. */
+  private PropertyTable properties = new PropertyTable();
 
   /**
    * Creates an empty {@link C3mlData} container.
@@ -83,18 +85,51 @@ public class C3mlData {
   }
 
   /**
-   * Updates the {@link #properties} field with the parameter data for the given {@link C3mlEntity}.
+   * @return The properties of the entities, by property name and then entity ID. Use
+   *         {@link PropertyTable#asMap()} to view them as a map.
+   */
+  @JsonSerialize(using = PropertyTableSerializer.class)
+  public PropertyTable getProperties() {
+    return properties;
+  }
+
+  /**
+   * @param properties A map of property names to maps of entity IDs to values.
+   */
+  public void setProperties(Map<String, Map<String, String>> properties) {
+    this.properties = PropertyTable.copyOf(properties);
+  }
+
+  /**
+   * Adds a row to the {@link #properties} table with the parameter data for the given
+   * {@link C3mlEntity}, and for each entity batched into it.
    *
    * @param entity The {@link C3mlEntity} to extract parameters from.
    */
   private void extractEntityParameters(C3mlEntity entity) {
-    for (String name : entity.getProperties().keySet()) {
-      Map<String, String> param = properties.get(name);
-      if (param == null) {
-        param = new HashMap<>();
-        properties.put(name, param);
+    if (!entity.getProperties().isEmpty()) {
+      properties.addRow(entity.getId().toString(), entity.getProperties());
+    }
+    extractBatchParameters(entity);
+  }
+
+  /**
+   * Adds a row to the {@link #properties} table for each entity batched into the given
+   * {@link C3mlEntity} or its descendants (e.g. the chunks of a split batch).
+   *
+   * @param entity The {@link C3mlEntity} to extract batched parameters from.
+   */
+  private void extractBatchParameters(C3mlEntity entity) {
+    MeshBatch batch = entity.getBatch();
+    if (batch != null) {
+      for (int i = 0; i < batch.size() && i < batch.getProperties().size(); i++) {
+        if (!batch.getProperties().get(i).isEmpty()) {
+          properties.addRow(batch.getIds().get(i), batch.getProperties().get(i));
+        }
       }
-      param.put(entity.getId().toString(), entity.getProperties().get(name));
+    }
+    for (C3mlEntity child : entity.getChildren()) {
+      extractBatchParameters(child);
     }
   }
 
@@ -2,19 +2,28 @@ package au.com.mutopia.acs.models.c3ml;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 import lombok.Getter;
 import lombok.Setter;
-import au.com.mutopia.acs.util.geometry.GeometryUtils;
+import au.com.mutopia.acs.conversion.RandomIdStrategy;
+import au.com.mutopia.acs.transform.CoordinateListDeserializer;
+import au.com.mutopia.acs.transform.CoordinateListSerializer;
+import au.com.mutopia.acs.transform.CoordinateRingsDeserializer;
+import au.com.mutopia.acs.transform.RawJsonDeserializer;
+import au.com.mutopia.acs.transform.RawJsonSerializer;
+import au.com.mutopia.acs.util.mesh.MeshCompressor;
+import au.com.mutopia.acs.util.mesh.MeshQuantizer;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -28,6 +37,16 @@ import com.google.common.collect.ImmutableList;
 @Setter
 @JsonInclude(Include.NON_NULL)
 public class C3mlEntity {
+
+  /** The default {@link #scale}, which leaves the coordinates unchanged. */
+  public static final List<Double> DEFAULT_SCALE = ImmutableList.of(1.0, 1.0, 1.0);
+
+  /** The default {@link #rotation}, which leaves the coordinates unchanged. */
+  public static final List<Double> DEFAULT_ROTATION = ImmutableList.of(0.0, 0.0, 0.0);
+
+  /** The default {@link #geoLocation}, for entities without a mesh. */
+  public static final List<Double> DEFAULT_GEO_LOCATION = ImmutableList.of(0.0, 0.0, 0.0);
+
   private String id;
   private String name;
 
@@ -57,20 +76,23 @@ public class C3mlEntity {
   @JsonProperty("children")
   private List<String> childrenIds = new ArrayList<>();
 
-  /** A map of property names to values of this entity. */
-  private Map<String, String> properties = new HashMap<>();
+  /**
+   * A map of property names to values of this entity, or null until the entity has a property. The
+   * names are interned, since many entities share the same property names.
+   */
+  private Map<String, String> properties;
 
   /**
    * A list of coordinates of points making up the entity geometry (2D entities only). Each vertex
    * represents the longitude, latitude and elevation of a point.
    */
-  private List<Vertex3D> coordinates = new ArrayList<>();
+  private CoordinateBuffer coordinates = new CoordinateBuffer();
 
   /**
-   * A list of polygons (each a list of coordinates) specifying the holes in the polygon as polygons
+   * A list of polygons (each a ring of coordinates) specifying the holes in the polygon as polygons
    * to cut out of the original shape.
    */
-  private List<List<Vertex3D>> holes = new ArrayList<>();
+  private CoordinateBuffer holes = new CoordinateBuffer();
 
   /**
    * The color of the entity, if any solid color should be applied. The list of numbers represents
@@ -85,13 +107,13 @@ public class C3mlEntity {
   private List<Integer> borderColor = new ArrayList<>();
 
   /** The scaling factors (x, y, z) by which all coordinates should be scaled when rendered. */
-  private List<Double> scale = ImmutableList.of(1.0, 1.0, 1.0);
+  private List<Double> scale = DEFAULT_SCALE;
 
   /**
    * The angles (in degrees around the x, y, z axes, counterclockwise) by which the coordinates
    * should be rotated when rendered.
    */
-  private List<Double> rotation = ImmutableList.of(0.0, 0.0, 0.0);
+  private List<Double> rotation = DEFAULT_ROTATION;
 
   /** The extrusion height of the entity. Polygons only. */
   private Double height;
@@ -99,33 +121,61 @@ public class C3mlEntity {
   /** The elevation of the entity from the ground. */
   private Double altitude;
 
-  /** The 3D coordinates of each of the points in the entity's mesh (3D entities only). */
-  private List<Double> positions;
+  /**
+   * The 3D coordinates of each of the points in the entity's mesh (3D entities only), stored as
+   * consecutive (x, y, z) values.
+   */
+  private double[] positions;
+
+  /** The normal of each of the points in the {@link #positions} array. */
+  private float[] normals;
 
-  /** The normal of each of the points in the {@link #positions} list. */
-  private List<Double> normals;
+  /**
+   * An array of indices of the {@link #positions} array. Each sequence of three indices represents
+   * a triangle formed between the three indexed position vectors.
+   */
+  private int[] triangles;
 
   /**
-   * A list of indices of the {@link #positions} array. Each sequence of three indices represents a
-   * triangle formed between the three indexed position vectors.
+   * The quantized {@link #positions} and {@link #normals} of the mesh, which replace them when the
+   * mesh is quantized for delivery.
    */
-  private List<Integer> triangles;
+  @JsonProperty("quantized")
+  private QuantizedMesh quantizedMesh;
+
+  /**
+   * The compressed {@link #positions}, {@link #normals} and {@link #triangles} of the mesh, which
+   * replace them when the mesh is compressed for delivery.
+   */
+  @JsonProperty("compressed")
+  private CompressedMesh compressedMesh;
+
+  /** Simplified levels of detail of the mesh, from the most to the least detailed, if any. */
+  private List<MeshLod> lods;
+
+  /** The entities whose meshes were batched into this one, if any. */
+  private MeshBatch batch;
 
   /** The aggregate location of the {@link #positions} of the mesh. */
-  private List<Double> geoLocation = ImmutableList.of(0.0, 0.0, 0.0);
+  private List<Double> geoLocation = DEFAULT_GEO_LOCATION;
 
   /** The URL to the glTF mesh data, if applicable. */
   private String gltfUrl;
 
-  /** The glTF mesh data as a deserialized JSON document, if applicable. */
+  /**
+   * The glTF mesh data as a UTF-8 encoded JSON document, if applicable. It is written into the C3ML
+   * verbatim rather than being parsed into a tree.
+   */
   @JsonProperty("gltf")
-  private Map<String, Object> gltfData;
+  @JsonSerialize(using = RawJsonSerializer.class)
+  @JsonDeserialize(using = RawJsonDeserializer.class)
+  private byte[] gltfData;
 
   /**
    * Creates a new {@link C3mlEntity} with a random ID.
    */
   public C3mlEntity() {
-    this.id = UUID.randomUUID().toString();
+    this(RandomIdStrategy.INSTANCE.nextId());
   }
 
   /**
@@ -151,14 +201,80 @@ public class C3mlEntity {
     child.setParentId(getId());
   }
 
+  /**
+   * @return The coordinates of the points making up the entity geometry.
+   */
+  @JsonSerialize(using = CoordinateListSerializer.class)
+  public List<Vertex3D> getCoordinates() {
+    return coordinates;
+  }
+
+  /**
+   * @return The packed coordinates of the points making up the entity geometry, which can be read
+   *         without creating a {@link Vertex3D} for each point.
+   */
+  @JsonIgnore
+  public CoordinateBuffer getCoordinateBuffer() {
+    return coordinates;
+  }
+
+  @JsonDeserialize(using = CoordinateListDeserializer.class)
   public void setCoordinates(List<Vertex3D> coordinates) {
-    this.coordinates = coordinates;
-    double minAltitude = GeometryUtils.getMinHeight(coordinates);
-    double maxAltitude = GeometryUtils.getMaxHeight(coordinates);
+    this.coordinates = coordinates instanceof CoordinateBuffer ? (CoordinateBuffer) coordinates
+        : new CoordinateBuffer(coordinates);
+    if (this.coordinates.isEmpty()) {
+      return;
+    }
+    // Read the altitudes from the buffer directly, rather than creating each point.
+    double minAltitude = this.coordinates.getAltitude(0);
+    double maxAltitude = minAltitude;
+    for (int i = 1; i < this.coordinates.size(); i++) {
+      minAltitude = Math.min(minAltitude, this.coordinates.getAltitude(i));
+      maxAltitude = Math.max(maxAltitude, this.coordinates.getAltitude(i));
+    }
     setAltitude(minAltitude);
     setHeight(maxAltitude - minAltitude);
   }
 
+  /**
+   * @return The holes in the polygon, each as a list of coordinates.
+   */
+  @JsonSerialize(contentUsing = CoordinateListSerializer.class)
+  public List<List<Vertex3D>> getHoles() {
+    return holes.getRings();
+  }
+
+  /**
+   * @return The packed coordinates of the holes in the polygon, with a ring for each hole.
+   */
+  @JsonIgnore
+  public CoordinateBuffer getHoleBuffer() {
+    return holes;
+  }
+
+  /**
+   * Sets the holes in the polygon.
+   *
+   * @param holes The holes, each as a list of coordinates.
+   */
+  @JsonDeserialize(using = CoordinateRingsDeserializer.class)
+  public void setHoles(List<List<Vertex3D>> holes) {
+    if (holes instanceof CoordinateBuffer.Rings) {
+      this.holes = ((CoordinateBuffer.Rings) holes).getBuffer();
+    } else {
+      this.holes = CoordinateBuffer.ofRings(holes);
+    }
+  }
+
+  /**
+   * Sets the holes in the polygon.
+   *
+   * @param holes The packed coordinates of the holes, with a ring for each hole.
+   */
+  public void setHoleBuffer(CoordinateBuffer holes) {
+    this.holes = holes;
+  }
+
   /**
    * Adds a parameter to the entity.
    *
@@ -166,7 +282,28 @@ public class C3mlEntity {
    * @param value The entity's parameter value.
    */
   public void addProperty(String name, String value) {
-    properties.put(name, value);
+    if (properties == null) {
+      properties = new HashMap<>();
+    }
+    properties.put(PropertyTable.internName(name), value);
+  }
+
+  /**
+   * @return The map of property names to values of the entity, or an empty immutable map if it has
+   *         no properties.
+   */
+  public Map<String, String> getProperties() {
+    return properties == null ? Collections.<String, String>emptyMap() : properties;
+  }
+
+  /**
+   * @param properties The map of property names to values of the entity.
+   */
+  public void setProperties(Map<String, String> properties) {
+    this.properties = null;
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      addProperty(property.getKey(), property.getValue());
+    }
   }
 
   private List<Integer> buildColorArray(Color colorData) {
@@ -200,6 +337,61 @@ public class C3mlEntity {
     }
   }
 
+  /**
+   * Replaces the positions and normals of the mesh with a {@link QuantizedMesh}, if it has any.
+   */
+  public void quantizeMesh() {
+    if (positions == null) {
+      return;
+    }
+    quantizedMesh = MeshQuantizer.quantize(positions, normals);
+    positions = null;
+    normals = null;
+  }
+
+  /**
+   * Restores the positions and normals of the mesh from its {@link QuantizedMesh}, if it has one.
+   */
+  public void dequantizeMesh() {
+    if (quantizedMesh == null) {
+      return;
+    }
+    positions = MeshQuantizer.decodePositions(quantizedMesh);
+    if (quantizedMesh.getNormals() != null) {
+      normals = MeshQuantizer.decodeNormals(quantizedMesh.getNormals());
+    }
+    quantizedMesh = null;
+  }
+
+  /**
+   * Replaces the positions, normals and triangles of the mesh with a {@link CompressedMesh}, if it
+   * has any. The triangles of each entity of a {@link #batch} stay within its triangle offsets, and
+   * the triangles of the {@link #lods} are renumbered to index the compressed vertices.
+   *
+   * @param positionBits The number of bits of the quantized positions on each axis.
+   */
+  public void compressMesh(int positionBits) {
+    if (positions == null || triangles == null) {
+      return;
+    }
+    float[] meshNormals = normals != null && normals.length == positions.length ? normals : null;
+    MeshCompressor compressor = new MeshCompressor(positions, meshNormals, triangles);
+    compressedMesh =
+        compressor.compress(positionBits, batch == null ? null : batch.getTriangleOffsets());
+    int[] vertexIndices = compressor.getVertexIndices();
+    if (lods != null) {
+      for (MeshLod lod : lods) {
+        int[] lodTriangles = lod.getTriangles();
+        for (int i = 0; i < lodTriangles.length; i++) {
+          lodTriangles[i] = vertexIndices[lodTriangles[i]];
+        }
+      }
+    }
+    positions = null;
+    normals = null;
+    triangles = null;
+  }
+
   @Override
   public String toString() {
     return String.format("C3mlEntity[%s]", getName());
@@ -0,0 +1,40 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The compressed positions, normals and triangles of a mesh entity, which replace its
+ * {@link C3mlEntity#getPositions() positions}, {@link C3mlEntity#getNormals() normals} and
+ * {@link C3mlEntity#getTriangles() triangles} for delivery over slow connections.
+ *
+ * The {@link #data} is a range coded stream of the connectivity of the triangles, the positions
+ * quantized within the bounding box of the mesh as residuals of their predictions, and the
+ * octahedral encoded normals. Positions are decoded as <code>q * scale + offset</code> with the
+ * scale and offset of their axis, in the same frame as the uncompressed positions.
+ *
+ * @see au.com.mutopia.acs.util.mesh.MeshCompressor
+ */
+@Getter
+@Setter
+public class CompressedMesh {
+
+  /** The number of vertices of the mesh. */
+  private int vertexCount;
+
+  /** The number of triangles of the mesh. */
+  private int triangleCount;
+
+  /** The number of bits of the quantized positions on each axis. */
+  private int positionBits;
+
+  /** The scale of the quantized positions on each axis. */
+  private double[] scale;
+
+  /** The offset of the quantized positions on each axis, i.e. the minimum of the bounding box. */
+  private double[] offset;
+
+  /** The range coded mesh. */
+  private byte[] data;
+
+}
@@ -0,0 +1,274 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of {@link Vertex3D} points packed into a single array of (longitude, latitude, altitude)
+ * values, rather than an object per point. Points are only created when accessed through the
+ * {@link List} interface; the accessors by index read the packed values directly.
+ *
+ * The points may also be divided into consecutive rings (e.g. the holes of a polygon), which are
+ * accessed through {@link #getRings()}.
+ */
+public class CoordinateBuffer extends AbstractList<Vertex3D> implements RandomAccess {
+
+  private static final double[] EMPTY_VALUES = new double[0];
+  private static final int[] EMPTY_RING_ENDS = new int[0];
+
+  /** The values of the points, in (longitude, latitude, altitude) order. */
+  private double[] values = EMPTY_VALUES;
+
+  /** The number of points in the buffer. */
+  private int size;
+
+  /** The index after the last point of each ring. */
+  private int[] ringEnds = EMPTY_RING_ENDS;
+
+  /** The number of rings in the buffer. */
+  private int ringCount;
+
+  public CoordinateBuffer() {}
+
+  /**
+   * @param capacity The number of points to allocate space for.
+   */
+  public CoordinateBuffer(int capacity) {
+    values = new double[capacity * 3];
+  }
+
+  /**
+   * Creates a buffer containing the given points.
+   *
+   * @param points The points to copy into the buffer.
+   */
+  public CoordinateBuffer(List<Vertex3D> points) {
+    this(points.size());
+    addAll(points);
+  }
+
+  /**
+   * Creates a buffer containing each of the given lists of points as a ring.
+   *
+   * @param rings The rings of points to copy into the buffer.
+   * @return The buffer of rings.
+   */
+  public static CoordinateBuffer ofRings(List<? extends List<Vertex3D>> rings) {
+    CoordinateBuffer buffer = new CoordinateBuffer();
+    for (List<Vertex3D> ring : rings) {
+      buffer.addRing(ring);
+    }
+    return buffer;
+  }
+
+  /**
+   * Adds a point to the end of the buffer, without creating a {@link Vertex3D}.
+   *
+   * @param latitude The latitude of the point.
+   * @param longitude The longitude of the point.
+   * @param altitude The altitude of the point.
+   */
+  public void addVertex(double latitude, double longitude, double altitude) {
+    ensureCapacity(size + 1);
+    int offset = size * 3;
+    values[offset] = longitude;
+    values[offset + 1] = latitude;
+    values[offset + 2] = altitude;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public boolean add(Vertex3D vertex) {
+    addVertex(vertex.getLatitude(), vertex.getLongitude(), vertex.getAltitude());
+    return true;
+  }
+
+  @Override
+  public Vertex3D get(int index) {
+    checkIndex(index);
+    return new Vertex3D(getLatitude(index), getLongitude(index), getAltitude(index));
+  }
+
+  @Override
+  public Vertex3D set(int index, Vertex3D vertex) {
+    Vertex3D previous = get(index);
+    int offset = index * 3;
+    values[offset] = vertex.getLongitude();
+    values[offset + 1] = vertex.getLatitude();
+    values[offset + 2] = vertex.getAltitude();
+    return previous;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return The longitude of the point at the given index.
+   */
+  public double getLongitude(int index) {
+    return values[index * 3];
+  }
+
+  /**
+   * @return The latitude of the point at the given index.
+   */
+  public double getLatitude(int index) {
+    return values[index * 3 + 1];
+  }
+
+  /**
+   * @return The altitude of the point at the given index.
+   */
+  public double getAltitude(int index) {
+    return values[index * 3 + 2];
+  }
+
+  /**
+   * Ends the current ring, so that the points added since the end of the previous ring form a new
+   * ring.
+   */
+  public void endRing() {
+    if (ringCount == ringEnds.length) {
+      ringEnds = Arrays.copyOf(ringEnds, Math.max(4, ringCount * 2));
+    }
+    ringEnds[ringCount++] = size;
+    modCount++;
+  }
+
+  /**
+   * Adds a list of points to the buffer as a new ring.
+   *
+   * @param ring The points of the ring.
+   */
+  public void addRing(List<Vertex3D> ring) {
+    ensureCapacity(size + ring.size());
+    for (Vertex3D vertex : ring) {
+      add(vertex);
+    }
+    endRing();
+  }
+
+  /**
+   * @return The number of rings in the buffer.
+   */
+  public int getRingCount() {
+    return ringCount;
+  }
+
+  /**
+   * @return The index of the first point of the given ring.
+   */
+  public int getRingStart(int ring) {
+    return ring == 0 ? 0 : ringEnds[ring - 1];
+  }
+
+  /**
+   * @return The index after the last point of the given ring.
+   */
+  public int getRingEnd(int ring) {
+    return ringEnds[ring];
+  }
+
+  /**
+   * Gets a view of the rings of the buffer. Adding a list of points to the view adds it to the
+   * buffer as a new ring.
+   *
+   * @return The rings of the buffer, each as a list of points.
+   */
+  public Rings getRings() {
+    return new Rings();
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity * 3 > values.length) {
+      values = Arrays.copyOf(values, Math.max(capacity, size * 2) * 3);
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+    }
+  }
+
+  /**
+   * A view of the rings of the buffer, each as a list of points.
+   */
+  public class Rings extends AbstractList<List<Vertex3D>> implements RandomAccess {
+
+    private Rings() {}
+
+    @Override
+    public List<Vertex3D> get(int index) {
+      if (index < 0 || index >= ringCount) {
+        throw new IndexOutOfBoundsException("Ring " + index + " of " + ringCount);
+      }
+      return new Ring(getRingStart(index), getRingEnd(index));
+    }
+
+    @Override
+    public boolean add(List<Vertex3D> ring) {
+      addRing(ring);
+      return true;
+    }
+
+    @Override
+    public int size() {
+      return ringCount;
+    }
+
+    /**
+     * @return The buffer containing the points of the rings.
+     */
+    public CoordinateBuffer getBuffer() {
+      return CoordinateBuffer.this;
+    }
+  }
+
+  /**
+   * A read-only view of a range of the points of the buffer.
+   */
+  public class Ring extends AbstractList<Vertex3D> implements RandomAccess {
+
+    private final int start;
+    private final int end;
+
+    private Ring(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public Vertex3D get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index " + index + " of " + size());
+      }
+      return CoordinateBuffer.this.get(start + index);
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+
+    /**
+     * @return The buffer containing the points of the ring.
+     */
+    public CoordinateBuffer getBuffer() {
+      return CoordinateBuffer.this;
+    }
+
+    /**
+     * @return The index of the first point of the ring in the buffer.
+     */
+    public int getStart() {
+      return start;
+    }
+  }
+
+}
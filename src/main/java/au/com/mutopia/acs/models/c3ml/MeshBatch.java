@@ -0,0 +1,75 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Maps the triangles of a mesh entity which batches the meshes of several entities back to the
+ * entities they came from, so that each can still be picked and its properties looked up.
+ *
+ * The triangles of the entity at index <code>i</code> of {@link #ids} are the contiguous range of
+ * triangles from <code>triangleOffsets[i]</code> up to <code>triangleOffsets[i + 1]</code> (or the
+ * last triangle of the mesh). Offsets count triangles, not indices of the triangles array.
+ */
+@Getter
+@Setter
+public class MeshBatch {
+
+  /** The IDs of the batched entities. */
+  private List<String> ids = new ArrayList<>();
+
+  /** The names of the batched entities, which may be null. */
+  private List<String> names = new ArrayList<>();
+
+  /** The index of the first triangle of each batched entity. */
+  private int[] triangleOffsets;
+
+  /**
+   * The properties of each batched entity, which are written to the properties of the C3ML
+   * document under the IDs of the entities rather than with the batch.
+   */
+  @JsonIgnore
+  private List<Map<String, String>> properties = new ArrayList<>();
+
+  /**
+   * @return The number of batched entities.
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * @param triangle The index of a triangle of the batched mesh.
+   * @return The index of the batched entity which the triangle came from.
+   */
+  public int indexOfTriangle(int triangle) {
+    return indexOfTriangle(triangleOffsets, triangle);
+  }
+
+  /**
+   * @param triangleOffsets The index of the first triangle of each batched entity, e.g. in a
+   *        {@link MeshLod} of the batch.
+   * @param triangle The index of a triangle.
+   * @return The index of the batched entity which the triangle came from.
+   */
+  public static int indexOfTriangle(int[] triangleOffsets, int triangle) {
+    int low = 0;
+    int high = triangleOffsets.length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (triangleOffsets[middle] <= triangle) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+}
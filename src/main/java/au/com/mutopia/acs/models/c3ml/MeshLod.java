@@ -0,0 +1,32 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A simplified level of detail of a mesh entity. Its triangles index the same
+ * {@link C3mlEntity#getPositions() positions} and {@link C3mlEntity#getNormals() normals} as the
+ * full mesh, so the levels share a single vertex buffer.
+ *
+ * @see au.com.mutopia.acs.util.mesh.MeshSimplifier
+ */
+@Getter
+@Setter
+public class MeshLod {
+
+  /** The indices of the three vertices of each triangle of the level. */
+  private int[] triangles;
+
+  /**
+   * The largest error of the simplification, as a root mean square distance from the planes of
+   * the full mesh in metres.
+   */
+  private double error;
+
+  /**
+   * The index of the first triangle of each entity of the {@link MeshBatch} of the entity, if the
+   * entity is a batch.
+   */
+  private int[] triangleOffsets;
+
+}
@@ -0,0 +1,275 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A columnar table of the properties of many entities, which can be viewed as a read-only map of
+ * property names to maps of entity IDs to values.
+ *
+ * Each entity is a row and each property name is a column. The cells of a column are codes into a
+ * dictionary of values shared by all columns, so a value repeated across many entities (e.g. a
+ * Shapefile attribute) is only stored once. Property names are interned. The map of each column is
+ * only created when the table is viewed with {@link #asMap()}; the table can be serialized directly
+ * from the columns.
+ */
+public class PropertyTable {
+
+  /** The interned property names, shared by all entities and tables. */
+  private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+  /** The code of an empty cell. */
+  private static final int NO_VALUE = -1;
+
+  /** The ID of the entity of each row. */
+  private String[] rowIds = new String[16];
+
+  /** The number of rows in the table. */
+  private int rowCount;
+
+  /** The index of each row by entity ID, created when needed to look up a row. */
+  private Map<String, Integer> rowIndices;
+
+  /** The name of each column. */
+  private final List<String> columnNames = new ArrayList<>();
+
+  /** The index of each column by name. */
+  private final Map<String, Integer> columnIndices = new HashMap<>();
+
+  /** The value codes of the cells of each column, by row. */
+  private final List<int[]> columns = new ArrayList<>();
+
+  /** The dictionary of distinct values. */
+  private final List<String> values = new ArrayList<>();
+
+  /** The code of each value in the dictionary. */
+  private final Map<String, Integer> valueCodes = new HashMap<>();
+
+  /** The materialized map of columns, or null if it has not been created since the last change. */
+  private Map<String, Map<String, String>> view;
+
+  /**
+   * Interns a property name, so that every entity with the property shares the same string.
+   *
+   * @param name The property name.
+   * @return The canonical instance of the name.
+   */
+  public static String internName(String name) {
+    return name == null ? null : NAMES.intern(name);
+  }
+
+  /**
+   * Creates a table from a map of property names to maps of entity IDs to values.
+   *
+   * @param properties The map of properties to copy.
+   * @return The table of properties.
+   */
+  public static PropertyTable copyOf(Map<String, Map<String, String>> properties) {
+    PropertyTable table = new PropertyTable();
+    for (Map.Entry<String, Map<String, String>> column : properties.entrySet()) {
+      int columnIndex = table.getColumnIndex(column.getKey());
+      for (Map.Entry<String, String> cell : column.getValue().entrySet()) {
+        table.setCell(columnIndex, table.getRowIndex(cell.getKey()), cell.getValue());
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Adds a row for an entity's properties. Repeated values are stored once in the dictionary of the
+   * table, while the given map is only read, so it may be immutable. If the entity already has a
+   * row, its properties are replaced.
+   *
+   * @param entityId The ID of the entity.
+   * @param properties The properties of the entity.
+   */
+  public void addRow(String entityId, Map<String, String> properties) {
+    int rowCountBefore = rowCount;
+    int row = getRowIndex(entityId);
+    if (row < rowCountBefore) {
+      clearRow(row);
+    }
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      setCell(getColumnIndex(property.getKey()), row, property.getValue());
+    }
+  }
+
+  /**
+   * @return The number of rows (entities) in the table.
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return The entity ID of the given row.
+   */
+  public String getRowId(int row) {
+    return rowIds[row];
+  }
+
+  /**
+   * @return The number of columns (property names) in the table.
+   */
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  /**
+   * @return The property name of the given column.
+   */
+  public String getColumnName(int column) {
+    return columnNames.get(column);
+  }
+
+  /**
+   * @return Whether no entity has a value in the given column, e.g. since the rows which had one
+   *         were replaced. Empty columns are left out of the map and serialized forms of the table.
+   */
+  public boolean isColumnEmpty(int column) {
+    int[] cells = columns.get(column);
+    for (int row = 0; row < rowCount && row < cells.length; row++) {
+      if (cells[row] != NO_VALUE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The value of a cell, or null if the entity of the row doesn't have the property.
+   */
+  public String getValue(int column, int row) {
+    int[] cells = columns.get(column);
+    int code = row < cells.length ? cells[row] : NO_VALUE;
+    return code == NO_VALUE ? null : values.get(code);
+  }
+
+  /**
+   * Gets the table as a map of property names to maps of entity IDs to values, creating it on first
+   * access since the last change.
+   *
+   * @return An unmodifiable map of the properties.
+   */
+  public Map<String, Map<String, String>> asMap() {
+    if (view == null) {
+      Map<String, Map<String, String>> columnMaps = new LinkedHashMap<>();
+      for (int column = 0; column < getColumnCount(); column++) {
+        Map<String, String> cells = new LinkedHashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+          String value = getValue(column, row);
+          if (value != null) {
+            cells.put(rowIds[row], value);
+          }
+        }
+        if (!cells.isEmpty()) {
+          columnMaps.put(columnNames.get(column), Collections.unmodifiableMap(cells));
+        }
+      }
+      view = Collections.unmodifiableMap(columnMaps);
+    }
+    return view;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof PropertyTable && asMap().equals(((PropertyTable) other).asMap());
+  }
+
+  @Override
+  public int hashCode() {
+    return asMap().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+
+  private int addRow(String entityId) {
+    if (rowCount == rowIds.length) {
+      rowIds = Arrays.copyOf(rowIds, rowCount * 2);
+    }
+    if (rowIndices != null) {
+      rowIndices.put(entityId, rowCount);
+    }
+    rowIds[rowCount] = entityId;
+    view = null;
+    return rowCount++;
+  }
+
+  /**
+   * Empties the cells of a row.
+   */
+  private void clearRow(int row) {
+    for (int[] cells : columns) {
+      if (row < cells.length) {
+        cells[row] = NO_VALUE;
+      }
+    }
+    view = null;
+  }
+
+  /**
+   * @return The index of the row of an entity, adding a row if it is new.
+   */
+  private int getRowIndex(String entityId) {
+    if (rowIndices == null) {
+      rowIndices = new HashMap<>();
+      for (int row = 0; row < rowCount; row++) {
+        rowIndices.put(rowIds[row], row);
+      }
+    }
+    Integer row = rowIndices.get(entityId);
+    return row == null ? addRow(entityId) : row;
+  }
+
+  /**
+   * @return The index of the column of a property name, adding a column if it is new.
+   */
+  private int getColumnIndex(String name) {
+    Integer column = columnIndices.get(name);
+    if (column == null) {
+      column = columnNames.size();
+      String internedName = internName(name);
+      columnNames.add(internedName);
+      columnIndices.put(internedName, column);
+      columns.add(new int[0]);
+    }
+    return column;
+  }
+
+  /**
+   * Sets the value of a cell, adding the value to the dictionary if it is new.
+   */
+  private void setCell(int column, int row, String value) {
+    int[] cells = columns.get(column);
+    if (row >= cells.length) {
+      int length = cells.length;
+      cells = Arrays.copyOf(cells, Math.max(row + 1, rowIds.length));
+      Arrays.fill(cells, length, cells.length, NO_VALUE);
+      columns.set(column, cells);
+    }
+    view = null;
+    if (value == null) {
+      cells[row] = NO_VALUE;
+      return;
+    }
+    Integer code = valueCodes.get(value);
+    if (code == null) {
+      code = values.size();
+      values.add(value);
+      valueCodes.put(value, code);
+    }
+    cells[row] = code;
+  }
+
+}
@@ -0,0 +1,34 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The quantized positions and normals of a mesh entity, which replace its
+ * {@link C3mlEntity#getPositions() positions} and {@link C3mlEntity#getNormals() normals} for
+ * compact delivery to browsers.
+ *
+ * Each position is stored as three int16 values relative to the bounding box of the mesh, in the
+ * same frame as the unquantized positions (i.e. relative to the entity's geoLocation). A value is
+ * decoded as <code>q * scale + offset</code> with the scale and offset of its axis. Each normal is
+ * stored as two int8 values of its octahedral encoding.
+ *
+ * @see au.com.mutopia.acs.util.mesh.MeshQuantizer
+ */
+@Getter
+@Setter
+public class QuantizedMesh {
+
+  /** The quantized (x, y, z) values of each position. */
+  private short[] positions;
+
+  /** The scale of the quantized positions on each axis. */
+  private double[] scale;
+
+  /** The offset of the quantized positions on each axis, i.e. the center of the bounding box. */
+  private double[] offset;
+
+  /** The octahedral encoding of each normal as two signed bytes, or null if there are none. */
+  private byte[] normals;
+
+}
@@ -0,0 +1,32 @@
+package au.com.mutopia.acs.models.ifc;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The mesh of an {@link IfcObject} extracted by BIMserver, with the values of each array unboxed.
+ */
+@Getter
+@Setter
+public class IfcGeometry {
+
+  private String primitive;
+
+  private String material;
+
+  /** The (x, y, z) values of each vertex position. */
+  private double[] positions;
+
+  /** The (x, y, z) components of each vertex normal. */
+  private float[] normals;
+
+  /** The indices of the three vertices of each triangle. */
+  private int[] triangles;
+
+  /** The (red, green, blue, alpha) components of the color, between 0 and 1. */
+  private double[] color;
+
+  /** The local transformation of the positions, as a row major 4x4 matrix, or null if none. */
+  private double[] matrix;
+
+}
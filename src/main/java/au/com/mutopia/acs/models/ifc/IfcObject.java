@@ -0,0 +1,40 @@
+package au.com.mutopia.acs.models.ifc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * An object of the IFC hierarchy extracted by BIMserver, e.g. a site, building, storey or element.
+ * The objects it is decomposed into or contains are read separately, by
+ * {@link au.com.mutopia.acs.transform.IfcGeometryReader}.
+ */
+@Getter
+@Setter
+public class IfcObject {
+
+  private String id;
+
+  private String name;
+
+  /** The IFC type of the object, e.g. <code>IfcSite</code>. */
+  private String type;
+
+  /** The scale of the lengths of the site to meters, or null if not a site or not given. */
+  private Double lengthUnitConversion;
+
+  /** The latitude of the site as a JSON array of degrees, minutes and seconds, or null. */
+  private String latitude;
+
+  /** The longitude of the site as a JSON array of degrees, minutes and seconds, or null. */
+  private String longitude;
+
+  /** The parameters of the object, with their values as strings. */
+  private Map<String, String> parameters = new LinkedHashMap<>();
+
+  /** The mesh of the object, or null if it has none. */
+  private IfcGeometry geometry;
+
+}
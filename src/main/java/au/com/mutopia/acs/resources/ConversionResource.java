@@ -1,12 +1,24 @@
 package au.com.mutopia.acs.resources;
 
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.conversion.Converter;
 import au.com.mutopia.acs.conversion.ConverterMap;
+import au.com.mutopia.acs.conversion.IdStrategy;
+import au.com.mutopia.acs.conversion.RandomIdStrategy;
+import au.com.mutopia.acs.conversion.SequentialIdStrategy;
+import au.com.mutopia.acs.conversion.output.AssetStore;
+import au.com.mutopia.acs.conversion.output.AssetStore.StoredAsset;
+import au.com.mutopia.acs.conversion.output.C3mlWriter;
+import au.com.mutopia.acs.conversion.output.GlbAssetWriter;
 import au.com.mutopia.acs.conversion.output.KmzWriter;
+import au.com.mutopia.acs.conversion.process.MeshPipeline;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.c3ml.C3mlData;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.util.mesh.MeshCompressor;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.sun.jersey.core.header.FormDataContentDisposition;
 import com.sun.jersey.multipart.FormDataParam;
@@ -17,10 +29,14 @@ import org.apache.commons.lang3.time.StopWatch;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
@@ -40,6 +56,16 @@ public class ConversionResource {
 
   /** A map of {@link Converter} objects for each available input format. */
   private ConverterMap converters;
+
+  /** The store of binary assets referenced by converted entities. */
+  private AssetStore assetStore;
+
+  /** Writes the converted C3ML documents. */
+  private C3mlWriter c3mlWriter;
+
+  /** Post-processes the meshes of converted entities. */
+  private MeshPipeline meshPipeline;
+
   private static final String KMZ_MIME_TYPE = "application/vnd.google-earth.kmz";
 
   /**
@@ -47,10 +73,17 @@ public class ConversionResource {
    *
    * @param converters A map of each supported format to the {@link Converter} used to convert files
    * of that format.
+   * @param assetStore The store of binary assets referenced by converted entities.
+   * @param c3mlWriter Writes the converted C3ML documents.
+   * @param meshPipeline Post-processes the meshes of converted entities.
    */
   @Inject
-  public ConversionResource(ConverterMap converters) {
+  public ConversionResource(ConverterMap converters, AssetStore assetStore, C3mlWriter c3mlWriter,
+      MeshPipeline meshPipeline) {
     this.converters = converters;
+    this.assetStore = assetStore;
+    this.c3mlWriter = c3mlWriter;
+    this.meshPipeline = meshPipeline;
   }
 
   /**
@@ -59,37 +92,194 @@ public class ConversionResource {
    * @param inputStream A stream of the uploaded file data.
    * @param fileDetail Metadata about the uploaded file.
    * @param merge Whether to merge all entities into one (if possible).
-   * @return The generated C3ML document.
+   * @param batch Whether to batch the meshes which share a material into a single mesh entity.
+   * @param binary Whether to store mesh data as binary glTF assets referenced by URL.
+   * @param ids How to generate the IDs of the entities: "random", "sequential" or "content".
+   * @param quantize Whether to quantize the positions and normals of meshes.
+   * @param compress Whether to compress the positions, normals and triangles of meshes.
+   * @param simplify The ratio of their triangles to simplify meshes to, if any.
+   * @param simplifyError The largest error of simplified meshes in metres, if any.
+   * @param lods A comma separated list of the triangle ratios of the levels of detail to add to
+   * meshes, if any.
+   * @param optimize Whether to reorder the triangles and vertices of meshes for rendering.
+   * @param headers The request headers, whose Accept header selects JSON or CBOR C3ML.
+   * @return The generated C3ML document, streamed as it is written.
    * @throws ConversionException if the conversion failed.
    */
   @POST
   @Consumes(MediaType.MULTIPART_FORM_DATA)
-  @Produces(MediaType.APPLICATION_JSON)
-  public C3mlData convert(@FormDataParam("file") InputStream inputStream,
+  @Produces({MediaType.APPLICATION_JSON, C3mlWriter.CBOR_MIME_TYPE})
+  public Response convert(@FormDataParam("file") InputStream inputStream,
       @FormDataParam("file") FormDataContentDisposition fileDetail,
-      @DefaultValue("false") @FormDataParam("merge") boolean merge) throws ConversionException {
-    Byte[] data;
+      @DefaultValue("false") @FormDataParam("merge") boolean merge,
+      @DefaultValue("false") @FormDataParam("batch") boolean batch,
+      @DefaultValue("false") @FormDataParam("binary") boolean binary,
+      @DefaultValue("random") @FormDataParam("ids") String ids,
+      @DefaultValue("false") @FormDataParam("quantize") boolean quantize,
+      @DefaultValue("false") @FormDataParam("compress") boolean compress,
+      @FormDataParam("simplify") String simplify,
+      @FormDataParam("simplifyError") String simplifyError,
+      @FormDataParam("lods") String lods,
+      @DefaultValue("false") @FormDataParam("optimize") boolean optimize,
+      @Context HttpHeaders headers)
+      throws ConversionException {
+    byte[] data;
     try {
-      data = ArrayUtils.toObject(IOUtils.toByteArray(inputStream));
+      data = IOUtils.toByteArray(inputStream);
     } catch (IOException e) {
       throw new WebApplicationException(new ConversionException("Failed to read file data", e));
     }
 
-    Asset asset = new Asset(data, fileDetail);
+    Asset asset = new Asset(ArrayUtils.toObject(data), fileDetail);
 
     log.debug("Converting " + asset + "...");
     StopWatch stopWatch = new StopWatch();
     stopWatch.start();
 
     // Convert the data.
+    ConversionContext context = new ConversionContext(merge);
+    context.setBatch(batch);
+    context.setBinary(binary);
+    context.setAssetStore(assetStore);
+    context.setIdStrategy(createIdStrategy(ids, context, data));
+    context.setOptimize(optimize);
+    if (!Strings.isNullOrEmpty(simplify)) {
+      context.setSimplifyRatio(parseRatio("simplify", simplify));
+    }
+    if (!Strings.isNullOrEmpty(simplifyError)) {
+      context.setSimplifyError(parseNumber("simplifyError", simplifyError));
+    }
+    if (!Strings.isNullOrEmpty(lods)) {
+      for (String lod : Splitter.on(',').trimResults().split(lods)) {
+        context.getLodRatios().add(parseRatio("lods", lod));
+      }
+    }
     Converter converter = this.converters.get(asset.getFormat());
-    List<C3mlEntity> entities = converter.convert(asset, merge);
+    List<C3mlEntity> entities = converter.convert(asset, context);
+    entities = meshPipeline.process(entities, context);
+
+    final C3mlData c3ml = new C3mlData(entities);
+    if (binary) {
+      new GlbAssetWriter().write(c3ml, context);
+    }
+    if (compress) {
+      for (C3mlEntity entity : c3ml.getC3mls()) {
+        entity.compressMesh(MeshCompressor.DEFAULT_POSITION_BITS);
+      }
+    }
+    if (quantize) {
+      for (C3mlEntity entity : c3ml.getC3mls()) {
+        entity.quantizeMesh();
+      }
+    }
 
     stopWatch.stop();
     log.debug("Conversion of " + asset + " complete (" + stopWatch.getTime() / 1000.0 + " secs)");
+    if (isCborAccepted(headers)) {
+      StreamingOutput output = new StreamingOutput() {
+        @Override
+        public void write(OutputStream output) throws IOException, WebApplicationException {
+          c3mlWriter.writeCbor(c3ml, output);
+        }
+      };
+      return Response.ok(output).type(C3mlWriter.CBOR_MIME_TYPE).build();
+    }
+    StreamingOutput output = new StreamingOutput() {
+      @Override
+      public void write(OutputStream output) throws IOException, WebApplicationException {
+        c3mlWriter.write(c3ml, output);
+      }
+    };
+    return Response.ok(output).type(MediaType.APPLICATION_JSON_TYPE).build();
+  }
+
+  /**
+   * @return Whether the client prefers CBOR C3ML to JSON, i.e. CBOR is named explicitly in the
+   *         Accept header before any type matching JSON.
+   */
+  private boolean isCborAccepted(HttpHeaders headers) {
+    MediaType cborType = MediaType.valueOf(C3mlWriter.CBOR_MIME_TYPE);
+    // The acceptable types are sorted by quality, then by specificity.
+    for (MediaType type : headers.getAcceptableMediaTypes()) {
+      if (!type.isWildcardType() && !type.isWildcardSubtype() && type.isCompatible(cborType)) {
+        return true;
+      } else if (type.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+        return false;
+      }
+    }
+    return false;
+  }
 
-    C3mlData c3ml = new C3mlData(entities);
-    return c3ml;
+  /**
+   * Creates the strategy used to generate the IDs of the entities of a conversion.
+   *
+   * @param ids The name of the strategy: "random", "sequential" or "content".
+   * @param context The context of the conversion.
+   * @param data The content of the converted file.
+   * @return The {@link IdStrategy} for the conversion.
+   */
+  private IdStrategy createIdStrategy(String ids, ConversionContext context, byte[] data) {
+    switch (ids) {
+      case "random":
+        return RandomIdStrategy.INSTANCE;
+      case "sequential":
+        return new SequentialIdStrategy(context.getJobId());
+      case "content":
+        return SequentialIdStrategy.forContent(data);
+      default:
+        throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+            .entity("Unknown ID strategy: " + ids).build());
+    }
+  }
+
+  /**
+   * @param name The name of the form field.
+   * @param value The value of the form field.
+   * @return The value as a ratio between 0 and 1.
+   */
+  private double parseRatio(String name, String value) {
+    double ratio = parseNumber(name, value);
+    if (ratio < 0 || ratio > 1) {
+      throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The " + name + " ratio must be between 0 and 1: " + value).build());
+    }
+    return ratio;
+  }
+
+  /**
+   * @param name The name of the form field.
+   * @param value The value of the form field.
+   * @return The value as a non-negative number.
+   */
+  private double parseNumber(String name, String value) {
+    double number;
+    try {
+      number = Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      number = Double.NaN;
+    }
+    if (!(number >= 0) || Double.isInfinite(number)) {
+      throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+          .entity("Invalid " + name + ": " + value).build());
+    }
+    return number;
+  }
+
+  /**
+   * Gets a binary asset stored by a conversion, such as the binary glTF mesh of an entity.
+   *
+   * @param jobId The ID of the conversion job which stored the asset.
+   * @param name The file name of the asset.
+   * @return The content of the asset, with the media type it was stored with.
+   */
+  @GET
+  @Path("/jobs/{jobId}/assets/{name}")
+  public Response getAsset(@PathParam("jobId") String jobId, @PathParam("name") String name) {
+    StoredAsset asset = assetStore.get(jobId, name);
+    if (asset == null) {
+      throw new WebApplicationException(Response.Status.NOT_FOUND);
+    }
+    return Response.ok(asset.getInputStream(), asset.getMediaType()).build();
   }
 
   /**
@@ -104,6 +294,9 @@ public class ConversionResource {
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
   public Response export(C3mlData data) throws ConversionException {
+    for (C3mlEntity entity : data.getC3mls()) {
+      entity.dequantizeMesh();
+    }
     File kmzFile = new KmzWriter().convert(data);
     try {
       final byte[] byteData = IOUtils.toByteArray(new FileInputStream(kmzFile));
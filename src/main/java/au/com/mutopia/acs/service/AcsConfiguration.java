@@ -5,7 +5,10 @@ import javax.validation.constraints.NotNull;
 
 import lombok.Getter;
 import lombok.Setter;
+import au.com.mutopia.acs.service.config.AssetStoreConfiguration;
 import au.com.mutopia.acs.service.config.BimServerConfiguration;
+import au.com.mutopia.acs.service.config.OutputConfiguration;
+import au.com.mutopia.acs.service.config.ProcessingConfiguration;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.yammer.dropwizard.config.Configuration;
@@ -21,4 +24,19 @@ public class AcsConfiguration extends Configuration {
   @JsonProperty
   private BimServerConfiguration bimserver = new BimServerConfiguration();
 
+  @Valid
+  @NotNull
+  @JsonProperty
+  private AssetStoreConfiguration assets = new AssetStoreConfiguration();
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private OutputConfiguration output = new OutputConfiguration();
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private ProcessingConfiguration processing = new ProcessingConfiguration();
+
 }
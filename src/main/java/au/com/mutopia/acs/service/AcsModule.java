@@ -2,6 +2,12 @@ package au.com.mutopia.acs.service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import au.com.mutopia.acs.conversion.Converter;
 import au.com.mutopia.acs.conversion.ConverterMap;
@@ -14,13 +20,32 @@ import au.com.mutopia.acs.conversion.impl.KmlConverter;
 import au.com.mutopia.acs.conversion.impl.KmzConverter;
 import au.com.mutopia.acs.conversion.impl.ShapefileConverter;
 import au.com.mutopia.acs.conversion.impl.ZipConverter;
+import au.com.mutopia.acs.conversion.output.AssetStore;
+import au.com.mutopia.acs.conversion.output.C3mlWriter;
+import au.com.mutopia.acs.conversion.process.MeshBatchingProcessor;
+import au.com.mutopia.acs.conversion.process.MeshPipeline;
+import au.com.mutopia.acs.conversion.process.MeshProcessor;
+import au.com.mutopia.acs.conversion.process.MeshSimplificationProcessor;
+import au.com.mutopia.acs.conversion.process.MeshSplittingProcessor;
+import au.com.mutopia.acs.conversion.process.VertexCacheProcessor;
+import au.com.mutopia.acs.conversion.process.VertexWeldingProcessor;
 import au.com.mutopia.acs.models.Format;
+import au.com.mutopia.acs.service.config.BimServerConfiguration;
+import au.com.mutopia.acs.service.config.OutputConfiguration;
+import au.com.mutopia.acs.service.config.ProcessingConfiguration;
+import au.com.mutopia.acs.transform.CodecRegistry;
 import au.com.mutopia.acs.util.BimServerAuthenticator;
+import au.com.mutopia.acs.util.BimServerClientPool;
+import au.com.mutopia.acs.util.FileUtils;
+import au.com.mutopia.acs.util.IfcGeometryStore;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
 
 /**
- * Configures the injection context with a map of format converters.
+ * Configures the injection context with a map of format converters, the shared codecs and the
+ * pipeline of mesh processing stages.
  */
 public class AcsModule extends AbstractModule {
 
@@ -32,18 +57,44 @@ public class AcsModule extends AbstractModule {
 
   @Override
   protected void configure() {
+    BimServerConfiguration bimserver = config.getBimserver();
     final BimServerAuthenticator bimAuth =
-        new BimServerAuthenticator(config.getBimserver().getHost(), config.getBimserver()
-            .getUsername(), config.getBimserver().getPassword());
+        new BimServerAuthenticator(bimserver.getHost(), bimserver.getUsername(),
+            bimserver.getPassword());
+    final BimServerClientPool bimClients =
+        new BimServerClientPool(bimAuth, bimserver.getMaxSessions(),
+            TimeUnit.MINUTES.toMillis(bimserver.getSessionIdleMinutes()));
+    bind(BimServerClientPool.class).toInstance(bimClients);
+    long geometryRetention = TimeUnit.MINUTES.toMillis(bimserver.getGeometryRetentionMinutes());
+    final IfcGeometryStore ifcGeometry = new IfcGeometryStore(
+        geometryRetention > 0 ? FileUtils.createTempDir() : null, geometryRetention);
+    bind(IfcGeometryStore.class).toInstance(ifcGeometry);
 
-    final KmlConverter kmlConverter = new KmlConverter();
+    final CodecRegistry codecs = new CodecRegistry();
+    bind(CodecRegistry.class).toInstance(codecs);
+
+    // A single bounded pool for the geometry of IFC objects and the mesh processing stages, so
+    // that concurrent conversions share the processors rather than each starting more threads.
+    ProcessingConfiguration processing = config.getProcessing();
+    ForkJoinPool meshPool =
+        new ForkJoinPool(processing.getThreads(), new ForkJoinWorkerThreadFactory() {
+          @Override
+          public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("mesh-processor-" + thread.getPoolIndex());
+            return thread;
+          }
+        }, null, false);
+
+    final KmlConverter kmlConverter = new KmlConverter(codecs);
     final ShapefileConverter shpConverter = new ShapefileConverter(kmlConverter);
     Map<Format, Converter> converters = new HashMap<>();
 
-    converters.put(Format.C3ML, new C3mlConverter());
-    converters.put(Format.COLLADA, new ColladaConverter());
+    converters.put(Format.C3ML, new C3mlConverter(codecs));
+    converters.put(Format.COLLADA, new ColladaConverter(codecs));
     converters.put(Format.GEOJSON, new GeoJsonConverter(kmlConverter));
-    converters.put(Format.IFC, new IfcConverter(bimAuth));
+    converters.put(Format.IFC, new IfcConverter(bimClients, ifcGeometry, codecs, meshPool));
     converters.put(Format.KML, kmlConverter);
     converters.put(Format.KMZ, new KmzConverter(kmlConverter));
     converters.put(Format.SHP, shpConverter);
@@ -51,6 +102,32 @@ public class AcsModule extends AbstractModule {
 
     ConverterMap converterMap = new ConverterMapImpl(converters);
     bind(ConverterMap.class).toInstance(converterMap);
+
+    long assetRetention = TimeUnit.MINUTES.toMillis(config.getAssets().getRetentionMinutes());
+    AssetStore assetStore = new AssetStore(FileUtils.createTempDir(), assetRetention);
+    // Delete expired assets and IFC geometry even if no further conversions are made.
+    ScheduledExecutorService expiryExecutor =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("store-expiry").setDaemon(true).build());
+    assetStore.scheduleExpiry(expiryExecutor, 1, TimeUnit.MINUTES);
+    if (ifcGeometry.isEnabled()) {
+      ifcGeometry.scheduleExpiry(expiryExecutor, 1, TimeUnit.MINUTES);
+    }
+    bind(AssetStore.class).toInstance(assetStore);
+
+    OutputConfiguration output = config.getOutput();
+    bind(C3mlWriter.class).toInstance(
+        new C3mlWriter(codecs.getJsonFactory(), output.getCoordinateDecimals(),
+            output.getPositionDecimals(), output.getNormalDecimals()));
+
+    bind(MeshPipeline.class).toInstance(
+        new MeshPipeline(ImmutableList.<MeshProcessor>of(
+            new VertexWeldingProcessor(processing.getWeldPositionTolerance(),
+                processing.getWeldNormalTolerance()),
+            new MeshSimplificationProcessor(meshPool),
+            new MeshBatchingProcessor(),
+            new MeshSplittingProcessor(processing.getMaxMeshVertices()),
+            new VertexCacheProcessor(meshPool))));
   }
 
 }
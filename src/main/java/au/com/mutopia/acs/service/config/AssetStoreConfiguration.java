@@ -0,0 +1,22 @@
+package au.com.mutopia.acs.service.config;
+
+import javax.validation.constraints.Min;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration details for storing the binary assets of conversion jobs.
+ */
+@Getter
+@Setter
+public class AssetStoreConfiguration {
+
+  /** How long to keep the assets of a conversion job available for download, in minutes. */
+  @Min(1)
+  @JsonProperty
+  private int retentionMinutes = 60;
+
+}
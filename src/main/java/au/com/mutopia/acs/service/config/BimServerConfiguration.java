@@ -1,6 +1,7 @@
 package au.com.mutopia.acs.service.config;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import lombok.Getter;
@@ -30,4 +31,22 @@ public class BimServerConfiguration {
   @JsonProperty
   private String password;
 
+  /** The most sessions to keep logged in at once, which limits the concurrent IFC conversions. */
+  @Min(1)
+  @JsonProperty
+  private int maxSessions = 4;
+
+  /** How long to keep an unused session logged in, in minutes. */
+  @Min(0)
+  @JsonProperty
+  private int sessionIdleMinutes = 10;
+
+  /**
+   * How long to keep the geometry extracted from an IFC file for converting the same file again,
+   * in minutes. If 0, every IFC file is checked in to BIMserver.
+   */
+  @Min(0)
+  @JsonProperty
+  private int geometryRetentionMinutes = 1440;
+
 }
@@ -0,0 +1,37 @@
+package au.com.mutopia.acs.service.config;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import lombok.Getter;
+import lombok.Setter;
+import au.com.mutopia.acs.conversion.output.C3mlWriter;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration details for writing C3ML responses.
+ */
+@Getter
+@Setter
+public class OutputConfiguration {
+
+  /** The number of decimal places of longitudes and latitudes. */
+  @Min(0)
+  @Max(15)
+  @JsonProperty
+  private int coordinateDecimals = C3mlWriter.DEFAULT_COORDINATE_DECIMALS;
+
+  /** The number of decimal places of mesh positions, altitudes and heights, in metres. */
+  @Min(0)
+  @Max(15)
+  @JsonProperty
+  private int positionDecimals = C3mlWriter.DEFAULT_POSITION_DECIMALS;
+
+  /** The number of decimal places of the components of normal vectors. */
+  @Min(0)
+  @Max(15)
+  @JsonProperty
+  private int normalDecimals = C3mlWriter.DEFAULT_NORMAL_DECIMALS;
+
+}
@@ -0,0 +1,43 @@
+package au.com.mutopia.acs.service.config;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+import lombok.Getter;
+import lombok.Setter;
+import au.com.mutopia.acs.conversion.process.VertexWeldingProcessor;
+import au.com.mutopia.acs.util.mesh.MeshSplitter;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration details for the post-processing of converted meshes.
+ */
+@Getter
+@Setter
+public class ProcessingConfiguration {
+
+  /** The distance within which vertex positions are welded, in metres. */
+  @DecimalMin("0")
+  @JsonProperty
+  private double weldPositionTolerance = VertexWeldingProcessor.DEFAULT_POSITION_TOLERANCE;
+
+  /** The difference within which the components of vertex normals are welded. */
+  @DecimalMin("0")
+  @JsonProperty
+  private double weldNormalTolerance = VertexWeldingProcessor.DEFAULT_NORMAL_TOLERANCE;
+
+  /**
+   * The number of threads processing meshes and the geometry of IFC objects in parallel, shared
+   * by all conversions.
+   */
+  @Min(1)
+  @JsonProperty
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /** The most vertices of a mesh, above which it is split into chunks. */
+  @Min(3)
+  @JsonProperty
+  private int maxMeshVertices = MeshSplitter.MAX_UINT16_VERTICES;
+
+}
@@ -0,0 +1,355 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import au.com.mutopia.acs.conversion.output.C3mlWriter;
+import au.com.mutopia.acs.models.c3ml.C3mlData;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.CompressedMesh;
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.models.c3ml.QuantizedMesh;
+import au.com.mutopia.acs.util.CborDecoder;
+import au.com.mutopia.acs.util.CborEncoder;
+
+/**
+ * Reads C3ML documents encoded as CBOR by {@link C3mlWriter#writeCbor}. Unknown fields are
+ * skipped.
+ */
+public class C3mlCborReader {
+
+  /**
+   * @param data The CBOR encoded C3ML document.
+   * @return The C3ML document.
+   * @throws IOException if the data is not a valid CBOR C3ML document.
+   */
+  public C3mlData read(byte[] data) throws IOException {
+    CborDecoder decoder = new CborDecoder(data);
+    decoder.skipSelfDescribeTag();
+    C3mlData c3ml = new C3mlData();
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      switch (decoder.readString()) {
+        case "c3mls":
+          List<C3mlEntity> entities = new ArrayList<>();
+          int entityCount = decoder.readArrayStart();
+          for (int j = 0; decoder.hasNext(entityCount, j); j++) {
+            entities.add(readEntity(decoder));
+          }
+          c3ml.setC3mls(entities);
+          break;
+        case "properties":
+          Map<String, Map<String, String>> properties = new LinkedHashMap<>();
+          int propertyCount = decoder.readMapStart();
+          for (int j = 0; decoder.hasNext(propertyCount, j); j++) {
+            String name = decoder.readString();
+            properties.put(name, readStringMap(decoder));
+          }
+          c3ml.setProperties(properties);
+          break;
+        default:
+          decoder.skip();
+      }
+    }
+    return c3ml;
+  }
+
+  private C3mlEntity readEntity(CborDecoder decoder) throws IOException {
+    C3mlEntity entity = new C3mlEntity(null);
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      String field = decoder.readString();
+      if (decoder.isNull()) {
+        decoder.readNull();
+        continue;
+      }
+      switch (field) {
+        case "id":
+          entity.setId(decoder.readString());
+          break;
+        case "name":
+          entity.setName(decoder.readString());
+          break;
+        case "type":
+          entity.setType(C3mlEntityType.valueOf(decoder.readString()));
+          break;
+        case "parentId":
+          entity.setParentId(decoder.readString());
+          break;
+        case "show":
+          entity.setShow(decoder.readBoolean());
+          break;
+        case "displayMode":
+          entity.setDisplayMode(decoder.readString());
+          break;
+        case "forms":
+          entity.setForms(readStringMap(decoder));
+          break;
+        case "children":
+          List<String> childrenIds = new ArrayList<>();
+          int childCount = decoder.readArrayStart();
+          for (int j = 0; decoder.hasNext(childCount, j); j++) {
+            childrenIds.add(decoder.readString());
+          }
+          entity.setChildrenIds(childrenIds);
+          break;
+        case "properties":
+          entity.setProperties(readStringMap(decoder));
+          break;
+        case "coordinates":
+          CoordinateBuffer coordinates = new CoordinateBuffer();
+          readCoordinates(decoder, coordinates);
+          entity.setCoordinates(coordinates);
+          break;
+        case "holes":
+          CoordinateBuffer holes = new CoordinateBuffer();
+          int holeCount = decoder.readArrayStart();
+          for (int j = 0; decoder.hasNext(holeCount, j); j++) {
+            readCoordinates(decoder, holes);
+            holes.endRing();
+          }
+          entity.setHoleBuffer(holes);
+          break;
+        case "color":
+          entity.setColor(readIntegerList(decoder));
+          break;
+        case "borderColor":
+          entity.setBorderColor(readIntegerList(decoder));
+          break;
+        case "scale":
+          entity.setScale(readDoubleList(decoder));
+          break;
+        case "rotation":
+          entity.setRotation(readDoubleList(decoder));
+          break;
+        case "height":
+          entity.setHeight(decoder.readDouble());
+          break;
+        case "altitude":
+          entity.setAltitude(decoder.readDouble());
+          break;
+        case "positions":
+          entity.setPositions(decoder.readDoubleArray());
+          break;
+        case "normals":
+          entity.setNormals(decoder.readFloatArray());
+          break;
+        case "triangles":
+          entity.setTriangles(decoder.readIntArray());
+          break;
+        case "quantized":
+          entity.setQuantizedMesh(readQuantizedMesh(decoder));
+          break;
+        case "compressed":
+          entity.setCompressedMesh(readCompressedMesh(decoder));
+          break;
+        case "lods":
+          List<MeshLod> lods = new ArrayList<>();
+          int lodCount = decoder.readArrayStart();
+          for (int j = 0; decoder.hasNext(lodCount, j); j++) {
+            lods.add(readLod(decoder));
+          }
+          entity.setLods(lods);
+          break;
+        case "batch":
+          entity.setBatch(readBatch(decoder));
+          break;
+        case "geoLocation":
+          entity.setGeoLocation(readDoubleList(decoder));
+          break;
+        case "gltfUrl":
+          entity.setGltfUrl(decoder.readString());
+          break;
+        case "gltf":
+          if (decoder.isTag() && decoder.readTag() != CborEncoder.EMBEDDED_JSON_TAG) {
+            throw new IOException("Expected embedded JSON for the glTF of entity " + entity);
+          }
+          entity.setGltfData(decoder.readByteString());
+          break;
+        default:
+          decoder.skip();
+      }
+    }
+    return entity;
+  }
+
+  private QuantizedMesh readQuantizedMesh(CborDecoder decoder) throws IOException {
+    QuantizedMesh mesh = new QuantizedMesh();
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      switch (decoder.readString()) {
+        case "positions":
+          mesh.setPositions(decoder.readShortArray());
+          break;
+        case "scale":
+          mesh.setScale(decoder.readDoubleArray());
+          break;
+        case "offset":
+          mesh.setOffset(decoder.readDoubleArray());
+          break;
+        case "normals":
+          mesh.setNormals(decoder.readByteArray());
+          break;
+        default:
+          decoder.skip();
+      }
+    }
+    return mesh;
+  }
+
+  private CompressedMesh readCompressedMesh(CborDecoder decoder) throws IOException {
+    CompressedMesh mesh = new CompressedMesh();
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      switch (decoder.readString()) {
+        case "vertexCount":
+          mesh.setVertexCount((int) decoder.readLong());
+          break;
+        case "triangleCount":
+          mesh.setTriangleCount((int) decoder.readLong());
+          break;
+        case "positionBits":
+          mesh.setPositionBits((int) decoder.readLong());
+          break;
+        case "scale":
+          mesh.setScale(decoder.readDoubleArray());
+          break;
+        case "offset":
+          mesh.setOffset(decoder.readDoubleArray());
+          break;
+        case "data":
+          mesh.setData(decoder.readByteString());
+          break;
+        default:
+          decoder.skip();
+      }
+    }
+    return mesh;
+  }
+
+  private MeshLod readLod(CborDecoder decoder) throws IOException {
+    MeshLod lod = new MeshLod();
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      switch (decoder.readString()) {
+        case "triangles":
+          lod.setTriangles(decoder.readIntArray());
+          break;
+        case "error":
+          lod.setError(decoder.readDouble());
+          break;
+        case "triangleOffsets":
+          lod.setTriangleOffsets(decoder.readIntArray());
+          break;
+        default:
+          decoder.skip();
+      }
+    }
+    return lod;
+  }
+
+  private MeshBatch readBatch(CborDecoder decoder) throws IOException {
+    MeshBatch batch = new MeshBatch();
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      switch (decoder.readString()) {
+        case "ids":
+          batch.setIds(readStringList(decoder));
+          break;
+        case "names":
+          batch.setNames(readStringList(decoder));
+          break;
+        case "triangleOffsets":
+          batch.setTriangleOffsets(decoder.readIntArray());
+          break;
+        default:
+          decoder.skip();
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Reads an array of points into a buffer.
+   */
+  private void readCoordinates(CborDecoder decoder, CoordinateBuffer buffer) throws IOException {
+    int pointCount = decoder.readArrayStart();
+    for (int i = 0; decoder.hasNext(pointCount, i); i++) {
+      double latitude = 0, longitude = 0, altitude = 0;
+      int fieldCount = decoder.readMapStart();
+      for (int j = 0; decoder.hasNext(fieldCount, j); j++) {
+        switch (decoder.readString()) {
+          case "latitude":
+          case "y":
+            latitude = decoder.readDouble();
+            break;
+          case "longitude":
+          case "x":
+            longitude = decoder.readDouble();
+            break;
+          case "altitude":
+          case "z":
+            altitude = decoder.readDouble();
+            break;
+          default:
+            decoder.skip();
+        }
+      }
+      buffer.addVertex(latitude, longitude, altitude);
+    }
+  }
+
+  private Map<String, String> readStringMap(CborDecoder decoder) throws IOException {
+    Map<String, String> map = new LinkedHashMap<>();
+    int length = decoder.readMapStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      String key = decoder.readString();
+      if (decoder.isNull()) {
+        decoder.readNull();
+        map.put(key, null);
+      } else {
+        map.put(key, decoder.readString());
+      }
+    }
+    return map;
+  }
+
+  private List<String> readStringList(CborDecoder decoder) throws IOException {
+    List<String> values = new ArrayList<>();
+    int length = decoder.readArrayStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      if (decoder.isNull()) {
+        decoder.readNull();
+        values.add(null);
+      } else {
+        values.add(decoder.readString());
+      }
+    }
+    return values;
+  }
+
+  private List<Integer> readIntegerList(CborDecoder decoder) throws IOException {
+    List<Integer> values = new ArrayList<>();
+    int length = decoder.readArrayStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      values.add((int) decoder.readLong());
+    }
+    return values;
+  }
+
+  private List<Double> readDoubleList(CborDecoder decoder) throws IOException {
+    List<Double> values = new ArrayList<>();
+    int length = decoder.readArrayStart();
+    for (int i = 0; decoder.hasNext(length, i); i++) {
+      values.add(decoder.readDouble());
+    }
+    return values;
+  }
+
+}
@@ -0,0 +1,111 @@
+package au.com.mutopia.acs.transform;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+/**
+ * Provides shared, pre-configured JSON and XML readers and writers. Building an
+ * {@link ObjectMapper} and introspecting the types it reads is expensive, so the mappers are built
+ * once and the readers are cached by type. {@link ObjectReader} and {@link ObjectWriter} are
+ * immutable and thread-safe, so they can be shared between concurrent conversions.
+ */
+public class CodecRegistry {
+
+  /** The type of a JSON object read as a map, preserving the order of its fields. */
+  private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE =
+      new TypeReference<LinkedHashMap<String, Object>>() {};
+
+  private final ObjectMapper jsonMapper;
+
+  private final XmlMapper xmlMapper;
+
+  private final ObjectWriter jsonWriter;
+
+  /** Cached JSON readers by the type they read. */
+  private final Map<JavaType, ObjectReader> jsonReaders = new ConcurrentHashMap<>();
+
+  /** Cached XML readers by the type they read. */
+  private final Map<JavaType, ObjectReader> xmlReaders = new ConcurrentHashMap<>();
+
+  public CodecRegistry() {
+    jsonMapper = new ObjectMapper();
+    jsonMapper.registerModule(new JsonModule());
+    jsonWriter = jsonMapper.writer();
+
+    JacksonXmlModule xmlModule = new JacksonXmlModule();
+    xmlModule.setDefaultUseWrapper(false);
+    xmlMapper = new XmlMapper(xmlModule);
+    xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  }
+
+  /**
+   * @param type The type of value to read.
+   * @return A reader of JSON documents into values of the given type.
+   */
+  public ObjectReader getJsonReader(Class<?> type) {
+    return getReader(jsonMapper, jsonReaders, jsonMapper.constructType(type));
+  }
+
+  /**
+   * @param type The type of value to read.
+   * @return A reader of JSON documents into values of the given type.
+   */
+  public ObjectReader getJsonReader(TypeReference<?> type) {
+    return getReader(jsonMapper, jsonReaders, jsonMapper.getTypeFactory().constructType(type));
+  }
+
+  /**
+   * @return A reader of JSON objects into ordered maps of field names to values.
+   */
+  public ObjectReader getJsonMapReader() {
+    return getJsonReader(MAP_TYPE);
+  }
+
+  /**
+   * @return The factory of JSON parsers and generators, for reading and writing token streams.
+   */
+  public JsonFactory getJsonFactory() {
+    return jsonMapper.getFactory();
+  }
+
+  /**
+   * @return A writer of values as JSON documents.
+   */
+  public ObjectWriter getJsonWriter() {
+    return jsonWriter;
+  }
+
+  /**
+   * Gets a reader of XML documents. Unknown elements are ignored, and lists are read from repeated
+   * elements without a wrapper element.
+   *
+   * @param type The type of value to read.
+   * @return A reader of XML documents into values of the given type.
+   */
+  public ObjectReader getXmlReader(Class<?> type) {
+    return getReader(xmlMapper, xmlReaders, xmlMapper.constructType(type));
+  }
+
+  private ObjectReader getReader(ObjectMapper mapper, Map<JavaType, ObjectReader> readers,
+      JavaType type) {
+    ObjectReader reader = readers.get(type);
+    if (reader == null) {
+      // Readers are immutable, so a reader created concurrently is equally valid.
+      reader = mapper.reader(type);
+      readers.put(type, reader);
+    }
+    return reader;
+  }
+
+}
@@ -0,0 +1,52 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+import java.util.List;
+
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
+import au.com.mutopia.acs.models.c3ml.Vertex3D;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Deserializes an array of points into a {@link CoordinateBuffer}, reading the values of each point
+ * straight from the parser into the packed array. The points may be coordinate arrays or point
+ * objects, as read by {@link VertexDeserializer}. The counterpart of
+ * {@link CoordinateListSerializer}.
+ */
+public class CoordinateListDeserializer extends JsonDeserializer<List<Vertex3D>> {
+
+  @Override
+  public List<Vertex3D> deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException, JsonProcessingException {
+    CoordinateBuffer buffer = new CoordinateBuffer();
+    readPoints(jp, buffer, new double[3]);
+    return buffer;
+  }
+
+  /**
+   * Reads an array of points into a buffer.
+   *
+   * @param jp The parser, at the start of the array.
+   * @param buffer The buffer to add the points to.
+   * @param values A scratch array for the values of each point.
+   */
+  static void readPoints(JsonParser jp, CoordinateBuffer buffer, double[] values)
+      throws IOException {
+    if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+      throw JsonMappingException.from(jp, "Expected an array of points, but found "
+          + jp.getCurrentToken());
+    }
+    while (jp.nextToken() != JsonToken.END_ARRAY) {
+      PointReader.read(jp, values);
+      buffer.addVertex(values[PointReader.LATITUDE], values[PointReader.LONGITUDE],
+          values[PointReader.ALTITUDE]);
+    }
+  }
+
+}
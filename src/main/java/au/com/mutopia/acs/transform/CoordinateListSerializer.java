@@ -0,0 +1,60 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+import java.util.List;
+
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
+import au.com.mutopia.acs.models.c3ml.Vertex3D;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Serializes a list of {@link Vertex3D} points as an array of point objects. The values of a
+ * {@link CoordinateBuffer} (or one of its rings) are streamed directly from the packed array,
+ * without creating a {@link Vertex3D} for each point.
+ */
+public class CoordinateListSerializer extends JsonSerializer<List<Vertex3D>> {
+
+  @Override
+  public void serialize(List<Vertex3D> value, JsonGenerator jgen, SerializerProvider provider)
+      throws IOException, JsonProcessingException {
+    jgen.writeStartArray();
+    if (value instanceof CoordinateBuffer) {
+      writeRange(jgen, (CoordinateBuffer) value, 0, value.size());
+    } else if (value instanceof CoordinateBuffer.Ring) {
+      CoordinateBuffer.Ring ring = (CoordinateBuffer.Ring) value;
+      writeRange(jgen, ring.getBuffer(), ring.getStart(), ring.getStart() + ring.size());
+    } else {
+      for (Vertex3D vertex : value) {
+        writeVertex(jgen, vertex.getLatitude(), vertex.getLongitude(), vertex.getAltitude());
+      }
+    }
+    jgen.writeEndArray();
+  }
+
+  private void writeRange(JsonGenerator jgen, CoordinateBuffer buffer, int start, int end)
+      throws IOException {
+    for (int i = start; i < end; i++) {
+      writeVertex(jgen, buffer.getLatitude(i), buffer.getLongitude(i), buffer.getAltitude(i));
+    }
+  }
+
+  /**
+   * Writes a point with the same fields as a serialized {@link Vertex3D}.
+   */
+  private void writeVertex(JsonGenerator jgen, double latitude, double longitude, double altitude)
+      throws IOException {
+    jgen.writeStartObject();
+    jgen.writeNumberField("latitude", latitude);
+    jgen.writeNumberField("longitude", longitude);
+    jgen.writeNumberField("altitude", altitude);
+    jgen.writeNumberField("x", longitude);
+    jgen.writeNumberField("y", latitude);
+    jgen.writeNumberField("z", altitude);
+    jgen.writeEndObject();
+  }
+
+}
@@ -0,0 +1,38 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+import java.util.List;
+
+import au.com.mutopia.acs.models.c3ml.CoordinateBuffer;
+import au.com.mutopia.acs.models.c3ml.Vertex3D;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Deserializes an array of rings (each an array of points) into a single {@link CoordinateBuffer},
+ * returning the view of its rings.
+ */
+public class CoordinateRingsDeserializer extends JsonDeserializer<List<List<Vertex3D>>> {
+
+  @Override
+  public List<List<Vertex3D>> deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException, JsonProcessingException {
+    if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+      throw JsonMappingException.from(jp, "Expected an array of rings, but found "
+          + jp.getCurrentToken());
+    }
+    CoordinateBuffer buffer = new CoordinateBuffer();
+    double[] values = new double[3];
+    while (jp.nextToken() != JsonToken.END_ARRAY) {
+      CoordinateListDeserializer.readPoints(jp, buffer, values);
+      buffer.endRing();
+    }
+    return buffer.getRings();
+  }
+
+}
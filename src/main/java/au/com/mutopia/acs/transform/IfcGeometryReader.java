@@ -0,0 +1,304 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import au.com.mutopia.acs.models.ifc.IfcGeometry;
+import au.com.mutopia.acs.models.ifc.IfcObject;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Reads the geometry tree which BIMserver extracts from an IFC file directly from the tokens of a
+ * {@link JsonParser}, passing each {@link IfcObject} to a {@link Handler} as soon as it has been
+ * read. The arrays of the meshes are read into primitive arrays without boxing their values, and
+ * only the objects enclosing the one being read are held in memory, without their children.
+ * Unknown fields are skipped.
+ */
+public class IfcGeometryReader implements Closeable {
+
+  /**
+   * Receives the objects of the geometry tree in the order they are read.
+   */
+  public interface Handler {
+
+    /**
+     * Called once the fields of an object before its children have been read (e.g. the location
+     * of a site), and before any of its children are passed to the handler. The
+     * {@link #START_FIELDS} of the object are complete, since they may not follow its children.
+     *
+     * @param object The object being read.
+     * @throws IOException if the object could not be handled.
+     */
+    void startObject(IfcObject object) throws IOException;
+
+    /**
+     * Called once all fields of an object have been read, after all of its children.
+     *
+     * @param object The object which has been read, the same as passed to
+     *        {@link #startObject(IfcObject)}.
+     * @throws IOException if the object could not be handled.
+     */
+    void endObject(IfcObject object) throws IOException;
+
+  }
+
+  /**
+   * The fields of an object which must come before its children, since its children depend on
+   * them, e.g. the scale and location of a site.
+   */
+  public static final Set<String> START_FIELDS = ImmutableSet.of("id", "name", "type",
+      "lengthUnitConversion", "latitude", "longitude");
+
+  private final JsonParser jp;
+
+  /** The values of the array being read, reused between arrays. */
+  private double[] buffer = new double[1024];
+
+  /**
+   * @param jp The parser of the JSON document, which must have a
+   *        {@link com.fasterxml.jackson.core.ObjectCodec} for reading nested parameter values.
+   */
+  public IfcGeometryReader(JsonParser jp) {
+    this.jp = jp;
+  }
+
+  /**
+   * Reads the objects of the <code>data</code> array and their descendants, passing each to the
+   * handler.
+   *
+   * @param handler The handler of the objects.
+   * @throws IOException if the document could not be read or is not a valid geometry tree (e.g.
+   *         one of the {@link #START_FIELDS} follows the children of an object), or the handler
+   *         failed.
+   */
+  public void read(Handler handler) throws IOException {
+    if (!findData()) {
+      return;
+    }
+    for (JsonToken token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+      readObject(token, handler);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    jp.close();
+  }
+
+  /**
+   * Advances the parser to the start of the <code>data</code> array, skipping any other fields of
+   * the document.
+   *
+   * @return Whether the <code>data</code> array was found.
+   */
+  private boolean findData() throws IOException {
+    JsonToken token = jp.nextToken();
+    if (token == null) {
+      return false;
+    }
+    expect(token, JsonToken.START_OBJECT, "an IFC geometry document");
+    for (token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      token = jp.nextToken();
+      if (name.equals("data") && token == JsonToken.START_ARRAY) {
+        return true;
+      }
+      jp.skipChildren();
+    }
+    return false;
+  }
+
+  private void readObject(JsonToken token, Handler handler) throws IOException {
+    expect(token, JsonToken.START_OBJECT, "an IFC object");
+    IfcObject object = new IfcObject();
+    boolean started = false;
+    for (token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      if (started && START_FIELDS.contains(name)) {
+        // The children have already been read without it, so they would be silently wrong.
+        throw JsonMappingException.from(jp, "The " + name + " of IFC object " + object.getId()
+            + " must come before its children");
+      }
+      switch (name) {
+        case "id":
+          object.setId(jp.getText());
+          break;
+        case "name":
+          object.setName(jp.getText());
+          break;
+        case "type":
+          object.setType(jp.getText());
+          break;
+        case "lengthUnitConversion":
+          object.setLengthUnitConversion(jp.getDoubleValue());
+          break;
+        case "latitude":
+          object.setLatitude(readText(token));
+          break;
+        case "longitude":
+          object.setLongitude(readText(token));
+          break;
+        case "parameters":
+          readParameters(token, object.getParameters());
+          break;
+        case "geometry":
+          object.setGeometry(readGeometry(token));
+          break;
+        case "decomposedBy":
+        case "contains":
+          if (!started) {
+            handler.startObject(object);
+            started = true;
+          }
+          readObjects(token, handler);
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    expect(token, JsonToken.END_OBJECT, "the end of an IFC object");
+    if (!started) {
+      handler.startObject(object);
+    }
+    handler.endObject(object);
+  }
+
+  private void readObjects(JsonToken token, Handler handler) throws IOException {
+    expect(token, JsonToken.START_ARRAY, "an array of IFC objects");
+    for (token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+      readObject(token, handler);
+    }
+  }
+
+  /**
+   * Reads the parameters of an object, converting nested values to strings as maps and lists.
+   */
+  private void readParameters(JsonToken token, Map<String, String> parameters)
+      throws IOException {
+    expect(token, JsonToken.START_OBJECT, "the parameters of an IFC object");
+    for (token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      String value;
+      if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+        value = jp.readValueAs(Object.class).toString();
+      } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+        value = Double.toString(jp.getDoubleValue());
+      } else {
+        value = jp.getText();
+      }
+      parameters.put(name, value);
+    }
+  }
+
+  private IfcGeometry readGeometry(JsonToken token) throws IOException {
+    expect(token, JsonToken.START_OBJECT, "the geometry of an IFC object");
+    IfcGeometry geometry = new IfcGeometry();
+    for (token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      switch (name) {
+        case "primitive":
+          geometry.setPrimitive(jp.getText());
+          break;
+        case "material":
+          geometry.setMaterial(jp.getText());
+          break;
+        case "positions":
+          geometry.setPositions(readDoubles(token));
+          break;
+        case "normals":
+          geometry.setNormals(readFloats(token));
+          break;
+        case "triangles":
+          geometry.setTriangles(readInts(token));
+          break;
+        case "color":
+          geometry.setColor(readDoubles(token));
+          break;
+        case "matrix":
+          geometry.setMatrix(readDoubles(token));
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    expect(token, JsonToken.END_OBJECT, "the end of the geometry of an IFC object");
+    return geometry;
+  }
+
+  private double[] readDoubles(JsonToken token) throws IOException {
+    return Arrays.copyOf(buffer, readNumbers(token));
+  }
+
+  private float[] readFloats(JsonToken token) throws IOException {
+    float[] values = new float[readNumbers(token)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (float) buffer[i];
+    }
+    return values;
+  }
+
+  private int[] readInts(JsonToken token) throws IOException {
+    int[] values = new int[readNumbers(token)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (int) buffer[i];
+    }
+    return values;
+  }
+
+  /**
+   * Reads an array of numbers into the reused buffer.
+   *
+   * @return The number of values read.
+   */
+  private int readNumbers(JsonToken token) throws IOException {
+    expect(token, JsonToken.START_ARRAY, "an array of numbers");
+    int size = 0;
+    for (token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+      if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+        throw JsonMappingException.from(jp, "Expected a number, but found " + token);
+      }
+      if (size == buffer.length) {
+        buffer = Arrays.copyOf(buffer, size * 2);
+      }
+      buffer[size++] = jp.getDoubleValue();
+    }
+    return size;
+  }
+
+  /**
+   * @return The value as a string, or the JSON of the value if it is an array or object.
+   */
+  private String readText(JsonToken token) throws IOException {
+    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+      return jp.readValueAsTree().toString();
+    }
+    return jp.getText();
+  }
+
+  private void expect(JsonToken token, JsonToken expected, String description)
+      throws JsonMappingException {
+    if (token != expected) {
+      throw JsonMappingException.from(jp, "Expected " + description + ", but found " + token);
+    }
+  }
+
+}
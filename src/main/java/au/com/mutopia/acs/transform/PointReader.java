@@ -0,0 +1,115 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Reads the values of a point directly from the tokens of a {@link JsonParser}, without building a
+ * tree or boxing the values.
+ *
+ * A point is either a coordinate array of (longitude, latitude[, altitude]), or an object with
+ * latitude, longitude and altitude (or x, y and z) fields, as written for a
+ * {@link au.com.mutopia.acs.models.c3ml.Vertex3D}.
+ */
+final class PointReader {
+
+  /** The index of the latitude in the values read. */
+  static final int LATITUDE = 0;
+
+  /** The index of the longitude in the values read. */
+  static final int LONGITUDE = 1;
+
+  /** The index of the altitude in the values read. */
+  static final int ALTITUDE = 2;
+
+  private PointReader() {}
+
+  /**
+   * Reads the point at the current token of the parser, leaving the parser at the end of the point.
+   *
+   * @param jp The parser, at the start of the point.
+   * @param values The array to store the (latitude, longitude, altitude) values in.
+   * @throws JsonMappingException If the current value is not a point.
+   */
+  static void read(JsonParser jp, double[] values) throws IOException {
+    JsonToken token = jp.getCurrentToken();
+    if (token == JsonToken.START_ARRAY) {
+      readArray(jp, values);
+    } else if (token == JsonToken.START_OBJECT || token == JsonToken.FIELD_NAME) {
+      readObject(jp, values);
+    } else {
+      throw JsonMappingException.from(jp, "Expected a coordinate array or object, but found "
+          + token);
+    }
+  }
+
+  /**
+   * Reads a coordinate array of (longitude, latitude[, altitude]).
+   */
+  private static void readArray(JsonParser jp, double[] values) throws IOException {
+    values[LONGITUDE] = readNumber(jp);
+    values[LATITUDE] = readNumber(jp);
+    JsonToken token = jp.nextToken();
+    if (token == JsonToken.END_ARRAY) {
+      values[ALTITUDE] = 0;
+      return;
+    }
+    values[ALTITUDE] = getNumber(jp, token);
+    if (jp.nextToken() != JsonToken.END_ARRAY) {
+      throw JsonMappingException.from(jp, "Expected at most 3 values in a coordinate array");
+    }
+  }
+
+  /**
+   * Reads an object with latitude, longitude and altitude (or x, y and z) fields, skipping any
+   * other fields.
+   */
+  private static void readObject(JsonParser jp, double[] values) throws IOException {
+    values[LATITUDE] = 0;
+    values[LONGITUDE] = 0;
+    values[ALTITUDE] = 0;
+    JsonToken token = jp.getCurrentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = jp.nextToken();
+    }
+    for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      token = jp.nextToken();
+      switch (name) {
+        case "latitude":
+        case "y":
+          values[LATITUDE] = getNumber(jp, token);
+          break;
+        case "longitude":
+        case "x":
+          values[LONGITUDE] = getNumber(jp, token);
+          break;
+        case "altitude":
+        case "z":
+          values[ALTITUDE] = getNumber(jp, token);
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    if (token != JsonToken.END_OBJECT) {
+      throw JsonMappingException.from(jp, "Expected the end of a coordinate object, but found "
+          + token);
+    }
+  }
+
+  private static double readNumber(JsonParser jp) throws IOException {
+    return getNumber(jp, jp.nextToken());
+  }
+
+  private static double getNumber(JsonParser jp, JsonToken token) throws IOException {
+    if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+      throw JsonMappingException.from(jp, "Expected a coordinate value, but found " + token);
+    }
+    return jp.getDoubleValue();
+  }
+
+}
@@ -0,0 +1,39 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+
+import au.com.mutopia.acs.models.c3ml.PropertyTable;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Serializes a {@link PropertyTable} as a map of property names to maps of entity IDs to values,
+ * written directly from its columns without creating the map of each column. Empty columns are
+ * left out, as in {@link PropertyTable#asMap()}.
+ */
+public class PropertyTableSerializer extends JsonSerializer<PropertyTable> {
+
+  @Override
+  public void serialize(PropertyTable table, JsonGenerator jgen, SerializerProvider provider)
+      throws IOException, JsonProcessingException {
+    jgen.writeStartObject();
+    for (int column = 0; column < table.getColumnCount(); column++) {
+      if (table.isColumnEmpty(column)) {
+        continue;
+      }
+      jgen.writeObjectFieldStart(table.getColumnName(column));
+      for (int row = 0; row < table.getRowCount(); row++) {
+        String cell = table.getValue(column, row);
+        if (cell != null) {
+          jgen.writeStringField(table.getRowId(row), cell);
+        }
+      }
+      jgen.writeEndObject();
+    }
+    jgen.writeEndObject();
+  }
+
+}
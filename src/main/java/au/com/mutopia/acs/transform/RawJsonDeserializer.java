@@ -0,0 +1,28 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+/**
+ * Deserializes a JSON value into its UTF-8 encoded bytes, copying the tokens without building a
+ * tree. The counterpart of {@link RawJsonSerializer}.
+ */
+public class RawJsonDeserializer extends JsonDeserializer<byte[]> {
+
+  @Override
+  public byte[] deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
+      JsonProcessingException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    JsonGenerator generator = jp.getCodec().getFactory().createGenerator(outputStream);
+    generator.copyCurrentStructure(jp);
+    generator.close();
+    return outputStream.toByteArray();
+  }
+
+}
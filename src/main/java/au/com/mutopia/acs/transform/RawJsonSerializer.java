@@ -0,0 +1,68 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.google.common.base.Charsets;
+
+/**
+ * Serializes a UTF-8 encoded JSON document verbatim, without parsing or re-encoding it. Large
+ * documents are decoded and written in chunks, rather than copied into a single string.
+ */
+public class RawJsonSerializer extends JsonSerializer<byte[]> {
+
+  /** The number of characters decoded and written at a time. */
+  private static final int CHUNK_SIZE = 8192;
+
+  @Override
+  public void serialize(byte[] value, JsonGenerator jgen, SerializerProvider provider)
+      throws IOException, JsonProcessingException {
+    write(value, jgen);
+  }
+
+  /**
+   * Writes a UTF-8 encoded JSON document as the next value of a generator.
+   *
+   * @param value The JSON document.
+   * @param jgen The generator to write to.
+   * @throws IOException if the document could not be written.
+   */
+  public static void write(byte[] value, JsonGenerator jgen) throws IOException {
+    if (value.length <= CHUNK_SIZE) {
+      jgen.writeRawValue(new String(value, Charsets.UTF_8));
+      return;
+    }
+    Reader reader = new InputStreamReader(new ByteArrayInputStream(value), Charsets.UTF_8);
+    char[] chunk = new char[CHUNK_SIZE];
+    boolean started = false;
+    int offset = 0;
+    int length;
+    while ((length = reader.read(chunk, offset, CHUNK_SIZE - offset)) != -1) {
+      int end = offset + length;
+      // The generator can't write half of a surrogate pair, so a high surrogate at the end of the
+      // chunk is held back and written with the start of the next chunk.
+      int writeLength = Character.isHighSurrogate(chunk[end - 1]) ? end - 1 : end;
+      if (started) {
+        jgen.writeRaw(chunk, 0, writeLength);
+      } else {
+        // The first chunk starts the value (e.g. writing the separator); the rest are appended.
+        jgen.writeRawValue(chunk, 0, writeLength);
+        started = true;
+      }
+      offset = end - writeLength;
+      if (offset > 0) {
+        chunk[0] = chunk[end - 1];
+      }
+    }
+    if (offset > 0) {
+      jgen.writeRaw(chunk, 0, offset);
+    }
+  }
+
+}
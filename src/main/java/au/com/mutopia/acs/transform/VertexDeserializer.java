@@ -1,7 +1,6 @@
 package au.com.mutopia.acs.transform;
 
 import java.io.IOException;
-import java.util.List;
 
 import au.com.mutopia.acs.models.c3ml.Vertex3D;
 
@@ -9,21 +8,21 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.google.common.collect.ImmutableList;
 
 /**
- * Deserializes a 3-tuple of doubles into a {@link Vertex3D}.
+ * Deserializes a 3-tuple of doubles (longitude, latitude, altitude) into a {@link Vertex3D},
+ * reading the number tokens directly from the parser. A point object with latitude, longitude and
+ * altitude fields is also accepted.
  */
 public class VertexDeserializer extends JsonDeserializer<Vertex3D> {
 
   @Override
   public Vertex3D deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
       JsonProcessingException {
-    JsonNode node = jp.getCodec().readTree(jp);
-    List<Double> coords =
-        ImmutableList.of(node.get(0).asDouble(), node.get(1).asDouble(), node.get(2).asDouble());
-    return new Vertex3D(coords, true);
+    double[] values = new double[3];
+    PointReader.read(jp, values);
+    return new Vertex3D(values[PointReader.LATITUDE], values[PointReader.LONGITUDE],
+        values[PointReader.ALTITUDE]);
   }
 
 }
@@ -7,7 +7,9 @@ import org.bimserver.client.BimServerClientFactory;
 import org.bimserver.client.ChannelConnectionException;
 import org.bimserver.client.json.JsonBimServerClientFactory;
 import org.bimserver.shared.UsernamePasswordAuthenticationInfo;
+import org.bimserver.shared.exceptions.ServerException;
 import org.bimserver.shared.exceptions.ServiceException;
+import org.bimserver.shared.exceptions.UserException;
 
 /**
  * Handles opening connections to BIMserver.
@@ -19,6 +21,9 @@ public class BimServerAuthenticator {
   private final String password;
   private final String host;
 
+  /** The factory of clients, which is expensive to create, or null if not yet created. */
+  private BimServerClientFactory factory;
+
   public BimServerAuthenticator(String host, String username, String password) {
     this.host = host;
     this.username = username;
@@ -36,16 +41,43 @@ public class BimServerAuthenticator {
    */
   public BimServerClient connectToBimServer() {
     log.debug(String.format("Connecting to BIMserver at %s@%s...", username, host));
-    BimServerClientFactory factory = new JsonBimServerClientFactory(host);
     UsernamePasswordAuthenticationInfo authInfo =
         new UsernamePasswordAuthenticationInfo(username, password);
 
     try {
-      return factory.create(authInfo);
+      return getFactory().create(authInfo);
     } catch (ServiceException | ChannelConnectionException e) {
       log.error("Failed to create BIMserver client", e);
       return null;
     }
   }
 
+  /**
+   * Logs in to BIMserver again with a connected client, e.g. after its session expired.
+   *
+   * @param client The {@link BimServerClient} to log in with.
+   * @return Whether the client was logged in.
+   */
+  public boolean login(BimServerClient client) {
+    log.debug(String.format("Logging in to BIMserver at %s@%s...", username, host));
+    try {
+      client.setAuthentication(new UsernamePasswordAuthenticationInfo(username, password));
+      return true;
+    } catch (ServerException | UserException | ChannelConnectionException e) {
+      log.warn("Failed to log in to BIMserver", e);
+      return false;
+    }
+  }
+
+  /**
+   * @return The factory of clients, which builds the map of BIMserver services and generates
+   *         reflector classes for them when created, so is only created once.
+   */
+  private synchronized BimServerClientFactory getFactory() {
+    if (factory == null) {
+      factory = new JsonBimServerClientFactory(host);
+    }
+    return factory;
+  }
+
 }
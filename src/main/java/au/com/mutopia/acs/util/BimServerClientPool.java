@@ -0,0 +1,191 @@
+package au.com.mutopia.acs.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import lombok.extern.log4j.Log4j;
+import au.com.mutopia.acs.exceptions.ConversionException;
+
+import org.bimserver.client.BimServerClient;
+import org.bimserver.shared.PublicInterfaceNotFoundException;
+import org.bimserver.shared.exceptions.ServiceException;
+
+/**
+ * A pool of logged in {@link BimServerClient} sessions, so that IFC conversions don't wait for a
+ * new connection and login to BIMserver each time.
+ *
+ * Sessions are borrowed for the duration of a conversion and then released back to the pool, or
+ * invalidated if the conversion failed. A borrowed session is checked to still be logged in, and
+ * logged in again if its token has expired. Sessions left unused for longer than the idle timeout
+ * are logged out when the pool is next used, like the expired jobs of the
+ * {@link au.com.mutopia.acs.conversion.output.AssetStore}.
+ */
+@Log4j
+public class BimServerClientPool {
+
+  /** Connects and logs in new sessions. */
+  private final BimServerAuthenticator authenticator;
+
+  /** A permit for each session which may be open, idle or borrowed. */
+  private final Semaphore permits;
+
+  /** How long to keep an unused session, in milliseconds. */
+  private final long idleTimeoutMillis;
+
+  /** The unused sessions, most recently used first. */
+  private final Deque<IdleClient> idleClients = new ArrayDeque<>();
+
+  /**
+   * @param authenticator Connects and logs in new sessions.
+   * @param maxSize The most sessions to open at once. Further borrowers wait for a session to be
+   *        released.
+   * @param idleTimeoutMillis How long to keep an unused session, in milliseconds.
+   */
+  public BimServerClientPool(BimServerAuthenticator authenticator, int maxSize,
+      long idleTimeoutMillis) {
+    this.authenticator = authenticator;
+    this.permits = new Semaphore(maxSize, true);
+    this.idleTimeoutMillis = idleTimeoutMillis;
+  }
+
+  /**
+   * Borrows a logged in session, waiting for one to be released if the pool is at its maximum
+   * size. The session must be returned with {@link #release(BimServerClient)} or
+   * {@link #invalidate(BimServerClient)}.
+   *
+   * @return A logged in {@link BimServerClient}.
+   * @throws ConversionException if BIMserver could not be connected to.
+   */
+  public BimServerClient borrow() throws ConversionException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ConversionException("Interrupted waiting for a BIMserver session", e);
+    }
+    try {
+      BimServerClient client;
+      while ((client = pollIdleClient()) != null) {
+        if (isLoggedIn(client) || authenticator.login(client)) {
+          return client;
+        }
+        close(client);
+      }
+      client = authenticator.connectToBimServer();
+      if (client == null) {
+        throw new ConversionException("Failed to connect to BIMserver");
+      }
+      return client;
+    } catch (ConversionException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a borrowed session to the pool for reuse.
+   *
+   * @param client The borrowed {@link BimServerClient}.
+   */
+  public void release(BimServerClient client) {
+    synchronized (idleClients) {
+      idleClients.addFirst(new IdleClient(client, System.currentTimeMillis()));
+    }
+    permits.release();
+    closeExpiredClients();
+  }
+
+  /**
+   * Closes a borrowed session which may no longer be usable, e.g. after a failed request.
+   *
+   * @param client The borrowed {@link BimServerClient}.
+   */
+  public void invalidate(BimServerClient client) {
+    try {
+      close(client);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * @return The number of unused sessions in the pool.
+   */
+  public int getIdleCount() {
+    synchronized (idleClients) {
+      return idleClients.size();
+    }
+  }
+
+  /**
+   * @return The most recently used session which hasn't expired, or null if there is none.
+   */
+  private BimServerClient pollIdleClient() {
+    closeExpiredClients();
+    synchronized (idleClients) {
+      IdleClient idleClient = idleClients.pollFirst();
+      return idleClient == null ? null : idleClient.client;
+    }
+  }
+
+  /**
+   * Closes the sessions which have been unused for longer than the idle timeout.
+   */
+  private void closeExpiredClients() {
+    long expiryTime = System.currentTimeMillis() - idleTimeoutMillis;
+    List<BimServerClient> expiredClients = new ArrayList<>();
+    synchronized (idleClients) {
+      while (!idleClients.isEmpty() && idleClients.peekLast().releaseTime <= expiryTime) {
+        expiredClients.add(idleClients.pollLast().client);
+      }
+    }
+    // Close the sessions outside the lock, since logging out is a request to BIMserver.
+    for (BimServerClient client : expiredClients) {
+      close(client);
+    }
+  }
+
+  /**
+   * @return Whether the session of the client is still logged in.
+   */
+  private boolean isLoggedIn(BimServerClient client) {
+    try {
+      return Boolean.TRUE.equals(client.getBimsie1AuthInterface().isLoggedIn());
+    } catch (PublicInterfaceNotFoundException | ServiceException e) {
+      log.debug("Failed to check BIMserver session", e);
+      return false;
+    }
+  }
+
+  /**
+   * Logs out and disconnects a session, ignoring any errors.
+   */
+  private void close(BimServerClient client) {
+    try {
+      client.getBimsie1AuthInterface().logout();
+    } catch (PublicInterfaceNotFoundException | ServiceException e) {
+      log.debug("Failed to log out of BIMserver session", e);
+    }
+    client.disconnect();
+  }
+
+  /**
+   * An unused session and the time it was released, in milliseconds.
+   */
+  private static class IdleClient {
+
+    private final BimServerClient client;
+
+    private final long releaseTime;
+
+    private IdleClient(BimServerClient client, long releaseTime) {
+      this.client = client;
+      this.releaseTime = releaseTime;
+    }
+
+  }
+
+}
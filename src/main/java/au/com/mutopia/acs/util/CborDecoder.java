@@ -0,0 +1,444 @@
+package au.com.mutopia.acs.util;
+
+import static au.com.mutopia.acs.util.CborEncoder.ARRAY;
+import static au.com.mutopia.acs.util.CborEncoder.BYTES;
+import static au.com.mutopia.acs.util.CborEncoder.FALSE;
+import static au.com.mutopia.acs.util.CborEncoder.FLOAT16;
+import static au.com.mutopia.acs.util.CborEncoder.FLOAT32;
+import static au.com.mutopia.acs.util.CborEncoder.FLOAT64;
+import static au.com.mutopia.acs.util.CborEncoder.INDEFINITE;
+import static au.com.mutopia.acs.util.CborEncoder.MAP;
+import static au.com.mutopia.acs.util.CborEncoder.NEGATIVE;
+import static au.com.mutopia.acs.util.CborEncoder.NULL;
+import static au.com.mutopia.acs.util.CborEncoder.SIMPLE;
+import static au.com.mutopia.acs.util.CborEncoder.TAG;
+import static au.com.mutopia.acs.util.CborEncoder.TEXT;
+import static au.com.mutopia.acs.util.CborEncoder.TRUE;
+import static au.com.mutopia.acs.util.CborEncoder.UNSIGNED;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Reads data items in the Concise Binary Object Representation (CBOR) from a byte array, as written
+ * by {@link CborEncoder}. Arrays of numbers may be either typed arrays or arrays of number items.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7049">RFC 7049: CBOR</a>
+ * @see <a href="https://tools.ietf.org/html/rfc8746">RFC 8746: CBOR Tags for Typed Arrays</a>
+ */
+public class CborDecoder {
+
+  /** The length of a map or array started without a size. */
+  public static final int INDEFINITE_LENGTH = -1;
+
+  private final byte[] data;
+
+  private int position;
+
+  /**
+   * @param data The CBOR data to read.
+   */
+  public CborDecoder(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * @return Whether the data starts with the self-describe tag written by
+   *         {@link CborEncoder#writeSelfDescribeTag()}.
+   */
+  public static boolean isCbor(byte[] data) {
+    // The tag is a 16 bit argument: 0xd9, followed by 0xd9f7.
+    return data.length >= 3 && (data[0] & 0xff) == 0xd9 && (data[1] & 0xff) == 0xd9
+        && (data[2] & 0xff) == 0xf7;
+  }
+
+  /**
+   * Skips the self-describe tag at the start of the data, if there is one.
+   */
+  public void skipSelfDescribeTag() throws IOException {
+    if (position == 0 && isCbor(data)) {
+      position = 3;
+    }
+  }
+
+  /**
+   * @return Whether there are no more data items to read.
+   */
+  public boolean isEnd() {
+    return position >= data.length;
+  }
+
+  /**
+   * @return Whether the next data item is a break, ending a map or array started without a size.
+   */
+  public boolean isBreak() throws IOException {
+    return (peek() & 0xff) == ((SIMPLE << 5) | INDEFINITE);
+  }
+
+  /**
+   * @return Whether the next data item is null.
+   */
+  public boolean isNull() throws IOException {
+    return (peek() & 0xff) == ((SIMPLE << 5) | NULL);
+  }
+
+  /**
+   * @return Whether the next data item is a tag.
+   */
+  public boolean isTag() throws IOException {
+    return majorType(peek()) == TAG;
+  }
+
+  public void readBreak() throws IOException {
+    if (!isBreak()) {
+      throw new IOException("Expected a break at " + position);
+    }
+    position++;
+  }
+
+  public void readNull() throws IOException {
+    if (!isNull()) {
+      throw new IOException("Expected null at " + position);
+    }
+    position++;
+  }
+
+  public long readTag() throws IOException {
+    return readHead(TAG);
+  }
+
+  /**
+   * @return The number of entries of the map, or {@link #INDEFINITE_LENGTH} if it ends with a
+   *         break.
+   */
+  public int readMapStart() throws IOException {
+    return readLength(MAP);
+  }
+
+  /**
+   * @return The number of items of the array, or {@link #INDEFINITE_LENGTH} if it ends with a
+   *         break.
+   */
+  public int readArrayStart() throws IOException {
+    return readLength(ARRAY);
+  }
+
+  /**
+   * @return Whether there is another item in a map or array of the given length, after reading the
+   *         given number of items. The break of an indefinite length map or array is consumed.
+   */
+  public boolean hasNext(int length, int count) throws IOException {
+    if (length != INDEFINITE_LENGTH) {
+      return count < length;
+    }
+    if (isBreak()) {
+      position++;
+      return false;
+    }
+    return true;
+  }
+
+  public String readString() throws IOException {
+    int length = readLength(TEXT);
+    checkAvailable(length);
+    String value = new String(data, position, length, Charsets.UTF_8);
+    position += length;
+    return value;
+  }
+
+  public byte[] readByteString() throws IOException {
+    int length = readLength(BYTES);
+    checkAvailable(length);
+    position += length;
+    return Arrays.copyOfRange(data, position - length, position);
+  }
+
+  public boolean readBoolean() throws IOException {
+    int initial = readByte();
+    if (initial == ((SIMPLE << 5) | TRUE)) {
+      return true;
+    } else if (initial == ((SIMPLE << 5) | FALSE)) {
+      return false;
+    }
+    throw new IOException("Expected a boolean at " + (position - 1));
+  }
+
+  public long readLong() throws IOException {
+    int majorType = majorType(peek());
+    if (majorType == UNSIGNED) {
+      return readHead(UNSIGNED);
+    } else if (majorType == NEGATIVE) {
+      return -1 - readHead(NEGATIVE);
+    }
+    return (long) readDouble();
+  }
+
+  /**
+   * Reads a number, which may be an integer or a floating point value of any size.
+   */
+  public double readDouble() throws IOException {
+    int initial = peek() & 0xff;
+    if (majorType(initial) == UNSIGNED || majorType(initial) == NEGATIVE) {
+      return readLong();
+    }
+    position++;
+    switch (initial) {
+      case (SIMPLE << 5) | FLOAT16:
+        return decodeHalf((readByte() << 8) | readByte());
+      case (SIMPLE << 5) | FLOAT32:
+        return Float.intBitsToFloat((int) readUnsigned(4));
+      case (SIMPLE << 5) | FLOAT64:
+        return Double.longBitsToDouble(readUnsigned(8));
+      default:
+        throw new IOException("Expected a number at " + (position - 1));
+    }
+  }
+
+  /**
+   * Reads a typed array or an array of numbers as doubles.
+   */
+  public double[] readDoubleArray() throws IOException {
+    if (isTag()) {
+      long tag = readTag();
+      ByteBuffer bytes = ByteBuffer.wrap(readByteString()).order(ByteOrder.LITTLE_ENDIAN);
+      double[] values;
+      if (tag == CborEncoder.FLOAT64_LE_TAG) {
+        values = new double[bytes.remaining() / 8];
+        bytes.asDoubleBuffer().get(values);
+      } else if (tag == CborEncoder.FLOAT32_LE_TAG) {
+        values = new double[bytes.remaining() / 4];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = bytes.getFloat();
+        }
+      } else {
+        throw new IOException("Unsupported typed array tag " + tag);
+      }
+      return values;
+    }
+    int length = readArrayStart();
+    double[] values = new double[Math.max(length, 16)];
+    int count = 0;
+    while (hasNext(length, count)) {
+      if (count == values.length) {
+        values = Arrays.copyOf(values, count * 2);
+      }
+      values[count++] = readDouble();
+    }
+    return count == values.length ? values : Arrays.copyOf(values, count);
+  }
+
+  /**
+   * Reads a typed array or an array of numbers as floats.
+   */
+  public float[] readFloatArray() throws IOException {
+    double[] doubles = readDoubleArray();
+    float[] values = new float[doubles.length];
+    for (int i = 0; i < doubles.length; i++) {
+      values[i] = (float) doubles[i];
+    }
+    return values;
+  }
+
+  /**
+   * Reads a typed array of unsigned integers or an array of integers.
+   */
+  public int[] readIntArray() throws IOException {
+    if (isTag()) {
+      long tag = readTag();
+      ByteBuffer bytes = ByteBuffer.wrap(readByteString()).order(ByteOrder.LITTLE_ENDIAN);
+      int[] values;
+      if (tag == CborEncoder.UINT32_LE_TAG) {
+        values = new int[bytes.remaining() / 4];
+        bytes.asIntBuffer().get(values);
+      } else if (tag == CborEncoder.UINT16_LE_TAG) {
+        values = new int[bytes.remaining() / 2];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = bytes.getShort() & 0xffff;
+        }
+      } else if (tag == CborEncoder.UINT8_TAG) {
+        values = new int[bytes.remaining()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = bytes.get() & 0xff;
+        }
+      } else {
+        throw new IOException("Unsupported typed array tag " + tag);
+      }
+      return values;
+    }
+    int length = readArrayStart();
+    int[] values = new int[Math.max(length, 16)];
+    int count = 0;
+    while (hasNext(length, count)) {
+      if (count == values.length) {
+        values = Arrays.copyOf(values, count * 2);
+      }
+      values[count++] = (int) readLong();
+    }
+    return count == values.length ? values : Arrays.copyOf(values, count);
+  }
+
+  /**
+   * Reads an int16 typed array or an array of integers as shorts.
+   */
+  public short[] readShortArray() throws IOException {
+    if (isTag()) {
+      long tag = readTag();
+      if (tag != CborEncoder.SINT16_LE_TAG) {
+        throw new IOException("Unsupported typed array tag " + tag);
+      }
+      ByteBuffer bytes = ByteBuffer.wrap(readByteString()).order(ByteOrder.LITTLE_ENDIAN);
+      short[] values = new short[bytes.remaining() / 2];
+      bytes.asShortBuffer().get(values);
+      return values;
+    }
+    int[] ints = readIntArray();
+    short[] values = new short[ints.length];
+    for (int i = 0; i < ints.length; i++) {
+      values[i] = (short) ints[i];
+    }
+    return values;
+  }
+
+  /**
+   * Reads an int8 typed array or an array of integers as bytes.
+   */
+  public byte[] readByteArray() throws IOException {
+    if (isTag()) {
+      long tag = readTag();
+      if (tag != CborEncoder.SINT8_TAG) {
+        throw new IOException("Unsupported typed array tag " + tag);
+      }
+      return readByteString();
+    }
+    int[] ints = readIntArray();
+    byte[] values = new byte[ints.length];
+    for (int i = 0; i < ints.length; i++) {
+      values[i] = (byte) ints[i];
+    }
+    return values;
+  }
+
+  /**
+   * Skips the next data item, including all of its contents.
+   */
+  public void skip() throws IOException {
+    int initial = peek() & 0xff;
+    switch (majorType(initial)) {
+      case UNSIGNED:
+      case NEGATIVE:
+        readLong();
+        break;
+      case BYTES:
+        readByteString();
+        break;
+      case TEXT:
+        readString();
+        break;
+      case ARRAY:
+        int arrayLength = readArrayStart();
+        for (int i = 0; hasNext(arrayLength, i); i++) {
+          skip();
+        }
+        break;
+      case MAP:
+        int mapLength = readMapStart();
+        for (int i = 0; hasNext(mapLength, i); i++) {
+          skip();
+          skip();
+        }
+        break;
+      case TAG:
+        readTag();
+        skip();
+        break;
+      default:
+        if (initial >= ((SIMPLE << 5) | FLOAT16)) {
+          readDouble();
+        } else {
+          position++;
+        }
+    }
+  }
+
+  private int peek() throws IOException {
+    checkAvailable(1);
+    return data[position];
+  }
+
+  private int readByte() throws IOException {
+    checkAvailable(1);
+    return data[position++] & 0xff;
+  }
+
+  private long readUnsigned(int length) throws IOException {
+    checkAvailable(length);
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | (data[position++] & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Reads the initial bytes of a data item of the given major type, returning its argument.
+   */
+  private long readHead(int majorType) throws IOException {
+    int initial = readByte();
+    if (majorType(initial) != majorType) {
+      throw new IOException("Expected major type " + majorType + " at " + (position - 1)
+          + " but found " + majorType(initial));
+    }
+    int info = initial & 0x1f;
+    if (info < 24) {
+      return info;
+    } else if (info <= 27) {
+      return readUnsigned(1 << (info - 24));
+    } else if (info == INDEFINITE) {
+      return INDEFINITE_LENGTH;
+    }
+    throw new IOException("Invalid additional information " + info + " at " + (position - 1));
+  }
+
+  private int readLength(int majorType) throws IOException {
+    long length = readHead(majorType);
+    if (length == INDEFINITE_LENGTH && (majorType == TEXT || majorType == BYTES)) {
+      throw new IOException("Indefinite length strings are not supported at " + position);
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Length " + length + " is too large at " + position);
+    }
+    return (int) length;
+  }
+
+  private void checkAvailable(int length) throws IOException {
+    if (length > data.length - position) {
+      throw new IOException("Unexpected end of CBOR data at " + position);
+    }
+  }
+
+  private static int majorType(int initial) {
+    return (initial & 0xff) >>> 5;
+  }
+
+  /**
+   * Decodes an IEEE 754 half precision float.
+   */
+  private static double decodeHalf(int half) {
+    int exponent = (half >> 10) & 0x1f;
+    int mantissa = half & 0x3ff;
+    double value;
+    if (exponent == 0) {
+      value = mantissa * Math.pow(2, -24);
+    } else if (exponent == 0x1f) {
+      value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+    } else {
+      value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+    }
+    return (half & 0x8000) == 0 ? value : -value;
+  }
+
+}
@@ -0,0 +1,290 @@
+package au.com.mutopia.acs.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Writes data items in the Concise Binary Object Representation (CBOR) to a stream. Arrays of
+ * numbers can be written as little-endian typed arrays, which a client can view directly as
+ * JavaScript typed arrays without decoding each number.
+ *
+ * The output is buffered; {@link #flush()} must be called once writing is complete.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7049">RFC 7049: CBOR</a>
+ * @see <a href="https://tools.ietf.org/html/rfc8746">RFC 8746: CBOR Tags for Typed Arrays</a>
+ */
+public class CborEncoder {
+
+  /** The major types of data items. */
+  static final int UNSIGNED = 0, NEGATIVE = 1, BYTES = 2, TEXT = 3, ARRAY = 4, MAP = 5, TAG = 6,
+      SIMPLE = 7;
+
+  /** The additional information of an indefinite length item, or of a break. */
+  static final int INDEFINITE = 31;
+
+  /** The simple values and floating point sizes of major type 7. */
+  static final int FALSE = 20, TRUE = 21, NULL = 22, FLOAT16 = 25, FLOAT32 = 26, FLOAT64 = 27;
+
+  /** The tag marking the start of a CBOR document, which is also its magic number. */
+  public static final int SELF_DESCRIBE_TAG = 55799;
+
+  /** The tag of a byte string containing a UTF-8 encoded JSON document. */
+  public static final int EMBEDDED_JSON_TAG = 262;
+
+  /** The tags of little-endian typed arrays. */
+  public static final int UINT8_TAG = 64, UINT16_LE_TAG = 69, UINT32_LE_TAG = 70, SINT8_TAG = 72,
+      SINT16_LE_TAG = 77, FLOAT32_LE_TAG = 85, FLOAT64_LE_TAG = 86;
+
+  private final OutputStream outputStream;
+
+  private final byte[] buffer = new byte[8192];
+
+  private int position;
+
+  /**
+   * @param outputStream The stream to write to. It is not closed by the encoder.
+   */
+  public CborEncoder(OutputStream outputStream) {
+    this.outputStream = outputStream;
+  }
+
+  /**
+   * Writes the self-describe tag, which identifies the rest of the stream as CBOR.
+   */
+  public void writeSelfDescribeTag() throws IOException {
+    writeTag(SELF_DESCRIBE_TAG);
+  }
+
+  /**
+   * Writes a tag, which applies to the next data item.
+   */
+  public void writeTag(long tag) throws IOException {
+    writeHead(TAG, tag);
+  }
+
+  /**
+   * Starts a map of the given number of entries, each written as a key followed by a value.
+   */
+  public void writeMapStart(int size) throws IOException {
+    writeHead(MAP, size);
+  }
+
+  /**
+   * Starts a map of entries which must be ended with {@link #writeBreak()}.
+   */
+  public void writeMapStart() throws IOException {
+    writeByte((MAP << 5) | INDEFINITE);
+  }
+
+  /**
+   * Starts an array of the given number of items.
+   */
+  public void writeArrayStart(int size) throws IOException {
+    writeHead(ARRAY, size);
+  }
+
+  /**
+   * Ends a map or array started without a size.
+   */
+  public void writeBreak() throws IOException {
+    writeByte((SIMPLE << 5) | INDEFINITE);
+  }
+
+  public void writeString(String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    writeHead(TEXT, bytes.length);
+    writeBytes(bytes, 0, bytes.length);
+  }
+
+  public void writeByteString(byte[] value) throws IOException {
+    writeHead(BYTES, value.length);
+    writeBytes(value, 0, value.length);
+  }
+
+  public void writeBoolean(boolean value) throws IOException {
+    writeByte((SIMPLE << 5) | (value ? TRUE : FALSE));
+  }
+
+  public void writeNull() throws IOException {
+    writeByte((SIMPLE << 5) | NULL);
+  }
+
+  public void writeLong(long value) throws IOException {
+    if (value >= 0) {
+      writeHead(UNSIGNED, value);
+    } else {
+      writeHead(NEGATIVE, -1 - value);
+    }
+  }
+
+  /**
+   * Writes a number in the smallest form which represents it exactly: an integer, a single
+   * precision or a double precision float.
+   */
+  public void writeDouble(double value) throws IOException {
+    long integer = (long) value;
+    if (integer == value && Math.abs(integer) < (1L << 53)
+        && (integer != 0 || 1 / value > 0)) {
+      writeLong(integer);
+    } else if ((float) value == value || Double.isNaN(value)) {
+      writeByte((SIMPLE << 5) | FLOAT32);
+      writeInt(Float.floatToIntBits((float) value));
+    } else {
+      writeByte((SIMPLE << 5) | FLOAT64);
+      writeInt((int) (Double.doubleToLongBits(value) >>> 32));
+      writeInt((int) Double.doubleToLongBits(value));
+    }
+  }
+
+  /**
+   * Writes an array of doubles as a little-endian float64 typed array.
+   */
+  public void writeFloat64Array(double[] values) throws IOException {
+    writeTag(FLOAT64_LE_TAG);
+    writeHead(BYTES, values.length * 8L);
+    for (double value : values) {
+      long bits = Double.doubleToLongBits(value);
+      ensureSpace(8);
+      for (int i = 0; i < 8; i++) {
+        buffer[position++] = (byte) (bits >>> (i * 8));
+      }
+    }
+  }
+
+  /**
+   * Writes an array of floats as a little-endian float32 typed array.
+   */
+  public void writeFloat32Array(float[] values) throws IOException {
+    writeTag(FLOAT32_LE_TAG);
+    writeHead(BYTES, values.length * 4L);
+    for (float value : values) {
+      writeIntLittleEndian(Float.floatToIntBits(value));
+    }
+  }
+
+  /**
+   * Writes an array of non-negative integers (e.g. indices) as a little-endian typed array of
+   * uint16 values if they are all small enough, or uint32 values otherwise.
+   */
+  public void writeUintArray(int[] values) throws IOException {
+    int max = 0;
+    for (int value : values) {
+      max = Math.max(max, value);
+    }
+    if (max <= 0xffff) {
+      writeTag(UINT16_LE_TAG);
+      writeHead(BYTES, values.length * 2L);
+      for (int value : values) {
+        ensureSpace(2);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+      }
+    } else {
+      writeTag(UINT32_LE_TAG);
+      writeHead(BYTES, values.length * 4L);
+      for (int value : values) {
+        writeIntLittleEndian(value);
+      }
+    }
+  }
+
+  /**
+   * Writes an array of shorts as a little-endian int16 typed array.
+   */
+  public void writeInt16Array(short[] values) throws IOException {
+    writeTag(SINT16_LE_TAG);
+    writeHead(BYTES, values.length * 2L);
+    for (short value : values) {
+      ensureSpace(2);
+      buffer[position++] = (byte) value;
+      buffer[position++] = (byte) (value >>> 8);
+    }
+  }
+
+  /**
+   * Writes an array of bytes as an int8 typed array.
+   */
+  public void writeInt8Array(byte[] values) throws IOException {
+    writeTag(SINT8_TAG);
+    writeByteString(values);
+  }
+
+  /**
+   * Writes any buffered output to the stream.
+   */
+  public void flush() throws IOException {
+    outputStream.write(buffer, 0, position);
+    position = 0;
+    outputStream.flush();
+  }
+
+  /**
+   * Writes the initial bytes of a data item: its major type and an argument (e.g. its length).
+   */
+  private void writeHead(int majorType, long argument) throws IOException {
+    int type = majorType << 5;
+    if (argument < 24) {
+      writeByte(type | (int) argument);
+    } else if (argument <= 0xff) {
+      writeByte(type | 24);
+      writeByte((int) argument);
+    } else if (argument <= 0xffff) {
+      writeByte(type | 25);
+      writeByte((int) (argument >>> 8));
+      writeByte((int) argument);
+    } else if (argument <= 0xffffffffL) {
+      writeByte(type | 26);
+      writeInt((int) argument);
+    } else {
+      writeByte(type | 27);
+      writeInt((int) (argument >>> 32));
+      writeInt((int) argument);
+    }
+  }
+
+  private void writeByte(int value) throws IOException {
+    ensureSpace(1);
+    buffer[position++] = (byte) value;
+  }
+
+  /**
+   * Writes an int in big-endian (network) order, as the heads of data items are.
+   */
+  private void writeInt(int value) throws IOException {
+    ensureSpace(4);
+    buffer[position++] = (byte) (value >>> 24);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeIntLittleEndian(int value) throws IOException {
+    ensureSpace(4);
+    buffer[position++] = (byte) value;
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 24);
+  }
+
+  private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+    if (length > buffer.length) {
+      outputStream.write(buffer, 0, position);
+      position = 0;
+      outputStream.write(bytes, offset, length);
+      return;
+    }
+    ensureSpace(length);
+    System.arraycopy(bytes, offset, buffer, position, length);
+    position += length;
+  }
+
+  private void ensureSpace(int length) throws IOException {
+    if (position + length > buffer.length) {
+      outputStream.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+}
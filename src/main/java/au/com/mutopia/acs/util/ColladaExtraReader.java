@@ -5,9 +5,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import au.com.mutopia.acs.transform.CodecRegistry;
+
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlText;
@@ -18,6 +17,16 @@ import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlText;
  */
 public class ColladaExtraReader {
 
+  /** The shared XML readers. */
+  private final CodecRegistry codecs;
+
+  /**
+   * @param codecs The shared XML readers.
+   */
+  public ColladaExtraReader(CodecRegistry codecs) {
+    this.codecs = codecs;
+  }
+
   /**
    * Extracts a map of COLLADA node IDs to maps of <code>{paramName: paramValue}</code> for custom
    * properties stored in the <code>&lt;extra&gt;</code> tags.
@@ -28,7 +37,7 @@ public class ColladaExtraReader {
    */
   public Map<String, Map<String, String>> getExtraProperties(String colladaXml) throws IOException {
     Map<String, Map<String, String>> nodePropMap = new HashMap<>();
-    ColladaXml collada = buildMapper().readValue(colladaXml, ColladaXml.class);
+    ColladaXml collada = codecs.getXmlReader(ColladaXml.class).readValue(colladaXml);
     for (ColladaNode node : collada.library_visual_scenes.visual_scene) {
       Map<String, String> propMap = new HashMap<>();
       nodePropMap.put(node.id, propMap);
@@ -47,19 +56,6 @@ public class ColladaExtraReader {
     return nodePropMap;
   }
 
-  /**
-   * Builds a configured {@link XmlMapper} for parsing the COLLADA XML.
-   * 
-   * @return The created {@link XmlMapper}.
-   */
-  protected XmlMapper buildMapper() {
-    JacksonXmlModule module = new JacksonXmlModule();
-    module.setDefaultUseWrapper(false);
-    XmlMapper mapper = new XmlMapper(module);
-    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-    return mapper;
-  }
-
   /**
    * Represents the root node of a COLLADA XML document, into which Jackson deserializes the XML.
    */
@@ -30,4 +30,18 @@ public class CollectionUtils {
     }
     return doubles;
   }
+
+  /**
+   * Converts an array of floats to an array of doubles.
+   *
+   * @param floats The floats to convert.
+   * @return An array of the same values as doubles.
+   */
+  public static double[] doublesFromFloats(float[] floats) {
+    double[] doubles = new double[floats.length];
+    for (int i = 0; i < floats.length; i++) {
+      doubles[i] = floats[i];
+    }
+    return doubles;
+  }
 }
@@ -0,0 +1,111 @@
+package au.com.mutopia.acs.util;
+
+/**
+ * Formats numbers with a fixed maximum number of decimal places into a reusable character buffer,
+ * without allocating a string for each number. Trailing zeros are removed, so whole numbers are
+ * written without a decimal point (e.g. <code>144.9631</code>, <code>-37.8</code> or
+ * <code>2</code>).
+ *
+ * Instances are not thread-safe, since the buffer is reused for every number.
+ */
+public class DecimalFormatter {
+
+  /** The maximum number of decimal places supported. */
+  public static final int MAX_DECIMALS = 15;
+
+  /** The largest magnitude of a scaled value for which every whole number is exact. */
+  private static final double MAX_EXACT = 9007199254740992.0;
+
+  private static final long[] POWERS_OF_TEN = new long[MAX_DECIMALS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  /** The characters of the last formatted number, starting at index 0. */
+  private final char[] buffer = new char[32];
+
+  /**
+   * Formats a number into the buffer, rounded to the given number of decimal places.
+   *
+   * @param value The number to format.
+   * @param decimals The maximum number of decimal places, from 0 to {@link #MAX_DECIMALS}.
+   * @return The number of characters written to the {@link #getBuffer() buffer}, or -1 if the
+   *         number can't be represented exactly at that precision (i.e. it is not finite or too
+   *         large), in which case it should be written in full.
+   */
+  public int format(double value, int decimals) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return -1;
+    }
+    double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+    if (scaled >= MAX_EXACT) {
+      return -1;
+    }
+    long units = Math.round(scaled);
+    int fractionDigits = decimals;
+    while (fractionDigits > 0 && units % 10 == 0) {
+      units /= 10;
+      fractionDigits--;
+    }
+    int integerDigits = 1;
+    for (long integer = units / POWERS_OF_TEN[fractionDigits]; integer >= 10; integer /= 10) {
+      integerDigits++;
+    }
+    boolean negative = value < 0 && units != 0;
+
+    int length = (negative ? 1 : 0) + integerDigits + (fractionDigits > 0 ? fractionDigits + 1 : 0);
+    int position = length;
+    for (int i = 0; i < fractionDigits; i++) {
+      buffer[--position] = (char) ('0' + units % 10);
+      units /= 10;
+    }
+    if (fractionDigits > 0) {
+      buffer[--position] = '.';
+    }
+    for (int i = 0; i < integerDigits; i++) {
+      buffer[--position] = (char) ('0' + units % 10);
+      units /= 10;
+    }
+    if (negative) {
+      buffer[--position] = '-';
+    }
+    return length;
+  }
+
+  /**
+   * Rounds a number to the given number of decimal places in the same way as
+   * {@link #format(double, int)}, i.e. half away from zero and without a negative zero.
+   *
+   * @param value The number to round.
+   * @param decimals The maximum number of decimal places, from 0 to {@link #MAX_DECIMALS}.
+   * @return The rounded number, or the number itself if it can't be represented exactly at that
+   *         precision (i.e. it is not finite or too large).
+   */
+  public static double round(double value, int decimals) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return value;
+    }
+    double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+    if (scaled >= MAX_EXACT) {
+      return value;
+    }
+    long units = Math.round(scaled);
+    if (units == 0) {
+      return 0;
+    }
+    double rounded = units / (double) POWERS_OF_TEN[decimals];
+    return value < 0 ? -rounded : rounded;
+  }
+
+  /**
+   * @return The buffer containing the characters of the last formatted number.
+   */
+  public char[] getBuffer() {
+    return buffer;
+  }
+
+}
@@ -0,0 +1,270 @@
+package au.com.mutopia.acs.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+
+import au.com.mutopia.acs.transform.CodecRegistry;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Packs glTF documents into binary glTF, which keeps buffers, images and shaders unencoded after
+ * the JSON instead of inflating them by a third as base64 data URIs.
+ *
+ * @see <a
+ *      href="https://github.com/KhronosGroup/glTF/tree/master/extensions/Khronos/KHR_binary_glTF">KHR_binary_glTF</a>
+ */
+@Log4j
+public class GlbPacker {
+
+  /** The name of the binary glTF extension. */
+  public static final String EXTENSION = "KHR_binary_glTF";
+
+  /** The ID of the buffer referring to the binary body of the file. */
+  public static final String BUFFER_ID = "binary_glTF";
+
+  /** The placeholder URI of objects whose data is stored in the binary body. */
+  public static final String EMPTY_URI = "data:,";
+
+  /** The MIME type of binary glTF files. */
+  public static final String MIME_TYPE = "model/gltf.binary";
+
+  /** The magic bytes at the start of every binary glTF file. */
+  private static final byte[] MAGIC = "glTF".getBytes(Charsets.US_ASCII);
+
+  /** The binary glTF version and content format (JSON) written in the header. */
+  private static final int VERSION = 1, CONTENT_FORMAT_JSON = 0;
+
+  /** The length of the binary glTF header. */
+  private static final int HEADER_LENGTH = 20;
+
+  /** Reads and writes the glTF documents being packed. */
+  private final CodecRegistry codecs;
+
+  /**
+   * @param codecs The shared JSON readers and writers.
+   */
+  public GlbPacker(CodecRegistry codecs) {
+    this.codecs = codecs;
+  }
+
+  /**
+   * Writes a binary glTF file.
+   *
+   * @param outputStream The stream to write to. It is flushed but not closed.
+   * @param content The UTF-8 encoded JSON of the glTF document.
+   * @param body The binary body referenced by the {@link #BUFFER_ID} buffer of the document.
+   * @throws IOException if the file could not be written.
+   */
+  public static void write(OutputStream outputStream, byte[] content, byte[] body)
+      throws IOException {
+    // The body must start on a 4-byte boundary, so pad the content with spaces.
+    int padding = (4 - content.length % 4) % 4;
+    int contentLength = content.length + padding;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    header.put(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(HEADER_LENGTH + contentLength + body.length);
+    header.putInt(contentLength);
+    header.putInt(CONTENT_FORMAT_JSON);
+    outputStream.write(header.array());
+    outputStream.write(content);
+    for (int i = 0; i < padding; i++) {
+      outputStream.write(' ');
+    }
+    outputStream.write(body);
+    outputStream.flush();
+  }
+
+  /**
+   * Packs a glTF document and the external files it references (as written by
+   * <code>collada2gltf</code> without embedding) into a binary glTF file.
+   *
+   * @param gltfFile The glTF document. URIs are resolved relative to its directory.
+   * @return The binary glTF file contents.
+   * @throws IOException if the document or its buffers could not be read.
+   */
+  public byte[] pack(File gltfFile) throws IOException {
+    Map<String, Object> gltf = codecs.getJsonMapReader().readValue(gltfFile);
+    File baseDir = gltfFile.getParentFile();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    // Concatenate the buffers, then point their views at the binary body.
+    Map<String, Integer> bufferOffsets = new LinkedHashMap<>();
+    for (Map.Entry<String, Map<String, Object>> buffer : getObjects(gltf, "buffers").entrySet()) {
+      bufferOffsets.put(buffer.getKey(), append(body, readUri(buffer.getValue(), baseDir)));
+    }
+    Map<String, Map<String, Object>> bufferViews = getObjects(gltf, "bufferViews");
+    for (Map<String, Object> bufferView : bufferViews.values()) {
+      Integer bufferOffset = bufferOffsets.get(bufferView.get("buffer"));
+      Number byteOffset = (Number) bufferView.get("byteOffset");
+      bufferView.put("buffer", BUFFER_ID);
+      bufferView.put("byteOffset", (byteOffset == null ? 0 : byteOffset.intValue())
+          + (bufferOffset == null ? 0 : bufferOffset));
+    }
+
+    for (Map.Entry<String, Map<String, Object>> image : getObjects(gltf, "images").entrySet()) {
+      String uri = (String) image.getValue().get("uri");
+      String mimeType = getImageMimeType(uri);
+      byte[] data;
+      try {
+        data = readUri(image.getValue(), baseDir);
+      } catch (IOException e) {
+        // Keep the URI of an image which can't be packed, as for glTF documents, so that it can
+        // still be resolved by the client.
+        log.warn("Couldn't read glTF image URI " + uri, e);
+        continue;
+      }
+      Map<String, Object> extension = new LinkedHashMap<>();
+      extension.put("bufferView",
+          addBufferView(bufferViews, body, "image_" + image.getKey(), data));
+      extension.put("mimeType", mimeType);
+      addImageSize(extension, data);
+      setExtension(image.getValue(), extension);
+    }
+    for (Map.Entry<String, Map<String, Object>> shader : getObjects(gltf, "shaders").entrySet()) {
+      byte[] data = readUri(shader.getValue(), baseDir);
+      Map<String, Object> extension = new LinkedHashMap<>();
+      extension.put("bufferView",
+          addBufferView(bufferViews, body, "shader_" + shader.getKey(), data));
+      setExtension(shader.getValue(), extension);
+    }
+
+    Map<String, Object> buffer = new LinkedHashMap<>();
+    buffer.put("byteLength", body.size());
+    buffer.put("type", "arraybuffer");
+    buffer.put("uri", EMPTY_URI);
+    gltf.put("buffers", ImmutableMap.of(BUFFER_ID, buffer));
+    gltf.put("bufferViews", bufferViews);
+
+    @SuppressWarnings("unchecked")
+    List<Object> extensionsUsed = (List<Object>) gltf.get("extensionsUsed");
+    extensionsUsed = extensionsUsed == null ? Lists.newArrayList() : extensionsUsed;
+    if (!extensionsUsed.contains(EXTENSION)) extensionsUsed.add(EXTENSION);
+    gltf.put("extensionsUsed", extensionsUsed);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    write(outputStream, codecs.getJsonWriter().writeValueAsBytes(gltf), body.toByteArray());
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Gets a dictionary of glTF objects, e.g. <code>buffers</code>.
+   *
+   * @return The objects by ID, or an empty map if there are none.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getObjects(Map<String, Object> gltf, String name) {
+    Map<String, Map<String, Object>> objects = (Map<String, Map<String, Object>>) gltf.get(name);
+    return objects == null ? new LinkedHashMap<String, Map<String, Object>>() : objects;
+  }
+
+  /**
+   * Appends data to the body at the next 4-byte boundary.
+   *
+   * @return The offset of the data in the body.
+   */
+  private int append(ByteArrayOutputStream body, byte[] data) throws IOException {
+    while (body.size() % 4 != 0) {
+      body.write(0);
+    }
+    int offset = body.size();
+    body.write(data);
+    return offset;
+  }
+
+  /**
+   * Appends data to the body and adds a buffer view for it.
+   *
+   * @return The ID of the buffer view.
+   */
+  private String addBufferView(Map<String, Map<String, Object>> bufferViews,
+      ByteArrayOutputStream body, String id, byte[] data) throws IOException {
+    Map<String, Object> bufferView = new LinkedHashMap<>();
+    bufferView.put("buffer", BUFFER_ID);
+    bufferView.put("byteOffset", append(body, data));
+    bufferView.put("byteLength", data.length);
+    String bufferViewId = "binary_glTF_" + id;
+    bufferViews.put(bufferViewId, bufferView);
+    return bufferViewId;
+  }
+
+  /**
+   * Reads the data referenced by the <code>uri</code> of a glTF object, which is either a base64
+   * data URI or a path relative to the glTF file. Once read, the URI is replaced with an empty
+   * one, since the data is moved into the binary body.
+   */
+  private byte[] readUri(Map<String, Object> object, File baseDir) throws IOException {
+    String uri = (String) object.get("uri");
+    if (uri == null) {
+      throw new IOException("Missing glTF URI");
+    }
+    byte[] data;
+    if (uri.startsWith("data:")) {
+      data = Base64.decodeBase64(uri.substring(uri.indexOf(',') + 1));
+    } else {
+      data = FileUtils.readFileToByteArray(new File(baseDir, URLDecoder.decode(uri, "UTF-8")));
+    }
+    object.put("uri", EMPTY_URI);
+    return data;
+  }
+
+  private String getImageMimeType(String uri) {
+    if (uri != null && uri.startsWith("data:") && uri.contains(";")) {
+      return uri.substring("data:".length(), uri.indexOf(';'));
+    }
+    String mimeType = uri == null ? null : ImageDataUriEncoder.getMimeType(uri);
+    return mimeType == null ? "image/png" : mimeType;
+  }
+
+  /**
+   * Adds the width and height of an image, which the extension requires, by reading only the
+   * image header.
+   */
+  private void addImageSize(Map<String, Object> extension, byte[] data) throws IOException {
+    ImageInputStream imageStream = ImageIO.createImageInputStream(new ByteArrayInputStream(data));
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+    if (readers.hasNext()) {
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(imageStream);
+        extension.put("height", reader.getHeight(0));
+        extension.put("width", reader.getWidth(0));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setExtension(Map<String, Object> object, Map<String, Object> extension) {
+    Map<String, Object> extensions = (Map<String, Object>) object.get("extensions");
+    if (extensions == null) {
+      extensions = new LinkedHashMap<>();
+      object.put("extensions", extensions);
+    }
+    extensions.put(EXTENSION, extension);
+  }
+
+}
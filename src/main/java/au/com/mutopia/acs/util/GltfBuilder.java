@@ -1,26 +1,29 @@
 package au.com.mutopia.acs.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.URLEncoder;
+import java.io.InputStream;
+import java.net.URLDecoder;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import lombok.extern.log4j.Log4j;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.exceptions.ConversionException;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
 import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
-import flexjson.JSONDeserializer;
-import flexjson.JSONException;
+import au.com.mutopia.acs.transform.CodecRegistry;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 /**
  * Utility methods for constructing glTF meshes.
@@ -32,39 +35,104 @@ public class GltfBuilder {
   private static final String[] IMAGE_EXTS = new String[] {"jpg", "jpeg", "png", "gif", "tif",
       "JPG", "JPEG", "PNG", "GIF", "TIF"};
 
-  /** A blank image used to replace a missing relative image URI. */
-  private static final String BLANK_BASE_64_IMAGE =
-      "data:image/gif;base64,R0lGODlhAQABAAAAACH5BAEKAAEALAAAAAABAAEAAAICTAEAOw==";
+  /**
+   * Matches URIs with a scheme, such as data URIs and remote images, which don't refer to files of
+   * the model. Single letter schemes are excluded, since they are Windows drive letters.
+   */
+  private static final Pattern ABSOLUTE_URI = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]+:");
+
+  /** The file extension of binary glTF assets. */
+  public static final String GLB_EXTENSION = ".glb";
+
+  /** Reads and writes glTF documents when replacing their image URIs. */
+  private final CodecRegistry codecs;
 
   /**
-   * Creates a {@link C3mlEntity} with merged glTF geometry from all of the COLLADA nodes.
+   * @param codecs The shared JSON readers and writers.
+   */
+  public GltfBuilder(CodecRegistry codecs) {
+    this.codecs = codecs;
+  }
+
+  /**
+   * Creates a {@link C3mlEntity} with merged glTF geometry from all of the COLLADA nodes, by
+   * invoking <code>collada2gltf</code>. This is only required for models with textures, which
+   * {@link GltfWriter} does not support.
    *
    * @param colladaFile The COLLADA file to convert.
+   * @param context The options and state of the conversion request.
    * @param rotation The rotation to be applied on the whole COLLADA model.
    * @param scale The scale to be applied on the whole COLLADA model.
    * @param geoLocation The geographic location to be applied on the whole COLLADA model.
    * @return An entity with all of the asset's geometry merged into a glTF mesh.
    * @throws IOException if the glTF file couldn't be created.
    */
-  public C3mlEntity convertMerged(File colladaFile, List<Double> rotation, List<Double> scale,
-      List<Double> geoLocation) throws ConversionException {
-    C3mlEntity gltfEntity = new C3mlEntity();
-    gltfEntity.setName(FilenameUtils.removeExtension(colladaFile.getName()));
-    gltfEntity.setType(C3mlEntityType.MESH);
+  public C3mlEntity convertMerged(File colladaFile, ConversionContext context,
+      List<Double> rotation, List<Double> scale, List<Double> geoLocation)
+      throws ConversionException {
+    C3mlEntity gltfEntity =
+        createMergedEntity(context.nextId(), colladaFile, rotation, scale, geoLocation);
 
     try {
-      String gltf = new Collada2Gltf(colladaFile).convertToGltfString();
-      Map<String, Object> gltfMap = new JSONDeserializer<Map<String, Object>>().deserialize(gltf);
-      replaceImageUris(gltfMap, buildImageMap(colladaFile));
-      gltfEntity.setGltfData(gltfMap);
+      if (context.isBinary()) {
+        // Keep the buffers and images as separate files, to be packed without encoding.
+        File gltfFile = new Collada2Gltf(colladaFile, false).convertToGltfFile();
+        byte[] glb = new GlbPacker(codecs).pack(gltfFile);
+        gltfEntity.setGltfUrl(context.storeAsset(gltfEntity.getId() + GLB_EXTENSION, glb,
+            GlbPacker.MIME_TYPE));
+        return gltfEntity;
+      }
+      File gltfFile = new Collada2Gltf(colladaFile).convertToGltfFile();
+      gltfEntity.setGltfData(replaceImageUris(gltfFile, colladaFile, context.getImageEncoder()));
+    } catch (JsonProcessingException e) {
+      throw new ConversionException("Invalid JSON generated by glTF converter", e);
     } catch (IOException e) {
       throw new ConversionException("Failed to invoke glTF converter", e);
-    } catch (JSONException e) {
-      throw new ConversionException("Invalid JSON generated by glTF converter", e);
     }
+    return gltfEntity;
+  }
 
+  /**
+   * Creates a {@link C3mlEntity} with merged glTF geometry written directly from the parsed COLLADA
+   * meshes.
+   *
+   * @param colladaFile The COLLADA file the meshes were parsed from.
+   * @param gltfWriter The writer holding the meshes of all of the COLLADA nodes.
+   * @param context The options and state of the conversion request.
+   * @param rotation The rotation to be applied on the whole COLLADA model.
+   * @param scale The scale to be applied on the whole COLLADA model.
+   * @param geoLocation The geographic location to be applied on the whole COLLADA model.
+   * @return An entity with all of the asset's geometry merged into a glTF mesh.
+   * @throws ConversionException if the glTF document couldn't be written.
+   */
+  public C3mlEntity convertMerged(File colladaFile, GltfWriter gltfWriter,
+      ConversionContext context, List<Double> rotation, List<Double> scale,
+      List<Double> geoLocation) throws ConversionException {
+    C3mlEntity gltfEntity =
+        createMergedEntity(context.nextId(), colladaFile, rotation, scale, geoLocation);
+    try {
+      if (context.isBinary()) {
+        byte[] glb = gltfWriter.toBinaryByteArray();
+        gltfEntity.setGltfUrl(context.storeAsset(gltfEntity.getId() + GLB_EXTENSION, glb,
+            GlbPacker.MIME_TYPE));
+      } else {
+        gltfEntity.setGltfData(gltfWriter.toByteArray());
+      }
+    } catch (IOException e) {
+      throw new ConversionException("Failed to write glTF for " + colladaFile.getName(), e);
+    }
+    return gltfEntity;
+  }
 
-    // Apply global transformations if they exist.
+  /**
+   * Creates an empty mesh entity named after the COLLADA file, with the global transformations
+   * applied if they exist.
+   */
+  private C3mlEntity createMergedEntity(String id, File colladaFile, List<Double> rotation,
+      List<Double> scale, List<Double> geoLocation) {
+    C3mlEntity gltfEntity = new C3mlEntity(id);
+    gltfEntity.setName(FilenameUtils.removeExtension(colladaFile.getName()));
+    gltfEntity.setType(C3mlEntityType.MESH);
     if (rotation != null) gltfEntity.setRotation(rotation);
     if (scale != null) gltfEntity.setScale(scale);
     if (geoLocation != null) gltfEntity.setGeoLocation(geoLocation);
@@ -72,58 +140,71 @@ public class GltfBuilder {
   }
 
   /**
-   * Constructs a map of paths to image files (relative to the given COLLADA file) to Base64-encoded
-   * data URI strings of their contents.
+   * Replaces relative image URIs with data URIs, streaming the glTF document rather than
+   * deserializing it. Only the images referenced by the glTF are read, and images with the same
+   * content are only encoded once per conversion. Data URIs, remote images and images which can't
+   * be found are left unchanged.
    *
-   * @param colladaFile The file to search for images relative to.
-   * @return The constructed image map.
+   * @param gltfFile The glTF document written by <code>collada2gltf</code>.
+   * @param colladaFile The COLLADA file the glTF was converted from, which image URIs are relative
+   *        to.
+   * @param imageEncoder The encoder of images for the conversion request.
+   * @return The UTF-8 encoded glTF document with the image URIs replaced.
+   * @throws IOException if the glTF document could not be read or is not valid JSON.
    */
-  @SuppressWarnings("unchecked")
-  private Map<String, String> buildImageMap(File colladaFile) {
-    Map<String, String> imageMap = new HashMap<>();
-
-    for (File imageFile : (Collection<File>) FileUtils.listFiles(colladaFile.getParentFile(),
-        IMAGE_EXTS, true)) {
-      try {
-        byte[] imageBytes = IOUtils.toByteArray(new FileInputStream(imageFile));
-        String encodedData = Base64.encodeBase64String(imageBytes);
-        String dataUri = "data:application/octet-stream;base64," + encodedData;
-        String fileUrl = URLEncoder.encode(imageFile.getName(), "UTF-8").replace("+", "%20");
-        imageMap.put("images/" + fileUrl, dataUri);
-      } catch (IOException e) {
-        log.warn("Couldn't read glTF image URI " + imageFile.getAbsolutePath(), e);
+  byte[] replaceImageUris(File gltfFile, final File colladaFile,
+      final ImageDataUriEncoder imageEncoder) throws IOException {
+    GltfImageUriRewriter rewriter = new GltfImageUriRewriter(codecs.getJsonFactory()) {
+      /** Only search the directory for images by name if a URI can't be resolved directly. */
+      private Map<String, File> imageFilesByName = null;
+
+      @Override
+      protected String replaceUri(String uri) {
+        // Ignore any images which are already base64 encoded by collada2gltf, or which the client
+        // can load itself.
+        if (ABSOLUTE_URI.matcher(uri).find()) {
+          return uri;
+        }
+        try {
+          String path = URLDecoder.decode(uri, "UTF-8");
+          File imageFile = new File(colladaFile.getParentFile(), path);
+          if (!imageFile.isFile()) {
+            if (imageFilesByName == null) {
+              imageFilesByName = findImageFiles(colladaFile.getParentFile());
+            }
+            imageFile = imageFilesByName.get(FilenameUtils.getName(path));
+          }
+          if (imageFile != null) {
+            return imageEncoder.encode(imageFile);
+          }
+          log.warn("Couldn't find glTF image URI " + uri);
+        } catch (IOException e) {
+          log.warn("Couldn't read glTF image URI " + uri, e);
+        }
+        return uri;
       }
+    };
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) gltfFile.length());
+    try (InputStream inputStream = new FileInputStream(gltfFile)) {
+      rewriter.rewrite(inputStream, outputStream);
     }
-    return imageMap;
+    return outputStream.toByteArray();
   }
 
   /**
-   * Replaces relative image URIs with data URIs. The glTF map is updated in place. Missing file
-   * references are removed.
+   * Finds the image files under a directory, since <code>collada2gltf</code> may flatten image
+   * paths. The files are not read.
    *
-   * @param gltfMap The glTF document deserialized into a map.
-   * @param imageMap A map of image URIs to Base64-encoded data URIs.
+   * @param dir The directory to search recursively.
+   * @return A map of file names to image files.
    */
-  private void replaceImageUris(Map<String, Object> gltfMap, Map<String, String> imageMap) {
-    @SuppressWarnings("unchecked")
-    Map<String, Map<String, String>> images =
-        (Map<String, Map<String, String>>) gltfMap.get("images");
-    if (images != null) {
-      for (String imageId : images.keySet()) {
-        String uri = images.get(imageId).get("uri");
-        // Ignore any images which are already base64 encoded by collada2gltf.
-        if (uri.startsWith("data:")) {
-          break;
-        }
-        if (imageMap.containsKey(uri)) {
-          images.get(imageId).put("uri", imageMap.get(uri));
-        } else {
-          // If the image could not be replaced, replace it with a blank image to avoid rendering
-          // errors.
-          images.get(imageId).put("uri", BLANK_BASE_64_IMAGE);
-        }
-      }
+  @SuppressWarnings("unchecked")
+  private Map<String, File> findImageFiles(File dir) {
+    Map<String, File> imageFiles = new HashMap<>();
+    for (File imageFile : (Collection<File>) FileUtils.listFiles(dir, IMAGE_EXTS, true)) {
+      imageFiles.put(imageFile.getName(), imageFile);
     }
+    return imageFiles;
   }
 
 }
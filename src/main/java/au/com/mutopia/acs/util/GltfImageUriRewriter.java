@@ -0,0 +1,81 @@
+package au.com.mutopia.acs.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Copies a glTF document token by token, replacing the <code>uri</code> of each image. The rest of
+ * the document is copied unchanged, without deserializing it into a map, so the cost is linear in
+ * the size of the document and only one token is held in memory at a time.
+ */
+public abstract class GltfImageUriRewriter {
+
+  private final JsonFactory jsonFactory;
+
+  /**
+   * @param jsonFactory The factory of the parser and generator used to copy the document.
+   */
+  public GltfImageUriRewriter(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+  }
+
+  /**
+   * Copies the glTF document from the input to the output, replacing the image URIs.
+   *
+   * @param inputStream The UTF-8 encoded glTF document to read. It is not closed.
+   * @param outputStream The stream to write the UTF-8 encoded document to. It is not closed.
+   * @throws IOException if the document is not valid JSON, or could not be read or written.
+   */
+  public void rewrite(InputStream inputStream, OutputStream outputStream) throws IOException {
+    // The streams belong to the caller, whatever the features of the factory.
+    JsonParser parser =
+        jsonFactory.createParser(inputStream).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    JsonGenerator generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    try {
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        if (token == JsonToken.VALUE_STRING && isImageUri(parser)) {
+          generator.writeString(replaceUri(parser.getText()));
+        } else {
+          generator.copyCurrentEvent(parser);
+        }
+      }
+      generator.flush();
+    } finally {
+      parser.close();
+      generator.close();
+    }
+  }
+
+  /**
+   * Gets the URI to replace the URI of an image with.
+   *
+   * @param uri The URI of the image in the document.
+   * @return The replacement URI, which may be the same URI.
+   */
+  protected abstract String replaceUri(String uri);
+
+  /**
+   * @return Whether the current value of the parser is at <code>images.{id}.uri</code>.
+   */
+  private boolean isImageUri(JsonParser parser) {
+    JsonStreamContext image = parser.getParsingContext();
+    if (!"uri".equals(image.getCurrentName())) {
+      return false;
+    }
+    JsonStreamContext images = image.getParent();
+    JsonStreamContext root = images == null ? null : images.getParent();
+    return root != null && root.getParent() != null && root.getParent().inRoot()
+        && "images".equals(root.getCurrentName());
+  }
+
+}
@@ -0,0 +1,532 @@
+package au.com.mutopia.acs.util;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Matrix4d;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes glTF documents directly from parsed mesh data, without a round trip through an external
+ * converter or an intermediate JSON tree. All of the geometry is packed into a single binary
+ * buffer, which is either embedded into the document as a data URI or appended to it unencoded as
+ * binary glTF.
+ *
+ * @see <a href="https://github.com/KhronosGroup/glTF/tree/master/specification/1.0">glTF 1.0
+ *      specification</a>
+ */
+public class GltfWriter {
+
+  /** Factory for the generators writing the glTF JSON. */
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /** WebGL constants used by glTF buffer views, accessors and primitives. */
+  private static final int ARRAY_BUFFER = 34962, ELEMENT_ARRAY_BUFFER = 34963, FLOAT = 5126,
+      UNSIGNED_SHORT = 5123, UNSIGNED_INT = 5125, TRIANGLES = 4;
+
+  /** The largest vertex count that can be indexed with unsigned shorts. */
+  private static final int MAX_SHORT_INDEX = 65535;
+
+  /** The prefix of the data URI of the embedded binary buffer. */
+  private static final String DATA_URI_PREFIX = "data:application/octet-stream;base64,";
+
+  /** The extension used to describe materials without shaders. */
+  private static final String MATERIALS_EXTENSION = "KHR_materials_common";
+
+  /** IDs of the glTF objects shared by the whole document. */
+  private static final String SCENE_ID = "defaultScene", ROOT_NODE_ID = "root",
+      BUFFER_ID = "buffer", VERTEX_VIEW_ID = "bufferView_vertices",
+      INDEX_VIEW_ID = "bufferView_indices";
+
+  /** The transformation applied to every node of the document. */
+  private final Matrix4d rootMatrix;
+
+  /** The meshes added to the document, in the order they were added. */
+  private final List<GltfMesh> meshes = new ArrayList<>();
+
+  /** The nodes instancing the meshes, in the order they were added. */
+  private final List<GltfNode> nodes = new ArrayList<>();
+
+  /** Map of material keys to the IDs of the materials with that color and technique. */
+  private final Map<String, String> materialIds = new LinkedHashMap<>();
+
+  /** Map of material IDs to their colors. */
+  private final Map<String, Color> materialColors = new LinkedHashMap<>();
+
+  /** The byte length of all the vertex data at the start of the binary buffer. */
+  private int vertexByteLength;
+
+  /** The byte length of all the index data following the vertex data in the binary buffer. */
+  private int indexByteLength;
+
+  /**
+   * @param rootMatrix The transformation to apply to every node of the document, e.g. to convert
+   *        the up axis and units of the source model.
+   */
+  public GltfWriter(Matrix4d rootMatrix) {
+    this.rootMatrix = rootMatrix;
+  }
+
+  /**
+   * Adds a mesh to the document. The mesh is not rendered until it is instanced with
+   * {@link #addNode(String, Matrix4d, GltfMesh)}.
+   *
+   * @param name The name of the mesh.
+   * @param positions The (x, y, z) coordinates of each vertex of the mesh.
+   * @param normals The (x, y, z) normal of each vertex, or null if there are none.
+   * @return The mesh, to which triangle primitives can be added.
+   */
+  public GltfMesh addMesh(String name, float[] positions, float[] normals) {
+    if (normals != null && normals.length != positions.length) {
+      normals = null;
+    }
+    GltfMesh mesh = new GltfMesh("mesh_" + meshes.size(), name, positions, normals, null);
+    meshes.add(mesh);
+    return mesh;
+  }
+
+  /**
+   * Adds a mesh to the document which shares the vertex accessors of another mesh, e.g. a level of
+   * detail of it, so that the vertices are only written once.
+   *
+   * @param name The name of the mesh.
+   * @param vertexMesh The mesh whose vertices the primitives of the new mesh index.
+   * @return The mesh, to which triangle primitives can be added.
+   */
+  public GltfMesh addMesh(String name, GltfMesh vertexMesh) {
+    GltfMesh mesh = new GltfMesh("mesh_" + meshes.size(), name, vertexMesh.positions,
+        vertexMesh.normals, vertexMesh);
+    meshes.add(mesh);
+    return mesh;
+  }
+
+  /**
+   * Adds a node instancing a mesh to the document.
+   *
+   * @param name The name of the node.
+   * @param matrix The transformation of the mesh relative to the root of the document.
+   * @param mesh The mesh to render at the node.
+   */
+  public void addNode(String name, Matrix4d matrix, GltfMesh mesh) {
+    nodes.add(new GltfNode("node_" + nodes.size(), name, matrix, mesh));
+  }
+
+  /**
+   * Writes the glTF document as UTF-8 JSON, with the binary buffer embedded as a data URI.
+   *
+   * @param outputStream The stream to write to. It is flushed but not closed.
+   * @throws IOException if the document could not be written.
+   */
+  public void write(OutputStream outputStream) throws IOException {
+    byte[] body = buildBody();
+    writeJson(outputStream, body, false);
+  }
+
+  /**
+   * Writes the document as binary glTF, with the binary buffer appended to the JSON unencoded.
+   *
+   * @param outputStream The stream to write to. It is flushed but not closed.
+   * @throws IOException if the document could not be written.
+   * @see GlbPacker
+   */
+  public void writeBinary(OutputStream outputStream) throws IOException {
+    byte[] body = buildBody();
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    writeJson(content, body, true);
+    GlbPacker.write(outputStream, content.toByteArray(), body);
+  }
+
+  /**
+   * @return The glTF document as UTF-8 JSON.
+   * @throws IOException if the document could not be written.
+   */
+  public byte[] toByteArray() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    write(outputStream);
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * @return The document as binary glTF.
+   * @throws IOException if the document could not be written.
+   */
+  public byte[] toBinaryByteArray() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    writeBinary(outputStream);
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Writes the JSON of the glTF document.
+   *
+   * @param outputStream The stream to write to.
+   * @param body The binary buffer referenced by the document.
+   * @param binary Whether the buffer is the body of a binary glTF file, rather than a data URI.
+   */
+  private void writeJson(OutputStream outputStream, byte[] body, boolean binary)
+      throws IOException {
+    String bufferId = binary ? GlbPacker.BUFFER_ID : BUFFER_ID;
+    JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream);
+    generator.writeStartObject();
+
+    generator.writeObjectFieldStart("asset");
+    generator.writeStringField("generator", "ACS");
+    generator.writeStringField("version", "1.0");
+    generator.writeEndObject();
+
+    generator.writeStringField("scene", SCENE_ID);
+    generator.writeObjectFieldStart("scenes");
+    generator.writeObjectFieldStart(SCENE_ID);
+    generator.writeArrayFieldStart("nodes");
+    generator.writeString(ROOT_NODE_ID);
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.writeEndObject();
+
+    writeNodes(generator);
+    writeMeshes(generator);
+    writeAccessors(generator);
+    writeBufferViews(generator, bufferId);
+
+    generator.writeObjectFieldStart("buffers");
+    generator.writeObjectFieldStart(bufferId);
+    generator.writeNumberField("byteLength", body.length);
+    generator.writeStringField("type", "arraybuffer");
+    generator.writeStringField("uri", binary ? GlbPacker.EMPTY_URI : DATA_URI_PREFIX
+        + Base64.encodeBase64String(body));
+    generator.writeEndObject();
+    generator.writeEndObject();
+
+    writeMaterials(generator);
+
+    generator.writeArrayFieldStart("extensionsUsed");
+    generator.writeString(MATERIALS_EXTENSION);
+    if (binary) generator.writeString(GlbPacker.EXTENSION);
+    generator.writeEndArray();
+
+    generator.writeEndObject();
+    generator.flush();
+  }
+
+  /**
+   * Assigns each mesh and primitive its offset within the binary buffer, then writes the buffer.
+   * Vertex data is written first, followed by the index data, so that each can be described by a
+   * single buffer view.
+   *
+   * @return The little-endian binary buffer.
+   */
+  private byte[] buildBody() {
+    int offset = 0;
+    for (GltfMesh mesh : meshes) {
+      if (mesh.vertexMesh != mesh) {
+        continue;
+      }
+      mesh.positionOffset = offset;
+      offset += mesh.positions.length * 4;
+      if (mesh.normals != null) {
+        mesh.normalOffset = offset;
+        offset += mesh.normals.length * 4;
+      }
+    }
+    vertexByteLength = offset;
+    for (GltfMesh mesh : meshes) {
+      for (GltfPrimitive primitive : mesh.primitives) {
+        primitive.indexOffset = offset - vertexByteLength;
+        offset += primitive.indices.length * (mesh.hasShortIndices() ? 2 : 4);
+        // Keep the next accessor aligned to its component size.
+        offset += (4 - offset % 4) % 4;
+      }
+    }
+    indexByteLength = offset - vertexByteLength;
+
+    ByteBuffer buffer = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+    for (GltfMesh mesh : meshes) {
+      if (mesh.vertexMesh != mesh) {
+        continue;
+      }
+      for (float position : mesh.positions) {
+        buffer.putFloat(position);
+      }
+      if (mesh.normals != null) {
+        for (float normal : mesh.normals) {
+          buffer.putFloat(normal);
+        }
+      }
+    }
+    for (GltfMesh mesh : meshes) {
+      for (GltfPrimitive primitive : mesh.primitives) {
+        buffer.position(vertexByteLength + primitive.indexOffset);
+        for (int index : primitive.indices) {
+          if (mesh.hasShortIndices()) {
+            buffer.putShort((short) index);
+          } else {
+            buffer.putInt(index);
+          }
+        }
+      }
+    }
+    return buffer.array();
+  }
+
+  private void writeNodes(JsonGenerator generator) throws IOException {
+    generator.writeObjectFieldStart("nodes");
+    generator.writeObjectFieldStart(ROOT_NODE_ID);
+    writeMatrix(generator, rootMatrix);
+    generator.writeArrayFieldStart("children");
+    for (GltfNode node : nodes) {
+      generator.writeString(node.id);
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+
+    for (GltfNode node : nodes) {
+      generator.writeObjectFieldStart(node.id);
+      if (node.name != null) generator.writeStringField("name", node.name);
+      writeMatrix(generator, node.matrix);
+      generator.writeArrayFieldStart("meshes");
+      generator.writeString(node.mesh.id);
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeMeshes(JsonGenerator generator) throws IOException {
+    generator.writeObjectFieldStart("meshes");
+    for (GltfMesh mesh : meshes) {
+      generator.writeObjectFieldStart(mesh.id);
+      if (mesh.name != null) generator.writeStringField("name", mesh.name);
+      generator.writeArrayFieldStart("primitives");
+      for (int i = 0; i < mesh.primitives.size(); i++) {
+        GltfPrimitive primitive = mesh.primitives.get(i);
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("attributes");
+        String vertexMeshId = mesh.vertexMesh.id;
+        generator.writeStringField("POSITION", vertexMeshId + "_positions");
+        if (mesh.normals != null) generator.writeStringField("NORMAL", vertexMeshId + "_normals");
+        generator.writeEndObject();
+        generator.writeStringField("indices", mesh.id + "_indices_" + i);
+        generator.writeStringField("material", primitive.materialId);
+        generator.writeNumberField("mode", TRIANGLES);
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeAccessors(JsonGenerator generator) throws IOException {
+    generator.writeObjectFieldStart("accessors");
+    for (GltfMesh mesh : meshes) {
+      int vertexCount = mesh.positions.length / 3;
+      if (mesh.vertexMesh == mesh) {
+        generator.writeObjectFieldStart(mesh.id + "_positions");
+        writeAccessor(generator, VERTEX_VIEW_ID, mesh.positionOffset, 12, FLOAT, vertexCount,
+            "VEC3");
+        writeBounds(generator, mesh.positions);
+        generator.writeEndObject();
+      }
+      if (mesh.vertexMesh == mesh && mesh.normals != null) {
+        generator.writeObjectFieldStart(mesh.id + "_normals");
+        writeAccessor(generator, VERTEX_VIEW_ID, mesh.normalOffset, 12, FLOAT, vertexCount, "VEC3");
+        generator.writeEndObject();
+      }
+      for (int i = 0; i < mesh.primitives.size(); i++) {
+        GltfPrimitive primitive = mesh.primitives.get(i);
+        generator.writeObjectFieldStart(mesh.id + "_indices_" + i);
+        writeAccessor(generator, INDEX_VIEW_ID, primitive.indexOffset, 0,
+            mesh.hasShortIndices() ? UNSIGNED_SHORT : UNSIGNED_INT, primitive.indices.length,
+            "SCALAR");
+        generator.writeEndObject();
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeAccessor(JsonGenerator generator, String bufferViewId, int byteOffset,
+      int byteStride, int componentType, int count, String type) throws IOException {
+    generator.writeStringField("bufferView", bufferViewId);
+    generator.writeNumberField("byteOffset", byteOffset);
+    generator.writeNumberField("byteStride", byteStride);
+    generator.writeNumberField("componentType", componentType);
+    generator.writeNumberField("count", count);
+    generator.writeStringField("type", type);
+  }
+
+  /**
+   * Writes the minimum and maximum of each component of the given positions, which glTF requires
+   * for position accessors.
+   */
+  private void writeBounds(JsonGenerator generator, float[] positions) throws IOException {
+    float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+    float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+    for (int i = 0; i < positions.length; i++) {
+      min[i % 3] = Math.min(min[i % 3], positions[i]);
+      max[i % 3] = Math.max(max[i % 3], positions[i]);
+    }
+    generator.writeArrayFieldStart("min");
+    for (float value : min) {
+      generator.writeNumber(value);
+    }
+    generator.writeEndArray();
+    generator.writeArrayFieldStart("max");
+    for (float value : max) {
+      generator.writeNumber(value);
+    }
+    generator.writeEndArray();
+  }
+
+  private void writeBufferViews(JsonGenerator generator, String bufferId) throws IOException {
+    generator.writeObjectFieldStart("bufferViews");
+    generator.writeObjectFieldStart(VERTEX_VIEW_ID);
+    writeBufferView(generator, bufferId, 0, vertexByteLength, ARRAY_BUFFER);
+    generator.writeEndObject();
+    generator.writeObjectFieldStart(INDEX_VIEW_ID);
+    writeBufferView(generator, bufferId, vertexByteLength, indexByteLength, ELEMENT_ARRAY_BUFFER);
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+  private void writeBufferView(JsonGenerator generator, String bufferId, int byteOffset,
+      int byteLength, int target) throws IOException {
+    generator.writeStringField("buffer", bufferId);
+    generator.writeNumberField("byteOffset", byteOffset);
+    generator.writeNumberField("byteLength", byteLength);
+    generator.writeNumberField("target", target);
+  }
+
+  private void writeMaterials(JsonGenerator generator) throws IOException {
+    generator.writeObjectFieldStart("materials");
+    for (Map.Entry<String, String> entry : materialIds.entrySet()) {
+      String technique = entry.getKey().substring(0, entry.getKey().indexOf(':'));
+      float[] rgba = materialColors.get(entry.getValue()).getRGBComponents(null);
+      generator.writeObjectFieldStart(entry.getValue());
+      generator.writeObjectFieldStart("extensions");
+      generator.writeObjectFieldStart(MATERIALS_EXTENSION);
+      generator.writeStringField("technique", technique);
+      generator.writeBooleanField("transparent", rgba[3] < 1);
+      generator.writeObjectFieldStart("values");
+      generator.writeArrayFieldStart(technique.equals("CONSTANT") ? "emission" : "diffuse");
+      for (float component : rgba) {
+        generator.writeNumber(component);
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.writeEndObject();
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Writes a matrix as the column-major array expected by glTF.
+   */
+  private void writeMatrix(JsonGenerator generator, Matrix4d matrix) throws IOException {
+    generator.writeArrayFieldStart("matrix");
+    for (int column = 0; column < 4; column++) {
+      for (int row = 0; row < 4; row++) {
+        generator.writeNumber(matrix.getElement(row, column));
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  /**
+   * Gets the ID of the material with the given color, creating the material if necessary. Meshes
+   * without normals can't be lit, so they are given a constant material instead.
+   */
+  private String getMaterialId(Color color, boolean lit) {
+    String key = (lit ? "LAMBERT:" : "CONSTANT:") + color.getRGB();
+    String materialId = materialIds.get(key);
+    if (materialId == null) {
+      materialId = "material_" + materialIds.size();
+      materialIds.put(key, materialId);
+      materialColors.put(materialId, color);
+    }
+    return materialId;
+  }
+
+  /**
+   * A mesh in the glTF document, sharing its vertices between any number of primitives.
+   */
+  public class GltfMesh {
+    private final String id;
+    private final String name;
+    private final float[] positions;
+    private final float[] normals;
+    /** The mesh whose vertex accessors the primitives index, which may be this mesh. */
+    private final GltfMesh vertexMesh;
+    private final List<GltfPrimitive> primitives = new ArrayList<>();
+    private int positionOffset;
+    private int normalOffset;
+
+    private GltfMesh(String id, String name, float[] positions, float[] normals,
+        GltfMesh vertexMesh) {
+      this.id = id;
+      this.name = name;
+      this.positions = positions;
+      this.normals = normals;
+      this.vertexMesh = vertexMesh == null ? this : vertexMesh;
+    }
+
+    /**
+     * Adds a set of triangles to the mesh.
+     *
+     * @param indices The indices of the vertices of each triangle.
+     * @param color The color of the triangles.
+     */
+    public void addPrimitive(int[] indices, Color color) {
+      primitives.add(new GltfPrimitive(indices, getMaterialId(color, normals != null)));
+    }
+
+    private boolean hasShortIndices() {
+      return positions.length / 3 <= MAX_SHORT_INDEX;
+    }
+  }
+
+  /**
+   * A set of triangles within a mesh sharing a material.
+   */
+  private static class GltfPrimitive {
+    private final int[] indices;
+    private final String materialId;
+    private int indexOffset;
+
+    private GltfPrimitive(int[] indices, String materialId) {
+      this.indices = indices;
+      this.materialId = materialId;
+    }
+  }
+
+  /**
+   * A node of the document which renders a mesh with a transformation.
+   */
+  private static class GltfNode {
+    private final String id;
+    private final String name;
+    private final Matrix4d matrix;
+    private final GltfMesh mesh;
+
+    private GltfNode(String id, String name, Matrix4d matrix, GltfMesh mesh) {
+      this.id = id;
+      this.name = name;
+      this.matrix = matrix;
+      this.mesh = mesh;
+    }
+  }
+
+}
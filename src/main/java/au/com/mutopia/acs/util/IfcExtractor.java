@@ -1,9 +1,10 @@
 package au.com.mutopia.acs.util;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -16,14 +17,14 @@ import org.bimserver.interfaces.objects.SProject;
 import org.bimserver.interfaces.objects.SSerializerPluginConfiguration;
 import org.bimserver.shared.PublicInterfaceNotFoundException;
 import org.bimserver.shared.exceptions.ServiceException;
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.type.MapType;
 
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.transform.CodecRegistry;
+
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 
-import flexjson.JSONDeserializer;
-
 /**
  * Sends requests to BIMserver to extract IFC geometries as COLLADA models.
  */
@@ -40,25 +41,48 @@ public class IfcExtractor {
    */
   Map<String, Object> jsonGeometries;
 
-  /**
-   * BIMserver client factory using pre-configured authentication information.
-   */
-  private BimServerAuthenticator authenticator;
+  /** The pool of logged in BIMserver sessions. */
+  private BimServerClientPool clientPool;
+
+  /** The shared JSON readers. */
+  private final CodecRegistry codecs;
+
+  /** The type of the JSON geometry, with a list of geometry objects by name. */
+  private static final TypeReference<Map<String, List<Map<String, Object>>>> JSON_GEOMETRY_TYPE =
+      new TypeReference<Map<String, List<Map<String, Object>>>>() {};
 
   @Inject
-  public IfcExtractor(BimServerAuthenticator authenticator) {
-    this.authenticator = authenticator;
+  public IfcExtractor(BimServerClientPool clientPool, CodecRegistry codecs) {
+    this.clientPool = clientPool;
+    this.codecs = codecs;
   }
 
   /**
-   * Extracts the geometry from the IFC file.
+   * Extracts the geometry from the IFC file, streaming the JSON downloaded from BIMserver to a
+   * file rather than holding it in memory.
    * 
    * @param ifcFile The IFC file to convert.
-   * @return The extracted geometry as the bytes of a JSON string.
+   * @param jsonFile The file to write the extracted geometry to as JSON.
+   * @throws ConversionException if BIMserver could not be connected to or failed to extract the
+   *         geometry.
    */
-  public byte[] extractJson(File ifcFile) {
-    BimServerClient client = authenticator.connectToBimServer();
-    return getJsonGeometry(client, ifcFile);
+  public void extractJson(File ifcFile, File jsonFile) throws ConversionException {
+    BimServerClient client = clientPool.borrow();
+    boolean extracted = false;
+    try {
+      extracted = downloadJsonGeometry(client, ifcFile, jsonFile);
+    } finally {
+      // A failed request may have left the session unusable, so don't reuse it.
+      if (extracted) {
+        clientPool.release(client);
+      } else {
+        clientPool.invalidate(client);
+      }
+    }
+    if (!extracted) {
+      throw new ConversionException("Failed to extract the geometry of " + ifcFile
+          + " with BIMserver");
+    }
   }
 
   /**
@@ -67,9 +91,10 @@ public class IfcExtractor {
    *
    * @param client The {@link BimServerClient} to access the BIMserver API with.
    * @param ifcFile The IFC file to be converted.
-   * @return Json Geometry string converted from the IFC file.
+   * @param jsonFile The file to write the Json Geometry converted from the IFC file to.
+   * @return Whether the geometry was written to the file.
    */
-  private byte[] getJsonGeometry(BimServerClient client, File ifcFile) {
+  private boolean downloadJsonGeometry(BimServerClient client, File ifcFile, File jsonFile) {
     try {
       // Create a temporary project to upload the IFC file to.
       SProject newProject = client.getBimsie1ServiceInterface().addProject("test" + Math.random());
@@ -85,7 +110,7 @@ public class IfcExtractor {
           client.getBimsie1ServiceInterface().getSerializerByName(JSON_SERIALIZER_NAME);
       if (jsonIfcGeomSerializer == null) {
         log.debug("jsonIfcGeomSerializer is null");
-        return null;
+        return false;
       }
 
       // Find a serializer plugin.
@@ -99,7 +124,6 @@ public class IfcExtractor {
       newProject = client.getBimsie1ServiceInterface().getProjectByPoid(newProject.getOid());
 
       // Download the latest revision (the one we just checked in).
-      // Convert the data to Json string.
       Long downloadId =
           client.getBimsie1ServiceInterface().download(newProject.getLastRevisionId(),
               jsonGeometrySerializerSerializer.getOid(), true, false); // Note: sync: false
@@ -108,14 +132,18 @@ public class IfcExtractor {
 
       client.getBimsie1ServiceInterface().deleteProject(newProject.getOid());
 
-      byte[] result = IOUtils.toByteArray(downloadData);
-      log.debug("Size of Result: " + result.length);
-      return result;
+      try (OutputStream out = new FileOutputStream(jsonFile)) {
+        IOUtils.copy(downloadData, out);
+      } finally {
+        downloadData.close();
+      }
+      log.debug("Size of Result: " + jsonFile.length());
+      return true;
     } catch (PublicInterfaceNotFoundException | ServiceException | IOException e) {
       log.error(e);
     }
 
-    return null;
+    return false;
   }
 
   /**
@@ -157,24 +185,20 @@ public class IfcExtractor {
           client.getBimsie1ServiceInterface().getSerializerByName("SceneJsShellSerializer");
 
       // Download the latest revision (the one we just checked in).
-      // Convert the data to Json string.
       Long jsonGeomId =
           client.getBimsie1ServiceInterface().download(newProject.getLastRevisionId(),
               jsonGeometrySerializerSerializer.getOid(), true, false); // Note: sync: false
       InputStream jsonGeometryInput =
           client.getDownloadData(jsonGeomId, jsonGeometrySerializerSerializer.getOid());
-      String jsonGeometry = IOUtils.toString(jsonGeometryInput, Charset.defaultCharset().name());
-
-      Long sceneJsId =
-          client.getBimsie1ServiceInterface().download(newProject.getLastRevisionId(),
-              sceneJsSerializerSerializer.getOid(), true, false); // Note: sync: false
-      InputStream sceneJsInput =
-          client.getDownloadData(sceneJsId, sceneJsSerializerSerializer.getOid());
-      String sceneJs = IOUtils.toString(sceneJsInput, Charset.defaultCharset().name());
 
-      List<Map<String, Object>> deserializedJsonContent =
-          new JSONDeserializer<Map<String, List<Map<String, Object>>>>().deserialize(jsonGeometry)
-              .get("geometry");
+      // Read the download directly from the stream, without buffering it as a string.
+      Map<String, List<Map<String, Object>>> jsonGeometry;
+      try {
+        jsonGeometry = codecs.getJsonReader(JSON_GEOMETRY_TYPE).readValue(jsonGeometryInput);
+      } finally {
+        jsonGeometryInput.close();
+      }
+      List<Map<String, Object>> deserializedJsonContent = jsonGeometry.get("geometry");
       if (deserializedJsonContent != null) {
         for (Map<String, Object> sample : deserializedJsonContent) {
           if (!sample.isEmpty()) {
@@ -183,10 +207,18 @@ public class IfcExtractor {
         }
       }
 
-      ObjectMapper mapper = new ObjectMapper();
-      MapType mapType =
-          mapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class);
-      Map<String, Object> deserializedSceneJs = mapper.readValue(sceneJs, mapType);
+      Long sceneJsId =
+          client.getBimsie1ServiceInterface().download(newProject.getLastRevisionId(),
+              sceneJsSerializerSerializer.getOid(), true, false); // Note: sync: false
+      InputStream sceneJsInput =
+          client.getDownloadData(sceneJsId, sceneJsSerializerSerializer.getOid());
+
+      Map<String, Object> deserializedSceneJs;
+      try {
+        deserializedSceneJs = codecs.getJsonMapReader().readValue(sceneJsInput);
+      } finally {
+        sceneJsInput.close();
+      }
       Map<String, Object> sceneJsData = (Map<String, Object>) deserializedSceneJs.get("data");
       for (Map<String, Object> ifcObject : (List<Map<String, Object>>) sceneJsData
           .get("relationships")) {
@@ -0,0 +1,158 @@
+package au.com.mutopia.acs.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Stores the JSON geometry which BIMserver extracted from IFC files in temporary files, keyed by
+ * the SHA-256 hash of the IFC file, so that converting the same file again skips checking it in to
+ * BIMserver. The geometry of a file is deleted once it is older than the retention period, but
+ * remains readable through streams opened before then, since the file is only unlinked.
+ */
+@Log4j
+public class IfcGeometryStore {
+
+  /** The directory containing the geometry of each IFC file. */
+  private final File rootDir;
+
+  /** How long to keep the geometry of an IFC file, in milliseconds. */
+  private final long retentionMillis;
+
+  /** Map of IFC file hashes to the time at which their geometry was stored. */
+  private final Map<String, Long> storedTimes = new ConcurrentHashMap<>();
+
+  /**
+   * @param rootDir The directory in which to store the geometry, which may be null if the store is
+   *        disabled.
+   * @param retentionMillis How long to keep the geometry of an IFC file, in milliseconds. If 0,
+   *        the store is disabled and no geometry is stored.
+   */
+  public IfcGeometryStore(File rootDir, long retentionMillis) {
+    this.rootDir = rootDir;
+    this.retentionMillis = retentionMillis;
+  }
+
+  /**
+   * @return Whether geometry is stored at all. If not, IFC files need not be hashed.
+   */
+  public boolean isEnabled() {
+    return retentionMillis > 0;
+  }
+
+  /**
+   * Periodically deletes expired geometry, so that the geometry of large IFC files does not stay
+   * on disk until the next IFC file is converted.
+   *
+   * @param executor The executor to run the deletion on.
+   * @param period The time between deletions.
+   * @param unit The unit of the period.
+   * @return The scheduled deletion task, which can be cancelled.
+   */
+  public ScheduledFuture<?> scheduleExpiry(ScheduledExecutorService executor, long period,
+      TimeUnit unit) {
+    return executor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        removeExpiredGeometry();
+      }
+    }, period, period, unit);
+  }
+
+  /**
+   * @param ifcFile An IFC file.
+   * @return The hash identifying the content of the IFC file.
+   * @throws IOException if the file could not be read.
+   */
+  public String hash(File ifcFile) throws IOException {
+    return Files.hash(ifcFile, Hashing.sha256()).toString();
+  }
+
+  /**
+   * Stores a copy of the geometry extracted from an IFC file. Failures are logged and ignored,
+   * since the geometry can always be extracted again.
+   *
+   * @param hash The hash of the IFC file, from {@link #hash(File)}.
+   * @param jsonFile The file containing the geometry as JSON.
+   */
+  public void store(String hash, File jsonFile) {
+    removeExpiredGeometry();
+    if (!isEnabled()) {
+      return;
+    }
+    File geometryFile = getGeometryFile(hash);
+    // Write to a separate file first so that concurrent reads never see part of the geometry.
+    File partFile = new File(rootDir, hash + "." + Thread.currentThread().getId() + ".part");
+    try {
+      FileUtils.copyFile(jsonFile, partFile);
+      if (!partFile.renameTo(geometryFile)) {
+        FileUtils.copyFile(partFile, geometryFile);
+      }
+      storedTimes.put(hash, System.currentTimeMillis());
+    } catch (IOException e) {
+      log.warn("Failed to store IFC geometry " + hash, e);
+    } finally {
+      FileUtils.deleteQuietly(partFile);
+    }
+  }
+
+  /**
+   * Opens the stored geometry of an IFC file. The stream can be read to the end even if the
+   * geometry expires in the meantime.
+   *
+   * @param hash The hash of the IFC file, from {@link #hash(File)}.
+   * @return A stream of the geometry as JSON, which the caller must close, or null if it was not
+   *         stored or has expired.
+   */
+  public InputStream get(String hash) {
+    removeExpiredGeometry();
+    if (!storedTimes.containsKey(hash)) {
+      return null;
+    }
+    try {
+      return new FileInputStream(getGeometryFile(hash));
+    } catch (FileNotFoundException e) {
+      // The geometry expired after it was checked.
+      return null;
+    }
+  }
+
+  /**
+   * @return The file containing the geometry of the IFC file with the given hash.
+   */
+  private File getGeometryFile(String hash) {
+    return new File(rootDir, hash + ".json");
+  }
+
+  /**
+   * Deletes the geometry of all IFC files stored before the retention period.
+   */
+  private void removeExpiredGeometry() {
+    long expiryTime = System.currentTimeMillis() - retentionMillis;
+    Iterator<Map.Entry<String, Long>> iterator = storedTimes.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Long> geometry = iterator.next();
+      if (geometry.getValue() < expiryTime) {
+        iterator.remove();
+        log.debug("Removing expired IFC geometry " + geometry.getKey());
+        FileUtils.deleteQuietly(getGeometryFile(geometry.getKey()));
+      }
+    }
+  }
+
+}
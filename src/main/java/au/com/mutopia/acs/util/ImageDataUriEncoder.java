@@ -0,0 +1,98 @@
+package au.com.mutopia.acs.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Encodes image files as Base64 data URIs typed by their file extension, caching the encodings by
+ * the content hash of each file so that textures shared by several models (e.g. in a KMZ) are only
+ * encoded once.
+ *
+ * Instances are not thread safe, and are intended to live for a single conversion request.
+ */
+public class ImageDataUriEncoder {
+
+  /** The media type of images whose type is not known from their file extension. */
+  private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+  /** Image MIME types by lower case file extension. */
+  private static final Map<String, String> IMAGE_MIME_TYPES = ImmutableMap.<String, String>builder()
+      .put("png", "image/png").put("jpg", "image/jpeg").put("jpeg", "image/jpeg")
+      .put("gif", "image/gif").put("tif", "image/tiff").put("tiff", "image/tiff").build();
+
+  /** Map of canonical file paths to the hashes of their contents. */
+  private final Map<String, String> hashesByPath = new HashMap<>();
+
+  /** Map of content hashes to the data URIs of files with that content. */
+  private final Map<String, String> dataUrisByHash = new HashMap<>();
+
+  /**
+   * Gets the data URI of an image file, encoding it only if no file with the same content has been
+   * encoded before.
+   *
+   * @param imageFile The image file to encode.
+   * @return The Base64-encoded data URI of the file contents.
+   * @throws IOException if the file could not be read.
+   */
+  public String encode(File imageFile) throws IOException {
+    String path = imageFile.getCanonicalPath();
+    String hash = hashesByPath.get(path);
+    if (hash == null) {
+      hash = Files.hash(imageFile, Hashing.sha1()).toString();
+      hashesByPath.put(path, hash);
+    }
+    String dataUri = dataUrisByHash.get(hash);
+    if (dataUri == null) {
+      dataUri = encodeFile(imageFile);
+      dataUrisByHash.put(hash, dataUri);
+    }
+    return dataUri;
+  }
+
+  /**
+   * @param path The path or URI of an image file.
+   * @return The MIME type of the image given by its file extension, or null if it is not a known
+   *         image extension.
+   */
+  public static String getMimeType(String path) {
+    return IMAGE_MIME_TYPES.get(FilenameUtils.getExtension(path).toLowerCase());
+  }
+
+  /**
+   * Streams the contents of a file through a Base64 encoder into a data URI, without holding the
+   * unencoded bytes in memory.
+   */
+  private String encodeFile(File file) throws IOException {
+    String mimeType = getMimeType(file.getName());
+    String prefix = "data:" + (mimeType == null ? DEFAULT_MIME_TYPE : mimeType) + ";base64,";
+    long encodedLength = prefix.length() + (file.length() + 2) / 3 * 4;
+    ByteArrayOutputStream dataUri = new ByteArrayOutputStream((int) encodedLength);
+    dataUri.write(prefix.getBytes(Charsets.US_ASCII));
+    InputStream inputStream = new FileInputStream(file);
+    // A line length of 0 disables chunking of the encoded output.
+    OutputStream base64Stream = new Base64OutputStream(dataUri, true, 0, null);
+    try {
+      IOUtils.copy(inputStream, base64Stream);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+      base64Stream.close();
+    }
+    return dataUri.toString(Charsets.US_ASCII.name());
+  }
+
+}
@@ -0,0 +1,325 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.extern.log4j.Log4j;
+
+import com.vividsolutions.jts.algorithm.CGAlgorithms;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Builds the 2D footprint of a mesh from its flat (horizontal) triangles in near-linear time.
+ *
+ * The flat triangles are grouped by height. The outline of each group is traced from its boundary
+ * edges (those belonging to exactly one triangle), rather than by unioning the triangles one at a
+ * time. If the triangles of a group overlap or don't share their edges exactly, the traced outline
+ * is not valid, and the group falls back to a {@link PartitionedUnion} of its triangles.
+ */
+@Log4j
+public class FootprintBuilder {
+
+  /**
+   * The ways of building the footprint of each group of triangles at the same height.
+   */
+  public enum Mode {
+    /** Trace the outline from boundary edges, falling back to a union of the triangles. */
+    BOUNDARY_EDGES,
+    /** Always union the triangles. */
+    UNION
+  }
+
+  /** The relative difference allowed between the area of an outline and of its triangles. */
+  private static final double AREA_TOLERANCE = 1e-6;
+
+  private final GeometryFactory geometryFactory;
+
+  private final Mode mode;
+
+  private final PartitionedUnion union;
+
+  /**
+   * Creates a builder which traces outlines from boundary edges, and unions sequentially.
+   *
+   * @param geometryFactory The factory used to create the footprint geometries.
+   */
+  public FootprintBuilder(GeometryFactory geometryFactory) {
+    this(geometryFactory, Mode.BOUNDARY_EDGES, new PartitionedUnion());
+  }
+
+  /**
+   * @param geometryFactory The factory used to create the footprint geometries.
+   * @param mode The way of building the footprint of each group of triangles.
+   * @param union The union used for triangles without a traceable outline, and between groups.
+   */
+  public FootprintBuilder(GeometryFactory geometryFactory, Mode mode, PartitionedUnion union) {
+    this.geometryFactory = geometryFactory;
+    this.mode = mode;
+    this.union = union;
+  }
+
+  /**
+   * Builds the footprint of the flat triangles of a mesh.
+   *
+   * @param positions The array of positions forming the mesh.
+   * @param triangles The array of triangle indices forming the mesh.
+   * @return A {@link Polygon} or {@link com.vividsolutions.jts.geom.MultiPolygon} footprint, or
+   *         null if the mesh has no flat triangles.
+   */
+  public Geometry build(double[] positions, int[] triangles) {
+    Map<Double, Set<Triangle>> levels = new LinkedHashMap<>();
+    for (int i = 0; i + 2 < triangles.length; i += 3) {
+      int pos1 = triangles[i] * 3;
+      int pos2 = triangles[i + 1] * 3;
+      int pos3 = triangles[i + 2] * 3;
+      double z = positions[pos1 + 2];
+      // Only flat-surface triangles contribute to the footprint.
+      if (z != positions[pos2 + 2] || z != positions[pos3 + 2]) {
+        continue;
+      }
+      // Adding 0.0 turns -0.0 into 0.0, which would otherwise hash differently.
+      Set<Triangle> level = levels.get(z + 0.0);
+      if (level == null) {
+        level = new LinkedHashSet<>();
+        levels.put(z + 0.0, level);
+      }
+      level.add(new Triangle(createPoint(positions, pos1), createPoint(positions, pos2),
+          createPoint(positions, pos3)));
+    }
+
+    List<Geometry> footprints = new ArrayList<>();
+    for (Set<Triangle> level : levels.values()) {
+      Geometry footprint = buildLevel(level);
+      if (footprint != null && !footprint.isEmpty()) {
+        footprints.add(footprint);
+      }
+    }
+    if (footprints.isEmpty()) {
+      return null;
+    }
+    return footprints.size() == 1 ? footprints.get(0) : union.union(footprints);
+  }
+
+  /**
+   * Builds the footprint of triangles at the same height, falling back to a union if the outline
+   * can't be traced.
+   */
+  private Geometry buildLevel(Collection<Triangle> triangles) {
+    if (mode == Mode.BOUNDARY_EDGES) {
+      Geometry outline = traceOutline(triangles);
+      if (outline != null) {
+        return outline;
+      }
+      log.debug("Unable to trace footprint outline, falling back to union of " + triangles.size()
+          + " triangles");
+    }
+    List<Polygon> polygons = new ArrayList<>();
+    for (Triangle triangle : triangles) {
+      if (getSignedArea(triangle) != 0) {
+        polygons.add(geometryFactory.createPolygon(triangle.getCoordinates()));
+      }
+    }
+    return union.union(polygons);
+  }
+
+  /**
+   * Traces the outline of a set of triangles from the edges which only belong to one triangle.
+   *
+   * @return The outline, or null if the triangles don't form a valid outline.
+   */
+  private Geometry traceOutline(Collection<Triangle> triangles) {
+    Map<Point2D, Integer> vertexIds = new HashMap<>();
+    List<Point2D> vertices = new ArrayList<>();
+    // Map of undirected edge keys to the number of triangles sharing the edge.
+    Map<Long, Integer> edgeCounts = new HashMap<>();
+    // Map of undirected edge keys to the edge as directed by the first triangle containing it.
+    Map<Long, Long> directedEdges = new HashMap<>();
+    double triangleArea = 0;
+
+    for (Triangle triangle : triangles) {
+      double area = getSignedArea(triangle);
+      if (area == 0) {
+        continue;
+      }
+      int v1 = getVertexId(triangle.getVertex1(), vertexIds, vertices);
+      int v2 = getVertexId(triangle.getVertex2(), vertexIds, vertices);
+      int v3 = getVertexId(triangle.getVertex3(), vertexIds, vertices);
+      // Wind every triangle counter-clockwise, so that shells and holes can be told apart.
+      if (area < 0) {
+        int swap = v2;
+        v2 = v3;
+        v3 = swap;
+      }
+      triangleArea += Math.abs(area);
+      addEdge(v1, v2, edgeCounts, directedEdges);
+      addEdge(v2, v3, edgeCounts, directedEdges);
+      addEdge(v3, v1, edgeCounts, directedEdges);
+    }
+    if (triangleArea == 0) {
+      return null;
+    }
+
+    Map<Integer, Deque<Integer>> boundary = new LinkedHashMap<>();
+    for (Map.Entry<Long, Integer> edgeCount : edgeCounts.entrySet()) {
+      if (edgeCount.getValue() != 1) {
+        continue;
+      }
+      long edge = directedEdges.get(edgeCount.getKey());
+      int from = (int) (edge >>> 32);
+      Deque<Integer> next = boundary.get(from);
+      if (next == null) {
+        next = new ArrayDeque<>();
+        boundary.put(from, next);
+      }
+      next.add((int) edge);
+    }
+
+    List<LinearRing> shells = new ArrayList<>();
+    List<LinearRing> holes = new ArrayList<>();
+    for (int start : new ArrayList<>(boundary.keySet())) {
+      while (!boundary.get(start).isEmpty()) {
+        List<Coordinate> ring = new ArrayList<>();
+        int current = start;
+        do {
+          ring.add(createCoordinate(vertices.get(current)));
+          Deque<Integer> next = boundary.get(current);
+          if (next == null || next.isEmpty()) {
+            // The boundary edges don't form closed rings (e.g. at a T-junction).
+            return null;
+          }
+          current = next.poll();
+        } while (current != start);
+        ring.add(createCoordinate(vertices.get(start)));
+        if (ring.size() < 4) {
+          return null;
+        }
+        Coordinate[] coordinates = ring.toArray(new Coordinate[ring.size()]);
+        LinearRing linearRing = geometryFactory.createLinearRing(coordinates);
+        if (CGAlgorithms.isCCW(coordinates)) {
+          shells.add(linearRing);
+        } else {
+          holes.add(linearRing);
+        }
+      }
+    }
+
+    Geometry outline = createPolygons(shells, holes);
+    if (outline == null || !outline.isValid()
+        || Math.abs(outline.getArea() - triangleArea) > AREA_TOLERANCE * triangleArea) {
+      return null;
+    }
+    return outline;
+  }
+
+  /**
+   * Creates polygons from shells and holes, assigning each hole to the smallest shell which
+   * contains it.
+   *
+   * @return A {@link Polygon}, a {@link com.vividsolutions.jts.geom.MultiPolygon} if there are
+   *         several shells, or null if a hole is outside every shell.
+   */
+  private Geometry createPolygons(List<LinearRing> shells, List<LinearRing> holes) {
+    if (shells.isEmpty()) {
+      return null;
+    }
+    List<List<LinearRing>> shellHoles = new ArrayList<>();
+    double[] shellAreas = new double[shells.size()];
+    for (int i = 0; i < shells.size(); i++) {
+      shellHoles.add(new ArrayList<LinearRing>());
+      shellAreas[i] = Math.abs(CGAlgorithms.signedArea(shells.get(i).getCoordinates()));
+    }
+    for (LinearRing hole : holes) {
+      int shellIndex = -1;
+      for (int i = 0; i < shells.size(); i++) {
+        boolean smaller = shellIndex < 0 || shellAreas[i] < shellAreas[shellIndex];
+        if (smaller && shells.get(i).getEnvelopeInternal().covers(hole.getEnvelopeInternal())
+            && CGAlgorithms.isPointInRing(getInteriorCoordinate(hole),
+                shells.get(i).getCoordinates())) {
+          shellIndex = i;
+        }
+      }
+      if (shellIndex < 0) {
+        return null;
+      }
+      shellHoles.get(shellIndex).add(hole);
+    }
+    Polygon[] polygons = new Polygon[shells.size()];
+    for (int i = 0; i < shells.size(); i++) {
+      List<LinearRing> rings = shellHoles.get(i);
+      polygons[i] =
+          geometryFactory.createPolygon(shells.get(i), rings.toArray(new LinearRing[rings.size()]));
+    }
+    return polygons.length == 1 ? polygons[0] : geometryFactory.createMultiPolygon(polygons);
+  }
+
+  /**
+   * @return The midpoint of the first edge of a ring, which avoids testing a vertex shared with a
+   *         touching shell.
+   */
+  private Coordinate getInteriorCoordinate(LinearRing ring) {
+    Coordinate start = ring.getCoordinateN(0);
+    Coordinate end = ring.getCoordinateN(1);
+    return new Coordinate((start.x + end.x) / 2, (start.y + end.y) / 2);
+  }
+
+  /**
+   * Counts an undirected edge between two vertices, remembering its first direction.
+   */
+  private void addEdge(int from, int to, Map<Long, Integer> edgeCounts,
+      Map<Long, Long> directedEdges) {
+    long key = from < to ? ((long) from << 32) | to : ((long) to << 32) | from;
+    Integer count = edgeCounts.get(key);
+    if (count == null) {
+      edgeCounts.put(key, 1);
+      directedEdges.put(key, ((long) from << 32) | to);
+    } else {
+      edgeCounts.put(key, count + 1);
+    }
+  }
+
+  /**
+   * @return The ID of a vertex, adding it if it is new.
+   */
+  private int getVertexId(Point2D vertex, Map<Point2D, Integer> vertexIds, List<Point2D> vertices) {
+    Integer id = vertexIds.get(vertex);
+    if (id == null) {
+      id = vertices.size();
+      vertexIds.put(vertex, id);
+      vertices.add(vertex);
+    }
+    return id;
+  }
+
+  /**
+   * @return The signed area of a triangle, which is positive if it is counter-clockwise.
+   */
+  private double getSignedArea(Triangle triangle) {
+    Point2D a = triangle.getVertex1();
+    Point2D b = triangle.getVertex2();
+    Point2D c = triangle.getVertex3();
+    return ((b.getX() - a.getX()) * (c.getY() - a.getY())
+        - (c.getX() - a.getX()) * (b.getY() - a.getY())) / 2;
+  }
+
+  private Point2D createPoint(double[] positions, int offset) {
+    return new Point2D.Double(positions[offset] + 0.0, positions[offset + 1] + 0.0);
+  }
+
+  private Coordinate createCoordinate(Point2D point) {
+    return new Coordinate(point.getX(), point.getY());
+  }
+
+}
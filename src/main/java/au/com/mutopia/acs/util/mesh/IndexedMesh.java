@@ -0,0 +1,46 @@
+package au.com.mutopia.acs.util.mesh;
+
+import lombok.Getter;
+
+/**
+ * A triangle mesh stored as primitive arrays: the (x, y, z) values of each vertex position, the
+ * (x, y, z) components of each vertex normal, and three vertex indices for each triangle.
+ */
+@Getter
+public class IndexedMesh {
+
+  /** The (x, y, z) values of each vertex position. */
+  private final double[] positions;
+
+  /** The (x, y, z) components of each vertex normal, or null if the mesh has no normals. */
+  private final float[] normals;
+
+  /** The indices of the three vertices of each triangle. */
+  private final int[] triangles;
+
+  /**
+   * @param positions The (x, y, z) values of each vertex position.
+   * @param normals The (x, y, z) components of each vertex normal, or null if there are none.
+   * @param triangles The indices of the three vertices of each triangle.
+   */
+  public IndexedMesh(double[] positions, float[] normals, int[] triangles) {
+    this.positions = positions;
+    this.normals = normals;
+    this.triangles = triangles;
+  }
+
+  /**
+   * @return The number of vertices in the mesh.
+   */
+  public int getVertexCount() {
+    return positions.length / 3;
+  }
+
+  /**
+   * @return The number of triangles in the mesh.
+   */
+  public int getTriangleCount() {
+    return triangles.length / 3;
+  }
+
+}
@@ -0,0 +1,362 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.util.Arrays;
+
+import au.com.mutopia.acs.models.c3ml.CompressedMesh;
+
+/**
+ * Compresses the positions, normals and triangles of a mesh into a {@link CompressedMesh}.
+ *
+ * The connectivity is coded by traversing the triangles across their edges, as in Edgebreaker.
+ * Each component starts with a triangle whose three vertices are coded explicitly. The edges of
+ * each coded triangle are then pushed onto a stack of gates, and for each gate popped from the
+ * stack a symbol tells whether the triangle across it is coded next, and whether its third vertex
+ * is new (in which case its position and normal follow) or an earlier vertex (in which case the
+ * distance back to it follows). The vertices are numbered in the order they are first coded.
+ *
+ * Positions are quantized within the bounding box of the mesh, and the position of each new vertex
+ * across a gate is predicted to complete the parallelogram of the gate's triangle, so only the
+ * small difference is coded. Normals are octahedral encoded and predicted by the normal of a
+ * vertex of the gate. The symbols and differences are entropy coded with a {@link RangeEncoder},
+ * with separate adaptive contexts for each kind of value.
+ *
+ * The triangles of each range given by triangle offsets (e.g. the entities of a batch) are
+ * traversed separately and coded in order, so the ranges keep their offsets, although the order
+ * and first vertex of the triangles within each range change.
+ *
+ * @see <a href="https://www.cc.gatech.edu/~jarek/papers/EdgeBreaker.pdf">Edgebreaker:
+ *      Connectivity compression for triangle meshes</a>
+ */
+public class MeshCompressor {
+
+  /** The number of bits of quantized positions by default, about 1 mm for a 16 m bounding box. */
+  public static final int DEFAULT_POSITION_BITS = 14;
+
+  /** The most bits of quantized positions, so that their differences fit in an int. */
+  public static final int MAX_POSITION_BITS = 30;
+
+  /** The gate symbol context of a gate without a triangle across it. */
+  static final int GATE_NONE = 0;
+
+  /** The gate symbol context of a gate with a triangle with a new vertex across it. */
+  static final int GATE_NEW = 1;
+
+  /** The gate symbol context of a gate with a triangle with an earlier vertex across it. */
+  static final int GATE_EARLIER = 2;
+
+  private final double[] positions;
+
+  private final byte[] normals;
+
+  private final int[] triangles;
+
+  private final int vertexCount;
+
+  /** The corners of each vertex, i.e. the indices in {@link #triangles} of the vertex. */
+  private final int[] vertexCorners;
+
+  /** The offset in {@link #vertexCorners} of the corners of each vertex. */
+  private final int[] vertexCornerOffsets;
+
+  /** The new index of each vertex, in the order they are coded, or -1 if not yet coded. */
+  private int[] vertexIndices;
+
+  private RangeEncoder encoder;
+
+  private int[] quantized;
+
+  private int codedVertexCount;
+
+  /** The index of the last new vertex coded at the start of a component, or -1. */
+  private int lastStartVertex;
+
+  /** Whether a triangle is coded across a gate, in the context of the previous gate. */
+  private short[] gateModel;
+
+  /** Whether a vertex is new, in the context of the previous gate or of a component start. */
+  private short[] newVertexModel;
+
+  private short[] earlierVertexModel;
+
+  /** The differences of the positions of the vertices starting components, on each axis. */
+  private short[][] deltaModels;
+
+  /** The differences from their parallelogram predictions of the positions, on each axis. */
+  private short[][] parallelogramModels;
+
+  /** The differences of the two components of the encoded normals. */
+  private short[][] normalModels;
+
+  private short[] countModel;
+
+  /**
+   * @param positions The (x, y, z) values of each vertex position.
+   * @param normals The (x, y, z) components of each vertex normal, or null if there are none.
+   * @param triangles The indices of the three vertices of each triangle.
+   */
+  public MeshCompressor(double[] positions, float[] normals, int[] triangles) {
+    this.positions = positions;
+    this.normals = normals == null ? null : MeshQuantizer.encodeNormals(normals);
+    this.triangles = triangles;
+    this.vertexCount = positions.length / 3;
+    int[] counts = new int[vertexCount + 1];
+    for (int vertex : triangles) {
+      counts[vertex + 1]++;
+    }
+    for (int i = 0; i < vertexCount; i++) {
+      counts[i + 1] += counts[i];
+    }
+    this.vertexCornerOffsets = counts.clone();
+    this.vertexCorners = new int[triangles.length];
+    for (int corner = 0; corner < triangles.length; corner++) {
+      vertexCorners[counts[triangles[corner]]++] = corner;
+    }
+  }
+
+  /**
+   * Compresses the mesh.
+   *
+   * @param positionBits The number of bits of the quantized positions on each axis.
+   * @param triangleOffsets The index of the first triangle of each range of triangles to keep in
+   *        order, or null to compress the triangles as a single range.
+   * @return The compressed mesh.
+   */
+  public CompressedMesh compress(int positionBits, int[] triangleOffsets) {
+    if (positionBits < 1 || positionBits > MAX_POSITION_BITS) {
+      throw new IllegalArgumentException("Invalid number of position bits: " + positionBits);
+    }
+    CompressedMesh mesh = new CompressedMesh();
+    mesh.setVertexCount(vertexCount);
+    mesh.setTriangleCount(triangles.length / 3);
+    mesh.setPositionBits(positionBits);
+    quantizePositions(positionBits, mesh);
+
+    encoder = new RangeEncoder();
+    gateModel = RangeEncoder.createModel(3);
+    newVertexModel = RangeEncoder.createModel(4);
+    earlierVertexModel = RangeEncoder.createModel(RangeEncoder.UNSIGNED_MODEL_SIZE);
+    deltaModels = createModels(3);
+    parallelogramModels = createModels(3);
+    normalModels = createModels(2);
+    countModel = RangeEncoder.createModel(RangeEncoder.UNSIGNED_MODEL_SIZE);
+    vertexIndices = new int[vertexCount];
+    Arrays.fill(vertexIndices, -1);
+    codedVertexCount = 0;
+    lastStartVertex = -1;
+    encoder.encodeDirectBits(normals == null ? 0 : 1, 1);
+    int[] offsets = triangleOffsets == null ? new int[] {0} : triangleOffsets;
+    encoder.encodeUnsigned(countModel, offsets.length);
+    for (int i = 0; i < offsets.length; i++) {
+      int end = i + 1 < offsets.length ? offsets[i + 1] : triangles.length / 3;
+      encoder.encodeUnsigned(countModel, end - offsets[i]);
+    }
+    boolean[] visited = new boolean[triangles.length / 3];
+    for (int i = 0; i < offsets.length; i++) {
+      int end = i + 1 < offsets.length ? offsets[i + 1] : triangles.length / 3;
+      traverse(offsets[i], end, visited);
+    }
+    // Vertices which no triangle uses are coded last, in their original order.
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (vertexIndices[vertex] == -1) {
+        encodeStartVertex(vertex);
+      }
+    }
+    mesh.setData(encoder.finish());
+    encoder = null;
+    return mesh;
+  }
+
+  /**
+   * @return The new index of each vertex of the mesh, in the order of the last compressed mesh,
+   *         e.g. to renumber other triangles indexing the same vertices.
+   */
+  public int[] getVertexIndices() {
+    return vertexIndices;
+  }
+
+  /**
+   * Codes the triangles of a range, one component at a time.
+   */
+  private void traverse(int start, int end, boolean[] visited) {
+    int remaining = end - start;
+    // The gates on the stack, as their two vertices and the opposite vertex of their triangle. A
+    // component pushes three gates for its first triangle and one more for each other triangle.
+    int[] gates = new int[(remaining + 2) * 3];
+    int cursor = start;
+    while (remaining > 0) {
+      while (visited[cursor]) {
+        cursor++;
+      }
+      visited[cursor] = true;
+      remaining--;
+      int[] corners = {triangles[cursor * 3], triangles[cursor * 3 + 1], triangles[cursor * 3 + 2]};
+      for (int vertex : corners) {
+        if (vertexIndices[vertex] == -1) {
+          encoder.encodeBit(newVertexModel, 3, 1);
+          encodeStartVertex(vertex);
+        } else {
+          encoder.encodeBit(newVertexModel, 3, 0);
+          encodeEarlierVertex(vertex);
+        }
+      }
+      int gateCount = 0;
+      for (int i = 2; i >= 0; i--) {
+        gates[gateCount * 3] = corners[i];
+        gates[gateCount * 3 + 1] = corners[(i + 1) % 3];
+        gates[gateCount * 3 + 2] = corners[(i + 2) % 3];
+        gateCount++;
+      }
+      int previous = GATE_NONE;
+      while (gateCount > 0 && remaining > 0) {
+        gateCount--;
+        int a = gates[gateCount * 3];
+        int b = gates[gateCount * 3 + 1];
+        int opposite = gates[gateCount * 3 + 2];
+        int triangle = findTriangle(b, a, start, end, visited);
+        if (triangle == -1) {
+          encoder.encodeBit(gateModel, previous, 0);
+          previous = GATE_NONE;
+          continue;
+        }
+        encoder.encodeBit(gateModel, previous, 1);
+        visited[triangle] = true;
+        remaining--;
+        int c = thirdVertex(triangle, b, a);
+        if (vertexIndices[c] == -1) {
+          encoder.encodeBit(newVertexModel, previous, 1);
+          encodePredictedVertex(c, a, b, opposite);
+          previous = GATE_NEW;
+        } else {
+          encoder.encodeBit(newVertexModel, previous, 0);
+          encodeEarlierVertex(c);
+          previous = GATE_EARLIER;
+        }
+        // The triangle is (b, a, c), so its other gates are (c, b) and (a, c), which is next.
+        gates[gateCount * 3] = c;
+        gates[gateCount * 3 + 1] = b;
+        gates[gateCount * 3 + 2] = a;
+        gateCount++;
+        gates[gateCount * 3] = a;
+        gates[gateCount * 3 + 1] = c;
+        gates[gateCount * 3 + 2] = b;
+        gateCount++;
+      }
+    }
+  }
+
+  /**
+   * @return The first unvisited triangle in the range with the directed edge from one vertex to
+   *         another, or -1 if there is none.
+   */
+  private int findTriangle(int from, int to, int start, int end, boolean[] visited) {
+    for (int i = vertexCornerOffsets[from]; i < vertexCornerOffsets[from + 1]; i++) {
+      int corner = vertexCorners[i];
+      int triangle = corner / 3;
+      if (triangle >= start && triangle < end && !visited[triangle]
+          && triangles[triangle * 3 + (corner + 1) % 3] == to) {
+        return triangle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return The vertex of a triangle which follows the given two.
+   */
+  private int thirdVertex(int triangle, int from, int to) {
+    for (int corner = triangle * 3; corner < triangle * 3 + 3; corner++) {
+      if (triangles[corner] == from && triangles[triangle * 3 + (corner + 1) % 3] == to) {
+        return triangles[triangle * 3 + (corner + 2) % 3];
+      }
+    }
+    throw new IllegalStateException("Triangle " + triangle + " has no edge " + from + "-" + to);
+  }
+
+  /**
+   * Codes a new vertex at the start of a component, predicted by the last such vertex.
+   */
+  private void encodeStartVertex(int vertex) {
+    for (int axis = 0; axis < 3; axis++) {
+      int predicted = lastStartVertex == -1 ? 0 : quantized[lastStartVertex * 3 + axis];
+      encoder.encodeSigned(deltaModels[axis], quantized[vertex * 3 + axis] - predicted);
+    }
+    encodeNormal(vertex, lastStartVertex);
+    lastStartVertex = vertex;
+    vertexIndices[vertex] = codedVertexCount++;
+  }
+
+  /**
+   * Codes a new vertex across the gate from a to b, predicted to complete the parallelogram of the
+   * gate's triangle.
+   */
+  private void encodePredictedVertex(int vertex, int a, int b, int opposite) {
+    for (int axis = 0; axis < 3; axis++) {
+      int predicted = quantized[a * 3 + axis] + quantized[b * 3 + axis]
+          - quantized[opposite * 3 + axis];
+      encoder.encodeSigned(parallelogramModels[axis], quantized[vertex * 3 + axis] - predicted);
+    }
+    encodeNormal(vertex, a);
+    vertexIndices[vertex] = codedVertexCount++;
+  }
+
+  /**
+   * Codes a vertex which was coded before, as the distance back from the last new vertex.
+   */
+  private void encodeEarlierVertex(int vertex) {
+    encoder.encodeUnsigned(earlierVertexModel, codedVertexCount - 1 - vertexIndices[vertex]);
+  }
+
+  /**
+   * Codes the difference between the encoded normal of a vertex and that of another, wrapped to a
+   * signed byte.
+   */
+  private void encodeNormal(int vertex, int predictor) {
+    if (normals == null) {
+      return;
+    }
+    for (int i = 0; i < 2; i++) {
+      int predicted = predictor == -1 ? 0 : normals[predictor * 2 + i];
+      encoder.encodeSigned(normalModels[i], (byte) (normals[vertex * 2 + i] - predicted));
+    }
+  }
+
+  /**
+   * Quantizes the positions to unsigned integers of the given bits within the bounding box.
+   */
+  private void quantizePositions(int positionBits, CompressedMesh mesh) {
+    double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    for (int i = 0; i < positions.length; i++) {
+      min[i % 3] = Math.min(min[i % 3], positions[i]);
+      max[i % 3] = Math.max(max[i % 3], positions[i]);
+    }
+    int maxValue = (1 << positionBits) - 1;
+    double[] scale = new double[3];
+    double[] offset = new double[3];
+    for (int axis = 0; axis < 3; axis++) {
+      if (vertexCount == 0) {
+        scale[axis] = 1;
+        continue;
+      }
+      offset[axis] = min[axis];
+      // A flat axis has every value at the offset, so any non-zero scale will do.
+      scale[axis] = max[axis] > min[axis] ? (max[axis] - min[axis]) / maxValue : 1;
+    }
+    quantized = new int[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      long value = Math.round((positions[i] - offset[i % 3]) / scale[i % 3]);
+      quantized[i] = (int) Math.max(0, Math.min(maxValue, value));
+    }
+    mesh.setScale(scale);
+    mesh.setOffset(offset);
+  }
+
+  private static short[][] createModels(int count) {
+    short[][] models = new short[count][];
+    for (int i = 0; i < count; i++) {
+      models[i] = RangeEncoder.createModel(RangeEncoder.UNSIGNED_MODEL_SIZE);
+    }
+    return models;
+  }
+
+}
@@ -0,0 +1,132 @@
+package au.com.mutopia.acs.util.mesh;
+
+import au.com.mutopia.acs.models.c3ml.QuantizedMesh;
+
+/**
+ * Quantizes the positions and normals of meshes into a {@link QuantizedMesh}, and decodes them
+ * again. Positions are quantized to int16 values within the bounding box of the mesh, and normals
+ * are octahedral encoded into two int8 values.
+ *
+ * @see <a href="http://jcgt.org/published/0003/02/01/">A Survey of Efficient Representations for
+ *      Independent Unit Vectors</a>
+ */
+public class MeshQuantizer {
+
+  /** The largest magnitude of a quantized position. */
+  private static final int MAX_POSITION = Short.MAX_VALUE;
+
+  /** The largest magnitude of a component of an encoded normal. */
+  private static final int MAX_NORMAL = Byte.MAX_VALUE;
+
+  /**
+   * Quantizes the positions and normals of a mesh.
+   *
+   * @param positions The (x, y, z) values of each position.
+   * @param normals The (x, y, z) components of each normal, or null if there are none.
+   * @return The quantized mesh.
+   */
+  public static QuantizedMesh quantize(double[] positions, float[] normals) {
+    double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    for (int i = 0; i < positions.length; i++) {
+      min[i % 3] = Math.min(min[i % 3], positions[i]);
+      max[i % 3] = Math.max(max[i % 3], positions[i]);
+    }
+    double[] scale = new double[3];
+    double[] offset = new double[3];
+    for (int axis = 0; axis < 3; axis++) {
+      if (positions.length == 0) {
+        scale[axis] = 1;
+        continue;
+      }
+      offset[axis] = (min[axis] + max[axis]) / 2;
+      double halfExtent = (max[axis] - min[axis]) / 2;
+      // A flat axis has every value at the offset, so any non-zero scale will do.
+      scale[axis] = halfExtent > 0 ? halfExtent / MAX_POSITION : 1;
+    }
+    short[] quantized = new short[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      long value = Math.round((positions[i] - offset[i % 3]) / scale[i % 3]);
+      quantized[i] = (short) Math.max(-MAX_POSITION, Math.min(MAX_POSITION, value));
+    }
+
+    QuantizedMesh mesh = new QuantizedMesh();
+    mesh.setPositions(quantized);
+    mesh.setScale(scale);
+    mesh.setOffset(offset);
+    if (normals != null) {
+      mesh.setNormals(encodeNormals(normals));
+    }
+    return mesh;
+  }
+
+  /**
+   * @return The (x, y, z) values of each position of the quantized mesh.
+   */
+  public static double[] decodePositions(QuantizedMesh mesh) {
+    short[] quantized = mesh.getPositions();
+    double[] positions = new double[quantized.length];
+    for (int i = 0; i < quantized.length; i++) {
+      positions[i] = quantized[i] * mesh.getScale()[i % 3] + mesh.getOffset()[i % 3];
+    }
+    return positions;
+  }
+
+  /**
+   * Octahedral encodes normal vectors. The vector is projected onto the octahedron |x|+|y|+|z|=1,
+   * whose lower half is folded over the upper half, and then onto the z=0 plane.
+   *
+   * @param normals The (x, y, z) components of each normal.
+   * @return The two encoded components of each normal.
+   */
+  public static byte[] encodeNormals(float[] normals) {
+    byte[] encoded = new byte[normals.length / 3 * 2];
+    for (int i = 0, j = 0; j < encoded.length; i += 3, j += 2) {
+      double x = normals[i], y = normals[i + 1], z = normals[i + 2];
+      double length = Math.abs(x) + Math.abs(y) + Math.abs(z);
+      if (length == 0) {
+        continue;
+      }
+      double u = x / length;
+      double v = y / length;
+      if (z < 0) {
+        double foldedU = (1 - Math.abs(v)) * signNotZero(u);
+        v = (1 - Math.abs(u)) * signNotZero(v);
+        u = foldedU;
+      }
+      encoded[j] = (byte) Math.round(u * MAX_NORMAL);
+      encoded[j + 1] = (byte) Math.round(v * MAX_NORMAL);
+    }
+    return encoded;
+  }
+
+  /**
+   * Decodes octahedral encoded normal vectors.
+   *
+   * @param encoded The two encoded components of each normal.
+   * @return The (x, y, z) components of each normal, each of unit length.
+   */
+  public static float[] decodeNormals(byte[] encoded) {
+    float[] normals = new float[encoded.length / 2 * 3];
+    for (int i = 0, j = 0; j < encoded.length; i += 3, j += 2) {
+      double x = Math.max(encoded[j] / (double) MAX_NORMAL, -1);
+      double y = Math.max(encoded[j + 1] / (double) MAX_NORMAL, -1);
+      double z = 1 - Math.abs(x) - Math.abs(y);
+      if (z < 0) {
+        double unfoldedX = (1 - Math.abs(y)) * signNotZero(x);
+        y = (1 - Math.abs(x)) * signNotZero(y);
+        x = unfoldedX;
+      }
+      double length = Math.sqrt(x * x + y * y + z * z);
+      normals[i] = (float) (x / length);
+      normals[i + 1] = (float) (y / length);
+      normals[i + 2] = (float) (z / length);
+    }
+    return normals;
+  }
+
+  private static double signNotZero(double value) {
+    return value < 0 ? -1 : 1;
+  }
+
+}
@@ -0,0 +1,307 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Simplifies a triangle mesh by collapsing edges in order of their quadric error, i.e. the mean
+ * squared distance of the moved vertex from the planes of its original triangles, weighted by
+ * their areas.
+ *
+ * Each edge is collapsed by moving one of its vertices onto the other, so the simplified triangles
+ * index a subset of the original vertices, and several levels of detail can share the original
+ * positions and normals. Successive calls to {@link #simplify(int, double)} continue from the
+ * previous level, so the levels are nested.
+ *
+ * Vertices on a border of the mesh (an edge of only one triangle) are never moved, which keeps
+ * the outline of open meshes and the seams between vertices with different normals. Collapses which
+ * would flip a triangle are skipped.
+ *
+ * @see <a href="http://www.cs.cmu.edu/~garland/Papers/quadrics.pdf">Surface Simplification Using
+ *      Quadric Error Metrics</a>
+ */
+public class MeshSimplifier {
+
+  /** The number of coefficients of a symmetric 4x4 quadric matrix, and its total weight. */
+  private static final int QUADRIC_SIZE = 11;
+
+  /** The offset of the total weight (i.e. area) of the planes of a quadric. */
+  private static final int WEIGHT = 10;
+
+  private final double[] positions;
+
+  /** The quadric of each vertex, i.e. of the planes of its original triangles. */
+  private final double[] quadrics;
+
+  /** Whether each vertex is on a border, and so cannot be moved. */
+  private final boolean[] locked;
+
+  /** The current triangles of the simplified mesh. */
+  private int[] triangles;
+
+  /** The largest error of the collapses so far, as a root mean square distance. */
+  private double error;
+
+  /**
+   * @param mesh The mesh to simplify, which is not modified.
+   */
+  public MeshSimplifier(IndexedMesh mesh) {
+    this.positions = mesh.getPositions();
+    this.triangles = mesh.getTriangles().clone();
+    int vertexCount = mesh.getVertexCount();
+    this.quadrics = new double[vertexCount * QUADRIC_SIZE];
+    this.locked = new boolean[vertexCount];
+    addTriangleQuadrics();
+    lockBorders();
+  }
+
+  /**
+   * Collapses edges until the mesh has no more than the target number of triangles, or until the
+   * next collapse would exceed the maximum error.
+   *
+   * @param targetTriangleCount The number of triangles to simplify the mesh to.
+   * @param maxError The largest root mean square distance (in the units of the positions) which
+   *        a vertex may be moved from the planes of its original triangles, or
+   *        {@link Double#POSITIVE_INFINITY}.
+   * @return The indices of the three vertices of each triangle of the simplified mesh.
+   */
+  public int[] simplify(int targetTriangleCount, double maxError) {
+    double maxCost = maxError * maxError;
+    int triangleCount = triangles.length / 3;
+    while (triangleCount > targetTriangleCount) {
+      int removed = collapseEdges(triangleCount - targetTriangleCount, maxCost);
+      if (removed == 0) {
+        break;
+      }
+      triangleCount -= removed;
+    }
+    return triangles.clone();
+  }
+
+  /**
+   * @return The largest error of the collapses so far, as a root mean square distance in the units
+   *         of the positions.
+   */
+  public double getError() {
+    return error;
+  }
+
+  /**
+   * Collapses the cheapest edges which don't share a vertex (or a triangle), so that each collapse
+   * can be costed independently of the others.
+   *
+   * @return The number of triangles removed.
+   */
+  private int collapseEdges(int triangleBudget, double maxCost) {
+    int vertexCount = locked.length;
+    // The cheapest collapse of each vertex, onto the vertex at the other end of one of its edges.
+    int[] targets = new int[vertexCount];
+    double[] costs = new double[vertexCount];
+    Arrays.fill(targets, -1);
+    for (int i = 0; i < triangles.length; i++) {
+      int vertex = triangles[i];
+      if (locked[vertex]) {
+        continue;
+      }
+      int corner = i % 3;
+      int triangle = i - corner;
+      for (int other : new int[] {triangles[triangle + (corner + 1) % 3],
+          triangles[triangle + (corner + 2) % 3]}) {
+        double cost = collapseCost(vertex, other);
+        if (targets[vertex] == -1 || cost < costs[vertex]) {
+          targets[vertex] = other;
+          costs[vertex] = cost;
+        }
+      }
+    }
+
+    // Sort the collapses by cost. Non-negative floats sort in the same order as their bits.
+    long[] order = new long[vertexCount];
+    int collapseCount = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (targets[vertex] != -1 && costs[vertex] <= maxCost) {
+        long bits = Float.floatToIntBits((float) costs[vertex]);
+        order[collapseCount++] = (bits << 32) | vertex;
+      }
+    }
+    Arrays.sort(order, 0, collapseCount);
+
+    int[][] vertexTriangles = buildVertexTriangles();
+    boolean[] touched = new boolean[vertexCount];
+    int removed = 0;
+    for (int i = 0; i < collapseCount && removed < triangleBudget; i++) {
+      int vertex = (int) order[i];
+      int target = targets[vertex];
+      if (touched[vertex] || touched[target] || flipsTriangle(vertex, target, vertexTriangles)) {
+        continue;
+      }
+      for (int triangle : vertexTriangles[vertex]) {
+        boolean degenerate = false;
+        for (int corner = triangle; corner < triangle + 3; corner++) {
+          touched[triangles[corner]] = true;
+          degenerate |= triangles[corner] == target;
+        }
+        for (int corner = triangle; corner < triangle + 3; corner++) {
+          if (triangles[corner] == vertex) {
+            triangles[corner] = target;
+          }
+        }
+        if (degenerate) {
+          removed++;
+        }
+      }
+      for (int j = 0; j < QUADRIC_SIZE; j++) {
+        quadrics[target * QUADRIC_SIZE + j] += quadrics[vertex * QUADRIC_SIZE + j];
+      }
+      error = Math.max(error, Math.sqrt(costs[vertex]));
+    }
+    removeDegenerateTriangles();
+    return removed;
+  }
+
+  /**
+   * @return The cost of moving a vertex onto another: the mean error of the combined quadrics at
+   *         the position of the other vertex.
+   */
+  private double collapseCost(int vertex, int target) {
+    double weight = quadrics[vertex * QUADRIC_SIZE + WEIGHT] + quadrics[target * QUADRIC_SIZE
+        + WEIGHT];
+    if (weight == 0) {
+      return 0;
+    }
+    double x = positions[target * 3], y = positions[target * 3 + 1], z = positions[target * 3 + 2];
+    double cost = evaluate(vertex, x, y, z) + evaluate(target, x, y, z);
+    return Math.max(cost / weight, 0);
+  }
+
+  /**
+   * @return The error of the quadric of a vertex at a position.
+   */
+  private double evaluate(int vertex, double x, double y, double z) {
+    int q = vertex * QUADRIC_SIZE;
+    return quadrics[q] * x * x + 2 * quadrics[q + 1] * x * y + 2 * quadrics[q + 2] * x * z
+        + 2 * quadrics[q + 3] * x + quadrics[q + 4] * y * y + 2 * quadrics[q + 5] * y * z
+        + 2 * quadrics[q + 6] * y + quadrics[q + 7] * z * z + 2 * quadrics[q + 8] * z
+        + quadrics[q + 9];
+  }
+
+  /**
+   * @return Whether moving a vertex onto the target would flip the normal of any of its triangles
+   *         which don't also contain the target.
+   */
+  private boolean flipsTriangle(int vertex, int target, int[][] vertexTriangles) {
+    for (int triangle : vertexTriangles[vertex]) {
+      int a = triangles[triangle], b = triangles[triangle + 1], c = triangles[triangle + 2];
+      if (a == target || b == target || c == target) {
+        continue;
+      }
+      double[] before = normal(a, b, c, -1, -1);
+      double[] after = normal(a, b, c, vertex, target);
+      if (before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The (unnormalised) normal of a triangle, with one vertex replaced by another.
+   */
+  private double[] normal(int a, int b, int c, int vertex, int replacement) {
+    a = a == vertex ? replacement : a;
+    b = b == vertex ? replacement : b;
+    c = c == vertex ? replacement : c;
+    double ux = positions[b * 3] - positions[a * 3];
+    double uy = positions[b * 3 + 1] - positions[a * 3 + 1];
+    double uz = positions[b * 3 + 2] - positions[a * 3 + 2];
+    double vx = positions[c * 3] - positions[a * 3];
+    double vy = positions[c * 3 + 1] - positions[a * 3 + 1];
+    double vz = positions[c * 3 + 2] - positions[a * 3 + 2];
+    return new double[] {uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx};
+  }
+
+  /**
+   * Adds the quadric of the plane of each triangle, weighted by its area, to the quadrics of its
+   * vertices.
+   */
+  private void addTriangleQuadrics() {
+    for (int i = 0; i < triangles.length; i += 3) {
+      int a = triangles[i];
+      double[] normal = normal(a, triangles[i + 1], triangles[i + 2], -1, -1);
+      double length =
+          Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+      if (length == 0) {
+        continue;
+      }
+      double nx = normal[0] / length, ny = normal[1] / length, nz = normal[2] / length;
+      double d = -(nx * positions[a * 3] + ny * positions[a * 3 + 1] + nz * positions[a * 3 + 2]);
+      double[] plane = {nx * nx, nx * ny, nx * nz, nx * d, ny * ny, ny * nz, ny * d, nz * nz,
+          nz * d, d * d, 1};
+      // The length of the normal is twice the area of the triangle.
+      double area = length / 2;
+      for (int corner = i; corner < i + 3; corner++) {
+        for (int j = 0; j < QUADRIC_SIZE; j++) {
+          quadrics[triangles[corner] * QUADRIC_SIZE + j] += plane[j] * area;
+        }
+      }
+    }
+  }
+
+  /**
+   * Locks the vertices of each edge which belongs to only one triangle.
+   */
+  private void lockBorders() {
+    // Each undirected edge as its lower vertex index in the high bits and its higher in the low.
+    long[] edges = new long[triangles.length];
+    for (int i = 0; i < triangles.length; i++) {
+      int a = triangles[i];
+      int b = triangles[i - i % 3 + (i + 1) % 3];
+      edges[i] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+    Arrays.sort(edges);
+    for (int i = 0; i < edges.length;) {
+      int j = i + 1;
+      while (j < edges.length && edges[j] == edges[i]) {
+        j++;
+      }
+      if (j - i == 1) {
+        locked[(int) (edges[i] >>> 32)] = true;
+        locked[(int) edges[i]] = true;
+      }
+      i = j;
+    }
+  }
+
+  /**
+   * @return The offsets in the triangles array of the triangles of each vertex.
+   */
+  private int[][] buildVertexTriangles() {
+    int[] counts = new int[locked.length];
+    for (int vertex : triangles) {
+      counts[vertex]++;
+    }
+    int[][] vertexTriangles = new int[locked.length][];
+    for (int vertex = 0; vertex < counts.length; vertex++) {
+      vertexTriangles[vertex] = new int[counts[vertex]];
+      counts[vertex] = 0;
+    }
+    for (int i = 0; i < triangles.length; i++) {
+      int vertex = triangles[i];
+      vertexTriangles[vertex][counts[vertex]++] = i - i % 3;
+    }
+    return vertexTriangles;
+  }
+
+  private void removeDegenerateTriangles() {
+    int count = 0;
+    for (int i = 0; i < triangles.length; i += 3) {
+      int a = triangles[i], b = triangles[i + 1], c = triangles[i + 2];
+      if (a != b && b != c && a != c) {
+        triangles[count++] = a;
+        triangles[count++] = b;
+        triangles[count++] = c;
+      }
+    }
+    triangles = Arrays.copyOf(triangles, count);
+  }
+
+}
@@ -0,0 +1,216 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Splits a mesh with too many vertices into spatially coherent chunks, each with few enough
+ * vertices to be indexed with 16 bit indices.
+ *
+ * The triangles are divided recursively at the median of their centroids along the longest axis
+ * of their bounds, until each part uses no more than the maximum number of vertices. Vertices
+ * shared by triangles in different chunks are copied into each chunk.
+ *
+ * Several levels of detail of a mesh, whose triangles index the same vertices, can be split
+ * together, so that each chunk has its own part of each level and its vertices.
+ */
+public class MeshSplitter {
+
+  /**
+   * The most vertices which can be indexed with unsigned 16 bit indices, keeping the largest index
+   * free, since it restarts primitives in WebGL 2.
+   */
+  public static final int MAX_UINT16_VERTICES = 0xffff;
+
+  private final int maxVertices;
+
+  /**
+   * @param maxVertices The most vertices of each chunk, which must be at least 3.
+   */
+  public MeshSplitter(int maxVertices) {
+    if (maxVertices < 3) {
+      throw new IllegalArgumentException("A chunk needs at least 3 vertices: " + maxVertices);
+    }
+    this.maxVertices = maxVertices;
+  }
+
+  /**
+   * A chunk of a split mesh.
+   */
+  @Getter
+  public static class Chunk {
+
+    /** The index in the original mesh of each vertex of the chunk. */
+    private final int[] vertices;
+
+    /** The triangles of the chunk in each level, indexing the vertices of the chunk. */
+    private final List<int[]> triangles;
+
+    /** The index of each triangle of the chunk in each level of the original mesh, ascending. */
+    private final List<int[]> sourceTriangles;
+
+    private Chunk(int[] vertices, List<int[]> triangles, List<int[]> sourceTriangles) {
+      this.vertices = vertices;
+      this.triangles = triangles;
+      this.sourceTriangles = sourceTriangles;
+    }
+
+  }
+
+  /**
+   * @param positions The (x, y, z) values of each vertex position.
+   * @param levels The indices of the three vertices of each triangle of each level of the mesh.
+   * @return The chunks of the mesh, or a single chunk if the mesh has few enough vertices.
+   */
+  public List<Chunk> split(double[] positions, List<int[]> levels) {
+    int vertexCount = positions.length / 3;
+    // Number the triangles of all levels consecutively.
+    int[] levelStarts = new int[levels.size() + 1];
+    for (int level = 0; level < levels.size(); level++) {
+      levelStarts[level + 1] = levelStarts[level] + levels.get(level).length / 3;
+    }
+    int triangleCount = levelStarts[levels.size()];
+    int[] triangles = new int[triangleCount * 3];
+    double[] centroids = new double[triangleCount * 3];
+    for (int level = 0; level < levels.size(); level++) {
+      int[] levelTriangles = levels.get(level);
+      System.arraycopy(levelTriangles, 0, triangles, levelStarts[level] * 3,
+          levelTriangles.length);
+    }
+    for (int i = 0; i < triangles.length; i++) {
+      int axis = i % 3;
+      for (int corner = i - axis; corner < i - axis + 3; corner++) {
+        centroids[i] += positions[triangles[corner] * 3 + axis] / 3;
+      }
+    }
+    int[] all = new int[triangleCount];
+    for (int i = 0; i < triangleCount; i++) {
+      all[i] = i;
+    }
+
+    List<int[]> parts = new ArrayList<>();
+    boolean[] seen = new boolean[vertexCount];
+    divide(all, triangles, centroids, seen, parts);
+
+    List<Chunk> chunks = new ArrayList<>();
+    int[] localIndices = new int[vertexCount];
+    Arrays.fill(localIndices, -1);
+    for (int[] part : parts) {
+      Arrays.sort(part);
+      chunks.add(createChunk(part, triangles, levelStarts, localIndices));
+    }
+    return chunks;
+  }
+
+  /**
+   * Divides a set of triangles until each part has few enough vertices.
+   */
+  private void divide(int[] part, int[] triangles, double[] centroids, boolean[] seen,
+      List<int[]> parts) {
+    if (countVertices(part, triangles, seen) <= maxVertices) {
+      parts.add(part);
+      return;
+    }
+    double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    for (int triangle : part) {
+      for (int axis = 0; axis < 3; axis++) {
+        min[axis] = Math.min(min[axis], centroids[triangle * 3 + axis]);
+        max[axis] = Math.max(max[axis], centroids[triangle * 3 + axis]);
+      }
+    }
+    int axis = 0;
+    for (int i = 1; i < 3; i++) {
+      if (max[i] - min[i] > max[axis] - min[axis]) {
+        axis = i;
+      }
+    }
+    double[] values = new double[part.length];
+    for (int i = 0; i < part.length; i++) {
+      values[i] = centroids[part[i] * 3 + axis];
+    }
+    Arrays.sort(values);
+    double median = values[part.length / 2];
+
+    int[] lower = new int[part.length];
+    int[] upper = new int[part.length];
+    int lowerCount = 0;
+    int upperCount = 0;
+    for (int triangle : part) {
+      if (centroids[triangle * 3 + axis] < median) {
+        lower[lowerCount++] = triangle;
+      } else {
+        upper[upperCount++] = triangle;
+      }
+    }
+    if (lowerCount == 0) {
+      // The centroids are mostly equal, so divide the triangles in half regardless.
+      lowerCount = part.length / 2;
+      upperCount = part.length - lowerCount;
+      System.arraycopy(part, 0, lower, 0, lowerCount);
+      System.arraycopy(part, lowerCount, upper, 0, upperCount);
+    }
+    divide(Arrays.copyOf(lower, lowerCount), triangles, centroids, seen, parts);
+    divide(Arrays.copyOf(upper, upperCount), triangles, centroids, seen, parts);
+  }
+
+  /**
+   * @return The number of distinct vertices of a set of triangles.
+   */
+  private int countVertices(int[] part, int[] triangles, boolean[] seen) {
+    int count = 0;
+    for (int triangle : part) {
+      for (int corner = triangle * 3; corner < triangle * 3 + 3; corner++) {
+        if (!seen[triangles[corner]]) {
+          seen[triangles[corner]] = true;
+          count++;
+        }
+      }
+    }
+    for (int triangle : part) {
+      for (int corner = triangle * 3; corner < triangle * 3 + 3; corner++) {
+        seen[triangles[corner]] = false;
+      }
+    }
+    return count;
+  }
+
+  private Chunk createChunk(int[] part, int[] triangles, int[] levelStarts, int[] localIndices) {
+    int levelCount = levelStarts.length - 1;
+    List<int[]> chunkTriangles = new ArrayList<>();
+    List<int[]> sourceTriangles = new ArrayList<>();
+    int[] vertices = new int[part.length * 3];
+    int vertexCount = 0;
+    int start = 0;
+    for (int level = 0; level < levelCount; level++) {
+      int end = start;
+      while (end < part.length && part[end] < levelStarts[level + 1]) {
+        end++;
+      }
+      int[] levelTriangles = new int[(end - start) * 3];
+      int[] levelSources = new int[end - start];
+      for (int i = start; i < end; i++) {
+        levelSources[i - start] = part[i] - levelStarts[level];
+        for (int corner = 0; corner < 3; corner++) {
+          int vertex = triangles[part[i] * 3 + corner];
+          if (localIndices[vertex] == -1) {
+            localIndices[vertex] = vertexCount;
+            vertices[vertexCount++] = vertex;
+          }
+          levelTriangles[(i - start) * 3 + corner] = localIndices[vertex];
+        }
+      }
+      chunkTriangles.add(levelTriangles);
+      sourceTriangles.add(levelSources);
+      start = end;
+    }
+    for (int i = 0; i < vertexCount; i++) {
+      localIndices[vertices[i]] = -1;
+    }
+    return new Chunk(Arrays.copyOf(vertices, vertexCount), chunkTriangles, sourceTriangles);
+  }
+
+}
@@ -12,10 +12,11 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Polygon;
-import com.vividsolutions.jts.operation.union.CascadedPolygonUnion;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import lombok.extern.log4j.Log4j;
 
 /**
@@ -26,6 +27,9 @@ import lombok.extern.log4j.Log4j;
 public class MeshUtil {
   private static final GeometryFactory wktGeoFactory = new GeometryFactory();
 
+  /** Builds the footprints of meshes. */
+  private final FootprintBuilder footprintBuilder;
+
   /**
    * Earth’s radius, sphere (in meters).
    */
@@ -42,43 +46,49 @@ public class MeshUtil {
   private static final int MATRIX_SIZE = 16;
 
   /**
-   * Creates a list of positions forming the flatten mesh.
+   * Creates a mesh utility which traces footprints from the boundary edges of meshes.
+   */
+  public MeshUtil() {
+    footprintBuilder = new FootprintBuilder(wktGeoFactory);
+  }
+
+  /**
+   * Creates an array of positions forming the flatten mesh.
    *
-   * @param positions The list of positions forming the mesh.
-   * @return The list of positions forming the flatten mesh.
+   * @param positions The array of positions forming the mesh.
+   * @return The array of positions forming the flatten mesh.
    */
-  public List<Double> getFlattenMeshPositions(List<Double> positions) {
-    List<Double> flattenPositions = new ArrayList<>();
-    for (int i = 0; i < positions.size(); i += 3) {
+  public double[] getFlattenMeshPositions(double[] positions) {
+    double[] flattenPositions = new double[positions.length];
+    for (int i = 0; i + 2 < positions.length; i += 3) {
       // position.x
-      flattenPositions.add(positions.get(i));
+      flattenPositions[i] = positions[i];
       // position.y
-      flattenPositions.add(positions.get(i + 1));
+      flattenPositions[i + 1] = positions[i + 1];
       // position height
-      flattenPositions.add(positions.get(0));
+      flattenPositions[i + 2] = positions[0];
     }
     return flattenPositions;
   }
 
   /**
-   * Converts the list of positions in meters to decimal degrees.
+   * Converts the array of positions in meters to decimal degrees.
    *
-   * @param positions The list of positions forming the mesh.
+   * @param positions The array of positions forming the mesh.
    * @param lat The latitude of the mesh's geographic location (degree decimal).
    * @param lon The longitude of the mesh's geographic location (degree decimal).
    * @param alt The altitude of the mesh's geographic location (meter).
-   * @return The list of positions in meters to decimal degrees.
+   * @return The array of positions in meters to decimal degrees.
    */
-  public List<Double> convertPositionsToDecimalDegrees(List<Double> positions, double lat,
-      double lon, double alt) {
-    List<Double> decimalDegreesPositions = Lists.newArrayList();
-    for (int i = 0; i < positions.size(); i += 3) {
+  public double[] convertPositionsToDecimalDegrees(double[] positions, double lat, double lon,
+      double alt) {
+    double[] decimalDegreesPositions = new double[positions.length];
+    for (int i = 0; i + 2 < positions.length; i += 3) {
       Vertex3D vertex3D =
-          toDecimalDegrees(positions.get(i), positions.get(i + 1), positions.get(i + 2), lat, lon,
-              alt);
-      decimalDegreesPositions.add(vertex3D.getLatitude());
-      decimalDegreesPositions.add(vertex3D.getLongitude());
-      decimalDegreesPositions.add(vertex3D.getAltitude());
+          toDecimalDegrees(positions[i], positions[i + 1], positions[i + 2], lat, lon, alt);
+      decimalDegreesPositions[i] = vertex3D.getLatitude();
+      decimalDegreesPositions[i + 1] = vertex3D.getLongitude();
+      decimalDegreesPositions[i + 2] = vertex3D.getAltitude();
     }
     return decimalDegreesPositions;
   }
@@ -87,20 +97,22 @@ public class MeshUtil {
    * Creates a {@link Polygon} from mesh positions, triangle indices, polygon height and the
    * geographic coordinate of the mesh {latitude, longitude, altitude}.
    *
-   * @param pos The list of positions forming the mesh.
-   * @param tris The list of triangles indices forming the mesh.
+   * @param pos The array of positions forming the mesh.
+   * @param tris The array of triangles indices forming the mesh.
    * @param height The height of the polygon.
    * @param lat The latitude of the mesh's geographic location (degree decimal).
    * @param lon The longitude of the mesh's geographic location (degree decimal).
    * @param alt The altitude of the mesh's geographic location (meter).
    * @return The {@link Polygon} converted from mesh.
    */
-  public Polygon getPolygon(List<Double> pos, List<Integer> tris, double height,
-      double lat, double lon, double alt) {
+  public Polygon getPolygon(double[] pos, int[] tris, double height, double lat, double lon,
+      double alt) {
     try {
-      List<Double> newPos = convertPositionsToDecimalDegrees(pos, lat, lon, alt);
-      List<Polygon> polygonsFromMeshData = getPolygonsFromMeshData(newPos, tris);
-      Geometry geometry = CascadedPolygonUnion.union(polygonsFromMeshData);
+      double[] newPos = convertPositionsToDecimalDegrees(pos, lat, lon, alt);
+      Geometry geometry = footprintBuilder.build(newPos, tris);
+      if (geometry == null) {
+        return null;
+      }
       if (geometry instanceof MultiPolygon) {
         return singlePolygonFromMulti((MultiPolygon) geometry);
       }
@@ -137,18 +149,14 @@ public class MeshUtil {
 
   /**
    * Attempt to extract single {@link Polygon} from {@link MultiPolygon} if
-   * {@link CascadedPolygonUnion} fails to combine into a single {@link Polygon}. Return null if
+   * the mesh footprint is not a single {@link Polygon}. Return null if
    * there are more than 1 external {@link Polygon}.
    *
-   * @param multiPolygon The {@link MultiPolygon} resulted from {@link CascadedPolygonUnion}.
+   * @param multiPolygon The {@link MultiPolygon} footprint of the mesh.
    * @return
    */
   public Polygon singlePolygonFromMulti(MultiPolygon multiPolygon) {
-    PolyDefault polyDefault = polyDefaultFromPolygon((Polygon) multiPolygon.getGeometryN(0));
-    for (int i = 1; i < multiPolygon.getNumGeometries(); i++) {
-      polyDefault = (PolyDefault) polyDefault.union(
-              polyDefaultFromPolygon((Polygon) multiPolygon.getGeometryN(i)));
-    }
+    PolyDefault polyDefault = unionPolygons(multiPolygon, 0, multiPolygon.getNumGeometries());
     List<LinearRing> outerPolys = new ArrayList<>();
     List<LinearRing> innerPolys = new ArrayList<>();
     for (int i = 0; i < polyDefault.getNumInnerPoly(); i++) {
@@ -167,6 +175,24 @@ public class MeshUtil {
     return null;
   }
 
+  /**
+   * Unions a range of the polygons of a {@link MultiPolygon} by recursively unioning each half, so
+   * that the polygons being unioned stay similar in size.
+   *
+   * @param multiPolygon The {@link MultiPolygon} containing the polygons.
+   * @param start The index of the first polygon to union.
+   * @param end The index after the last polygon to union.
+   * @return The union of the polygons.
+   */
+  private PolyDefault unionPolygons(MultiPolygon multiPolygon, int start, int end) {
+    if (end - start == 1) {
+      return polyDefaultFromPolygon((Polygon) multiPolygon.getGeometryN(start));
+    }
+    int middle = (start + end) / 2;
+    return (PolyDefault) unionPolygons(multiPolygon, start, middle).union(
+        unionPolygons(multiPolygon, middle, end));
+  }
+
   /**
    * Create {@link PolyDefault} from {@link Polygon}, used to perform more accurate geometry union
    * but with more computational time.
@@ -335,10 +361,15 @@ public class MeshUtil {
    * @return The resulting polygon from clipping all mesh triangles
    */
   public PolyDefault getPolyDefaultFromMeshData(List<Double> pos, List<Integer> tris) {
-    List<Triangle> uniqueTriangles = getUniqueTriangles(Doubles.toArray(pos),
-        Ints.toArray(tris));
-    PolyDefault poly = getPolyFromUniqueTriangles(uniqueTriangles);
-    if (poly == null || poly.isEmpty()) {
+    Geometry footprint = footprintBuilder.build(Doubles.toArray(pos), Ints.toArray(tris));
+    if (footprint == null) {
+      return null;
+    }
+    PolyDefault poly = polyDefaultFromPolygon((Polygon) footprint.getGeometryN(0));
+    for (int i = 1; i < footprint.getNumGeometries(); i++) {
+      poly = (PolyDefault) poly.union(polyDefaultFromPolygon((Polygon) footprint.getGeometryN(i)));
+    }
+    if (poly.isEmpty()) {
       return null;
     }
     return poly;
@@ -399,7 +430,7 @@ public class MeshUtil {
    * @return The list of unique triangles.
    */
   private List<Triangle> getUniqueTriangles(double[] pos, int[] tris) {
-    List<Triangle> uniqueTriangles = Lists.newArrayList();
+    Set<Triangle> uniqueTriangles = new LinkedHashSet<>();
     for (int i = 0; i < tris.length; i += 3) {
       int pos1 = tris[i] * 3;
       int pos2 = tris[i + 1] * 3;
@@ -411,121 +442,43 @@ public class MeshUtil {
         // Transforms the vertices by first scalar multiplication then translation.
         // X-axis: scalar multiplication (matrixTransform[0]), translation (matrixTransform[3]).
         // Y-axis: scalar multiplication (matrixTransform[5]), translation (matrixTransform[7]).
-        Point2D.Double vertex1 = new Point2D.Double(pos[pos1], pos[pos1 + 1]);
-        Point2D.Double vertex2 = new Point2D.Double(pos[pos2], pos[pos2 + 1]);
-        Point2D.Double vertex3 = new Point2D.Double(pos[pos3], pos[pos3 + 1]);
-        Triangle newTriangle = new Triangle(vertex1, vertex2, vertex3);
-        if (!uniqueTriangles.contains(newTriangle)) {
-          uniqueTriangles.add(newTriangle);
-        }
-      }
-    }
-
-    return uniqueTriangles;
-  }
-
-  /**
-   * Gets a polygon that encloses all points from the list of unique triangles.
-   * TODO(Brandon) Improve the accuracy, as some points are 'ignored' when to close to another.
-   *
-   * @param uniqueTriangles The list of unique triangles.
-   * @return A polygon.
-   */
-  private PolyDefault getPolyFromUniqueTriangles(List<Triangle> uniqueTriangles) {
-    PolyDefault poly = new PolyDefault();
-    boolean isEmptyMesh = true;
-    for (Triangle triangle : uniqueTriangles) {
-      // If the mesh is currently empty, add the first triangle to the mesh.
-      if (isEmptyMesh) {
-        poly.add(triangle.getVertex1());
-        poly.add(triangle.getVertex2());
-        poly.add(triangle.getVertex3());
-        isEmptyMesh = false;
-      } else {
-        PolyDefault poly2 = new PolyDefault();
-        poly2.add(triangle.getVertex1());
-        poly2.add(triangle.getVertex2());
-        poly2.add(triangle.getVertex3());
-        poly = (PolyDefault) poly.union(poly2);
+        // Adding 0.0 turns -0.0 into 0.0, which is equal but would otherwise hash differently.
+        Point2D.Double vertex1 = new Point2D.Double(pos[pos1] + 0.0, pos[pos1 + 1] + 0.0);
+        Point2D.Double vertex2 = new Point2D.Double(pos[pos2] + 0.0, pos[pos2 + 1] + 0.0);
+        Point2D.Double vertex3 = new Point2D.Double(pos[pos3] + 0.0, pos[pos3 + 1] + 0.0);
+        uniqueTriangles.add(new Triangle(vertex1, vertex2, vertex3));
       }
     }
 
-    return poly;
+    return new ArrayList<>(uniqueTriangles);
   }
 
   /**
-   * Gets the minimum height value of the mesh's list of positions.
+   * Gets the minimum height value of the mesh's array of positions.
    *
-   * @param positions The mesh's list of positions.
+   * @param positions The mesh's array of positions.
    * @return The minimum height value for the mesh.
    */
-  public double getMinHeight(List<Double> positions) {
-    double minHeight = positions.get(2);
-    for (int i = 5; i < positions.size(); i += 3) {
-      if (positions.get(i) < minHeight) {
-        minHeight = positions.get(i);
-      }
+  public double getMinHeight(double[] positions) {
+    double minHeight = positions[2];
+    for (int i = 5; i < positions.length; i += 3) {
+      minHeight = Math.min(minHeight, positions[i]);
     }
     return minHeight;
   }
 
   /**
-   * Gets the maximum height value of the mesh's list of positions.
+   * Gets the maximum height value of the mesh's array of positions.
    *
-   * @param positions The mesh's list of positions.
+   * @param positions The mesh's array of positions.
    * @return The maximum height value for the mesh.
    */
-  public double getMaxHeight(List<Double> positions) {
-    double minHeight = positions.get(2);
-    for (int i = 5; i < positions.size(); i += 3) {
-      if (positions.get(i) > minHeight) {
-        minHeight = positions.get(i);
-      }
-    }
-    return minHeight;
-  }
-
-  /**
-   * Updates the mesh's list of positions with the new height value.
-   *
-   * @param positions The mesh's list of positions.
-   * @param newHeight The new height value for the mesh.
-   */
-  public void updateHeight(List<Double> positions, double newHeight) {
-    double minHeight = getMinHeight(positions);
-    double maxHeight = getMaxHeight(positions);
-    // Do nothing if the mesh's current height is correct.
-    if (maxHeight - minHeight == newHeight) {
-      return;
-    }
-    // Update the mesh height based on ratio between highest and lowest vertical point.
-    for (int i = 2; i < positions.size(); i += 3) {
-      double newHeightRatio = ((positions.get(i) - minHeight) / (maxHeight - minHeight)
-          * newHeight) + minHeight;
-      positions.remove(i);
-      positions.add(i, newHeightRatio);
-    }
-  }
-
-  /**
-   * Updates the mesh's list of positions with the new altitude value.
-   *
-   * @param positions The mesh's list of positions.
-   * @param newAltitude The new altitude value for the mesh.
-   */
-  public void updateAltitude(List<Double> positions, double newAltitude) {
-    double minHeight = getMinHeight(positions);
-    // Do nothing if mesh altitude if correct.
-    if (minHeight == newAltitude) {
-      return;
-    }
-    // Difference between current altitude and new altitude.
-    double altitudeDiff = newAltitude - minHeight;
-    for (int i = 2; i < positions.size(); i += 3) {
-      double newHeightRatio = positions.get(i) + altitudeDiff;
-      positions.remove(i);
-      positions.add(i, newHeightRatio);
+  public double getMaxHeight(double[] positions) {
+    double maxHeight = positions[2];
+    for (int i = 5; i < positions.length; i += 3) {
+      maxHeight = Math.max(maxHeight, positions[i]);
     }
+    return maxHeight;
   }
 
   /**
@@ -0,0 +1,128 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * Unions many polygons by bulk-loading them into an {@link STRtree}, and unioning the nodes of the
+ * tree from the leaves up. Each union only involves nearby polygons of similar size, which avoids
+ * the quadratic cost of adding polygons one at a time to an ever-growing result.
+ *
+ * If a {@link ForkJoinPool} is given, the subtrees of large inputs are unioned in parallel.
+ */
+public class PartitionedUnion {
+
+  /** The maximum number of children of each node of the tree. */
+  private static final int NODE_CAPACITY = 16;
+
+  /** The minimum number of polygons in a subtree for it to be unioned in a separate task. */
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  /** The pool used to union subtrees in parallel, or null to union sequentially. */
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a union which runs sequentially.
+   */
+  public PartitionedUnion() {
+    this(null);
+  }
+
+  /**
+   * @param pool The pool used to union subtrees in parallel, or null to union sequentially.
+   */
+  public PartitionedUnion(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Unions a collection of polygonal geometries.
+   *
+   * @param geometries The geometries to union.
+   * @return The union of the geometries, or null if there are none.
+   */
+  public Geometry union(Collection<? extends Geometry> geometries) {
+    if (geometries.isEmpty()) {
+      return null;
+    }
+    STRtree tree = new STRtree(NODE_CAPACITY);
+    for (Geometry geometry : geometries) {
+      tree.insert(geometry.getEnvelopeInternal(), geometry);
+    }
+    UnionTask task = new UnionTask(tree.itemsTree(), geometries.size());
+    return pool == null ? task.compute() : pool.invoke(task);
+  }
+
+  /**
+   * Unions the geometries in a node of the tree, after unioning each of its child nodes.
+   */
+  private class UnionTask extends RecursiveTask<Geometry> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The geometries and child node lists of the node. */
+    private final List<?> items;
+
+    /** The approximate number of geometries in the subtree of the node. */
+    private final int size;
+
+    UnionTask(List<?> items, int size) {
+      this.items = items;
+      this.size = size;
+    }
+
+    @Override
+    protected Geometry compute() {
+      int childSize = size / Math.max(items.size(), 1);
+      boolean parallel = pool != null && childSize >= PARALLEL_THRESHOLD;
+      List<Geometry> geometries = new ArrayList<>();
+      List<ForkJoinTask<Geometry>> forks = new ArrayList<>();
+      for (Object item : items) {
+        if (item instanceof List) {
+          UnionTask child = new UnionTask((List<?>) item, childSize);
+          if (parallel) {
+            forks.add(child.fork());
+          } else {
+            geometries.add(child.compute());
+          }
+        } else {
+          geometries.add((Geometry) item);
+        }
+      }
+      for (ForkJoinTask<Geometry> fork : forks) {
+        geometries.add(fork.join());
+      }
+      return binaryUnion(geometries, 0, geometries.size());
+    }
+  }
+
+  /**
+   * Unions a range of geometries by recursively unioning each half, so that the geometries being
+   * unioned stay similar in size.
+   */
+  private Geometry binaryUnion(List<Geometry> geometries, int start, int end) {
+    if (end - start <= 1) {
+      return start < end ? geometries.get(start) : null;
+    }
+    int middle = (start + end) / 2;
+    return union(binaryUnion(geometries, start, middle), binaryUnion(geometries, middle, end));
+  }
+
+  private Geometry union(Geometry a, Geometry b) {
+    if (a == null) {
+      return b;
+    }
+    if (b == null) {
+      return a;
+    }
+    return a.union(b);
+  }
+
+}
@@ -0,0 +1,152 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * An adaptive binary range coder, which entropy codes bits with probabilities that adapt to the
+ * bits coded so far in the same context, as in LZMA.
+ *
+ * Each context is an element of a model array created by {@link #createModel(int)}. Unsigned
+ * integers are coded as the number of their significant bits, with a binary tree of contexts, and
+ * then the bits below the most significant bit directly.
+ *
+ * @see <a href="https://tukaani.org/xz/">XZ Utils</a>
+ */
+public class RangeEncoder {
+
+  /** The number of bits of the probabilities. */
+  public static final int PROBABILITY_BITS = 11;
+
+  /** The speed at which the probabilities adapt, as the shift applied to their changes. */
+  public static final int MOVE_BITS = 5;
+
+  /** The number of contexts of a model of unsigned integers, a binary tree of 6 levels. */
+  public static final int UNSIGNED_MODEL_SIZE = 1 << 6;
+
+  private static final int TOP_MASK = 0xff000000;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+  private long low = 0;
+
+  private int range = 0xffffffff;
+
+  /** The byte waiting to be written, which a carry may still increment. */
+  private int cache = 0;
+
+  /** The number of bytes waiting to be written, including the cache. */
+  private long cacheSize = 1;
+
+  /**
+   * @param size The number of contexts.
+   * @return A model with a probability of 1/2 in each context.
+   */
+  public static short[] createModel(int size) {
+    short[] model = new short[size];
+    Arrays.fill(model, (short) (1 << (PROBABILITY_BITS - 1)));
+    return model;
+  }
+
+  /**
+   * Codes a bit with the probability of its context, and adapts the probability.
+   *
+   * @param model The probabilities of the contexts.
+   * @param context The index of the context of the bit in the model.
+   * @param bit The bit, 0 or 1.
+   */
+  public void encodeBit(short[] model, int context, int bit) {
+    int probability = model[context];
+    int bound = (range >>> PROBABILITY_BITS) * probability;
+    if (bit == 0) {
+      range = bound;
+      probability += ((1 << PROBABILITY_BITS) - probability) >>> MOVE_BITS;
+    } else {
+      low += bound & 0xffffffffL;
+      range -= bound;
+      probability -= probability >>> MOVE_BITS;
+    }
+    model[context] = (short) probability;
+    normalize();
+  }
+
+  /**
+   * Codes the lowest bits of a value with a probability of 1/2 each.
+   *
+   * @param value The value.
+   * @param count The number of bits to code, most significant first.
+   */
+  public void encodeDirectBits(int value, int count) {
+    for (int i = count - 1; i >= 0; i--) {
+      range >>>= 1;
+      low += range & (0 - ((value >>> i) & 1)) & 0xffffffffL;
+      normalize();
+    }
+  }
+
+  /**
+   * Codes an unsigned integer, whose number of significant bits is coded with the contexts of a
+   * model of {@link #UNSIGNED_MODEL_SIZE}, so that integers of similar magnitudes are cheap.
+   *
+   * @param model The probabilities of the contexts.
+   * @param value The integer, which is treated as unsigned.
+   */
+  public void encodeUnsigned(short[] model, int value) {
+    int length = 32 - Integer.numberOfLeadingZeros(value);
+    int node = 1;
+    for (int i = 5; i >= 0; i--) {
+      int bit = (length >>> i) & 1;
+      encodeBit(model, node, bit);
+      node = (node << 1) | bit;
+    }
+    if (length > 1) {
+      encodeDirectBits(value, length - 1);
+    }
+  }
+
+  /**
+   * Codes a signed integer as an unsigned integer, interleaving the positive and negative values
+   * so that small magnitudes are cheap.
+   *
+   * @see #encodeUnsigned(short[], int)
+   */
+  public void encodeSigned(short[] model, int value) {
+    encodeUnsigned(model, (value << 1) ^ (value >> 31));
+  }
+
+  /**
+   * @return The coded bytes, after flushing the coder, which can't be used afterwards.
+   */
+  public byte[] finish() {
+    for (int i = 0; i < 5; i++) {
+      shiftLow();
+    }
+    return out.toByteArray();
+  }
+
+  private void normalize() {
+    if ((range & TOP_MASK) == 0) {
+      range <<= 8;
+      shiftLow();
+    }
+  }
+
+  /**
+   * Writes the top byte of the low end of the range, unless it is 0xff and so might still be
+   * incremented by a carry, in which case it is held until the carry is known.
+   */
+  private void shiftLow() {
+    int carry = (int) (low >>> 32);
+    if (carry != 0 || low < 0xff000000L) {
+      int pending = cache;
+      do {
+        out.write(pending + carry);
+        pending = 0xff;
+      } while (--cacheSize != 0);
+      cache = (int) (low >>> 24) & 0xff;
+    }
+    cacheSize++;
+    low = (low & 0x00ffffffL) << 8;
+  }
+
+}
@@ -24,11 +24,24 @@ public class Triangle {
     if (o == null || getClass() != o.getClass())
       return false;
     Triangle triangle = (Triangle) o;
-    List<Point2D> points = getPoints();
-    for (Point2D point2D : triangle.getPoints()) {
-      if (!points.contains(point2D)) return false;
+    // Compare both ways, so that triangles with repeated vertices are equal symmetrically.
+    return getPoints().containsAll(triangle.getPoints())
+        && triangle.getPoints().containsAll(getPoints());
+  }
+
+  /**
+   * Hashes the distinct vertices regardless of their order, consistent with {@link #equals}.
+   */
+  @Override
+  public int hashCode() {
+    int hash = vertex1.hashCode();
+    if (!vertex2.equals(vertex1)) {
+      hash += vertex2.hashCode();
+    }
+    if (!vertex3.equals(vertex1) && !vertex3.equals(vertex2)) {
+      hash += vertex3.hashCode();
     }
-    return true;
+    return hash;
   }
 
   public List<Point2D> getPoints() {
@@ -159,6 +159,50 @@ public class VecMathUtil {
     return tuple3dToDoubles(transformNormals);
   }
 
+  /**
+   * Transforms the mesh's positions by applying the {@link Matrix4d} transformations, without
+   * creating an object for each point.
+   *
+   * @param positions The mesh's positions to be transformed, as consecutive (x, y, z) values.
+   * @param matrix4x4 The 4x4 matrix transformation to be applied.
+   * @return A new array of the transformed positions.
+   */
+  public static double[] transformMeshPositions(double[] positions, Matrix4d matrix4x4) {
+    double[] transformed = new double[positions.length];
+    for (int i = 0; i + 2 < positions.length; i += 3) {
+      double x = positions[i];
+      double y = positions[i + 1];
+      double z = positions[i + 2];
+      transformed[i] = matrix4x4.m00 * x + matrix4x4.m01 * y + matrix4x4.m02 * z + matrix4x4.m03;
+      transformed[i + 1] =
+          matrix4x4.m10 * x + matrix4x4.m11 * y + matrix4x4.m12 * z + matrix4x4.m13;
+      transformed[i + 2] =
+          matrix4x4.m20 * x + matrix4x4.m21 * y + matrix4x4.m22 * z + matrix4x4.m23;
+    }
+    return transformed;
+  }
+
+  /**
+   * Transforms the mesh's normals by applying the rotation and scale of the {@link Matrix4d}
+   * transformations, without creating an object for each normal.
+   *
+   * @param normals The mesh's normals to be transformed, as consecutive (x, y, z) values.
+   * @param matrix4x4 The 4x4 matrix transformation to be applied.
+   * @return A new array of the transformed normals.
+   */
+  public static float[] transformMeshNormals(float[] normals, Matrix4d matrix4x4) {
+    float[] transformed = new float[normals.length];
+    for (int i = 0; i + 2 < normals.length; i += 3) {
+      double x = normals[i];
+      double y = normals[i + 1];
+      double z = normals[i + 2];
+      transformed[i] = (float) (matrix4x4.m00 * x + matrix4x4.m01 * y + matrix4x4.m02 * z);
+      transformed[i + 1] = (float) (matrix4x4.m10 * x + matrix4x4.m11 * y + matrix4x4.m12 * z);
+      transformed[i + 2] = (float) (matrix4x4.m20 * x + matrix4x4.m21 * y + matrix4x4.m22 * z);
+    }
+    return transformed;
+  }
+
   /**
    * Gets the {@link Matrix4d} from an array of floats.
    *
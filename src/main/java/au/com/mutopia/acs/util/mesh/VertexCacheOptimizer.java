@@ -0,0 +1,234 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Reorders the triangles of a mesh so that a GPU's post-transform vertex cache reuses more of the
+ * vertices it has already transformed, and reorders the vertices into the order the triangles
+ * first use them, so that fetching them from memory is more sequential.
+ *
+ * Triangles are ordered greedily by the score of their vertices, which favours vertices that are
+ * recently used in a simulated LRU cache and vertices with few remaining triangles, so that
+ * vertices are finished and can leave the cache.
+ *
+ * @see <a href="https://tomforsyth1000.github.io/papers/fast_vert_cache_opt.html">Linear-Speed
+ *      Vertex Cache Optimisation</a>
+ */
+public class VertexCacheOptimizer {
+
+  /** The number of vertices in the simulated cache. */
+  public static final int CACHE_SIZE = 32;
+
+  private static final double CACHE_DECAY_POWER = 1.5;
+
+  /** The score of the vertices of the last triangle, which is lower to avoid strips of triangles. */
+  private static final double LAST_TRIANGLE_SCORE = 0.75;
+
+  private static final double VALENCE_BOOST_SCALE = 2;
+
+  private static final double VALENCE_BOOST_POWER = 0.5;
+
+  /** The local index of each vertex of the mesh in the range being optimised, or -1. */
+  private final int[] localIndices;
+
+  /**
+   * @param vertexCount The number of vertices of the mesh.
+   */
+  public VertexCacheOptimizer(int vertexCount) {
+    this.localIndices = new int[vertexCount];
+    Arrays.fill(localIndices, -1);
+  }
+
+  /**
+   * Reorders the triangles within a range of a triangles array. Ranges (such as the triangles of
+   * each entity of a batch) are optimised independently, so they keep their places in the array.
+   *
+   * @param triangles The indices of the three vertices of each triangle.
+   * @param fromIndex The index in the triangles array of the first triangle of the range.
+   * @param toIndex The index in the triangles array after the last triangle of the range.
+   */
+  public void optimize(int[] triangles, int fromIndex, int toIndex) {
+    int indexCount = toIndex - fromIndex;
+    int triangleCount = indexCount / 3;
+    if (triangleCount < 2) {
+      return;
+    }
+    // Number the vertices of the range locally, so the work is proportional to the range.
+    int[] corners = new int[indexCount];
+    int[] vertices = new int[indexCount];
+    int vertexCount = 0;
+    for (int i = 0; i < indexCount; i++) {
+      int vertex = triangles[fromIndex + i];
+      if (localIndices[vertex] == -1) {
+        localIndices[vertex] = vertexCount;
+        vertices[vertexCount++] = vertex;
+      }
+      corners[i] = localIndices[vertex];
+    }
+    for (int i = 0; i < vertexCount; i++) {
+      localIndices[vertices[i]] = -1;
+    }
+
+    // The triangles of each vertex, and the number not yet emitted.
+    int[] remaining = new int[vertexCount];
+    for (int corner : corners) {
+      remaining[corner]++;
+    }
+    int[] offsets = new int[vertexCount + 1];
+    for (int i = 0; i < vertexCount; i++) {
+      offsets[i + 1] = offsets[i] + remaining[i];
+    }
+    int[] vertexTriangles = new int[indexCount];
+    int[] fill = Arrays.copyOf(offsets, vertexCount);
+    for (int i = 0; i < indexCount; i++) {
+      vertexTriangles[fill[corners[i]]++] = i / 3;
+    }
+
+    int[] cachePositions = new int[vertexCount];
+    Arrays.fill(cachePositions, -1);
+    double[] vertexScores = new double[vertexCount];
+    for (int i = 0; i < vertexCount; i++) {
+      vertexScores[i] = score(-1, remaining[i]);
+    }
+    double[] triangleScores = new double[triangleCount];
+    int best = 0;
+    for (int i = 0; i < triangleCount; i++) {
+      triangleScores[i] =
+          vertexScores[corners[i * 3]] + vertexScores[corners[i * 3 + 1]]
+              + vertexScores[corners[i * 3 + 2]];
+      if (triangleScores[i] > triangleScores[best]) {
+        best = i;
+      }
+    }
+
+    boolean[] emitted = new boolean[triangleCount];
+    int[] cache = new int[CACHE_SIZE + 3];
+    int[] nextCache = new int[CACHE_SIZE + 3];
+    int cacheCount = 0;
+    int cursor = 0;
+    int[] ordered = new int[indexCount];
+    for (int i = 0; i < triangleCount; i++) {
+      if (best == -1) {
+        // No triangle uses a cached vertex, so start again from the next triangle in input order.
+        while (emitted[cursor]) {
+          cursor++;
+        }
+        best = cursor;
+      }
+      emitted[best] = true;
+      int nextCount = 0;
+      for (int corner = 0; corner < 3; corner++) {
+        int vertex = corners[best * 3 + corner];
+        ordered[i * 3 + corner] = vertices[vertex];
+        remaining[vertex]--;
+        nextCache[nextCount++] = vertex;
+      }
+      for (int j = 0; j < cacheCount; j++) {
+        int vertex = cache[j];
+        if (vertex != nextCache[0] && vertex != nextCache[1] && vertex != nextCache[2]) {
+          nextCache[nextCount++] = vertex;
+        }
+      }
+      int[] swap = cache;
+      cache = nextCache;
+      nextCache = swap;
+      cacheCount = Math.min(nextCount, CACHE_SIZE);
+
+      // Rescore the vertices whose cache positions changed, including those leaving the cache.
+      for (int j = 0; j < nextCount; j++) {
+        int vertex = cache[j];
+        cachePositions[vertex] = j < CACHE_SIZE ? j : -1;
+        vertexScores[vertex] = score(cachePositions[vertex], remaining[vertex]);
+      }
+      best = -1;
+      double bestScore = 0;
+      for (int j = 0; j < nextCount; j++) {
+        int vertex = cache[j];
+        for (int k = offsets[vertex]; k < offsets[vertex + 1]; k++) {
+          int triangle = vertexTriangles[k];
+          if (emitted[triangle]) {
+            continue;
+          }
+          triangleScores[triangle] =
+              vertexScores[corners[triangle * 3]] + vertexScores[corners[triangle * 3 + 1]]
+                  + vertexScores[corners[triangle * 3 + 2]];
+          if (j < CACHE_SIZE && triangleScores[triangle] > bestScore) {
+            best = triangle;
+            bestScore = triangleScores[triangle];
+          }
+        }
+      }
+    }
+    System.arraycopy(ordered, 0, triangles, fromIndex, indexCount);
+  }
+
+  /**
+   * @param cachePosition The position of a vertex in the cache, or -1 if it is not in the cache.
+   * @param remainingTriangles The number of triangles of the vertex not yet emitted.
+   * @return The score of the vertex.
+   */
+  private static double score(int cachePosition, int remainingTriangles) {
+    if (remainingTriangles == 0) {
+      return -1;
+    }
+    double score = 0;
+    if (cachePosition >= 3) {
+      double scale = 1.0 / (CACHE_SIZE - 3);
+      score = Math.pow(1 - (cachePosition - 3) * scale, CACHE_DECAY_POWER);
+    } else if (cachePosition >= 0) {
+      score = LAST_TRIANGLE_SCORE;
+    }
+    return score + VALENCE_BOOST_SCALE * Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+  }
+
+  /**
+   * Numbers the vertices of a mesh in the order its triangles first use them. Vertices which no
+   * triangle uses are numbered last, in their original order.
+   *
+   * @param triangles The indices of the three vertices of each triangle.
+   * @param vertexCount The number of vertices of the mesh.
+   * @return The new index of each vertex.
+   */
+  public static int[] computeFetchOrder(int[] triangles, int vertexCount) {
+    int[] remap = new int[vertexCount];
+    Arrays.fill(remap, -1);
+    int next = 0;
+    for (int vertex : triangles) {
+      if (remap[vertex] == -1) {
+        remap[vertex] = next++;
+      }
+    }
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (remap[vertex] == -1) {
+        remap[vertex] = next++;
+      }
+    }
+    return remap;
+  }
+
+  /**
+   * Computes the average cache miss ratio (ACMR) of a mesh, i.e. the number of vertices
+   * transformed per triangle, with a FIFO cache as used by most GPUs.
+   *
+   * @param triangles The indices of the three vertices of each triangle.
+   * @param vertexCount The number of vertices of the mesh.
+   * @param cacheSize The number of vertices in the cache.
+   * @return The average number of cache misses per triangle, between 0.5 and 3 for most meshes.
+   */
+  public static double computeAcmr(int[] triangles, int vertexCount, int cacheSize) {
+    if (triangles.length == 0) {
+      return 0;
+    }
+    // The number of misses before each vertex was last added to the cache, initially long ago.
+    int[] addedAt = new int[vertexCount];
+    Arrays.fill(addedAt, -cacheSize - 1);
+    int misses = 0;
+    for (int vertex : triangles) {
+      if (misses - addedAt[vertex] > cacheSize) {
+        addedAt[vertex] = misses++;
+      }
+    }
+    return misses / (triangles.length / 3.0);
+  }
+
+}
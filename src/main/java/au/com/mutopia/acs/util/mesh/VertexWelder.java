@@ -0,0 +1,137 @@
+package au.com.mutopia.acs.util.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Welds the duplicate vertices of a mesh and removes the vertices which no triangle references.
+ *
+ * Vertices are welded by hashing their positions and normals snapped to a grid of the given
+ * tolerances, so vertices closer than the tolerance are welded unless they fall either side of a
+ * grid line. The first vertex of each group is kept, in the order the triangles first reference
+ * them. Triangles which become degenerate (with a repeated vertex) are removed. A tolerance of zero
+ * welds only identical values.
+ */
+public class VertexWelder {
+
+  /** Marks a slot of the hash table, or an input vertex, with no welded vertex. */
+  private static final int NONE = -1;
+
+  /** The size of the grid cells that positions are snapped to. */
+  private final double positionTolerance;
+
+  /** The size of the grid cells that the components of normals are snapped to. */
+  private final double normalTolerance;
+
+  /**
+   * @param positionTolerance The distance within which positions are welded, in the units of the
+   *        positions.
+   * @param normalTolerance The difference within which the components of normals are welded.
+   */
+  public VertexWelder(double positionTolerance, double normalTolerance) {
+    this.positionTolerance = positionTolerance;
+    this.normalTolerance = normalTolerance;
+  }
+
+  /**
+   * @param mesh The mesh to weld.
+   * @return A new mesh with duplicate and unreferenced vertices removed, or the given mesh if it
+   *         has none.
+   */
+  public IndexedMesh weld(IndexedMesh mesh) {
+    double[] positions = mesh.getPositions();
+    float[] normals = mesh.getNormals();
+    int[] triangles = mesh.getTriangles();
+    int vertexCount = mesh.getVertexCount();
+    int componentCount = normals == null ? 3 : 6;
+
+    // The snapped components of each welded vertex, and an open addressing table of their indices.
+    long[] keys = new long[Math.min(vertexCount, triangles.length) * componentCount];
+    int[] table = new int[Integer.highestOneBit(Math.max(vertexCount, 1) * 2) * 2];
+    Arrays.fill(table, NONE);
+    int mask = table.length - 1;
+    // The welded vertex of each input vertex, and the input vertex of each welded vertex.
+    int[] remap = new int[vertexCount];
+    Arrays.fill(remap, NONE);
+    int[] sources = new int[vertexCount];
+    int weldedCount = 0;
+
+    long[] key = new long[componentCount];
+    int[] weldedTriangles = new int[triangles.length];
+    int weldedIndexCount = 0;
+    for (int i = 0; i < triangles.length; i += 3) {
+      for (int corner = 0; corner < 3; corner++) {
+        int vertex = triangles[i + corner];
+        if (remap[vertex] != NONE) {
+          continue;
+        }
+        snap(positions, normals, vertex, key);
+        int slot = hash(key) & mask;
+        while (table[slot] != NONE && !matches(keys, table[slot], key)) {
+          slot = (slot + 1) & mask;
+        }
+        if (table[slot] == NONE) {
+          table[slot] = weldedCount;
+          System.arraycopy(key, 0, keys, weldedCount * componentCount, componentCount);
+          sources[weldedCount++] = vertex;
+        }
+        remap[vertex] = table[slot];
+      }
+      int a = remap[triangles[i]], b = remap[triangles[i + 1]], c = remap[triangles[i + 2]];
+      if (a != b && b != c && a != c) {
+        weldedTriangles[weldedIndexCount++] = a;
+        weldedTriangles[weldedIndexCount++] = b;
+        weldedTriangles[weldedIndexCount++] = c;
+      }
+    }
+    if (weldedCount == vertexCount && weldedIndexCount == triangles.length) {
+      return mesh;
+    }
+
+    double[] weldedPositions = new double[weldedCount * 3];
+    float[] weldedNormals = normals == null ? null : new float[weldedCount * 3];
+    for (int i = 0; i < weldedCount; i++) {
+      System.arraycopy(positions, sources[i] * 3, weldedPositions, i * 3, 3);
+      if (normals != null) {
+        System.arraycopy(normals, sources[i] * 3, weldedNormals, i * 3, 3);
+      }
+    }
+    return new IndexedMesh(weldedPositions, weldedNormals,
+        Arrays.copyOf(weldedTriangles, weldedIndexCount));
+  }
+
+  /**
+   * Snaps the position and normal of a vertex to the grid.
+   */
+  private void snap(double[] positions, float[] normals, int vertex, long[] key) {
+    for (int i = 0; i < 3; i++) {
+      key[i] = snap(positions[vertex * 3 + i], positionTolerance);
+      if (normals != null) {
+        key[i + 3] = snap(normals[vertex * 3 + i], normalTolerance);
+      }
+    }
+  }
+
+  private static long snap(double value, double tolerance) {
+    // Adding zero makes negative zero equal to zero.
+    return tolerance > 0 ? Math.round(value / tolerance) : Double.doubleToLongBits(value + 0.0);
+  }
+
+  private static boolean matches(long[] keys, int welded, long[] key) {
+    int offset = welded * key.length;
+    for (int i = 0; i < key.length; i++) {
+      if (keys[offset + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(long[] key) {
+    long hash = 0;
+    for (long component : key) {
+      hash = (hash + component) * 0x9e3779b97f4a7c15L;
+    }
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+}
@@ -60,7 +60,8 @@ public abstract class AssetTest {
     C3mlEntity actualPolygon = getFirstOfType(C3mlEntityType.POLYGON, actualC3mls);
 
     assertThatC3mlEntityIsLenientlyEqual(actualPolygon, expectedPolygon);
-    assertThatParametersAreEqual(actual.getProperties(), expected.getProperties());
+    assertThatParametersAreEqual(actual.getProperties().asMap(),
+        expected.getProperties().asMap());
   }
 
   /**
@@ -103,7 +104,8 @@ public abstract class AssetTest {
       }
       assertThatC3mlEntityIsLenientlyEqual(actualEntity, expectedEntity);
     }
-    assertThatParametersAreEqual(actual.getProperties(), expected.getProperties());
+    assertThatParametersAreEqual(actual.getProperties().asMap(),
+        expected.getProperties().asMap());
   }
 
   /**
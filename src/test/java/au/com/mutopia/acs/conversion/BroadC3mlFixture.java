@@ -9,7 +9,6 @@ import au.com.mutopia.acs.models.c3ml.Vertex3D;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Doubles;
-import com.google.common.primitives.Ints;
 
 /**
  * A {@link C3mlEntity} fixture with a broad range of features for testing. Contains one of each
@@ -79,11 +78,11 @@ public class BroadC3mlFixture extends C3mlData {
     double[] positions =
         new double[] {10.0, 10.0, -10.0, 10.0, -10.0, -10.0, -10.0, -10.0, -10.0, -10.0, 10.0,
             -10.0, 10.0, 10.0, 10.0, 10.0, -10.0, 10.0, -10.0, -10.0, 10.0, -10.0, 10.0, 10.0};
-    childMeshEntity.setPositions(Doubles.asList(positions));
+    childMeshEntity.setPositions(positions);
     int[] triangles =
         new int[] {0, 1, 2, 7, 6, 5, 4, 5, 1, 5, 6, 2, 2, 6, 7, 4, 0, 3, 3, 0, 2, 4, 7, 5, 0, 4, 1,
             1, 5, 2, 3, 2, 7, 7, 4, 3};
-    childMeshEntity.setTriangles(Ints.asList(triangles));
+    childMeshEntity.setTriangles(triangles);
     double[] geoLocation = new double[] {144.9679449048048, -37.81765634739649, 0.0};
     childMeshEntity.setGeoLocation(Doubles.asList(geoLocation));
     entity.addChild(childMeshEntity);
@@ -0,0 +1,30 @@
+package au.com.mutopia.acs.conversion;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Tests the {@link SequentialIdStrategy} class.
+ */
+public class SequentialIdStrategyTest {
+
+  /**
+   * Tests that the same content gives the same sequence of IDs, and different content doesn't.
+   */
+  @Test
+  public void testForContent() {
+    byte[] content = "<kml></kml>".getBytes(Charsets.UTF_8);
+    IdStrategy first = SequentialIdStrategy.forContent(content);
+    IdStrategy second = SequentialIdStrategy.forContent(content);
+    IdStrategy other = SequentialIdStrategy.forContent("<kml/>".getBytes(Charsets.UTF_8));
+
+    String firstId = first.nextId();
+    assertThat(firstId).endsWith("-1").isEqualTo(second.nextId());
+    assertThat(first.nextId()).endsWith("-2").isEqualTo(second.nextId());
+    assertThat(other.nextId()).isNotEqualTo(firstId);
+  }
+
+}
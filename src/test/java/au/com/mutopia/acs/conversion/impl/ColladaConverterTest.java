@@ -2,21 +2,26 @@ package au.com.mutopia.acs.conversion.impl;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import au.com.mutopia.acs.annotation.IntegrationTest;
 import au.com.mutopia.acs.conversion.BroadC3mlFixture;
+import au.com.mutopia.acs.conversion.ConversionContext;
 import au.com.mutopia.acs.conversion.ConverterTest;
+import au.com.mutopia.acs.models.Asset;
 import au.com.mutopia.acs.models.Format;
 import au.com.mutopia.acs.models.c3ml.C3mlData;
 import au.com.mutopia.acs.models.c3ml.C3mlEntity;
 import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -57,6 +62,54 @@ public class ColladaConverterTest extends ConverterTest {
   @Override
   public void testSimple() {}
 
+  /**
+   * Tests that merging the broad fixture writes a single glTF mesh directly from the parsed
+   * COLLADA geometry. The cube has 8 vertices and 12 triangles, and its normals are indexed
+   * separately from its vertices, so only the positions and the unsigned short indices are
+   * written to the buffer.
+   *
+   * @throws IOException if the broad fixture file cannot be read.
+   */
+  @Test
+  public void testConvert_merged() throws IOException {
+    Asset asset =
+        createResourceAsset("/fixtures/" + getResourceFolder() + "/broad." + getExtension());
+    List<C3mlEntity> entities = converter.convert(asset, new ConversionContext(true));
+
+    assertThat(entities).hasSize(1);
+    C3mlEntity entity = entities.get(0);
+    assertThat(entity.getType()).isEqualTo(C3mlEntityType.MESH);
+    assertThat(entity.getName()).isEqualTo("broad");
+    assertThat(entity.getPositions()).isNull();
+    assertThat(entity.getGltfData()).isNotNull();
+
+    JsonNode gltf = new ObjectMapper().readTree(entity.getGltfData());
+    assertThat(gltf.get("meshes").size()).isEqualTo(1);
+    assertThat(gltf.get("meshes").get("mesh_0").get("primitives").size()).isEqualTo(1);
+    // The root node and the node instancing the cube.
+    assertThat(gltf.get("nodes").size()).isEqualTo(2);
+    assertThat(gltf.get("materials").size()).isEqualTo(1);
+
+    JsonNode accessors = gltf.get("accessors");
+    assertThat(accessors.size()).isEqualTo(2);
+    assertThat(accessors.get("mesh_0_positions").get("count").asInt()).isEqualTo(8);
+    assertThat(accessors.get("mesh_0_positions").get("componentType").asInt()).isEqualTo(5126);
+    assertThat(accessors.get("mesh_0_indices_0").get("count").asInt()).isEqualTo(36);
+    assertThat(accessors.get("mesh_0_indices_0").get("componentType").asInt()).isEqualTo(5123);
+
+    JsonNode bufferViews = gltf.get("bufferViews");
+    assertThat(bufferViews.size()).isEqualTo(2);
+    assertThat(bufferViews.get("bufferView_vertices").get("byteLength").asInt()).isEqualTo(96);
+    assertThat(bufferViews.get("bufferView_indices").get("byteOffset").asInt()).isEqualTo(96);
+    assertThat(bufferViews.get("bufferView_indices").get("byteLength").asInt()).isEqualTo(72);
+
+    JsonNode buffers = gltf.get("buffers");
+    assertThat(buffers.size()).isEqualTo(1);
+    assertThat(buffers.get("buffer").get("byteLength").asInt()).isEqualTo(168);
+    assertThat(buffers.get("buffer").get("uri").asText())
+        .startsWith("data:application/octet-stream;base64,");
+  }
+
   /**
    * Only mesh containers are checked.
    *
@@ -0,0 +1,139 @@
+package au.com.mutopia.acs.conversion.impl;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.Offset.offset;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.Asset;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.transform.CodecRegistry;
+import au.com.mutopia.acs.util.BimServerClientPool;
+import au.com.mutopia.acs.util.FileUtils;
+import au.com.mutopia.acs.util.IfcGeometryStore;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Tests that {@link IfcConverter} transforms the geometry of many IFC objects in parallel, using
+ * geometry already extracted from the IFC file so that BIMserver is not needed.
+ */
+public class IfcConverterParallelTest {
+
+  /** The number of walls in the storey of the site. */
+  private static final int WALL_COUNT = 50;
+
+  private ForkJoinPool pool;
+
+  private BimServerClientPool clientPool;
+
+  private IfcGeometryStore geometryStore;
+
+  private IfcConverter converter;
+
+  @Before
+  public void setUp() {
+    pool = new ForkJoinPool(4);
+    clientPool = mock(BimServerClientPool.class);
+    geometryStore = new IfcGeometryStore(FileUtils.createTempDir(), 60000);
+    converter = new IfcConverter(clientPool, geometryStore, new CodecRegistry(), pool);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Tests that every wall keeps all of its parameters and gets the height, area and volume of its
+   * mesh, in the scale and location of its site.
+   */
+  @Test
+  public void testConvert() throws Exception {
+    File ifcFile = FileUtils.createTemporaryFileWithContent("walls.ifc",
+        "ISO-10303-21;".getBytes(Charsets.UTF_8));
+    geometryStore.store(geometryStore.hash(ifcFile), FileUtils.createTemporaryFileWithContent(
+        createGeometryJson().getBytes(Charsets.UTF_8)));
+
+    List<C3mlEntity> entities = converter.convert(new Asset(ifcFile), new ConversionContext());
+
+    verifyZeroInteractions(clientPool);
+    assertThat(entities).hasSize(1);
+    C3mlEntity site = entities.get(0);
+    assertThat(site.getProperties().get("type")).isEqualTo("IfcSite");
+    assertThat(site.getChildren()).hasSize(1);
+    C3mlEntity storey = site.getChildren().get(0);
+    assertThat(storey.getType()).isNotEqualTo(C3mlEntityType.MESH);
+    assertThat(storey.getProperties()).hasSize(2);
+    assertThat(storey.getProperties().get("Elevation")).isEqualTo("0");
+    assertThat(storey.getChildren()).hasSize(WALL_COUNT);
+
+    for (int i = 0; i < WALL_COUNT; i++) {
+      C3mlEntity wall = storey.getChildren().get(i);
+      Map<String, String> properties = wall.getProperties();
+      assertThat(wall.getId()).isEqualTo("wall" + i);
+      assertThat(wall.getType()).isEqualTo(C3mlEntityType.MESH);
+      assertThat(properties).hasSize(6);
+      assertThat(properties.get("type")).isEqualTo("IfcWall");
+      assertThat(properties.get("index")).isEqualTo(Integer.toString(i));
+      assertThat(properties.get("material")).isEqualTo("brick");
+
+      // The positions are in millimetres, scaled to metres by the site.
+      double height = Double.parseDouble(properties.get("height"));
+      double area = Double.parseDouble(properties.get("area"));
+      assertThat(height).isEqualTo(1 + i * 0.01, offset(1e-9));
+      assertThat(area).isGreaterThan(0);
+      assertThat(properties.get("volume")).isEqualTo(Double.toString(height * area));
+      assertThat(wall.getPositions()[0]).isEqualTo(i * 2, offset(1e-9));
+      assertThat(wall.getGeoLocation().get(0)).isEqualTo(144.95, offset(1e-9));
+      assertThat(wall.getGeoLocation().get(1)).isEqualTo(-37.8, offset(1e-9));
+    }
+  }
+
+  /**
+   * @return The geometry tree of a site with a storey containing {@link #WALL_COUNT} walls, each a
+   *         box of a different height.
+   */
+  private String createGeometryJson() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"data\":[{\"id\":\"site\",\"type\":\"IfcSite\",\"lengthUnitConversion\":0.001,"
+        + "\"latitude\":\"[-37,48,0]\",\"longitude\":\"[144,57,0]\",\"decomposedBy\":[{"
+        + "\"id\":\"storey\",\"type\":\"IfcBuildingStorey\",\"parameters\":{\"Elevation\":0},"
+        + "\"contains\":[");
+    for (int i = 0; i < WALL_COUNT; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"id\":\"wall").append(i).append("\",\"type\":\"IfcWall\",\"parameters\":{")
+          .append("\"index\":").append(i).append(",\"material\":\"brick\"},\"geometry\":{")
+          .append("\"positions\":[");
+      double x = i * 2000;
+      double z = 1000 + i * 10;
+      double[] positions = {x, 0, 0, x + 1000, 0, 0, x + 1000, 1000, 0, x, 1000, 0, x, 0, z,
+          x + 1000, 0, z, x + 1000, 1000, z, x, 1000, z};
+      for (int j = 0; j < positions.length; j++) {
+        json.append(j > 0 ? "," : "").append(positions[j]);
+      }
+      json.append("],\"normals\":[");
+      for (int j = 0; j < 8; j++) {
+        json.append(j > 0 ? "," : "").append(j < 4 ? "0,0,-1" : "0,0,1");
+      }
+      json.append("],\"triangles\":[0,2,1,0,3,2,4,5,6,4,6,7,0,1,5,0,5,4,1,2,6,1,6,5,2,3,7,2,7,6,"
+          + "3,0,4,3,4,7],\"color\":[0.5,0.5,0.5,1]}}");
+    }
+    json.append("]}]}]}");
+    return json.toString();
+  }
+
+}
@@ -6,6 +6,8 @@ import au.com.mutopia.acs.models.c3ml.C3mlEntity;
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -18,6 +20,7 @@ import au.com.mutopia.acs.annotation.IntegrationTest;
 import au.com.mutopia.acs.conversion.ConverterTest;
 import au.com.mutopia.acs.models.Format;
 import au.com.mutopia.acs.util.BimServerAuthenticator;
+import au.com.mutopia.acs.util.BimServerClientPool;
 
 /**
  * Tests conversion logic for IFC files.
@@ -31,12 +34,20 @@ public class IfcConverterTest extends ConverterTest {
   private BimServerAuthenticator bimAuth =
       new BimServerAuthenticator("http://localhost:8888", "admin@bimserver.org", "admin");
 
+  private ForkJoinPool geometryPool;
+
   /**
    * Sets up the test case with an {@link IfcConverter}.
    */
   @Before
   public void setUp() {
-    converter = new IfcConverter(bimAuth);
+    geometryPool = new ForkJoinPool(2);
+    converter = new IfcConverter(new BimServerClientPool(bimAuth, 1, 0), geometryPool);
+  }
+
+  @After
+  public void tearDown() {
+    geometryPool.shutdown();
   }
 
   @Override
@@ -0,0 +1,101 @@
+package au.com.mutopia.acs.conversion.output;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.output.AssetStore.StoredAsset;
+import au.com.mutopia.acs.exceptions.ConversionException;
+import au.com.mutopia.acs.util.FileUtils;
+
+/**
+ * Tests the {@link AssetStore} class.
+ */
+public class AssetStoreTest {
+
+  private static final byte[] DATA = {1, 2, 3};
+
+  private File rootDir;
+
+  private ScheduledExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    rootDir = FileUtils.createTempDir();
+    executor = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Tests that a stored asset is returned with its content and media type.
+   */
+  @Test
+  public void testGet() throws Exception {
+    AssetStore store = new AssetStore(rootDir, 60000);
+
+    String url = store.store("job", "mesh.glb", DATA, "model/gltf.binary");
+    assertThat(url).isEqualTo("/convert/jobs/job/assets/mesh.glb");
+
+    StoredAsset asset = store.get("job", "mesh.glb");
+    assertThat(asset.getMediaType()).isEqualTo("model/gltf.binary");
+    try {
+      assertThat(IOUtils.toByteArray(asset.getInputStream())).isEqualTo(DATA);
+    } finally {
+      asset.getInputStream().close();
+    }
+    assertThat(store.get("job", "other.glb")).isNull();
+    assertThat(store.get("other", "mesh.glb")).isNull();
+  }
+
+  /**
+   * Tests that the assets of a job are not returned once they have expired.
+   */
+  @Test
+  public void testGet_expired() throws Exception {
+    AssetStore store = new AssetStore(rootDir, 0);
+
+    store.store("job", "mesh.glb", DATA, "model/gltf.binary");
+    Thread.sleep(5);
+
+    assertThat(store.get("job", "mesh.glb")).isNull();
+    assertThat(new File(rootDir, "job").exists()).isFalse();
+  }
+
+  /**
+   * Tests that the scheduled expiry deletes the assets of a job without the store being accessed.
+   */
+  @Test
+  public void testScheduleExpiry() throws Exception {
+    AssetStore store = new AssetStore(rootDir, 50);
+    store.store("job", "mesh.glb", DATA, "model/gltf.binary");
+    assertThat(new File(rootDir, "job/mesh.glb").isFile()).isTrue();
+
+    store.scheduleExpiry(executor, 10, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < 100 && new File(rootDir, "job").exists(); i++) {
+      Thread.sleep(10);
+    }
+
+    assertThat(new File(rootDir, "job").exists()).isFalse();
+  }
+
+  /**
+   * Tests that names which could escape the root directory are rejected.
+   */
+  @Test(expected = ConversionException.class)
+  public void testStore_invalidName() throws Exception {
+    new AssetStore(rootDir, 60000).store("job", "../mesh.glb", DATA, "model/gltf.binary");
+  }
+
+}
@@ -0,0 +1,134 @@
+package au.com.mutopia.acs.conversion.output;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import au.com.mutopia.acs.models.c3ml.C3mlData;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.transform.C3mlCborReader;
+import au.com.mutopia.acs.util.CborDecoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link C3mlWriter} class.
+ */
+public class C3mlWriterTest {
+
+  private ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Tests that default fields are omitted, numbers are rounded to the precision of their units, and
+   * the output can be read back.
+   */
+  @Test
+  public void testWrite() throws Exception {
+    C3mlEntity polygon = new C3mlEntity("polygon");
+    polygon.setType(C3mlEntityType.POLYGON);
+    polygon.getCoordinateBuffer().addVertex(-37.8136276, 144.9630576, 10.5);
+    polygon.addProperty("type", "street");
+    C3mlEntity mesh = new C3mlEntity("mesh");
+    mesh.setType(C3mlEntityType.MESH);
+    mesh.setPositions(new double[] {0.12345, 1, -2.5});
+    mesh.setNormals(new float[] {0.70710677f, 0, -1});
+    mesh.setTriangles(new int[] {0, 0, 0});
+    mesh.setScale(ImmutableList.of(2.0, 2.0, 2.0));
+    C3mlData data = new C3mlData(ImmutableList.of(polygon, mesh));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    new C3mlWriter(mapper.getFactory()).write(data, outputStream);
+
+    String json = new String(outputStream.toByteArray(), Charsets.UTF_8);
+    assertThat(json).isEqualTo(
+        "{\"c3mls\":[{\"id\":\"polygon\",\"type\":\"POLYGON\",\"properties\":{\"type\":"
+            + "\"street\"},\"coordinates\":[{\"latitude\":-37.8136276,\"longitude\":144.9630576,"
+            + "\"altitude\":10.5,\"x\":144.9630576,\"y\":-37.8136276,\"z\":10.5}]},{\"id\":\"mesh\","
+            + "\"type\":\"MESH\",\"scale\":[2.0,2.0,2.0],\"positions\":[0.123,1,-2.5],\"normals\":"
+            + "[0.7071,0,-1],\"triangles\":[0,0,0]}],\"properties\":{\"type\":{\"polygon\":"
+            + "\"street\"}}}");
+    C3mlData parsed = mapper.readValue(json, C3mlData.class);
+    assertThat(parsed.getC3mls().get(1).getRotation()).isEqualTo(C3mlEntity.DEFAULT_ROTATION);
+    assertThat(parsed.getC3mls().get(0).getCoordinates()).isEqualTo(polygon.getCoordinates());
+  }
+
+  /**
+   * Tests that a property left without values by a replaced entity is not written.
+   */
+  @Test
+  public void testWrite_emptiedProperty() throws Exception {
+    C3mlEntity road = new C3mlEntity("road");
+    road.addProperty("lanes", "2");
+    C3mlEntity replacement = new C3mlEntity("road");
+    replacement.addProperty("type", "highway");
+    C3mlData data = new C3mlData(ImmutableList.of(road, replacement));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    new C3mlWriter(mapper.getFactory()).write(data, outputStream);
+
+    String json = new String(outputStream.toByteArray(), Charsets.UTF_8);
+    // The entities are written before the properties of the document.
+    assertThat(json.substring(json.lastIndexOf("\"properties\""))).isEqualTo(
+        "\"properties\":{\"type\":{\"road\":\"highway\"}}}");
+  }
+
+  /**
+   * Tests that a document written as CBOR, with typed arrays for the mesh, is read back with the
+   * same content.
+   */
+  @Test
+  public void testWriteCbor() throws Exception {
+    C3mlEntity mesh = new C3mlEntity("mesh");
+    mesh.setType(C3mlEntityType.MESH);
+    mesh.setShow(false);
+    mesh.setPositions(new double[] {144.9630576, -37.8136276, 10.5});
+    mesh.setNormals(new float[] {0.70710677f, 0, -1});
+    mesh.setTriangles(new int[] {0, 1, 70000});
+    mesh.setGltfData("{\"meshes\":{}}".getBytes(Charsets.UTF_8));
+    mesh.addProperty("type", "building");
+    C3mlData data = new C3mlData(ImmutableList.of(mesh));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    new C3mlWriter(mapper.getFactory()).writeCbor(data, outputStream);
+
+    byte[] cbor = outputStream.toByteArray();
+    assertThat(CborDecoder.isCbor(cbor)).isTrue();
+    C3mlData parsed = new C3mlCborReader().read(cbor);
+    C3mlEntity parsedMesh = parsed.getC3mls().get(0);
+    assertThat(parsedMesh.getId()).isEqualTo("mesh");
+    assertThat(parsedMesh.isShow()).isFalse();
+    assertThat(parsedMesh.getPositions()).isEqualTo(mesh.getPositions());
+    assertThat(parsedMesh.getNormals()).isEqualTo(mesh.getNormals());
+    assertThat(parsedMesh.getTriangles()).isEqualTo(mesh.getTriangles());
+    assertThat(parsedMesh.getGltfData()).isEqualTo(mesh.getGltfData());
+    assertThat(parsed.getProperties()).isEqualTo(data.getProperties());
+  }
+
+  /**
+   * Tests that CBOR numbers are rounded as in JSON, and numbers which can't be rounded are written
+   * in full.
+   */
+  @Test
+  public void testWriteCbor_rounding() throws Exception {
+    C3mlEntity entity = new C3mlEntity("entity");
+    entity.setHeight(Double.NaN);
+    entity.setAltitude(1e300);
+    entity.setGeoLocation(ImmutableList.of(144.963057612, Double.NEGATIVE_INFINITY, -0.0004));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    new C3mlWriter(mapper.getFactory()).writeCbor(new C3mlData(ImmutableList.of(entity)),
+        outputStream);
+
+    C3mlEntity parsed = new C3mlCborReader().read(outputStream.toByteArray()).getC3mls().get(0);
+    assertThat(parsed.getHeight()).isEqualTo(Double.NaN);
+    assertThat(parsed.getAltitude()).isEqualTo(1e300);
+    assertThat(parsed.getGeoLocation()).containsExactly(144.96305761, Double.NEGATIVE_INFINITY,
+        0.0);
+  }
+
+}
@@ -0,0 +1,112 @@
+package au.com.mutopia.acs.conversion.output;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlData;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+import au.com.mutopia.acs.transform.CodecRegistry;
+import au.com.mutopia.acs.util.FileUtils;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link GlbAssetWriter} class.
+ */
+public class GlbAssetWriterTest {
+
+  private static final int HEADER_LENGTH = 20;
+
+  private AssetStore assetStore;
+
+  private ConversionContext context;
+
+  @Before
+  public void setUp() throws Exception {
+    assetStore = new AssetStore(FileUtils.createTempDir(), 60000);
+    context = new ConversionContext();
+    context.setAssetStore(assetStore);
+  }
+
+  /**
+   * Tests that the mesh and its levels of detail are moved into the binary glTF, with each level
+   * as a mesh indexing the vertices of the full mesh, and that only the full mesh is rendered.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testWrite_lods() throws Exception {
+    C3mlEntity entity = new C3mlEntity("quad");
+    entity.setType(C3mlEntityType.MESH);
+    entity.setPositions(new double[] {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0});
+    entity.setTriangles(new int[] {0, 1, 2, 0, 2, 3});
+    MeshLod lod = new MeshLod();
+    lod.setTriangles(new int[] {0, 1, 2});
+    lod.setError(0.5);
+    lod.setTriangleOffsets(new int[] {0});
+    entity.setLods(ImmutableList.of(lod));
+
+    new GlbAssetWriter().write(new C3mlData(ImmutableList.of(entity)), context);
+
+    assertThat(entity.getGltfUrl()).isNotNull();
+    assertThat(entity.getPositions()).isNull();
+    assertThat(entity.getTriangles()).isNull();
+    assertThat(entity.getLods()).hasSize(1);
+    assertThat(lod.getTriangles()).isNull();
+    assertThat(lod.getError()).isEqualTo(0.5);
+    assertThat(lod.getTriangleOffsets()).isEqualTo(new int[] {0});
+
+    Map<String, Object> gltf = readGltf("quad.glb");
+    Map<String, Map<String, Object>> meshes =
+        (Map<String, Map<String, Object>>) gltf.get("meshes");
+    assertThat(meshes.keySet()).containsOnly("mesh_0", "mesh_1");
+    Map<String, Object> fullPrimitive = getPrimitive(meshes.get("mesh_0"));
+    Map<String, Object> lodPrimitive = getPrimitive(meshes.get("mesh_1"));
+    assertThat(lodPrimitive.get("attributes")).isEqualTo(fullPrimitive.get("attributes"));
+
+    Map<String, Map<String, Object>> accessors =
+        (Map<String, Map<String, Object>>) gltf.get("accessors");
+    assertThat(accessors.keySet()).containsOnly("mesh_0_positions", "mesh_0_indices_0",
+        "mesh_1_indices_0");
+    assertThat(accessors.get(fullPrimitive.get("indices")).get("count")).isEqualTo(6);
+    assertThat(accessors.get(lodPrimitive.get("indices")).get("count")).isEqualTo(3);
+
+    Map<String, Map<String, Object>> nodes =
+        (Map<String, Map<String, Object>>) gltf.get("nodes");
+    assertThat(nodes.get("node_0").get("meshes")).isEqualTo(ImmutableList.of("mesh_0"));
+    assertThat(nodes).hasSize(2);
+  }
+
+  /**
+   * @return The JSON content of the stored binary glTF asset of the conversion.
+   */
+  private Map<String, Object> readGltf(String name) throws Exception {
+    byte[] glb;
+    try (InputStream inputStream = assetStore.get(context.getJobId(), name).getInputStream()) {
+      glb = IOUtils.toByteArray(inputStream);
+    }
+    int contentLength = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN).getInt(12);
+    return new CodecRegistry().getJsonMapReader().readValue(
+        Arrays.copyOfRange(glb, HEADER_LENGTH, HEADER_LENGTH + contentLength));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> getPrimitive(Map<String, Object> mesh) {
+    List<Map<String, Object>> primitives = (List<Map<String, Object>>) mesh.get("primitives");
+    assertThat(primitives).hasSize(1);
+    return primitives.get(0);
+  }
+
+}
@@ -0,0 +1,82 @@
+package au.com.mutopia.acs.conversion.process;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link MeshBatchingProcessor} class.
+ */
+public class MeshBatchingProcessorTest {
+
+  private static final List<Integer> RED = ImmutableList.of(255, 0, 0, 255);
+
+  private static final List<Integer> BLUE = ImmutableList.of(0, 0, 255, 255);
+
+  /**
+   * Tests that meshes of the same color are batched into one entity whose triangles map back to
+   * the original entities, and that collections left empty are kept.
+   */
+  @Test
+  public void testProcess() {
+    C3mlEntity collection = new C3mlEntity("collection");
+    collection.setType(C3mlEntityType.COLLECTION);
+    collection.addProperty("Elevation", "3.5");
+    collection.addChild(createTriangle("a", RED, 0));
+    collection.addChild(createTriangle("b", BLUE, 1));
+    C3mlEntity other = createTriangle("c", RED, 2);
+    other.addProperty("Storey", "2");
+    ConversionContext context = new ConversionContext();
+    context.setBatch(true);
+
+    List<C3mlEntity> entities =
+        new MeshBatchingProcessor().process(ImmutableList.of(collection, other), context);
+
+    assertThat(entities).hasSize(3);
+    assertThat(entities.get(0)).isSameAs(collection);
+    assertThat(collection.getChildren()).isEmpty();
+    assertThat(collection.getChildrenIds()).isEmpty();
+    assertThat(collection.getProperties().get("Elevation")).isEqualTo("3.5");
+    C3mlEntity red = entities.get(1);
+    assertThat(red.getColor()).isEqualTo(RED);
+    assertThat(red.getPositions()).isEqualTo(
+        new double[] {0, 0, 0, 1, 0, 0, 0, 1, 0, 2, 0, 0, 3, 0, 0, 2, 1, 0});
+    assertThat(red.getTriangles()).isEqualTo(new int[] {0, 1, 2, 3, 4, 5});
+    MeshBatch batch = red.getBatch();
+    assertThat(batch.getIds()).containsExactly("a", "c");
+    assertThat(batch.getTriangleOffsets()).isEqualTo(new int[] {0, 1});
+    assertThat(batch.indexOfTriangle(1)).isEqualTo(1);
+    assertThat(batch.getProperties().get(1)).containsKey("Storey");
+    assertThat(entities.get(2).getBatch().getIds()).containsExactly("b");
+  }
+
+  /**
+   * Tests that the entities are unchanged if the batch option is not set.
+   */
+  @Test
+  public void testProcess_disabled() {
+    List<C3mlEntity> entities = ImmutableList.of(createTriangle("a", RED, 0));
+
+    assertThat(new MeshBatchingProcessor().process(entities, new ConversionContext())).isSameAs(
+        entities);
+  }
+
+  private C3mlEntity createTriangle(String id, List<Integer> color, double x) {
+    C3mlEntity entity = new C3mlEntity(id);
+    entity.setType(C3mlEntityType.MESH);
+    entity.setColor(color);
+    entity.setPositions(new double[] {x, 0, 0, x + 1, 0, 0, x, 1, 0});
+    entity.setTriangles(new int[] {0, 1, 2});
+    return entity;
+  }
+
+}
@@ -0,0 +1,180 @@
+package au.com.mutopia.acs.conversion.process;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link MeshSimplificationProcessor} class.
+ */
+public class MeshSimplificationProcessorTest {
+
+  private ExecutorService executor;
+
+  private MeshSimplificationProcessor processor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(2);
+    processor = new MeshSimplificationProcessor(executor);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Tests that each mesh is simplified to no more than the ratio of its triangles, without unused
+   * vertices, and that the outline of the mesh is kept.
+   */
+  @Test
+  public void testProcess_ratio() throws Exception {
+    C3mlEntity collection = new C3mlEntity("collection");
+    collection.setType(C3mlEntityType.COLLECTION);
+    collection.addChild(createGrid("a", 20));
+    C3mlEntity other = createGrid("b", 10);
+    ConversionContext context = new ConversionContext();
+    context.setSimplifyRatio(0.25);
+
+    processor.process(ImmutableList.of(collection, other), context);
+
+    C3mlEntity simplified = collection.getChildren().get(0);
+    assertThat(simplified.getTriangles().length / 3).isLessThanOrEqualTo(200).isGreaterThan(0);
+    assertThat(other.getTriangles().length / 3).isLessThanOrEqualTo(50).isGreaterThan(0);
+    assertThat(simplified.getNormals()).hasSize(simplified.getPositions().length);
+    assertThat(getMaxIndex(simplified.getTriangles()))
+        .isEqualTo(simplified.getPositions().length / 3 - 1);
+    assertBounds(simplified, 20);
+    assertBounds(other, 10);
+  }
+
+  /**
+   * Tests that a mesh is simplified until the next collapse would exceed the error limit.
+   */
+  @Test
+  public void testProcess_error() throws Exception {
+    C3mlEntity entity = createGrid("a", 20);
+    ConversionContext context = new ConversionContext();
+    context.setSimplifyError(0.05);
+
+    processor.process(ImmutableList.of(entity), context);
+
+    assertThat(entity.getTriangles().length / 3).isLessThan(800).isGreaterThan(0);
+    assertBounds(entity, 20);
+  }
+
+  /**
+   * Tests that the levels of detail go from the most to the least detailed, each within its ratio,
+   * and index the vertices of the unsimplified mesh.
+   */
+  @Test
+  public void testProcess_lods() throws Exception {
+    C3mlEntity entity = createGrid("a", 40);
+    ConversionContext context = new ConversionContext();
+    context.setLodRatios(ImmutableList.of(0.1, 0.5));
+
+    processor.process(ImmutableList.of(entity), context);
+
+    assertThat(entity.getTriangles()).hasSize(3200 * 3);
+    List<MeshLod> lods = entity.getLods();
+    assertThat(lods).hasSize(2);
+    assertThat(lods.get(0).getTriangles().length / 3).isLessThanOrEqualTo(1600);
+    assertThat(lods.get(1).getTriangles().length / 3).isLessThanOrEqualTo(320);
+    assertThat(lods.get(1).getError()).isGreaterThanOrEqualTo(lods.get(0).getError());
+    assertThat(getMaxIndex(lods.get(1).getTriangles()))
+        .isLessThan(entity.getPositions().length / 3);
+  }
+
+  /**
+   * Tests that the entities are unchanged if no simplification is asked for.
+   */
+  @Test
+  public void testProcess_disabled() throws Exception {
+    C3mlEntity entity = createGrid("a", 4);
+    int[] triangles = entity.getTriangles();
+
+    processor.process(ImmutableList.of(entity), new ConversionContext());
+
+    assertThat(entity.getTriangles()).isSameAs(triangles);
+    assertThat(entity.getLods()).isNull();
+  }
+
+  /**
+   * Asserts that the mesh still spans the horizontal extent of the grid it was created from, and
+   * has not moved outside its vertical extent.
+   */
+  private void assertBounds(C3mlEntity entity, int size) {
+    double[] positions = entity.getPositions();
+    double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+    double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+    for (int i = 0; i < positions.length; i++) {
+      min[i % 3] = Math.min(min[i % 3], positions[i]);
+      max[i % 3] = Math.max(max[i % 3], positions[i]);
+    }
+    assertThat(min[0]).isEqualTo(0);
+    assertThat(min[1]).isEqualTo(0);
+    assertThat(max[0]).isEqualTo(size);
+    assertThat(max[1]).isEqualTo(size);
+    assertThat(min[2]).isGreaterThanOrEqualTo(-1);
+    assertThat(max[2]).isLessThanOrEqualTo(1);
+  }
+
+  private int getMaxIndex(int[] triangles) {
+    int max = -1;
+    for (int index : triangles) {
+      max = Math.max(max, index);
+    }
+    return max;
+  }
+
+  /**
+   * @return A mesh entity of a square grid of the given number of cells on each side, with a sine
+   *         wave of unit amplitude.
+   */
+  private C3mlEntity createGrid(String id, int size) {
+    double[] positions = new double[(size + 1) * (size + 1) * 3];
+    float[] normals = new float[positions.length];
+    int[] triangles = new int[size * size * 6];
+    for (int y = 0, i = 0; y <= size; y++) {
+      for (int x = 0; x <= size; x++, i += 3) {
+        positions[i] = x;
+        positions[i + 1] = y;
+        positions[i + 2] = Math.sin(x * 0.5) * Math.cos(y * 0.3);
+        normals[i + 2] = 1;
+      }
+    }
+    for (int y = 0, i = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int corner = y * (size + 1) + x;
+        int above = corner + size + 1;
+        triangles[i++] = corner;
+        triangles[i++] = corner + 1;
+        triangles[i++] = above + 1;
+        triangles[i++] = corner;
+        triangles[i++] = above + 1;
+        triangles[i++] = above;
+      }
+    }
+    C3mlEntity entity = new C3mlEntity(id);
+    entity.setType(C3mlEntityType.MESH);
+    entity.setPositions(positions);
+    entity.setNormals(normals);
+    entity.setTriangles(triangles);
+    return entity;
+  }
+
+}
@@ -0,0 +1,189 @@
+package au.com.mutopia.acs.conversion.process;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the {@link MeshSplittingProcessor} class.
+ */
+public class MeshSplittingProcessorTest {
+
+  private static final List<String> IDS = ImmutableList.of("a", "b", "c");
+
+  /** The number of quads in the strip of each batched entity. */
+  private static final int QUADS = 4;
+
+  /**
+   * Tests that a mesh with too many vertices becomes a collection of chunks, and that its
+   * properties are kept on the collection only.
+   */
+  @Test
+  public void testProcess() {
+    C3mlEntity entity = createBatch();
+    entity.setBatch(null);
+    entity.addProperty("type", "building");
+
+    new MeshSplittingProcessor(8).process(ImmutableList.of(entity), new ConversionContext());
+
+    assertThat(entity.getType()).isEqualTo(C3mlEntityType.COLLECTION);
+    assertThat(entity.getPositions()).isNull();
+    assertThat(entity.getTriangles()).isNull();
+    assertThat(entity.getProperties()).isEqualTo(ImmutableMap.of("type", "building"));
+    assertThat(entity.getChildren().size()).isGreaterThan(1);
+    int triangleCount = 0;
+    for (C3mlEntity chunk : entity.getChildren()) {
+      assertThat(chunk.getType()).isEqualTo(C3mlEntityType.MESH);
+      assertThat(chunk.getPositions().length / 3).isLessThanOrEqualTo(8);
+      assertThat(chunk.getProperties()).isEmpty();
+      assertThat(chunk.getColor()).isEqualTo(entity.getColor());
+      triangleCount += chunk.getTriangles().length / 3;
+    }
+    assertThat(triangleCount).isEqualTo(IDS.size() * QUADS * 2);
+  }
+
+  /**
+   * Tests that the batch and levels of detail of each chunk map its triangles back to the
+   * entities they came from, and that the properties of each batched entity are given once.
+   */
+  @Test
+  public void testProcess_batch() {
+    C3mlEntity entity = createBatch();
+
+    new MeshSplittingProcessor(8).process(ImmutableList.of(entity), new ConversionContext());
+
+    assertThat(entity.getBatch()).isNull();
+    assertThat(entity.getLods()).isNull();
+    Map<String, Integer> propertyCounts = new HashMap<>();
+    int triangleCount = 0;
+    int lodTriangleCount = 0;
+    for (C3mlEntity chunk : entity.getChildren()) {
+      MeshBatch batch = chunk.getBatch();
+      assertThat(batch.getTriangleOffsets()).hasSize(batch.size());
+      assertThat(batch.getNames()).hasSize(batch.size());
+      assertTrianglesMatchIds(chunk.getPositions(), chunk.getTriangles(),
+          batch.getTriangleOffsets(), batch.getIds());
+      MeshLod lod = chunk.getLods().get(0);
+      assertThat(lod.getError()).isEqualTo(0.5);
+      assertThat(lod.getTriangleOffsets()).hasSize(batch.size());
+      assertTrianglesMatchIds(chunk.getPositions(), lod.getTriangles(), lod.getTriangleOffsets(),
+          batch.getIds());
+      triangleCount += chunk.getTriangles().length / 3;
+      lodTriangleCount += lod.getTriangles().length / 3;
+
+      for (int i = 0; i < batch.size(); i++) {
+        String id = batch.getIds().get(i);
+        assertThat(batch.getNames().get(i)).isEqualTo("name-" + id);
+        if (!batch.getProperties().get(i).isEmpty()) {
+          assertThat(batch.getProperties().get(i)).isEqualTo(ImmutableMap.of("id", id));
+          Integer count = propertyCounts.get(id);
+          propertyCounts.put(id, count == null ? 1 : count + 1);
+        }
+      }
+    }
+    assertThat(triangleCount).isEqualTo(IDS.size() * QUADS * 2);
+    assertThat(lodTriangleCount).isEqualTo(IDS.size() * 2);
+    assertThat(propertyCounts).isEqualTo(ImmutableMap.of("a", 1, "b", 1, "c", 1));
+  }
+
+  /**
+   * Tests that meshes which fit within the limit are unchanged.
+   */
+  @Test
+  public void testProcess_small() {
+    C3mlEntity entity = createBatch();
+    double[] positions = entity.getPositions();
+
+    new MeshSplittingProcessor().process(ImmutableList.of(entity), new ConversionContext());
+
+    assertThat(entity.getType()).isEqualTo(C3mlEntityType.MESH);
+    assertThat(entity.getPositions()).isSameAs(positions);
+    assertThat(entity.getChildren()).isEmpty();
+  }
+
+  /**
+   * Asserts that the batched entity of each triangle, found from the offsets, is the one whose
+   * strip contains the triangle.
+   */
+  private void assertTrianglesMatchIds(double[] positions, int[] triangles, int[] offsets,
+      List<String> ids) {
+    for (int triangle = 0; triangle < triangles.length / 3; triangle++) {
+      double x = 0;
+      for (int corner = 0; corner < 3; corner++) {
+        x += positions[triangles[triangle * 3 + corner] * 3] / 3;
+      }
+      String id = ids.get(MeshBatch.indexOfTriangle(offsets, triangle));
+      assertThat(id).isEqualTo(IDS.get((int) (x / 10)));
+    }
+  }
+
+  /**
+   * @return A mesh entity batching a strip of quads for each of the {@link #IDS}, 10 units apart,
+   *         with a level of detail of a single quad for each.
+   */
+  private C3mlEntity createBatch() {
+    int verticesPerStrip = (QUADS + 1) * 2;
+    double[] positions = new double[IDS.size() * verticesPerStrip * 3];
+    int[] triangles = new int[IDS.size() * QUADS * 6];
+    int[] lodTriangles = new int[IDS.size() * 6];
+    MeshBatch batch = new MeshBatch();
+    batch.setTriangleOffsets(new int[IDS.size()]);
+    int[] lodOffsets = new int[IDS.size()];
+    int p = 0;
+    int t = 0;
+    for (int i = 0; i < IDS.size(); i++) {
+      int first = i * verticesPerStrip;
+      for (int x = 0; x <= QUADS; x++) {
+        for (int y = 0; y < 2; y++) {
+          positions[p++] = i * 10 + x;
+          positions[p++] = y;
+          positions[p++] = 0;
+        }
+      }
+      batch.getTriangleOffsets()[i] = t / 3;
+      for (int x = 0; x < QUADS; x++) {
+        int corner = first + x * 2;
+        triangles[t++] = corner;
+        triangles[t++] = corner + 2;
+        triangles[t++] = corner + 3;
+        triangles[t++] = corner;
+        triangles[t++] = corner + 3;
+        triangles[t++] = corner + 1;
+      }
+      int last = first + QUADS * 2;
+      lodOffsets[i] = i * 2;
+      System.arraycopy(new int[] {first, last, last + 1, first, last + 1, first + 1}, 0,
+          lodTriangles, i * 6, 6);
+      batch.getIds().add(IDS.get(i));
+      batch.getNames().add("name-" + IDS.get(i));
+      batch.getProperties().add(ImmutableMap.of("id", IDS.get(i)));
+    }
+    MeshLod lod = new MeshLod();
+    lod.setTriangles(lodTriangles);
+    lod.setTriangleOffsets(lodOffsets);
+    lod.setError(0.5);
+
+    C3mlEntity entity = new C3mlEntity("batch");
+    entity.setType(C3mlEntityType.MESH);
+    entity.setColor(ImmutableList.of(255, 0, 0, 255));
+    entity.setPositions(positions);
+    entity.setTriangles(triangles);
+    entity.setBatch(batch);
+    entity.setLods(ImmutableList.of(lod));
+    return entity;
+  }
+
+}
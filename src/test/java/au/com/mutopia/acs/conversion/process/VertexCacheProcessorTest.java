@@ -0,0 +1,238 @@
+package au.com.mutopia.acs.conversion.process;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.ConversionContext;
+import au.com.mutopia.acs.models.c3ml.C3mlEntity;
+import au.com.mutopia.acs.models.c3ml.C3mlEntityType;
+import au.com.mutopia.acs.models.c3ml.MeshBatch;
+import au.com.mutopia.acs.models.c3ml.MeshLod;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link VertexCacheProcessor} class.
+ */
+public class VertexCacheProcessorTest {
+
+  private static final List<String> IDS = ImmutableList.of("a", "b", "c");
+
+  /** The number of cells on each side of the grid of each batched entity. */
+  private static final int SIZE = 4;
+
+  private ExecutorService executor;
+
+  private VertexCacheProcessor processor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(2);
+    processor = new VertexCacheProcessor(executor);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Tests that the triangles of each batched entity and level of detail are reordered within their
+   * own ranges, and that the vertices are reordered by first use without changing the geometry.
+   */
+  @Test
+  public void testProcess_batch() throws Exception {
+    C3mlEntity entity = createBatch();
+    MeshLod lod = entity.getLods().get(0);
+    List<String> triangles = getTriangles(entity.getPositions(), entity.getTriangles());
+    List<String> lodTriangles = getTriangles(entity.getPositions(), lod.getTriangles());
+    int[] offsets = entity.getBatch().getTriangleOffsets().clone();
+    int[] lodOffsets = lod.getTriangleOffsets().clone();
+    ConversionContext context = new ConversionContext();
+    context.setOptimize(true);
+
+    processor.process(ImmutableList.of(entity), context);
+
+    double[] positions = entity.getPositions();
+    assertThat(positions).hasSize((IDS.size() * (SIZE + 1) * (SIZE + 1) + 3) * 3);
+    assertThat(entity.getBatch().getTriangleOffsets()).isEqualTo(offsets);
+    assertThat(lod.getTriangleOffsets()).isEqualTo(lodOffsets);
+    assertThat(getTriangles(positions, entity.getTriangles())).isEqualTo(triangles);
+    assertThat(getTriangles(positions, lod.getTriangles())).isEqualTo(lodTriangles);
+    assertTrianglesMatchIds(positions, entity.getTriangles(), offsets);
+    assertTrianglesMatchIds(positions, lod.getTriangles(), lodOffsets);
+    assertNormals(positions, entity.getNormals());
+
+    int next = 0;
+    for (int vertex : entity.getTriangles()) {
+      assertThat(vertex).isLessThanOrEqualTo(next);
+      next = Math.max(next, vertex + 1);
+    }
+  }
+
+  /**
+   * Tests that the mesh is unchanged if the conversion doesn't ask for optimisation.
+   */
+  @Test
+  public void testProcess_disabled() throws Exception {
+    C3mlEntity entity = createBatch();
+    double[] positions = entity.getPositions();
+    int[] triangles = entity.getTriangles().clone();
+
+    processor.process(ImmutableList.of(entity), new ConversionContext());
+
+    assertThat(entity.getPositions()).isSameAs(positions);
+    assertThat(entity.getTriangles()).isEqualTo(triangles);
+  }
+
+  /**
+   * @return The sorted positions of the corners of each triangle, starting from the least corner
+   *         so that the winding of the triangle is kept.
+   */
+  private List<String> getTriangles(double[] positions, int[] triangles) {
+    List<String> keys = new ArrayList<>();
+    for (int triangle = 0; triangle < triangles.length / 3; triangle++) {
+      String[] corners = new String[3];
+      int first = 0;
+      for (int corner = 0; corner < 3; corner++) {
+        int vertex = triangles[triangle * 3 + corner];
+        corners[corner] = positions[vertex * 3] + "," + positions[vertex * 3 + 1];
+        if (corners[corner].compareTo(corners[first]) < 0) {
+          first = corner;
+        }
+      }
+      keys.add(corners[first] + " " + corners[(first + 1) % 3] + " " + corners[(first + 2) % 3]);
+    }
+    Collections.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Asserts that the batched entity of each triangle, found from the offsets, is the one whose
+   * grid contains the triangle.
+   */
+  private void assertTrianglesMatchIds(double[] positions, int[] triangles, int[] offsets) {
+    for (int triangle = 0; triangle < triangles.length / 3; triangle++) {
+      double x = 0;
+      for (int corner = 0; corner < 3; corner++) {
+        x += positions[triangles[triangle * 3 + corner] * 3] / 3;
+      }
+      assertThat(MeshBatch.indexOfTriangle(offsets, triangle)).isEqualTo((int) (x / 10));
+    }
+  }
+
+  /**
+   * Asserts that each vertex still has the normal created for its position.
+   */
+  private void assertNormals(double[] positions, float[] normals) {
+    assertThat(normals).hasSize(positions.length);
+    for (int i = 0; i < positions.length; i += 3) {
+      assertThat(normals[i]).isEqualTo((float) (positions[i] / 100));
+      assertThat(normals[i + 1]).isEqualTo((float) (positions[i + 1] / 100));
+    }
+  }
+
+  /**
+   * @return A mesh entity batching a square grid for each of the {@link #IDS}, 10 units apart, with
+   *         a level of detail of a single quad for each. The vertices and the triangles of each
+   *         grid are shuffled, and each vertex has a normal derived from its position. The last
+   *         entity and its level of detail also have a detached triangle, which the optimizer
+   *         would move to the start of the mesh if it ignored the ranges of the batch.
+   */
+  private C3mlEntity createBatch() {
+    Random random = new Random(0);
+    int verticesPerGrid = (SIZE + 1) * (SIZE + 1);
+    List<Integer> order = new ArrayList<>();
+    for (int vertex = 0; vertex < IDS.size() * verticesPerGrid; vertex++) {
+      order.add(vertex);
+    }
+    Collections.shuffle(order, random);
+
+    double[] positions = new double[(order.size() + 3) * 3];
+    float[] normals = new float[positions.length];
+    int[] triangles = new int[IDS.size() * SIZE * SIZE * 6 + 3];
+    int[] lodTriangles = new int[IDS.size() * 6 + 3];
+    MeshBatch batch = new MeshBatch();
+    batch.setTriangleOffsets(new int[IDS.size()]);
+    int[] lodOffsets = new int[IDS.size()];
+    int t = 0;
+    for (int i = 0; i < IDS.size(); i++) {
+      for (int y = 0; y <= SIZE; y++) {
+        for (int x = 0; x <= SIZE; x++) {
+          addVertex(positions, normals, order.get(i * verticesPerGrid + y * (SIZE + 1) + x),
+              i * 10 + x, y);
+        }
+      }
+      batch.getTriangleOffsets()[i] = t / 3;
+      List<int[]> entityTriangles = new ArrayList<>();
+      for (int y = 0; y < SIZE; y++) {
+        for (int x = 0; x < SIZE; x++) {
+          int corner = order.get(i * verticesPerGrid + y * (SIZE + 1) + x);
+          int right = order.get(i * verticesPerGrid + y * (SIZE + 1) + x + 1);
+          int above = order.get(i * verticesPerGrid + (y + 1) * (SIZE + 1) + x);
+          int aboveRight = order.get(i * verticesPerGrid + (y + 1) * (SIZE + 1) + x + 1);
+          entityTriangles.add(new int[] {corner, right, aboveRight});
+          entityTriangles.add(new int[] {corner, aboveRight, above});
+        }
+      }
+      int[] detached = null;
+      if (i == IDS.size() - 1) {
+        int vertex = order.size();
+        addVertex(positions, normals, vertex, i * 10 + SIZE + 1, 0);
+        addVertex(positions, normals, vertex + 1, i * 10 + SIZE + 2, 0);
+        addVertex(positions, normals, vertex + 2, i * 10 + SIZE + 1, 1);
+        detached = new int[] {vertex, vertex + 1, vertex + 2};
+        entityTriangles.add(detached);
+      }
+      Collections.shuffle(entityTriangles, random);
+      for (int[] triangle : entityTriangles) {
+        System.arraycopy(triangle, 0, triangles, t, 3);
+        t += 3;
+      }
+
+      int first = order.get(i * verticesPerGrid);
+      int right = order.get(i * verticesPerGrid + SIZE);
+      int top = order.get(i * verticesPerGrid + SIZE * (SIZE + 1));
+      int last = order.get((i + 1) * verticesPerGrid - 1);
+      lodOffsets[i] = i * 2;
+      System.arraycopy(new int[] {first, right, last, first, last, top}, 0, lodTriangles, i * 6,
+          6);
+      if (detached != null) {
+        System.arraycopy(detached, 0, lodTriangles, i * 6 + 6, 3);
+      }
+      batch.getIds().add(IDS.get(i));
+    }
+    MeshLod lod = new MeshLod();
+    lod.setTriangles(lodTriangles);
+    lod.setTriangleOffsets(lodOffsets);
+    lod.setError(0.5);
+
+    C3mlEntity entity = new C3mlEntity("batch");
+    entity.setType(C3mlEntityType.MESH);
+    entity.setPositions(positions);
+    entity.setNormals(normals);
+    entity.setTriangles(triangles);
+    entity.setBatch(batch);
+    entity.setLods(ImmutableList.of(lod));
+    return entity;
+  }
+
+  private void addVertex(double[] positions, float[] normals, int vertex, double x, double y) {
+    positions[vertex * 3] = x;
+    positions[vertex * 3 + 1] = y;
+    normals[vertex * 3] = (float) (x / 100);
+    normals[vertex * 3 + 1] = (float) (y / 100);
+    normals[vertex * 3 + 2] = 1;
+  }
+
+}
@@ -2,8 +2,12 @@ package au.com.mutopia.acs.models.c3ml;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
+import au.com.mutopia.acs.transform.JsonModule;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -23,4 +27,68 @@ public class C3mlEntityTest {
     assertThat(json).contains("\"children\":[\"foo\"]");
   }
 
+  /**
+   * Tests that the mesh arrays are written as JSON arrays of numbers, and read back.
+   */
+  @Test
+  public void testJson_meshArrays() throws Exception {
+    C3mlEntity entity = new C3mlEntity("foo");
+    entity.setPositions(new double[] {0.5, 1, 2});
+    entity.setNormals(new float[] {0, 0, 1});
+    entity.setTriangles(new int[] {0, 0, 0});
+    ObjectMapper mapper = new ObjectMapper();
+    String json = mapper.writeValueAsString(entity);
+    assertThat(json).contains("\"positions\":[0.5,1.0,2.0]");
+    assertThat(json).contains("\"normals\":[0.0,0.0,1.0]");
+    assertThat(json).contains("\"triangles\":[0,0,0]");
+
+    C3mlEntity parsed = mapper.readValue(
+        "{\"positions\":[0.5,1,2],\"normals\":[0,0,1],\"triangles\":[0,0,0]}",
+        C3mlEntity.class);
+    assertThat(parsed.getPositions()).isEqualTo(entity.getPositions());
+    assertThat(parsed.getNormals()).isEqualTo(entity.getNormals());
+    assertThat(parsed.getTriangles()).isEqualTo(entity.getTriangles());
+  }
+
+  /**
+   * Tests that packed coordinates and holes are written as arrays of point objects.
+   */
+  @Test
+  public void testJson_coordinateBuffer() throws Exception {
+    C3mlEntity entity = new C3mlEntity("foo");
+    CoordinateBuffer coordinates = new CoordinateBuffer();
+    coordinates.addVertex(-37.5, 144.5, 10);
+    coordinates.addVertex(-37.5, 145, 20);
+    entity.setCoordinates(coordinates);
+    entity.getHoles().add(Arrays.asList(new Vertex3D(-37.5, 144.75, 0)));
+
+    String json = new ObjectMapper().writeValueAsString(entity);
+    assertThat(json).contains("\"coordinates\":[{\"latitude\":-37.5,\"longitude\":144.5,"
+        + "\"altitude\":10.0,\"x\":144.5,\"y\":-37.5,\"z\":10.0},{");
+    assertThat(json).contains("\"holes\":[[{\"latitude\":-37.5,\"longitude\":144.75,");
+    assertThat(entity.getAltitude()).isEqualTo(10.0);
+    assertThat(entity.getHeight()).isEqualTo(10.0);
+    assertThat(entity.getCoordinates().get(1)).isEqualTo(new Vertex3D(-37.5, 145, 20));
+  }
+
+  /**
+   * Tests that coordinates and holes are read as either coordinate arrays or point objects.
+   */
+  @Test
+  public void testJson_readCoordinates() throws Exception {
+    ObjectMapper mapper = new ObjectMapper().registerModule(new JsonModule());
+    C3mlEntity entity = mapper.readValue("{\"coordinates\":[[144.5,-37.5,10],"
+        + "{\"latitude\":-37.5,\"longitude\":145,\"altitude\":20,\"x\":145,\"y\":-37.5}],"
+        + "\"holes\":[[[144.75,-37.5,0]],[[144.8,-37.5],[144.9,-37.5,1]]]}", C3mlEntity.class);
+
+    assertThat(entity.getCoordinates()).containsExactly(new Vertex3D(-37.5, 144.5, 10),
+        new Vertex3D(-37.5, 145, 20));
+    assertThat(entity.getAltitude()).isEqualTo(10.0);
+    assertThat(entity.getHoles()).hasSize(2);
+    assertThat(entity.getHoles().get(1)).containsExactly(new Vertex3D(-37.5, 144.8, 0),
+        new Vertex3D(-37.5, 144.9, 1));
+    assertThat(mapper.readValue("[144.5,-37.5,10]", Vertex3D.class)).isEqualTo(
+        new Vertex3D(-37.5, 144.5, 10));
+  }
+
 }
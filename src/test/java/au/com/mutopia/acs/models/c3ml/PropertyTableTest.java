@@ -0,0 +1,121 @@
+package au.com.mutopia.acs.models.c3ml;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests the {@link PropertyTable} class and its serialization as part of {@link C3mlData}.
+ */
+public class PropertyTableTest {
+
+  /**
+   * Tests that the properties of entities are serialized by name and then entity ID, and read back
+   * to an equal table.
+   */
+  @Test
+  public void testJson() throws Exception {
+    C3mlEntity road = new C3mlEntity("road");
+    road.addProperty("type", "street");
+    road.addProperty("lanes", "2");
+    C3mlEntity lane = new C3mlEntity("lane");
+    lane.addProperty("type", "street");
+    C3mlData data = new C3mlData();
+    data.setEntities(ImmutableList.of(road, lane, new C3mlEntity("empty")));
+
+    ObjectMapper mapper = new ObjectMapper();
+    String json = mapper.writeValueAsString(data);
+    // The property names are in the unspecified order of the first entity's properties.
+    assertThat(json).contains("\"type\":{\"road\":\"street\",\"lane\":\"street\"}");
+    assertThat(json).contains("\"lanes\":{\"road\":\"2\"}");
+
+    C3mlData parsed = mapper.readValue(json, C3mlData.class);
+    assertThat(parsed.getProperties()).isEqualTo(data.getProperties());
+    assertThat(data.getProperties().asMap()).isEqualTo(
+        ImmutableMap.of("type", ImmutableMap.of("road", "street", "lane", "street"), "lanes",
+            ImmutableMap.of("road", "2")));
+  }
+
+  /**
+   * Tests that repeated values are shared between entities through the dictionary, without the
+   * properties of the entities being modified.
+   */
+  @Test
+  public void testAddRow_sharesValues() {
+    String firstValue = new String("street");
+    String secondValue = new String("street");
+    Map<String, String> secondProperties = ImmutableMap.of("type", secondValue);
+    PropertyTable table = new PropertyTable();
+
+    table.addRow("first", ImmutableMap.of("type", firstValue));
+    table.addRow("second", secondProperties);
+
+    assertThat(table.getValue(0, 1)).isSameAs(table.getValue(0, 0)).isEqualTo("street");
+    assertThat(secondProperties.get("type")).isSameAs(secondValue);
+  }
+
+  /**
+   * Tests that adding a row for an entity which already has one replaces its properties, rather
+   * than adding a second row.
+   */
+  @Test
+  public void testAddRow_replacesRow() {
+    PropertyTable table = new PropertyTable();
+
+    table.addRow("road", Maps.newHashMap(ImmutableMap.of("type", "street", "lanes", "2")));
+    table.addRow("lane", Maps.newHashMap(ImmutableMap.of("type", "street")));
+    table.addRow("road", Maps.newHashMap(ImmutableMap.of("type", "highway")));
+
+    assertThat(table.getRowCount()).isEqualTo(2);
+    assertThat(table.asMap()).isEqualTo(
+        ImmutableMap.of("type", ImmutableMap.of("road", "highway", "lane", "street")));
+  }
+
+  /**
+   * Tests that a property left without values by replaced rows is left out of the map and the
+   * JSON of the table alike.
+   */
+  @Test
+  public void testAddRow_emptiedColumn() throws Exception {
+    C3mlEntity road = new C3mlEntity("road");
+    road.addProperty("type", "street");
+    road.addProperty("lanes", "2");
+    C3mlEntity replacement = new C3mlEntity("road");
+    replacement.addProperty("type", "highway");
+    C3mlData data = new C3mlData();
+    data.setEntities(ImmutableList.of(road, replacement));
+
+    PropertyTable table = data.getProperties();
+    assertThat(table.getColumnCount()).isEqualTo(2);
+    for (int column = 0; column < table.getColumnCount(); column++) {
+      boolean lanes = table.getColumnName(column).equals("lanes");
+      assertThat(table.isColumnEmpty(column)).isEqualTo(lanes);
+    }
+    assertThat(data.getProperties().asMap()).isEqualTo(
+        ImmutableMap.of("type", ImmutableMap.of("road", "highway")));
+    ObjectMapper mapper = new ObjectMapper();
+    String json = mapper.writeValueAsString(data);
+    assertThat(json).contains("\"properties\":{\"type\":{\"road\":\"highway\"}}");
+    assertThat(mapper.readValue(json, C3mlData.class).getProperties()).isEqualTo(
+        data.getProperties());
+  }
+
+  /**
+   * Tests that the map view of the table can't be modified.
+   */
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAsMap_unmodifiable() {
+    PropertyTable table = new PropertyTable();
+    table.addRow("road", Maps.newHashMap(ImmutableMap.of("type", "street")));
+
+    table.asMap().get("type").put("lane", "street");
+  }
+
+}
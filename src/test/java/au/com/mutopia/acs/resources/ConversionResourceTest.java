@@ -0,0 +1,70 @@
+package au.com.mutopia.acs.resources;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.mutopia.acs.conversion.output.AssetStore;
+import au.com.mutopia.acs.util.FileUtils;
+
+/**
+ * Tests the {@link ConversionResource} class.
+ */
+public class ConversionResourceTest {
+
+  private AssetStore assetStore;
+
+  private ConversionResource resource;
+
+  @Before
+  public void setUp() throws Exception {
+    assetStore = new AssetStore(FileUtils.createTempDir(), 60000);
+    resource = new ConversionResource(null, assetStore, null, null);
+  }
+
+  /**
+   * Tests that a stored asset is served with the media type it was stored with.
+   */
+  @Test
+  public void testGetAsset() throws Exception {
+    assetStore.store("job", "mesh.glb", new byte[] {1, 2, 3}, "model/gltf.binary");
+    assetStore.store("job", "image.png", new byte[] {4}, "image/png");
+
+    Response response = resource.getAsset("job", "mesh.glb");
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getMetadata().getFirst("Content-Type").toString()).isEqualTo(
+        "model/gltf.binary");
+    InputStream inputStream = (InputStream) response.getEntity();
+    try {
+      assertThat(IOUtils.toByteArray(inputStream)).isEqualTo(new byte[] {1, 2, 3});
+    } finally {
+      inputStream.close();
+    }
+
+    response = resource.getAsset("job", "image.png");
+    assertThat(response.getMetadata().getFirst("Content-Type").toString()).isEqualTo("image/png");
+    ((InputStream) response.getEntity()).close();
+  }
+
+  /**
+   * Tests that a missing asset is not found.
+   */
+  @Test
+  public void testGetAsset_missing() throws Exception {
+    try {
+      resource.getAsset("job", "mesh.glb");
+      fail("Expected a missing asset to not be found");
+    } catch (WebApplicationException e) {
+      assertThat(e.getResponse().getStatus()).isEqualTo(404);
+    }
+  }
+
+}
@@ -0,0 +1,168 @@
+package au.com.mutopia.acs.transform;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import au.com.mutopia.acs.models.c3ml.Vertex3D;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Measures the time and memory taken to deserialize the coordinates of a C3ML entity, comparing
+ * the tree-based {@link Vertex3D} deserialization this package used to do with the streaming
+ * {@link VertexDeserializer} and the packed {@link CoordinateListDeserializer}.
+ *
+ * This is not a unit test and is not run by the build. To run it after compiling the tests:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -DmainClass=au.com.mutopia.acs.transform.CoordinateDeserializationBenchmark \
+ *     -Dpoints=100000 -Dreads=20
+ * </pre>
+ *
+ * The points property is the number of points in the document, and the reads property the number
+ * of measured reads, which follow the same number of warm-up reads. Any arguments are ignored.
+ */
+public class CoordinateDeserializationBenchmark {
+
+  private static final int DEFAULT_POINTS = 100000;
+
+  private static final int DEFAULT_READS = 20;
+
+  public static void main(String[] args) throws IOException {
+    int points = Integer.getInteger("points", DEFAULT_POINTS);
+    int reads = Integer.getInteger("reads", DEFAULT_READS);
+    byte[] json = createDocument(points).getBytes("UTF-8");
+    ObjectMapper mapper = new ObjectMapper();
+
+    System.out.printf(Locale.ROOT, "%d points, %d bytes, %d reads%n", points, json.length, reads);
+    measure("readTree + ImmutableList", mapper.reader(TreeCoordinates.class), json, points, reads);
+    measure("VertexDeserializer", mapper.reader(StreamedCoordinates.class), json, points, reads);
+    measure("CoordinateListDeserializer", mapper.reader(PackedCoordinates.class), json, points,
+        reads);
+  }
+
+  /**
+   * @return A document with a coordinates field of the given number of random points.
+   */
+  private static String createDocument(int points) {
+    Random random = new Random(0);
+    StringBuilder json = new StringBuilder("{\"coordinates\":[");
+    for (int i = 0; i < points; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append('[').append(144.9 + random.nextDouble() / 10).append(',')
+          .append(-37.8 + random.nextDouble() / 10).append(',')
+          .append(random.nextInt(10000) / 100.0).append(']');
+    }
+    return json.append("]}").toString();
+  }
+
+  /**
+   * Reads the document with the reader the given number of times to warm up, then prints the
+   * median time of the reads measured and the mean memory they allocated.
+   */
+  private static void measure(String name, ObjectReader reader, byte[] json, int points,
+      int reads) throws IOException {
+    for (int i = 0; i < reads; i++) {
+      read(reader, json, points);
+    }
+    long[] times = new long[reads];
+    long startBytes = getAllocatedBytes();
+    for (int i = 0; i < reads; i++) {
+      long startTime = System.nanoTime();
+      read(reader, json, points);
+      times[i] = System.nanoTime() - startTime;
+    }
+    long bytes = getAllocatedBytes() - startBytes;
+    Arrays.sort(times);
+    System.out.printf(Locale.ROOT, "%-28s %8.2f ms/read %8.1f bytes/point%n", name,
+        times[reads / 2] / 1e6, bytes < 0 ? Double.NaN : (double) bytes / reads / points);
+  }
+
+  private static void read(ObjectReader reader, byte[] json, int points) throws IOException {
+    Coordinates coordinates = reader.readValue(json);
+    if (coordinates.getCoordinates().size() != points) {
+      throw new IllegalStateException("Expected " + points + " points");
+    }
+  }
+
+  /**
+   * @return The number of bytes allocated by the current thread, or -1 if the JVM doesn't report
+   *         it.
+   */
+  private static long getAllocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread
+          .currentThread().getId());
+    }
+    return -1;
+  }
+
+  private abstract static class Coordinates {
+    abstract List<Vertex3D> getCoordinates();
+  }
+
+  private static class TreeCoordinates extends Coordinates {
+    @JsonDeserialize(contentUsing = TreeVertexDeserializer.class)
+    public List<Vertex3D> coordinates;
+
+    @Override
+    List<Vertex3D> getCoordinates() {
+      return coordinates;
+    }
+  }
+
+  private static class StreamedCoordinates extends Coordinates {
+    @JsonDeserialize(contentUsing = VertexDeserializer.class)
+    public List<Vertex3D> coordinates;
+
+    @Override
+    List<Vertex3D> getCoordinates() {
+      return coordinates;
+    }
+  }
+
+  private static class PackedCoordinates extends Coordinates {
+    @JsonDeserialize(using = CoordinateListDeserializer.class)
+    public List<Vertex3D> coordinates;
+
+    @Override
+    List<Vertex3D> getCoordinates() {
+      return coordinates;
+    }
+  }
+
+  /**
+   * The {@link VertexDeserializer} as it was before it read the tokens directly, building a tree
+   * and a list of boxed values for each point.
+   */
+  public static class TreeVertexDeserializer extends JsonDeserializer<Vertex3D> {
+
+    @Override
+    public Vertex3D deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
+        JsonProcessingException {
+      JsonNode node = jp.getCodec().readTree(jp);
+      List<Double> coords =
+          ImmutableList.of(node.get(0).asDouble(), node.get(1).asDouble(), node.get(2).asDouble());
+      return new Vertex3D(coords, true);
+    }
+
+  }
+
+}
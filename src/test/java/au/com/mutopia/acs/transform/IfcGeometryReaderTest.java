@@ -0,0 +1,116 @@
+package au.com.mutopia.acs.transform;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import au.com.mutopia.acs.models.ifc.IfcGeometry;
+import au.com.mutopia.acs.models.ifc.IfcObject;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Tests the {@link IfcGeometryReader} class.
+ */
+public class IfcGeometryReaderTest {
+
+  private static final String JSON = "{\"version\":1,\"data\":[{\"id\":\"site\","
+      + "\"type\":\"IfcSite\",\"lengthUnitConversion\":0.001,\"latitude\":\"[-37,48,0]\","
+      + "\"longitude\":[144,57,0],"
+      + "\"unknown\":{\"a\":[1,2]},\"decomposedBy\":[{\"id\":\"wall\",\"name\":\"Wall\","
+      + "\"parameters\":{\"height\":2.5,\"count\":3,\"material\":\"brick\",\"empty\":null,"
+      + "\"layers\":[\"a\",\"b\"]},\"geometry\":{\"primitive\":\"triangles\","
+      + "\"positions\":[0,0,0,1,0,0,0,1.5,0],\"normals\":[0,0,1,0,0,1,0,0,1],"
+      + "\"triangles\":[0,1,2],\"color\":[1,0.5,0,1]}}],\"contains\":[],"
+      + "\"parameters\":{\"name\":\"Site\"}},{\"id\":\"other\",\"geometry\":{}}],\"after\":true}";
+
+  /**
+   * Tests that each object is passed to the handler once the fields before its children have been
+   * read and again once it has been read, with its parameters and mesh arrays, and that unknown
+   * fields are skipped.
+   */
+  @Test
+  public void testRead() throws Exception {
+    final List<String> events = new ArrayList<>();
+    final Map<String, IfcObject> objects = new HashMap<>();
+    IfcGeometryReader reader =
+        new IfcGeometryReader(new CodecRegistry().getJsonFactory().createParser(JSON));
+
+    reader.read(new IfcGeometryReader.Handler() {
+      @Override
+      public void startObject(IfcObject object) {
+        events.add("start " + object.getId());
+        if (object.getId().equals("site")) {
+          assertThat(object.getLengthUnitConversion()).isEqualTo(0.001);
+        }
+      }
+
+      @Override
+      public void endObject(IfcObject object) {
+        events.add("end " + object.getId());
+        objects.put(object.getId(), object);
+      }
+    });
+    reader.close();
+
+    assertThat(events).containsExactly("start site", "start wall", "end wall", "end site",
+        "start other", "end other");
+    IfcObject site = objects.get("site");
+    assertThat(site.getType()).isEqualTo("IfcSite");
+    assertThat(site.getLengthUnitConversion()).isEqualTo(0.001);
+    assertThat(site.getLatitude()).isEqualTo("[-37,48,0]");
+    assertThat(site.getLongitude()).isEqualTo("[144,57,0]");
+    assertThat(site.getParameters().get("name")).isEqualTo("Site");
+
+    IfcObject wall = objects.get("wall");
+    assertThat(wall.getName()).isEqualTo("Wall");
+    assertThat(wall.getParameters()).hasSize(4);
+    assertThat(wall.getParameters().get("height")).isEqualTo("2.5");
+    assertThat(wall.getParameters().get("count")).isEqualTo("3");
+    assertThat(wall.getParameters().get("material")).isEqualTo("brick");
+    assertThat(wall.getParameters().get("layers")).isEqualTo("[a, b]");
+    IfcGeometry geometry = wall.getGeometry();
+    assertThat(geometry.getPositions()).isEqualTo(new double[] {0, 0, 0, 1, 0, 0, 0, 1.5, 0});
+    assertThat(geometry.getNormals()).isEqualTo(new float[] {0, 0, 1, 0, 0, 1, 0, 0, 1});
+    assertThat(geometry.getTriangles()).isEqualTo(new int[] {0, 1, 2});
+    assertThat(geometry.getColor()).isEqualTo(new double[] {1, 0.5, 0, 1});
+    assertThat(geometry.getMatrix()).isNull();
+
+    assertThat(objects.get("other").getGeometry().getPositions()).isNull();
+  }
+
+  /**
+   * Tests that the document is rejected if the type or location of an object follows its
+   * children, which would otherwise be read without them.
+   */
+  @Test(expected = JsonMappingException.class)
+  public void testRead_siteFieldsAfterChildren() throws Exception {
+    final List<String> events = new ArrayList<>();
+    IfcGeometryReader reader = new IfcGeometryReader(new CodecRegistry().getJsonFactory()
+        .createParser("{\"data\":[{\"id\":\"site\",\"decomposedBy\":[{\"id\":\"wall\"}],"
+            + "\"type\":\"IfcSite\",\"latitude\":\"[-37,48,0]\"}]}"));
+
+    try {
+      reader.read(new IfcGeometryReader.Handler() {
+        @Override
+        public void startObject(IfcObject object) {
+          events.add("start " + object.getId());
+        }
+
+        @Override
+        public void endObject(IfcObject object) {
+          events.add("end " + object.getId());
+        }
+      });
+    } finally {
+      reader.close();
+      assertThat(events).containsExactly("start site", "start wall", "end wall");
+    }
+  }
+
+}
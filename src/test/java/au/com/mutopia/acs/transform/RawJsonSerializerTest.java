@@ -0,0 +1,88 @@
+package au.com.mutopia.acs.transform;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+/**
+ * Tests the {@link RawJsonSerializer} class.
+ */
+public class RawJsonSerializerTest {
+
+  /** The number of characters the serializer writes at a time. */
+  private static final int CHUNK_SIZE = 8192;
+
+  /**
+   * Tests that a document larger than a chunk is written unchanged after the separator.
+   */
+  @Test
+  public void testWrite_chunked() throws Exception {
+    String json = "{\"name\":\"" + Strings.repeat("a", CHUNK_SIZE * 2) + "\"}";
+
+    assertThat(writeInArray(json)).isEqualTo("[1," + json + "]");
+  }
+
+  /**
+   * Tests that a surrogate pair split by the end of the first chunk is written whole, as Jackson
+   * 2.3 fails to write raw characters ending with a high surrogate.
+   */
+  @Test
+  public void testWrite_splitSurrogatePair() throws Exception {
+    String prefix = "{\"name\":\"";
+    String json = prefix + Strings.repeat("a", CHUNK_SIZE - 1 - prefix.length())
+        + "\uD83D\uDE00" + Strings.repeat("b", CHUNK_SIZE) + "\"}";
+    assertThat(Character.isHighSurrogate(json.charAt(CHUNK_SIZE - 1))).isTrue();
+
+    assertThat(writeInArray(json)).isEqualTo("[1," + json + "]");
+  }
+
+  /**
+   * @return The JSON of an array of 1 and the given document, written with the serializer.
+   */
+  private String writeInArray(String json) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    JsonGenerator jgen = new WholeCharacterGenerator(
+        new CodecRegistry().getJsonFactory().createGenerator(outputStream));
+    jgen.writeStartArray();
+    jgen.writeNumber(1);
+    RawJsonSerializer.write(json.getBytes(Charsets.UTF_8), jgen);
+    jgen.writeEndArray();
+    jgen.flush();
+    return new String(outputStream.toByteArray(), Charsets.UTF_8);
+  }
+
+  /**
+   * A generator which fails if raw characters are written with a split surrogate pair.
+   */
+  private static class WholeCharacterGenerator extends JsonGeneratorDelegate {
+
+    private WholeCharacterGenerator(JsonGenerator delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+      assertWhole(text, offset, len);
+      super.writeRaw(text, offset, len);
+    }
+
+    @Override
+    public void writeRawValue(char[] text, int offset, int len) throws IOException {
+      assertWhole(text, offset, len);
+      super.writeRawValue(text, offset, len);
+    }
+
+    private void assertWhole(char[] text, int offset, int len) {
+      assertThat(len > 0 && Character.isHighSurrogate(text[offset + len - 1])).isFalse();
+    }
+  }
+
+}
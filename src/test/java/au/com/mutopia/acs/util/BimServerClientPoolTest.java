@@ -0,0 +1,136 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import au.com.mutopia.acs.exceptions.ConversionException;
+
+import org.bimserver.client.BimServerClient;
+import org.bimserver.shared.interfaces.bimsie1.Bimsie1AuthInterface;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BimServerClientPool} class against a stubbed BIMserver session.
+ */
+public class BimServerClientPoolTest {
+
+  private BimServerAuthenticator authenticator;
+
+  private BimServerClient client;
+
+  private Bimsie1AuthInterface authInterface;
+
+  /**
+   * Stubs an authenticator which connects a single logged in client.
+   */
+  @Before
+  public void setUp() throws Exception {
+    authenticator = mock(BimServerAuthenticator.class);
+    client = mock(BimServerClient.class);
+    authInterface = mock(Bimsie1AuthInterface.class);
+    when(client.getBimsie1AuthInterface()).thenReturn(authInterface);
+    when(authInterface.isLoggedIn()).thenReturn(true);
+    when(authenticator.connectToBimServer()).thenReturn(client);
+  }
+
+  /**
+   * Tests that a released session is reused without connecting again.
+   */
+  @Test
+  public void testBorrow_reusesReleasedClient() throws Exception {
+    BimServerClientPool pool = new BimServerClientPool(authenticator, 2, 60000);
+
+    pool.release(pool.borrow());
+    assertThat(pool.getIdleCount()).isEqualTo(1);
+    assertThat(pool.borrow()).isSameAs(client);
+
+    verify(authenticator, times(1)).connectToBimServer();
+    assertThat(pool.getIdleCount()).isEqualTo(0);
+  }
+
+  /**
+   * Tests that a session whose login has expired is logged in again.
+   */
+  @Test
+  public void testBorrow_logsInExpiredClient() throws Exception {
+    BimServerClientPool pool = new BimServerClientPool(authenticator, 1, 60000);
+    pool.release(pool.borrow());
+    when(authInterface.isLoggedIn()).thenReturn(false);
+    when(authenticator.login(client)).thenReturn(true);
+
+    assertThat(pool.borrow()).isSameAs(client);
+
+    verify(authenticator).login(client);
+    verify(authenticator, times(1)).connectToBimServer();
+    verify(client, never()).disconnect();
+  }
+
+  /**
+   * Tests that a session which can't be logged in again is closed and replaced.
+   */
+  @Test
+  public void testBorrow_replacesFailedClient() throws Exception {
+    BimServerClientPool pool = new BimServerClientPool(authenticator, 1, 60000);
+    pool.release(pool.borrow());
+    when(authInterface.isLoggedIn()).thenReturn(false);
+    when(authenticator.login(client)).thenReturn(false);
+
+    pool.borrow();
+
+    verify(client).disconnect();
+    verify(authenticator, times(2)).connectToBimServer();
+  }
+
+  /**
+   * Tests that sessions unused for longer than the idle timeout are logged out.
+   */
+  @Test
+  public void testRelease_evictsIdleClients() throws Exception {
+    BimServerClientPool pool = new BimServerClientPool(authenticator, 1, 0);
+
+    pool.release(pool.borrow());
+
+    assertThat(pool.getIdleCount()).isEqualTo(0);
+    verify(authInterface).logout();
+    verify(client).disconnect();
+  }
+
+  /**
+   * Tests that an invalidated session is closed and its place in the pool freed.
+   */
+  @Test
+  public void testInvalidate() throws Exception {
+    BimServerClientPool pool = new BimServerClientPool(authenticator, 1, 60000);
+
+    pool.invalidate(pool.borrow());
+    pool.borrow();
+
+    assertThat(pool.getIdleCount()).isEqualTo(0);
+    verify(client).disconnect();
+    verify(authenticator, times(2)).connectToBimServer();
+  }
+
+  /**
+   * Tests that a failed connection is reported and doesn't hold a place in the pool.
+   */
+  @Test
+  public void testBorrow_connectionFailed() throws Exception {
+    BimServerClientPool pool = new BimServerClientPool(authenticator, 1, 60000);
+    when(authenticator.connectToBimServer()).thenReturn(null, client);
+
+    try {
+      pool.borrow();
+      fail("Expected the connection to fail");
+    } catch (ConversionException e) {
+      // Expected.
+    }
+    assertThat(pool.borrow()).isSameAs(client);
+  }
+
+}
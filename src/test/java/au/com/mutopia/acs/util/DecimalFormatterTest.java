@@ -0,0 +1,68 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link DecimalFormatter} class.
+ */
+public class DecimalFormatterTest {
+
+  private DecimalFormatter formatter = new DecimalFormatter();
+
+  /**
+   * Tests that numbers are rounded to the decimal places, without trailing zeros.
+   */
+  @Test
+  public void testFormat() {
+    assertThat(format(144.96312345678, 3)).isEqualTo("144.963");
+    assertThat(format(-37.81365, 4)).isEqualTo("-37.8137");
+    assertThat(format(2.0001, 3)).isEqualTo("2");
+    assertThat(format(0.5, 0)).isEqualTo("1");
+    assertThat(format(-0.0004, 3)).isEqualTo("0");
+    assertThat(format(0.05, 8)).isEqualTo("0.05");
+    assertThat(format(1234567.0, 2)).isEqualTo("1234567");
+  }
+
+  /**
+   * Tests that numbers which can't be rounded exactly are rejected.
+   */
+  @Test
+  public void testFormat_unsupported() {
+    assertThat(formatter.format(Double.NaN, 3)).isEqualTo(-1);
+    assertThat(formatter.format(Double.NEGATIVE_INFINITY, 3)).isEqualTo(-1);
+    assertThat(formatter.format(1e300, 3)).isEqualTo(-1);
+  }
+
+  /**
+   * Tests that numbers are rounded to the same values as they are formatted.
+   */
+  @Test
+  public void testRound() {
+    assertThat(DecimalFormatter.round(144.96312345678, 3)).isEqualTo(144.963);
+    assertThat(DecimalFormatter.round(-37.81365, 4)).isEqualTo(-37.8137);
+    assertThat(DecimalFormatter.round(-2.5, 0)).isEqualTo(-3.0);
+    assertThat(1 / DecimalFormatter.round(-0.0004, 3)).isEqualTo(Double.POSITIVE_INFINITY);
+    assertThat(DecimalFormatter.round(0.05, 8)).isEqualTo(0.05);
+  }
+
+  /**
+   * Tests that numbers which can't be rounded exactly are returned unchanged.
+   */
+  @Test
+  public void testRound_unsupported() {
+    assertThat(DecimalFormatter.round(Double.NaN, 3)).isEqualTo(Double.NaN);
+    assertThat(DecimalFormatter.round(Double.POSITIVE_INFINITY, 3))
+        .isEqualTo(Double.POSITIVE_INFINITY);
+    assertThat(DecimalFormatter.round(Double.NEGATIVE_INFINITY, 3))
+        .isEqualTo(Double.NEGATIVE_INFINITY);
+    assertThat(DecimalFormatter.round(1e300, 3)).isEqualTo(1e300);
+    assertThat(DecimalFormatter.round(-9.3e15, 1)).isEqualTo(-9.3e15);
+  }
+
+  private String format(double value, int decimals) {
+    return new String(formatter.getBuffer(), 0, formatter.format(value, decimals));
+  }
+
+}
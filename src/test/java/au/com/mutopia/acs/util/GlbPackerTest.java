@@ -0,0 +1,135 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import au.com.mutopia.acs.transform.CodecRegistry;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Tests the {@link GlbPacker} class.
+ */
+public class GlbPackerTest {
+
+  private static final int HEADER_LENGTH = 20;
+
+  private final CodecRegistry codecs = new CodecRegistry();
+
+  /**
+   * Tests that the header describes the lengths of the file and content, and that the content is
+   * padded with spaces so that the body starts on a 4-byte boundary.
+   */
+  @Test
+  public void testWrite() throws Exception {
+    byte[] content = "{\"a\":1}".getBytes(Charsets.UTF_8);
+    byte[] body = {1, 2, 3, 4, 5};
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    GlbPacker.write(outputStream, content, body);
+
+    byte[] glb = outputStream.toByteArray();
+    ByteBuffer header = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN);
+    assertThat(new String(glb, 0, 4, Charsets.US_ASCII)).isEqualTo("glTF");
+    assertThat(header.getInt(4)).isEqualTo(1);
+    assertThat(header.getInt(8)).isEqualTo(glb.length).isEqualTo(HEADER_LENGTH + 8 + 5);
+    assertThat(header.getInt(12)).isEqualTo(8);
+    assertThat(header.getInt(16)).isEqualTo(0);
+    assertThat(new String(glb, HEADER_LENGTH, 8, Charsets.UTF_8)).isEqualTo("{\"a\":1} ");
+    assertThat(Arrays.copyOfRange(glb, HEADER_LENGTH + 8, glb.length)).isEqualTo(body);
+  }
+
+  /**
+   * Tests that content which is already aligned is not padded.
+   */
+  @Test
+  public void testWrite_alignedContent() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    GlbPacker.write(outputStream, "{\"\":1}  ".getBytes(Charsets.UTF_8), new byte[] {1});
+
+    ByteBuffer header = ByteBuffer.wrap(outputStream.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    assertThat(header.getInt(12)).isEqualTo(8);
+    assertThat(outputStream.size()).isEqualTo(HEADER_LENGTH + 8 + 1);
+  }
+
+  /**
+   * Tests that external buffers are concatenated into the body with each starting on a 4-byte
+   * boundary, and that their buffer views are moved to the binary buffer.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPack() throws Exception {
+    File dir = FileUtils.createTempDir();
+    Files.write(new byte[] {1, 2, 3}, new File(dir, "a.bin"));
+    Files.write(new byte[] {4, 5, 6, 7}, new File(dir, "b.bin"));
+    File gltfFile = new File(dir, "model.gltf");
+    Files.write("{\"buffers\":{\"a\":{\"uri\":\"a.bin\"},\"b\":{\"uri\":\"b.bin\"}},"
+        + "\"bufferViews\":{\"va\":{\"buffer\":\"a\",\"byteOffset\":1,\"byteLength\":2},"
+        + "\"vb\":{\"buffer\":\"b\",\"byteOffset\":0,\"byteLength\":4}}}", gltfFile,
+        Charsets.UTF_8);
+
+    byte[] glb = new GlbPacker(codecs).pack(gltfFile);
+
+    ByteBuffer header = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN);
+    int contentLength = header.getInt(12);
+    assertThat(contentLength % 4).isEqualTo(0);
+    assertThat(header.getInt(8)).isEqualTo(glb.length);
+    byte[] body = Arrays.copyOfRange(glb, HEADER_LENGTH + contentLength, glb.length);
+    assertThat(body).isEqualTo(new byte[] {1, 2, 3, 0, 4, 5, 6, 7});
+
+    Map<String, Object> gltf =
+        codecs.getJsonMapReader().readValue(Arrays.copyOfRange(glb, HEADER_LENGTH,
+            HEADER_LENGTH + contentLength));
+    Map<String, Map<String, Object>> buffers =
+        (Map<String, Map<String, Object>>) gltf.get("buffers");
+    assertThat(buffers).hasSize(1);
+    assertThat(buffers.get(GlbPacker.BUFFER_ID).get("byteLength")).isEqualTo(8);
+    Map<String, Map<String, Object>> bufferViews =
+        (Map<String, Map<String, Object>>) gltf.get("bufferViews");
+    assertThat(bufferViews.get("va").get("buffer")).isEqualTo(GlbPacker.BUFFER_ID);
+    assertThat(bufferViews.get("va").get("byteOffset")).isEqualTo(1);
+    assertThat(bufferViews.get("vb").get("byteOffset")).isEqualTo(4);
+    assertThat((Iterable<Object>) gltf.get("extensionsUsed")).containsOnly(GlbPacker.EXTENSION);
+  }
+
+  /**
+   * Tests that an image which can't be read keeps its URI and is not packed, while other images
+   * are packed with the MIME type of their URI.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPack_missingImage() throws Exception {
+    File dir = FileUtils.createTempDir();
+    Files.write(new byte[] {1, 2, 3, 4}, new File(dir, "found.jpg"));
+    File gltfFile = new File(dir, "model.gltf");
+    Files.write("{\"images\":{\"found\":{\"uri\":\"found.jpg\"},"
+        + "\"missing\":{\"uri\":\"textures/missing.jpg\"}}}", gltfFile, Charsets.UTF_8);
+
+    byte[] glb = new GlbPacker(codecs).pack(gltfFile);
+
+    int contentLength = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN).getInt(12);
+    Map<String, Object> gltf =
+        codecs.getJsonMapReader().readValue(Arrays.copyOfRange(glb, HEADER_LENGTH,
+            HEADER_LENGTH + contentLength));
+    Map<String, Map<String, Object>> images = (Map<String, Map<String, Object>>) gltf.get("images");
+    assertThat(images.get("missing").get("uri")).isEqualTo("textures/missing.jpg");
+    assertThat(images.get("missing").get("extensions")).isNull();
+    assertThat(images.get("found").get("uri")).isEqualTo(GlbPacker.EMPTY_URI);
+    Map<String, Map<String, Object>> extensions =
+        (Map<String, Map<String, Object>>) images.get("found").get("extensions");
+    assertThat(extensions.get(GlbPacker.EXTENSION).get("mimeType")).isEqualTo("image/jpeg");
+    assertThat(((Map<String, Object>) gltf.get("bufferViews")).keySet()).containsOnly(
+        "binary_glTF_image_found");
+  }
+
+}
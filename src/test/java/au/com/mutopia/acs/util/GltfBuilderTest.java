@@ -0,0 +1,60 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import au.com.mutopia.acs.transform.CodecRegistry;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Tests the {@link GltfBuilder} class.
+ */
+public class GltfBuilderTest {
+
+  private static final byte[] IMAGE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1, 2, 3};
+
+  private final CodecRegistry codecs = new CodecRegistry();
+
+  /**
+   * Tests that images found relative to the COLLADA file, or by name within its directory, are
+   * replaced with data URIs, and that data URIs, remote images and missing images are unchanged.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testReplaceImageUris() throws Exception {
+    File dir = FileUtils.createTempDir();
+    File colladaFile = new File(dir, "model.dae");
+    Files.write("<COLLADA/>", colladaFile, Charsets.UTF_8);
+    File imageFile = new File(dir, "textures/wall 1.jpg");
+    Files.createParentDirs(imageFile);
+    Files.write(IMAGE, imageFile);
+    File gltfFile = new File(dir, "model.gltf");
+    Files.write("{\"images\":{"
+        + "\"relative\":{\"uri\":\"textures/wall%201.jpg\"},"
+        + "\"flattened\":{\"uri\":\"images/wall 1.jpg\"},"
+        + "\"embedded\":{\"uri\":\"data:image/png;base64,AAAA\"},"
+        + "\"remote\":{\"uri\":\"https://example.com/roof.png\"},"
+        + "\"missing\":{\"uri\":\"textures/missing.png\"}}}", gltfFile, Charsets.UTF_8);
+
+    byte[] gltf =
+        new GltfBuilder(codecs).replaceImageUris(gltfFile, colladaFile, new ImageDataUriEncoder());
+
+    Map<String, Object> gltfMap = codecs.getJsonMapReader().readValue(gltf);
+    Map<String, Map<String, String>> images = (Map<String, Map<String, String>>) gltfMap
+        .get("images");
+    String dataUri = "data:image/jpeg;base64," + Base64.encodeBase64String(IMAGE);
+    assertThat(images.get("relative").get("uri")).isEqualTo(dataUri);
+    assertThat(images.get("flattened").get("uri")).isEqualTo(dataUri);
+    assertThat(images.get("embedded").get("uri")).isEqualTo("data:image/png;base64,AAAA");
+    assertThat(images.get("remote").get("uri")).isEqualTo("https://example.com/roof.png");
+    assertThat(images.get("missing").get("uri")).isEqualTo("textures/missing.png");
+  }
+
+}
@@ -0,0 +1,81 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.base.Charsets;
+
+/**
+ * Tests the {@link GltfImageUriRewriter} class.
+ */
+public class GltfImageUriRewriterTest {
+
+  /**
+   * Tests that only the URIs of images are replaced, and the rest of the document is unchanged.
+   */
+  @Test
+  public void testRewrite() throws Exception {
+    String gltf =
+        "{\"buffers\":{\"b\":{\"uri\":\"b.bin\"}},\"images\":{\"i1\":{\"name\":\"a\",\"uri\":"
+            + "\"a.png\"},\"i2\":{\"uri\":\"data:,\",\"extras\":{\"uri\":\"c.png\"}}},"
+            + "\"shaders\":{\"s\":{\"uri\":\"s.glsl\"}},\"uri\":\"root.png\",\"n\":[1,2.5,true]}";
+    GltfImageUriRewriter rewriter = new GltfImageUriRewriter(new JsonFactory()) {
+      @Override
+      protected String replaceUri(String uri) {
+        return "data:" + uri;
+      }
+    };
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    rewriter.rewrite(new ByteArrayInputStream(gltf.getBytes(Charsets.UTF_8)), outputStream);
+
+    assertThat(new String(outputStream.toByteArray(), Charsets.UTF_8)).isEqualTo(
+        gltf.replace("\"a.png\"", "\"data:a.png\"").replace("\"data:,\"", "\"data:data:,\""));
+  }
+
+  /**
+   * Tests that the document is flushed to the output, but neither stream is closed, even if the
+   * factory closes the streams of its parsers and generators.
+   */
+  @Test
+  public void testRewrite_streamsNotClosed() throws Exception {
+    JsonFactory jsonFactory = new JsonFactory();
+    jsonFactory.enable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    jsonFactory.enable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    GltfImageUriRewriter rewriter = new GltfImageUriRewriter(jsonFactory) {
+      @Override
+      protected String replaceUri(String uri) {
+        return uri;
+      }
+    };
+    final boolean[] closed = new boolean[2];
+    ByteArrayInputStream inputStream =
+        new ByteArrayInputStream("{\"images\":{}}".getBytes(Charsets.UTF_8)) {
+          @Override
+          public void close() throws IOException {
+            closed[0] = true;
+          }
+        };
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+      @Override
+      public void close() throws IOException {
+        closed[1] = true;
+      }
+    };
+
+    rewriter.rewrite(inputStream, outputStream);
+
+    assertThat(closed).isEqualTo(new boolean[] {false, false});
+    assertThat(new String(outputStream.toByteArray(), Charsets.UTF_8))
+        .isEqualTo("{\"images\":{}}");
+  }
+
+}
@@ -0,0 +1,105 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+
+/**
+ * Tests the {@link IfcGeometryStore} class.
+ */
+public class IfcGeometryStoreTest {
+
+  /**
+   * Tests that the geometry of a file is found by the hash of an identical file, but not of a
+   * different file.
+   */
+  @Test
+  public void testGet_identicalFile() throws Exception {
+    IfcGeometryStore store = new IfcGeometryStore(FileUtils.createTempDir(), 60000);
+    File ifcFile = createFile("ISO-10303-21;\nDATA;\n#1=IFCPROJECT();");
+    File copyFile = createFile("ISO-10303-21;\nDATA;\n#1=IFCPROJECT();");
+    File otherFile = createFile("ISO-10303-21;\nDATA;\n#1=IFCSITE();");
+    File jsonFile = createFile("{\"data\":[]}");
+
+    store.store(store.hash(ifcFile), jsonFile);
+    // The store keeps its own copy of the geometry.
+    assertThat(jsonFile.delete()).isTrue();
+
+    try (InputStream stored = store.get(store.hash(copyFile))) {
+      assertThat(read(stored)).isEqualTo("{\"data\":[]}");
+    }
+    assertThat(store.get(store.hash(otherFile))).isNull();
+  }
+
+  /**
+   * Tests that geometry opened before it expires can still be read to the end.
+   */
+  @Test
+  public void testGet_expiredWhileOpen() throws Exception {
+    IfcGeometryStore store = new IfcGeometryStore(FileUtils.createTempDir(), 50);
+    String hash = store.hash(createFile("ISO-10303-21;"));
+    store.store(hash, createFile("{\"data\":[]}"));
+
+    try (InputStream stored = store.get(hash)) {
+      Thread.sleep(100);
+      assertThat(store.get(hash)).isNull();
+      assertThat(read(stored)).isEqualTo("{\"data\":[]}");
+    }
+  }
+
+  /**
+   * Tests that the scheduled expiry deletes expired geometry without the store being accessed.
+   */
+  @Test
+  public void testScheduleExpiry() throws Exception {
+    File rootDir = FileUtils.createTempDir();
+    IfcGeometryStore store = new IfcGeometryStore(rootDir, 50);
+    store.store(store.hash(createFile("ISO-10303-21;")), createFile("{\"data\":[]}"));
+    assertThat(rootDir.list()).hasSize(1);
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      store.scheduleExpiry(executor, 10, TimeUnit.MILLISECONDS);
+      for (int i = 0; i < 100 && rootDir.list().length > 0; i++) {
+        Thread.sleep(10);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(rootDir.list()).isEmpty();
+  }
+
+  /**
+   * Tests that no geometry is kept with a retention period of 0, for which no directory is needed.
+   */
+  @Test
+  public void testGet_noRetention() throws Exception {
+    IfcGeometryStore store = new IfcGeometryStore(null, 0);
+    String hash = store.hash(createFile("ISO-10303-21;"));
+    assertThat(store.isEnabled()).isFalse();
+
+    store.store(hash, createFile("{}"));
+
+    assertThat(store.get(hash)).isNull();
+  }
+
+  private String read(InputStream stream) throws Exception {
+    return CharStreams.toString(new InputStreamReader(stream, Charsets.UTF_8));
+  }
+
+  private File createFile(String content) throws Exception {
+    return FileUtils.createTemporaryFileWithContent(content.getBytes(Charsets.UTF_8));
+  }
+
+}
@@ -0,0 +1,94 @@
+package au.com.mutopia.acs.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+/**
+ * Tests the {@link ImageDataUriEncoder} class.
+ */
+public class ImageDataUriEncoderTest {
+
+  private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 3, 4, 5};
+
+  private File dir;
+
+  private ImageDataUriEncoder encoder;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = FileUtils.createTempDir();
+    encoder = new ImageDataUriEncoder();
+  }
+
+  /**
+   * Tests that an image is encoded as a Base64 data URI typed by its file extension.
+   */
+  @Test
+  public void testEncode() throws Exception {
+    String dataUri = encoder.encode(createImage("a.png"));
+
+    assertThat(dataUri).isEqualTo("data:image/png;base64," + Base64.encodeBase64String(IMAGE));
+    assertThat(Base64.decodeBase64(dataUri.substring(dataUri.indexOf(',') + 1))).isEqualTo(IMAGE);
+  }
+
+  /**
+   * Tests that the MIME type is detected from the file extension regardless of its case, and that
+   * unknown extensions are encoded as binary data.
+   */
+  @Test
+  public void testEncode_mimeTypes() throws Exception {
+    assertThat(encoder.encode(createImage("b.JPG", 1))).startsWith("data:image/jpeg;base64,");
+    assertThat(encoder.encode(createImage("c.gif", 2))).startsWith("data:image/gif;base64,");
+    assertThat(encoder.encode(createImage("d.tif", 3))).startsWith("data:image/tiff;base64,");
+    assertThat(encoder.encode(createImage("e.bin", 4))).startsWith(
+        "data:application/octet-stream;base64,");
+  }
+
+  /**
+   * Tests that files with the same content share a single encoding.
+   */
+  @Test
+  public void testEncode_sameContent() throws Exception {
+    String dataUri = encoder.encode(createImage("a.png"));
+
+    assertThat(encoder.encode(createImage("copy.png"))).isSameAs(dataUri);
+    assertThat(encoder.encode(createImage("other.png", 1))).isNotEqualTo(dataUri);
+  }
+
+  /**
+   * Tests the MIME types of image paths and URIs.
+   */
+  @Test
+  public void testGetMimeType() {
+    assertThat(ImageDataUriEncoder.getMimeType("images/a.jpeg")).isEqualTo("image/jpeg");
+    assertThat(ImageDataUriEncoder.getMimeType("http://example.com/a.PNG")).isEqualTo(
+        "image/png");
+    assertThat(ImageDataUriEncoder.getMimeType("a.txt")).isNull();
+    assertThat(ImageDataUriEncoder.getMimeType("a")).isNull();
+  }
+
+  private File createImage(String name) throws Exception {
+    File file = new File(dir, name);
+    Files.write(IMAGE, file);
+    return file;
+  }
+
+  /**
+   * Creates an image whose content differs from {@link #IMAGE} by its last byte.
+   */
+  private File createImage(String name, int variant) throws Exception {
+    byte[] content = IMAGE.clone();
+    content[content.length - 1] += variant;
+    File file = new File(dir, name);
+    Files.write(content, file);
+    return file;
+  }
+
+}
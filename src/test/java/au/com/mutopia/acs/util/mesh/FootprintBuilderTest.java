@@ -0,0 +1,173 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.Offset.offset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Tests the {@link FootprintBuilder} class.
+ */
+public class FootprintBuilderTest {
+
+  private final FootprintBuilder builder = new FootprintBuilder(new GeometryFactory());
+
+  /** The pool used to union in parallel. */
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Tests that a grid of cells with mixed winding and duplicate triangles gives a single square.
+   */
+  @Test
+  public void testBuild_grid() {
+    Mesh mesh = new Mesh();
+    for (int x = 0; x < 10; x++) {
+      for (int y = 0; y < 10; y++) {
+        mesh.addCell(x, y, 0, (x + y) % 2 == 0);
+      }
+    }
+    mesh.addCell(0, 0, 0, false);
+
+    Geometry footprint = builder.build(mesh.getPositions(), mesh.getTriangles());
+
+    assertThat(footprint).isInstanceOf(Polygon.class);
+    assertThat(((Polygon) footprint).getNumInteriorRing()).isEqualTo(0);
+    assertThat(footprint.getArea()).isEqualTo(100.0, offset(1e-9));
+  }
+
+  /**
+   * Tests that the missing middle cell of a grid becomes a hole.
+   */
+  @Test
+  public void testBuild_hole() {
+    Mesh mesh = new Mesh();
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        if (x != 1 || y != 1) {
+          mesh.addCell(x, y, 0, true);
+        }
+      }
+    }
+
+    Geometry footprint = builder.build(mesh.getPositions(), mesh.getTriangles());
+
+    assertThat(footprint).isInstanceOf(Polygon.class);
+    assertThat(((Polygon) footprint).getNumInteriorRing()).isEqualTo(1);
+    assertThat(footprint.getArea()).isEqualTo(8.0, offset(1e-9));
+  }
+
+  /**
+   * Tests that overlapping triangles and triangles at several heights are unioned.
+   */
+  @Test
+  public void testBuild_overlapping() {
+    Mesh mesh = new Mesh();
+    mesh.addCell(0, 0, 0, true);
+    mesh.addCell(0, 0, 3, false);
+    mesh.addTriangle(0.5, 0, 1.5, 0, 1.5, 1, 0);
+
+    Geometry footprint = builder.build(mesh.getPositions(), mesh.getTriangles());
+
+    assertThat(footprint).isInstanceOf(Polygon.class);
+    assertThat(footprint.getArea()).isEqualTo(1.375, offset(1e-9));
+  }
+
+  /**
+   * Tests that the union mode gives the same footprint when unioning partitions in parallel.
+   */
+  @Test
+  public void testBuild_parallelUnion() {
+    Mesh mesh = new Mesh();
+    for (int x = 0; x < 50; x++) {
+      for (int y = 0; y < 50; y++) {
+        mesh.addCell(x, y, 0, true);
+      }
+    }
+    FootprintBuilder unionBuilder = new FootprintBuilder(new GeometryFactory(),
+        FootprintBuilder.Mode.UNION, new PartitionedUnion(pool));
+
+    Geometry footprint = unionBuilder.build(mesh.getPositions(), mesh.getTriangles());
+
+    assertThat(footprint).isInstanceOf(Polygon.class);
+    assertThat(footprint.getArea()).isEqualTo(2500.0, offset(1e-9));
+  }
+
+  /**
+   * Tests that a mesh without any flat triangles has no footprint.
+   */
+  @Test
+  public void testBuild_noFlatTriangles() {
+    Mesh mesh = new Mesh();
+    mesh.addTriangle(0, 0, 1, 0, 1, 1, 0);
+    mesh.positions.set(2, 1.0);
+
+    assertThat(builder.build(mesh.getPositions(), mesh.getTriangles())).isNull();
+  }
+
+  /**
+   * A mesh of unindexed triangles.
+   */
+  private static class Mesh {
+    private final List<Double> positions = new ArrayList<>();
+
+    /**
+     * Adds a unit square cell as two triangles.
+     */
+    void addCell(double x, double y, double z, boolean ccw) {
+      if (ccw) {
+        addTriangle(x, y, x + 1, y, x + 1, y + 1, z);
+        addTriangle(x, y, x + 1, y + 1, x, y + 1, z);
+      } else {
+        addTriangle(x, y, x + 1, y + 1, x + 1, y, z);
+        addTriangle(x, y, x, y + 1, x + 1, y + 1, z);
+      }
+    }
+
+    void addTriangle(double x1, double y1, double x2, double y2, double x3, double y3, double z) {
+      positions.add(x1);
+      positions.add(y1);
+      positions.add(z);
+      positions.add(x2);
+      positions.add(y2);
+      positions.add(z);
+      positions.add(x3);
+      positions.add(y3);
+      positions.add(z);
+    }
+
+    double[] getPositions() {
+      return Doubles.toArray(positions);
+    }
+
+    int[] getTriangles() {
+      List<Integer> triangles = new ArrayList<>();
+      for (int i = 0; i < positions.size() / 3; i++) {
+        triangles.add(i);
+      }
+      return Ints.toArray(triangles);
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import au.com.mutopia.acs.models.c3ml.CompressedMesh;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link MeshCompressor} class, decoding its meshes with the {@link MeshDecompressor}.
+ */
+public class MeshCompressorTest {
+
+  /**
+   * Tests that a mesh with two ranges of triangles and an unused vertex is decoded to the same
+   * triangles in each range, and the same positions and normals to within their quantization.
+   */
+  @Test
+  public void testCompress_roundTrip() {
+    IndexedMesh mesh = createGrid(20);
+    double[] positions = Arrays.copyOf(mesh.getPositions(), mesh.getPositions().length + 3);
+    float[] normals = Arrays.copyOf(mesh.getNormals(), mesh.getNormals().length + 3);
+    normals[normals.length - 1] = 1;
+    int[] triangles = mesh.getTriangles();
+    int[] offsets = {0, 300};
+
+    MeshCompressor compressor = new MeshCompressor(positions, normals, triangles);
+    CompressedMesh compressed = compressor.compress(12, offsets);
+    MeshDecompressor decompressor = new MeshDecompressor(compressed);
+
+    int[] indices = compressor.getVertexIndices();
+    double[] decodedPositions = decompressor.getPositions();
+    float[] decodedNormals = decompressor.getNormals();
+    float[] quantizedNormals = MeshQuantizer.decodeNormals(MeshQuantizer.encodeNormals(normals));
+    assertThat(decodedPositions.length).isEqualTo(positions.length);
+    for (int i = 0; i < positions.length; i++) {
+      int decoded = indices[i / 3] * 3 + i % 3;
+      double tolerance = compressed.getScale()[i % 3] / 2 + 1e-9;
+      assertThat(Math.abs(decodedPositions[decoded] - positions[i])).isLessThanOrEqualTo(tolerance);
+      assertThat(decodedNormals[decoded]).isEqualTo(quantizedNormals[i]);
+    }
+    int[] decodedTriangles = decompressor.getTriangles();
+    int[] renumbered = new int[triangles.length];
+    for (int i = 0; i < triangles.length; i++) {
+      renumbered[i] = indices[triangles[i]];
+    }
+    assertThat(sortTriangles(decodedTriangles, 0, 300)).isEqualTo(
+        sortTriangles(renumbered, 0, 300));
+    assertThat(sortTriangles(decodedTriangles, 300, 800)).isEqualTo(
+        sortTriangles(renumbered, 300, 800));
+  }
+
+  /**
+   * Tests that a smooth mesh is compressed to a tenth of the size of its typed arrays.
+   */
+  @Test
+  public void testCompress_size() {
+    IndexedMesh mesh = createGrid(100);
+
+    CompressedMesh compressed =
+        new MeshCompressor(mesh.getPositions(), mesh.getNormals(), mesh.getTriangles()).compress(
+            MeshCompressor.DEFAULT_POSITION_BITS, null);
+
+    // The size of float64 positions, float32 normals and uint16 triangles.
+    int uncompressedSize =
+        mesh.getVertexCount() * (3 * 8 + 3 * 4) + mesh.getTriangleCount() * 3 * 2;
+    assertThat(compressed.getData().length * 10).isLessThan(uncompressedSize);
+  }
+
+  /**
+   * @return The triangles of a range, each rotated to start with its lowest vertex, in order.
+   */
+  private List<String> sortTriangles(int[] triangles, int start, int end) {
+    List<String> sorted = new ArrayList<>();
+    for (int triangle = start; triangle < end; triangle++) {
+      int[] vertices = Arrays.copyOfRange(triangles, triangle * 3, triangle * 3 + 3);
+      int first = 0;
+      for (int i = 1; i < 3; i++) {
+        if (vertices[i] < vertices[first]) {
+          first = i;
+        }
+      }
+      sorted.add(vertices[first] + "," + vertices[(first + 1) % 3] + ","
+          + vertices[(first + 2) % 3]);
+    }
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * @return A square grid of the given number of cells on each side, curved by a sine wave, with
+   *         the normals of the surface.
+   */
+  private IndexedMesh createGrid(int size) {
+    double[] positions = new double[(size + 1) * (size + 1) * 3];
+    float[] normals = new float[positions.length];
+    int[] triangles = new int[size * size * 6];
+    for (int y = 0, i = 0; y <= size; y++) {
+      for (int x = 0; x <= size; x++, i += 3) {
+        positions[i] = x;
+        positions[i + 1] = y;
+        positions[i + 2] = Math.sin(x * 0.2) * Math.cos(y * 0.1);
+        double dx = -0.2 * Math.cos(x * 0.2) * Math.cos(y * 0.1);
+        double dy = 0.1 * Math.sin(x * 0.2) * Math.sin(y * 0.1);
+        double length = Math.sqrt(dx * dx + dy * dy + 1);
+        normals[i] = (float) (dx / length);
+        normals[i + 1] = (float) (dy / length);
+        normals[i + 2] = (float) (1 / length);
+      }
+    }
+    for (int y = 0, i = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int corner = y * (size + 1) + x;
+        int above = corner + size + 1;
+        triangles[i++] = corner;
+        triangles[i++] = corner + 1;
+        triangles[i++] = above + 1;
+        triangles[i++] = corner;
+        triangles[i++] = above + 1;
+        triangles[i++] = above;
+      }
+    }
+    return new IndexedMesh(positions, normals, triangles);
+  }
+
+}
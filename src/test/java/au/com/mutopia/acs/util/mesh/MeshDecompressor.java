@@ -0,0 +1,197 @@
+package au.com.mutopia.acs.util.mesh;
+
+import au.com.mutopia.acs.models.c3ml.CompressedMesh;
+
+/**
+ * A reference decoder of the meshes compressed by a {@link MeshCompressor}, which mirrors its
+ * traversal of the triangles.
+ */
+public class MeshDecompressor {
+
+  private final int[] quantized;
+
+  private final double[] positions;
+
+  /** The octahedral encoding of each normal, or null if there are none. */
+  private byte[] encodedNormals;
+
+  private final int[] triangles;
+
+  private final RangeDecoder decoder;
+
+  private int vertexCount;
+
+  private int triangleCount;
+
+  private int lastStartVertex = -1;
+
+  private final short[] gateModel = RangeEncoder.createModel(3);
+
+  private final short[] newVertexModel = RangeEncoder.createModel(4);
+
+  private final short[] earlierVertexModel =
+      RangeEncoder.createModel(RangeEncoder.UNSIGNED_MODEL_SIZE);
+
+  private final short[][] deltaModels = createModels(3);
+
+  private final short[][] parallelogramModels = createModels(3);
+
+  private final short[][] normalModels = createModels(2);
+
+  private final short[] countModel = RangeEncoder.createModel(RangeEncoder.UNSIGNED_MODEL_SIZE);
+
+  /**
+   * Decodes a compressed mesh.
+   */
+  public MeshDecompressor(CompressedMesh mesh) {
+    quantized = new int[mesh.getVertexCount() * 3];
+    triangles = new int[mesh.getTriangleCount() * 3];
+    decoder = new RangeDecoder(mesh.getData());
+    if (decoder.decodeDirectBits(1) == 1) {
+      encodedNormals = new byte[mesh.getVertexCount() * 2];
+    }
+    int[] counts = new int[decoder.decodeUnsigned(countModel)];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = decoder.decodeUnsigned(countModel);
+    }
+    for (int count : counts) {
+      traverse(count);
+    }
+    while (vertexCount < mesh.getVertexCount()) {
+      decodeStartVertex();
+    }
+    positions = new double[quantized.length];
+    for (int i = 0; i < quantized.length; i++) {
+      positions[i] = quantized[i] * mesh.getScale()[i % 3] + mesh.getOffset()[i % 3];
+    }
+  }
+
+  /**
+   * @return The quantized (x, y, z) values of each vertex position.
+   */
+  public int[] getQuantized() {
+    return quantized;
+  }
+
+  /**
+   * @return The (x, y, z) values of each vertex position.
+   */
+  public double[] getPositions() {
+    return positions;
+  }
+
+  /**
+   * @return The indices of the three vertices of each triangle.
+   */
+  public int[] getTriangles() {
+    return triangles;
+  }
+
+  /**
+   * @return The (x, y, z) components of each vertex normal, or null if there are none.
+   */
+  public float[] getNormals() {
+    return encodedNormals == null ? null : MeshQuantizer.decodeNormals(encodedNormals);
+  }
+
+  private void traverse(int remaining) {
+    int[] gates = new int[(remaining + 2) * 3];
+    while (remaining > 0) {
+      remaining--;
+      int[] corners = new int[3];
+      for (int i = 0; i < 3; i++) {
+        corners[i] = decoder.decodeBit(newVertexModel, 3) == 1 ? decodeStartVertex()
+            : decodeEarlierVertex();
+      }
+      addTriangle(corners[0], corners[1], corners[2]);
+      int gateCount = 0;
+      for (int i = 2; i >= 0; i--) {
+        gates[gateCount * 3] = corners[i];
+        gates[gateCount * 3 + 1] = corners[(i + 1) % 3];
+        gates[gateCount * 3 + 2] = corners[(i + 2) % 3];
+        gateCount++;
+      }
+      int previous = MeshCompressor.GATE_NONE;
+      while (gateCount > 0 && remaining > 0) {
+        gateCount--;
+        int a = gates[gateCount * 3];
+        int b = gates[gateCount * 3 + 1];
+        int opposite = gates[gateCount * 3 + 2];
+        if (decoder.decodeBit(gateModel, previous) == 0) {
+          previous = MeshCompressor.GATE_NONE;
+          continue;
+        }
+        remaining--;
+        int c;
+        if (decoder.decodeBit(newVertexModel, previous) == 1) {
+          c = decodePredictedVertex(a, b, opposite);
+          previous = MeshCompressor.GATE_NEW;
+        } else {
+          c = decodeEarlierVertex();
+          previous = MeshCompressor.GATE_EARLIER;
+        }
+        addTriangle(b, a, c);
+        gates[gateCount * 3] = c;
+        gates[gateCount * 3 + 1] = b;
+        gates[gateCount * 3 + 2] = a;
+        gateCount++;
+        gates[gateCount * 3] = a;
+        gates[gateCount * 3 + 1] = c;
+        gates[gateCount * 3 + 2] = b;
+        gateCount++;
+      }
+    }
+  }
+
+  private void addTriangle(int a, int b, int c) {
+    triangles[triangleCount * 3] = a;
+    triangles[triangleCount * 3 + 1] = b;
+    triangles[triangleCount * 3 + 2] = c;
+    triangleCount++;
+  }
+
+  private int decodeStartVertex() {
+    int vertex = vertexCount++;
+    for (int axis = 0; axis < 3; axis++) {
+      int predicted = lastStartVertex == -1 ? 0 : quantized[lastStartVertex * 3 + axis];
+      quantized[vertex * 3 + axis] = predicted + decoder.decodeSigned(deltaModels[axis]);
+    }
+    decodeNormal(vertex, lastStartVertex);
+    lastStartVertex = vertex;
+    return vertex;
+  }
+
+  private int decodePredictedVertex(int a, int b, int opposite) {
+    int vertex = vertexCount++;
+    for (int axis = 0; axis < 3; axis++) {
+      int predicted = quantized[a * 3 + axis] + quantized[b * 3 + axis]
+          - quantized[opposite * 3 + axis];
+      quantized[vertex * 3 + axis] = predicted + decoder.decodeSigned(parallelogramModels[axis]);
+    }
+    decodeNormal(vertex, a);
+    return vertex;
+  }
+
+  private int decodeEarlierVertex() {
+    return vertexCount - 1 - decoder.decodeUnsigned(earlierVertexModel);
+  }
+
+  private void decodeNormal(int vertex, int predictor) {
+    if (encodedNormals == null) {
+      return;
+    }
+    for (int i = 0; i < 2; i++) {
+      int predicted = predictor == -1 ? 0 : encodedNormals[predictor * 2 + i];
+      encodedNormals[vertex * 2 + i] = (byte) (predicted + decoder.decodeSigned(normalModels[i]));
+    }
+  }
+
+  private static short[][] createModels(int count) {
+    short[][] models = new short[count][];
+    for (int i = 0; i < count; i++) {
+      models[i] = RangeEncoder.createModel(RangeEncoder.UNSIGNED_MODEL_SIZE);
+    }
+    return models;
+  }
+
+}
@@ -0,0 +1,58 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.Offset.offset;
+
+import org.junit.Test;
+
+import au.com.mutopia.acs.models.c3ml.QuantizedMesh;
+
+/**
+ * Tests the {@link MeshQuantizer} class.
+ */
+public class MeshQuantizerTest {
+
+  /**
+   * Tests that quantized positions are decoded to within the precision of the bounding box, and
+   * that flat axes are decoded exactly.
+   */
+  @Test
+  public void testQuantize_positions() {
+    double[] positions = {-10, 5, 2, 30, 5.25, 2, 12.345678, 7.5, 2};
+
+    QuantizedMesh mesh = MeshQuantizer.quantize(positions, null);
+    double[] decoded = MeshQuantizer.decodePositions(mesh);
+
+    assertThat(mesh.getPositions()).hasSize(positions.length);
+    assertThat(mesh.getOffset()).isEqualTo(new double[] {10, 6.25, 2});
+    assertThat(mesh.getNormals()).isNull();
+    for (int i = 0; i < positions.length; i++) {
+      // Each axis has 65535 steps across the bounding box, which is at most 40 units wide.
+      assertThat(decoded[i]).isEqualTo(positions[i], offset(40.0 / 65535));
+    }
+    assertThat(decoded[2]).isEqualTo(2);
+  }
+
+  /**
+   * Tests that octahedral encoded normals are decoded to unit vectors close to the originals, in
+   * both the upper and lower hemispheres.
+   */
+  @Test
+  public void testEncodeNormals() {
+    float s = (float) Math.sqrt(1.0 / 3);
+    float[] normals = {0, 0, 1, 0, 0, -1, 1, 0, 0, s, -s, s, -s, s, -s, 0.6f, 0, -0.8f};
+
+    byte[] encoded = MeshQuantizer.encodeNormals(normals);
+    float[] decoded = MeshQuantizer.decodeNormals(encoded);
+
+    assertThat(encoded).hasSize(normals.length / 3 * 2);
+    for (int i = 0; i < normals.length; i += 3) {
+      double dot =
+          normals[i] * decoded[i] + normals[i + 1] * decoded[i + 1] + normals[i + 2]
+              * decoded[i + 2];
+      // Within a degree of the original.
+      assertThat(dot).isGreaterThan(Math.cos(Math.toRadians(1)));
+    }
+  }
+
+}
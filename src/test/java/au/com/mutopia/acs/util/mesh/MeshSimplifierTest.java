@@ -0,0 +1,78 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link MeshSimplifier} class.
+ */
+public class MeshSimplifierTest {
+
+  /**
+   * Tests that a flat grid is simplified without error to the fewest triangles which keep its
+   * border, i.e. two fewer than its border vertices.
+   */
+  @Test
+  public void testSimplify_flat() {
+    MeshSimplifier simplifier = new MeshSimplifier(createGrid(10, 0));
+
+    int[] triangles = simplifier.simplify(0, 1e-6);
+
+    assertThat(triangles.length / 3).isEqualTo(38);
+    assertThat(simplifier.getError()).isEqualTo(0);
+  }
+
+  /**
+   * Tests that successive levels of detail of a curved surface reach their target triangle counts
+   * with increasing error, and that the error limit is respected.
+   */
+  @Test
+  public void testSimplify_levels() {
+    IndexedMesh mesh = createGrid(50, 1);
+    MeshSimplifier simplifier = new MeshSimplifier(mesh);
+
+    int[] half = simplifier.simplify(2500, Double.POSITIVE_INFINITY);
+    double halfError = simplifier.getError();
+    int[] tenth = simplifier.simplify(500, Double.POSITIVE_INFINITY);
+
+    assertThat(half.length / 3).isEqualTo(2500);
+    assertThat(tenth.length / 3).isEqualTo(500);
+    assertThat(simplifier.getError()).isGreaterThan(halfError);
+
+    MeshSimplifier limited = new MeshSimplifier(mesh);
+    int[] triangles = limited.simplify(0, 0.01);
+    assertThat(triangles.length).isLessThan(mesh.getTriangles().length);
+    assertThat(limited.getError()).isLessThanOrEqualTo(0.01);
+  }
+
+  /**
+   * @return A square grid of the given number of cells on each side, with a sine wave of the given
+   *         amplitude.
+   */
+  private IndexedMesh createGrid(int size, double amplitude) {
+    double[] positions = new double[(size + 1) * (size + 1) * 3];
+    int[] triangles = new int[size * size * 6];
+    for (int y = 0, i = 0; y <= size; y++) {
+      for (int x = 0; x <= size; x++) {
+        positions[i++] = x;
+        positions[i++] = y;
+        positions[i++] = amplitude * Math.sin(x * 0.5) * Math.cos(y * 0.3);
+      }
+    }
+    for (int y = 0, i = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int corner = y * (size + 1) + x;
+        int above = corner + size + 1;
+        triangles[i++] = corner;
+        triangles[i++] = corner + 1;
+        triangles[i++] = above + 1;
+        triangles[i++] = corner;
+        triangles[i++] = above + 1;
+        triangles[i++] = above;
+      }
+    }
+    return new IndexedMesh(positions, null, triangles);
+  }
+
+}
@@ -0,0 +1,104 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import au.com.mutopia.acs.util.mesh.MeshSplitter.Chunk;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link MeshSplitter} class.
+ */
+public class MeshSplitterTest {
+
+  private static final int SIZE = 20;
+
+  /**
+   * Tests that a grid is split into chunks within the vertex limit, which together contain each
+   * triangle of each level once, with the same vertex positions.
+   */
+  @Test
+  public void testSplit() {
+    double[] positions = createGridPositions();
+    int[] triangles = createGridTriangles(1);
+    int[] coarse = createGridTriangles(2);
+
+    List<Chunk> chunks =
+        new MeshSplitter(100).split(positions, Arrays.asList(triangles, coarse));
+
+    assertThat(chunks.size()).isGreaterThan(4);
+    int[][] levels = {triangles, coarse};
+    int[] counts = new int[levels.length];
+    for (Chunk chunk : chunks) {
+      int[] vertices = chunk.getVertices();
+      assertThat(vertices.length).isLessThanOrEqualTo(100);
+      for (int level = 0; level < levels.length; level++) {
+        int[] sources = chunk.getSourceTriangles().get(level);
+        int[] local = chunk.getTriangles().get(level);
+        for (int i = 0; i < sources.length; i++) {
+          assertThat(i == 0 || sources[i] > sources[i - 1]).isTrue();
+          for (int corner = 0; corner < 3; corner++) {
+            assertThat(vertices[local[i * 3 + corner]]).isEqualTo(
+                levels[level][sources[i] * 3 + corner]);
+          }
+        }
+        counts[level] += sources.length;
+      }
+    }
+    assertThat(counts[0]).isEqualTo(triangles.length / 3);
+    assertThat(counts[1]).isEqualTo(coarse.length / 3);
+  }
+
+  /**
+   * Tests that a mesh within the vertex limit is left as a single chunk.
+   */
+  @Test
+  public void testSplit_small() {
+    int[] triangles = createGridTriangles(1);
+
+    List<Chunk> chunks =
+        new MeshSplitter(MeshSplitter.MAX_UINT16_VERTICES).split(createGridPositions(),
+            Arrays.asList(triangles));
+
+    assertThat(chunks).hasSize(1);
+    assertThat(chunks.get(0).getVertices().length).isEqualTo((SIZE + 1) * (SIZE + 1));
+    assertThat(chunks.get(0).getSourceTriangles().get(0).length).isEqualTo(triangles.length / 3);
+  }
+
+  private double[] createGridPositions() {
+    double[] positions = new double[(SIZE + 1) * (SIZE + 1) * 3];
+    for (int y = 0, i = 0; y <= SIZE; y++) {
+      for (int x = 0; x <= SIZE; x++) {
+        positions[i++] = x;
+        positions[i++] = y;
+        positions[i++] = 0;
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * @return The triangles of the grid, with cells spanning the given number of vertices.
+   */
+  private int[] createGridTriangles(int step) {
+    int cells = SIZE / step;
+    int[] triangles = new int[cells * cells * 6];
+    for (int y = 0, i = 0; y < SIZE; y += step) {
+      for (int x = 0; x < SIZE; x += step) {
+        int corner = y * (SIZE + 1) + x;
+        int above = corner + step * (SIZE + 1);
+        triangles[i++] = corner;
+        triangles[i++] = corner + step;
+        triangles[i++] = above + step;
+        triangles[i++] = corner;
+        triangles[i++] = above + step;
+        triangles[i++] = above;
+      }
+    }
+    return triangles;
+  }
+
+}
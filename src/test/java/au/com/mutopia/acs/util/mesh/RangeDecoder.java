@@ -0,0 +1,105 @@
+package au.com.mutopia.acs.util.mesh;
+
+/**
+ * A reference decoder of the bits and integers coded by a {@link RangeEncoder}.
+ */
+public class RangeDecoder {
+
+  private static final int TOP_MASK = 0xff000000;
+
+  private final byte[] data;
+
+  private int position;
+
+  private int range = 0xffffffff;
+
+  private int code;
+
+  /**
+   * @param data The bytes coded by a {@link RangeEncoder}.
+   */
+  public RangeDecoder(byte[] data) {
+    this.data = data;
+    // The first byte is always 0.
+    position = 1;
+    for (int i = 0; i < 4; i++) {
+      code = (code << 8) | readByte();
+    }
+  }
+
+  /**
+   * @see RangeEncoder#encodeBit(short[], int, int)
+   */
+  public int decodeBit(short[] model, int context) {
+    normalize();
+    int probability = model[context];
+    int bound = (range >>> RangeEncoder.PROBABILITY_BITS) * probability;
+    int bit;
+    // Compare the code and bound as unsigned integers.
+    if ((code ^ 0x80000000) < (bound ^ 0x80000000)) {
+      range = bound;
+      probability +=
+          ((1 << RangeEncoder.PROBABILITY_BITS) - probability) >>> RangeEncoder.MOVE_BITS;
+      bit = 0;
+    } else {
+      range -= bound;
+      code -= bound;
+      probability -= probability >>> RangeEncoder.MOVE_BITS;
+      bit = 1;
+    }
+    model[context] = (short) probability;
+    return bit;
+  }
+
+  /**
+   * @see RangeEncoder#encodeDirectBits(int, int)
+   */
+  public int decodeDirectBits(int count) {
+    int value = 0;
+    for (int i = 0; i < count; i++) {
+      normalize();
+      range >>>= 1;
+      int bit = (code ^ 0x80000000) < (range ^ 0x80000000) ? 0 : 1;
+      if (bit == 1) {
+        code -= range;
+      }
+      value = (value << 1) | bit;
+    }
+    return value;
+  }
+
+  /**
+   * @see RangeEncoder#encodeUnsigned(short[], int)
+   */
+  public int decodeUnsigned(short[] model) {
+    int node = 1;
+    for (int i = 0; i < 6; i++) {
+      node = (node << 1) | decodeBit(model, node);
+    }
+    int length = node - RangeEncoder.UNSIGNED_MODEL_SIZE;
+    if (length <= 1) {
+      return length;
+    }
+    return (1 << (length - 1)) | decodeDirectBits(length - 1);
+  }
+
+  /**
+   * @see RangeEncoder#encodeSigned(short[], int)
+   */
+  public int decodeSigned(short[] model) {
+    int value = decodeUnsigned(model);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private void normalize() {
+    if ((range & TOP_MASK) == 0) {
+      range <<= 8;
+      code = (code << 8) | readByte();
+    }
+  }
+
+  private int readByte() {
+    return position < data.length ? data[position++] & 0xff : 0;
+  }
+
+}
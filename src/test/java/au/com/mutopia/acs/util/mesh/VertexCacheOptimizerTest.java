@@ -0,0 +1,105 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link VertexCacheOptimizer} class.
+ */
+public class VertexCacheOptimizerTest {
+
+  private static final int GRID_SIZE = 40;
+
+  private static final int VERTEX_COUNT = (GRID_SIZE + 1) * (GRID_SIZE + 1);
+
+  /**
+   * Tests that the triangles of a shuffled grid are reordered to miss the cache far less often,
+   * without changing the triangles themselves.
+   */
+  @Test
+  public void testOptimize() {
+    int[] triangles = createShuffledGrid();
+    double shuffledAcmr = VertexCacheOptimizer.computeAcmr(triangles, VERTEX_COUNT, 16);
+
+    int[] optimized = triangles.clone();
+    new VertexCacheOptimizer(VERTEX_COUNT).optimize(optimized, 0, optimized.length);
+
+    assertThat(shuffledAcmr).isGreaterThan(2);
+    assertThat(VertexCacheOptimizer.computeAcmr(optimized, VERTEX_COUNT, 16)).isLessThan(0.8);
+    assertThat(sortTriangles(optimized)).isEqualTo(sortTriangles(triangles));
+  }
+
+  /**
+   * Tests that the triangles outside of the optimised range are left in place.
+   */
+  @Test
+  public void testOptimize_range() {
+    int[] triangles = createShuffledGrid();
+    int[] optimized = triangles.clone();
+
+    new VertexCacheOptimizer(VERTEX_COUNT).optimize(optimized, 300, 600);
+
+    for (int i = 0; i < triangles.length; i++) {
+      if (i < 300 || i >= 600) {
+        assertThat(optimized[i]).isEqualTo(triangles[i]);
+      }
+    }
+  }
+
+  /**
+   * Tests that vertices are numbered in the order they are first used.
+   */
+  @Test
+  public void testComputeFetchOrder() {
+    int[] remap = VertexCacheOptimizer.computeFetchOrder(new int[] {3, 1, 4, 1, 4, 0}, 6);
+
+    assertThat(remap).isEqualTo(new int[] {3, 1, 4, 0, 2, 5});
+  }
+
+  /**
+   * @return The triangles of a square grid, in a random order.
+   */
+  private int[] createShuffledGrid() {
+    List<int[]> cells = new ArrayList<>();
+    for (int y = 0; y < GRID_SIZE; y++) {
+      for (int x = 0; x < GRID_SIZE; x++) {
+        int corner = y * (GRID_SIZE + 1) + x;
+        int above = corner + GRID_SIZE + 1;
+        cells.add(new int[] {corner, corner + 1, above + 1});
+        cells.add(new int[] {corner, above + 1, above});
+      }
+    }
+    Collections.shuffle(cells, new Random(1));
+    int[] triangles = new int[cells.size() * 3];
+    for (int i = 0; i < cells.size(); i++) {
+      System.arraycopy(cells.get(i), 0, triangles, i * 3, 3);
+    }
+    return triangles;
+  }
+
+  /**
+   * @return Each triangle as a string, rotated to start with its lowest index, in sorted order.
+   */
+  private List<String> sortTriangles(int[] triangles) {
+    List<String> sorted = new ArrayList<>();
+    for (int i = 0; i < triangles.length; i += 3) {
+      int first = 0;
+      for (int corner = 1; corner < 3; corner++) {
+        if (triangles[i + corner] < triangles[i + first]) {
+          first = corner;
+        }
+      }
+      sorted.add(triangles[i + first] + "," + triangles[i + (first + 1) % 3] + ","
+          + triangles[i + (first + 2) % 3]);
+    }
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+}
@@ -0,0 +1,55 @@
+package au.com.mutopia.acs.util.mesh;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link VertexWelder} class.
+ */
+public class VertexWelderTest {
+
+  /**
+   * Tests that a quad with a vertex per triangle corner is welded to four vertices, that vertices
+   * with different normals are kept apart, and that unreferenced vertices are removed.
+   */
+  @Test
+  public void testWeld() {
+    double[] positions = {
+        0, 0, 0, 1, 0, 0, 1, 1, 0, // The first triangle.
+        5, 5, 5, // An unreferenced vertex.
+        0.00001, 0, 0, 1, 1, 0.00001, 0, 1, 0, // The second triangle.
+        1, 0, 0}; // The first corner again, with a different normal.
+    float[] normals = {
+        0, 0, 1, 0, 0, 1, 0, 0, 1,
+        0, 0, 1,
+        0, 0, 1, 0, 0, 1, 0, 0, 1,
+        0, 1, 0};
+    int[] triangles = {0, 1, 2, 4, 5, 6, 7, 5, 6};
+
+    IndexedMesh mesh =
+        new VertexWelder(1e-4, 1e-3).weld(new IndexedMesh(positions, normals, triangles));
+
+    assertThat(mesh.getPositions()).isEqualTo(
+        new double[] {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 1, 0, 0});
+    assertThat(mesh.getNormals()).isEqualTo(
+        new float[] {0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 1, 0});
+    assertThat(mesh.getTriangles()).isEqualTo(new int[] {0, 1, 2, 0, 2, 3, 4, 2, 3});
+  }
+
+  /**
+   * Tests that triangles which collapse to a line when welded are removed.
+   */
+  @Test
+  public void testWeld_degenerate() {
+    double[] positions = {0, 0, 0, 1, 0, 0, 1, 0, 0, 0, 1, 0};
+    int[] triangles = {0, 1, 2, 0, 1, 3};
+
+    IndexedMesh mesh = new VertexWelder(0, 0).weld(new IndexedMesh(positions, null, triangles));
+
+    assertThat(mesh.getPositions()).isEqualTo(new double[] {0, 0, 0, 1, 0, 0, 0, 1, 0});
+    assertThat(mesh.getNormals()).isNull();
+    assertThat(mesh.getTriangles()).isEqualTo(new int[] {0, 1, 2});
+  }
+
+}